@@ -158,6 +158,8 @@ public class SIPWebContext extends SipContextImpl {
             super.sasTimerServiceType = SipContextImpl.TimerServiceType.DEFAULT;
         }else if (Constants.STANDARD.equalsIgnoreCase(sipServer.getService().getSasTimerServiceImplementationType())){
             super.sasTimerServiceType = SipContextImpl.TimerServiceType.STANDARD;
+        }else if (Constants.TIMING_WHEEL.equalsIgnoreCase(sipServer.getService().getSasTimerServiceImplementationType())){
+            super.sasTimerServiceType = SipContextImpl.TimerServiceType.TIMING_WHEEL;
         }else{
             super.sasTimerServiceType = SipContextImpl.TimerServiceType.STANDARD;
         }
@@ -79,6 +79,7 @@ import org.mobicents.servlet.sip.core.timers.ProxyTimerServiceImpl;
 import org.mobicents.servlet.sip.core.timers.SipApplicationSessionTimerService;
 import org.mobicents.servlet.sip.core.timers.SipServletTimerService;
 import org.mobicents.servlet.sip.core.timers.StandardSipApplicationSessionTimerService;
+import org.mobicents.servlet.sip.core.timers.TimingWheelSipApplicationSessionTimerService;
 import org.mobicents.servlet.sip.core.timers.TimerServiceImpl;
 import org.mobicents.servlet.sip.dns.MobicentsDNSResolver;
 import org.mobicents.servlet.sip.listener.SipConnectorListener;
@@ -410,6 +411,8 @@ public class SipContextImpl implements SipContext {
                 sasTimerService = new StandardSipApplicationSessionTimerService(getApplicationName());
             }else if (sasTimerServiceType != null && sasTimerServiceType == TimerServiceType.DEFAULT){
                 sasTimerService = new DefaultSipApplicationSessionTimerService(getApplicationName());
+            }else if (sasTimerServiceType != null && sasTimerServiceType == TimerServiceType.TIMING_WHEEL){
+                sasTimerService = new TimingWheelSipApplicationSessionTimerService(getApplicationName());
             }else{
                 sasTimerService = new StandardSipApplicationSessionTimerService(getApplicationName());
             }
@@ -1182,7 +1185,8 @@ public class SipContextImpl implements SipContext {
 
     public enum TimerServiceType{
         STANDARD,
-        DEFAULT;
+        DEFAULT,
+        TIMING_WHEEL;
     }
 
         private long gracefulInterval = 30000;
@@ -143,6 +143,7 @@ interface Constants {
     String TARGET_VM = "target-vm";
     String TEST = "test";
     String TIMER_D_INTERVAL = "timer-d-interval";
+    String TIMING_WHEEL = "timingwheel";
     String TRIM_SPACES = "trim-spaces";
     String TRUSTSTORE_TYPE = "truststore-type";
     String USE_PRETTY_ENCODING = "use-pretty-encoding";
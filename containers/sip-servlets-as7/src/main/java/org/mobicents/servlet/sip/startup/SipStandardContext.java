@@ -100,6 +100,7 @@ import org.mobicents.servlet.sip.core.timers.ProxyTimerServiceImpl;
 import org.mobicents.servlet.sip.core.timers.SipApplicationSessionTimerService;
 import org.mobicents.servlet.sip.core.timers.SipServletTimerService;
 import org.mobicents.servlet.sip.core.timers.StandardSipApplicationSessionTimerService;
+import org.mobicents.servlet.sip.core.timers.TimingWheelSipApplicationSessionTimerService;
 import org.mobicents.servlet.sip.core.timers.TimerServiceImpl;
 import org.mobicents.servlet.sip.listener.SipConnectorListener;
 import org.mobicents.servlet.sip.message.SipFactoryFacade;
@@ -303,6 +304,8 @@ public class SipStandardContext extends StandardContext implements CatalinaSipCo
                 sasTimerService = new StandardSipApplicationSessionTimerService(applicationName);
             } else if (sasTimerServiceType != null && sasTimerServiceType.equalsIgnoreCase("Default")) {
                 sasTimerService = new DefaultSipApplicationSessionTimerService(applicationName);
+            } else if (sasTimerServiceType != null && sasTimerServiceType.equalsIgnoreCase("TimingWheel")) {
+                sasTimerService = new TimingWheelSipApplicationSessionTimerService(applicationName);
             } else {
                 sasTimerService = new StandardSipApplicationSessionTimerService(applicationName);
             }
@@ -68,15 +68,16 @@ import org.mobicents.ha.javax.sip.LoadBalancerHeartBeatingService;
 import org.mobicents.ha.javax.sip.LoadBalancerHeartBeatingServiceImpl;
 import org.mobicents.ha.javax.sip.ReplicationStrategy;
 import org.mobicents.javax.servlet.CongestionControlPolicy;
-import org.mobicents.servlet.sip.JainSipUtils;
 import org.mobicents.servlet.sip.SipConnector;
 import org.mobicents.servlet.sip.annotation.ConcurrencyControlMode;
+import org.mobicents.servlet.sip.core.DispatcherExecutorType;
 import org.mobicents.servlet.sip.core.ExtendedListeningPoint;
 import org.mobicents.servlet.sip.core.MobicentsExtendedListeningPoint;
 import org.mobicents.servlet.sip.core.SipApplicationDispatcher;
 import org.mobicents.servlet.sip.core.SipContext;
 import org.mobicents.servlet.sip.core.message.OutboundProxy;
 import org.mobicents.servlet.sip.dns.MobicentsDNSResolver;
+import org.mobicents.servlet.sip.message.HeaderRegistry;
 import org.mobicents.servlet.sip.message.Servlet3SipServletMessageFactory;
 import org.mobicents.servlet.sip.startup.StaticServiceHolder;
 
@@ -116,12 +117,23 @@ public class SipStandardService extends StandardService implements CatalinaSipSe
 	private boolean gatherStatistics = true;
 	protected int sipMessageQueueSize = 1500;
 	private int backToNormalSipMessageQueueSize = 1300;
+	private int initialRequestsLaneSize = 1000;
+	private int inDialogLaneSize = 1000;
 	protected int memoryThreshold = 95;
 	private int backToNormalMemoryThreshold = 90;
 	protected OutboundProxy outboundProxy;
 	protected String proxyTimerServiceImplementationType;
     protected String sasTimerServiceImplementationType;
 	protected long congestionControlCheckingInterval = 30000;
+	protected long congestionControlQueueDelayTarget = 50;
+	protected long congestionControlQueueDelayInterval = 500;
+	protected boolean overloadControl = false;
+	protected long overloadControlValidity = 500;
+	protected double sourceRateLimit = 0;
+	protected int sourceRateLimitBurst = 50;
+	protected boolean sourceRateLimitByPort = false;
+	protected String sourceRateLimitAllowList;
+	protected int sourceRateLimitMaxSources = 10000;
 	private int canceledTimerTasksPurgePeriod = 0;
 	// base timer interval for jain sip tx 
 	private int baseTimerInterval = 500;
@@ -129,9 +141,12 @@ public class SipStandardService extends StandardService implements CatalinaSipSe
 	private int t4Interval = 5000;
 	private int timerDInterval = 32000;
 	protected int dispatcherThreadPoolSize = 15;
+	protected String dispatcherExecutorType = DispatcherExecutorType.Default.toString();
 	private boolean md5ContactUserPart = false;
 	
 	protected String concurrencyControlMode = ConcurrencyControlMode.SipApplicationSession.toString();
+	protected boolean concurrencyControlMailbox = false;
+	protected boolean localApplicationComposition = false;
 	protected String congestionControlPolicy = CongestionControlPolicy.ErrorResponse.toString();
 	protected String additionalParameterableHeaders;
 	protected boolean bypassResponseExecutor = true;
@@ -291,11 +306,24 @@ public class SipStandardService extends StandardService implements CatalinaSipSe
 		sipApplicationDispatcher.setMemoryThreshold(getMemoryThreshold());
 		sipApplicationDispatcher.setBackToNormalMemoryThreshold(backToNormalMemoryThreshold);
 		sipApplicationDispatcher.setCongestionControlCheckingInterval(getCongestionControlCheckingInterval());
+		sipApplicationDispatcher.setCongestionControlQueueDelayTarget(congestionControlQueueDelayTarget);
+		sipApplicationDispatcher.setCongestionControlQueueDelayInterval(congestionControlQueueDelayInterval);
+		sipApplicationDispatcher.setOverloadControl(overloadControl);
+		sipApplicationDispatcher.setOverloadControlValidity(overloadControlValidity);
+		sipApplicationDispatcher.setSourceRateLimitBurst(sourceRateLimitBurst);
+		sipApplicationDispatcher.setSourceRateLimitByPort(sourceRateLimitByPort);
+		sipApplicationDispatcher.setSourceRateLimitAllowList(sourceRateLimitAllowList);
+		sipApplicationDispatcher.setSourceRateLimitMaxSources(sourceRateLimitMaxSources);
+		sipApplicationDispatcher.setSourceRateLimit(sourceRateLimit);
 		sipApplicationDispatcher.setCongestionControlPolicyByName(getCongestionControlPolicy());
 		sipApplicationDispatcher.setQueueSize(getSipMessageQueueSize());
 		sipApplicationDispatcher.setBackToNormalQueueSize(backToNormalSipMessageQueueSize);
+		sipApplicationDispatcher.setInitialRequestsLaneSize(initialRequestsLaneSize);
+		sipApplicationDispatcher.setInDialogLaneSize(inDialogLaneSize);
 		sipApplicationDispatcher.setGatherStatistics(gatherStatistics);
 		sipApplicationDispatcher.setConcurrencyControlMode(ConcurrencyControlMode.valueOf(getConcurrencyControlMode()));		
+		sipApplicationDispatcher.setConcurrencyControlMailbox(concurrencyControlMailbox);
+		sipApplicationDispatcher.setLocalApplicationComposition(localApplicationComposition);
 		sipApplicationDispatcher.setBypassRequestExecutor(bypassRequestExecutor);
 		sipApplicationDispatcher.setBypassResponseExecutor(bypassResponseExecutor);		
 		sipApplicationDispatcher.setSipStack(sipStack);
@@ -715,6 +743,38 @@ public class SipStandardService extends StandardService implements CatalinaSipSe
 		this.concurrencyControlMode = concurrencyControlMode;
 	}
 
+	/**
+	 * @return true if the SipSession and SipApplicationSession concurrency control modes use session mailboxes
+	 */
+	public boolean isConcurrencyControlMailbox() {
+		return concurrencyControlMailbox;
+	}
+
+	/**
+	 * Serializes the tasks of a session in a lock free mailbox instead of making the threads wait on the session semaphore
+	 * for the SipSession and SipApplicationSession concurrency control modes
+	 * @param concurrencyControlMailbox true to use session mailboxes
+	 */
+	public void setConcurrencyControlMailbox(boolean concurrencyControlMailbox) {
+		this.concurrencyControlMailbox = concurrencyControlMailbox;
+	}
+
+	/**
+	 * @return true if the requests routed from one application to the next one are addressed to the local address of the container
+	 */
+	public boolean isLocalApplicationComposition() {
+		return localApplicationComposition;
+	}
+
+	/**
+	 * Addresses the requests routed from one application to the next one to the local address of the connector rather than
+	 * to its static or public address, so that the stack hands them over in the JVM instead of sending them through the network
+	 * @param localApplicationComposition true to route application composition locally
+	 */
+	public void setLocalApplicationComposition(boolean localApplicationComposition) {
+		this.localApplicationComposition = localApplicationComposition;
+	}
+
 
 	/**
 	 * @param memoryThreshold the memoryThreshold to set
@@ -778,6 +838,34 @@ public class SipStandardService extends StandardService implements CatalinaSipSe
 		this.backToNormalSipMessageQueueSize = backToNormalSipMessageQueueSize;
 	}
 
+	/**
+	 * @return the maximum number of initial requests waiting to be dispatched when the PriorityLanes dispatcher executor is used
+	 */
+	public int getInitialRequestsLaneSize() {
+		return initialRequestsLaneSize;
+	}
+
+	/**
+	 * @param initialRequestsLaneSize the maximum number of initial requests waiting to be dispatched, the ones above are shed
+	 */
+	public void setInitialRequestsLaneSize(int initialRequestsLaneSize) {
+		this.initialRequestsLaneSize = initialRequestsLaneSize;
+	}
+
+	/**
+	 * @return the maximum number of in dialog messages waiting to be dispatched when the PriorityLanes dispatcher executor is used
+	 */
+	public int getInDialogLaneSize() {
+		return inDialogLaneSize;
+	}
+
+	/**
+	 * @param inDialogLaneSize the maximum number of in dialog messages waiting to be dispatched
+	 */
+	public void setInDialogLaneSize(int inDialogLaneSize) {
+		this.inDialogLaneSize = inDialogLaneSize;
+	}
+
 	/**
 	 * @return the backToNormalQueueSize
 	 */
@@ -818,6 +906,132 @@ public class SipStandardService extends StandardService implements CatalinaSipSe
 		return congestionControlCheckingInterval;
 	}
 
+	/**
+	 * @param congestionControlQueueDelayTarget the time in milliseconds above which messages waiting in the queues are considered congested with the QueueDelay policy
+	 */
+	public void setCongestionControlQueueDelayTarget(long congestionControlQueueDelayTarget) {
+		this.congestionControlQueueDelayTarget = congestionControlQueueDelayTarget;
+	}
+
+	/**
+	 * @return the congestionControlQueueDelayTarget
+	 */
+	public long getCongestionControlQueueDelayTarget() {
+		return congestionControlQueueDelayTarget;
+	}
+
+	/**
+	 * @param congestionControlQueueDelayInterval the time in milliseconds the queue delay has to stay above the target before congestion starts with the QueueDelay policy
+	 */
+	public void setCongestionControlQueueDelayInterval(long congestionControlQueueDelayInterval) {
+		this.congestionControlQueueDelayInterval = congestionControlQueueDelayInterval;
+	}
+
+	/**
+	 * @return the congestionControlQueueDelayInterval
+	 */
+	public long getCongestionControlQueueDelayInterval() {
+		return congestionControlQueueDelayInterval;
+	}
+
+	/**
+	 * @param overloadControl true to exchange the RFC 7339 overload control parameters in the Via headers
+	 */
+	public void setOverloadControl(boolean overloadControl) {
+		this.overloadControl = overloadControl;
+	}
+
+	/**
+	 * @return the overloadControl
+	 */
+	public boolean isOverloadControl() {
+		return overloadControl;
+	}
+
+	/**
+	 * @param overloadControlValidity the time in milliseconds the upstream clients are asked to apply the advertised reduction
+	 */
+	public void setOverloadControlValidity(long overloadControlValidity) {
+		this.overloadControlValidity = overloadControlValidity;
+	}
+
+	/**
+	 * @return the overloadControlValidity
+	 */
+	public long getOverloadControlValidity() {
+		return overloadControlValidity;
+	}
+
+	/**
+	 * @param sourceRateLimit the number of initial requests per second accepted from each source, 0 or less to disable the limit
+	 */
+	public void setSourceRateLimit(double sourceRateLimit) {
+		this.sourceRateLimit = sourceRateLimit;
+	}
+
+	/**
+	 * @return the sourceRateLimit
+	 */
+	public double getSourceRateLimit() {
+		return sourceRateLimit;
+	}
+
+	/**
+	 * @param sourceRateLimitBurst the number of initial requests a source can send at once after being idle
+	 */
+	public void setSourceRateLimitBurst(int sourceRateLimitBurst) {
+		this.sourceRateLimitBurst = sourceRateLimitBurst;
+	}
+
+	/**
+	 * @return the sourceRateLimitBurst
+	 */
+	public int getSourceRateLimitBurst() {
+		return sourceRateLimitBurst;
+	}
+
+	/**
+	 * @param sourceRateLimitByPort true to limit the rate per source ip address and port instead of per source ip address
+	 */
+	public void setSourceRateLimitByPort(boolean sourceRateLimitByPort) {
+		this.sourceRateLimitByPort = sourceRateLimitByPort;
+	}
+
+	/**
+	 * @return the sourceRateLimitByPort
+	 */
+	public boolean isSourceRateLimitByPort() {
+		return sourceRateLimitByPort;
+	}
+
+	/**
+	 * @param sourceRateLimitAllowList comma separated list of ip addresses or ip:port never rate limited, such as trunks
+	 */
+	public void setSourceRateLimitAllowList(String sourceRateLimitAllowList) {
+		this.sourceRateLimitAllowList = sourceRateLimitAllowList;
+	}
+
+	/**
+	 * @return the sourceRateLimitAllowList
+	 */
+	public String getSourceRateLimitAllowList() {
+		return sourceRateLimitAllowList;
+	}
+
+	/**
+	 * @param sourceRateLimitMaxSources the maximum number of sources for which the rate is tracked
+	 */
+	public void setSourceRateLimitMaxSources(int sourceRateLimitMaxSources) {
+		this.sourceRateLimitMaxSources = sourceRateLimitMaxSources;
+	}
+
+	/**
+	 * @return the sourceRateLimitMaxSources
+	 */
+	public int getSourceRateLimitMaxSources() {
+		return sourceRateLimitMaxSources;
+	}
+
 
 	public String getAdditionalParameterableHeaders() {
 		return additionalParameterableHeaders;
@@ -830,7 +1044,7 @@ public class SipStandardService extends StandardService implements CatalinaSipSe
 		String[] headers = additionalParameterableHeaders.split(",");
 		for(String header : headers) {
 			if(header != null && header.length()>0) {
-				JainSipUtils.PARAMETERABLE_HEADER_NAMES.add(header);
+				HeaderRegistry.addParameterableHeader(header);
 			}
 		}
 	}
@@ -946,6 +1160,18 @@ public class SipStandardService extends StandardService implements CatalinaSipSe
 	public void setDispatcherThreadPoolSize(int dispatcherThreadPoolSize) {
 		this.dispatcherThreadPoolSize = dispatcherThreadPoolSize;
 	}
+
+	public String getDispatcherExecutorType() {
+		return dispatcherExecutorType;
+	}
+
+	/**
+	 * @param dispatcherExecutorType the executor model used to hand off SIP messages to the applications, 
+	 * Default or Striped. In Striped mode dispatcherThreadPoolSize is the number of lanes
+	 */
+	public void setDispatcherExecutorType(String dispatcherExecutorType) {
+		this.dispatcherExecutorType = dispatcherExecutorType;
+	}
 	
 	public int getCanceledTimerTasksPurgePeriod() {
 		return canceledTimerTasksPurgePeriod;
@@ -31,6 +31,9 @@ package org.mobicents.javax.servlet;
  * <li>DropMessage - drop any incoming message</li>
  * <li>ErrorResponse - send a 503 - Service Unavailable response to any incoming
  * request (Default).</li>
+ * <li>QueueDelay - detect the congestion from the time messages wait in the queues
+ * instead of their number and send a 503 - Service Unavailable response with a Retry-After 
+ * computed from the rate at which the queues are drained</li>
  * </ul>
  *
  * @author jean.deruelle@gmail.com
@@ -38,5 +41,6 @@ package org.mobicents.javax.servlet;
  */
 public enum CongestionControlPolicy {
     ErrorResponse,
-    DropMessage
+    DropMessage,
+    QueueDelay
 }
@@ -0,0 +1,82 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.javax.servlet.sip;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+
+import javax.servlet.sip.SipServletMessage;
+
+/**
+ * Interface Extension that adds extra features to the JSR 289 SipServletMessage interface.</br>
+ * It gives access to the message body without copying it :
+ * 
+ * <ul>
+ * 		<li>
+ * 			as a read only buffer over the bytes received or set
+ * 		</li>
+ * 		<li>
+ * 			as characters, decoded once per body and charset (bodies made of ASCII characters,
+ * 			like SDP, are not decoded at all but viewed directly)
+ * 		</li>
+ * 		<li>
+ * 			as a parsed representation cached with the message, for multipart bodies the changes made to it
+ * 			are written back to the body when the body is read or leaves the message
+ * 		</li>
+ * </ul>
+ * 
+ * @since 3.1
+ */
+public interface SipServletMessageExt extends SipServletMessage {
+
+	/**
+	 * Returns a read only view of the body of this message, changes to the content done afterwards through
+	 * setContent are not reflected in the returned buffer.
+	 * 
+	 * @return the body of the message or null if the message doesn't have one
+	 */
+	ByteBuffer getContentBuffer();
+
+	/**
+	 * Returns the body of this message as characters, using the charset of the Content-Type header.
+	 * The same sequence is returned as long as the body and its charset don't change.
+	 * 
+	 * @return the body of the message or null if the message doesn't have one
+	 * @throws UnsupportedEncodingException if the charset of the body is not supported
+	 */
+	CharSequence getContentCharSequence() throws UnsupportedEncodingException;
+
+	/**
+	 * Returns the body of this message parsed according to its Content-Type, cached with the message :
+	 * a javax.mail.internet.MimeMultipart for multipart bodies, the same as getContentCharSequence for text bodies
+	 * and the same as getContentBuffer otherwise.</br>
+	 * The multipart returned can be modified by the application. If it was, it is serialized back to the body of the message
+	 * when the message is sent, proxied or copied to another message, and before the body is read through getContent,
+	 * getRawContent, getContentBuffer or getContentCharSequence. A multipart that wasn't modified never changes the body.
+	 * Changes made to the multipart after the message was copied are not reflected in the copy. Once the message 
+	 * is committed its body is never rewritten and the multipart can't be modified anymore.
+	 * 
+	 * @return the parsed body of the message or null if the message doesn't have one
+	 * @throws IOException if the body couldn't be parsed
+	 */
+	Object getParsedContent() throws IOException;
+}
@@ -0,0 +1,38 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package org.mobicents.servlet.sip.core;
+
+/**
+ * Enumeration of the stages a SIP message goes through in the container, 
+ * the latency of each stage is recorded through {@link SipApplicationDispatcher#updateDispatchStageLatency(DispatchStage, String, String, long)}
+ * 
+ * <ul>
+ * <li>ServerTransaction : creation of the server transaction for an incoming request</li>
+ * <li>ApplicationRouting : selection of the application by the application router for an initial request</li>
+ * <li>ExecutorQueue : time the message waited in the dispatcher executor queue before being processed</li>
+ * <li>SessionLock : time the message waited on the session semaphore of the concurrency control mode</li>
+ * <li>Servlet : time spent in the servlet service method</li>
+ * <li>Send : time spent sending a request or a response out</li>
+ * </ul>
+ *
+ */
+public enum DispatchStage {
+	ServerTransaction, ApplicationRouting, ExecutorQueue, SessionLock, Servlet, Send;
+}
@@ -184,6 +184,21 @@ public interface SipApplicationDispatcher extends SipListenerExt {
 	String getConcurrencyControlModeByName();
 	void setConcurrencyControlMode(ConcurrencyControlMode concurrencyControlMode);
 	void setConcurrencyControlModeByName(String concurrencyControlMode);
+	/**
+	 * @return true if the SipSession and SipApplicationSession concurrency control modes serialize the tasks of a session 
+	 * in a mailbox instead of making the threads wait on the session semaphore
+	 */
+	boolean isConcurrencyControlMailbox();
+	/**
+	 * Only applies to the sessions created after the call
+	 */
+	void setConcurrencyControlMailbox(boolean concurrencyControlMailbox);
+	/**
+	 * @return true if the initial requests routed from one application to the next one are addressed to
+	 * the local address of the container so that the stack delivers them in the JVM
+	 */
+	boolean isLocalApplicationComposition();
+	void setLocalApplicationComposition(boolean localApplicationComposition);
 
 	int getQueueSize();
 	void setQueueSize(int queueSize);
@@ -198,6 +213,93 @@ public interface SipApplicationDispatcher extends SipListenerExt {
 	void setCongestionControlPolicy(CongestionControlPolicy congestionControlPolicy);
 	String getCongestionControlPolicyByName();
 	void setCongestionControlPolicyByName(String congestionControlPolicy);
+	/**
+	 * @return the time in milliseconds above which messages waiting in the queues are considered congested with the QueueDelay policy
+	 */
+	long getCongestionControlQueueDelayTarget();
+	void setCongestionControlQueueDelayTarget(long congestionControlQueueDelayTarget);
+	/**
+	 * @return the time in milliseconds the queue delay has to stay above the target before congestion starts with the QueueDelay policy
+	 */
+	long getCongestionControlQueueDelayInterval();
+	void setCongestionControlQueueDelayInterval(long congestionControlQueueDelayInterval);
+	/**
+	 * @return the time in milliseconds the last dispatched message waited in the queues, only measured with the QueueDelay policy
+	 */
+	long getQueueDelay();
+	/**
+	 * @return the number of messages taken out of the queues per second, only measured with the QueueDelay policy
+	 */
+	double getQueueDrainRate();
+	/**
+	 * @return the number of initial requests per second accepted from each source, 0 or less if not limited
+	 */
+	double getSourceRateLimit();
+	void setSourceRateLimit(double sourceRateLimit);
+	/**
+	 * @return the number of initial requests a source can send at once after being idle
+	 */
+	int getSourceRateLimitBurst();
+	void setSourceRateLimitBurst(int sourceRateLimitBurst);
+	/**
+	 * @return true if the rate is limited per source ip address and port, false if it is limited per source ip address
+	 */
+	boolean isSourceRateLimitByPort();
+	void setSourceRateLimitByPort(boolean sourceRateLimitByPort);
+	/**
+	 * @return the comma separated list of ip addresses or ip:port which are never rate limited
+	 */
+	String getSourceRateLimitAllowList();
+	void setSourceRateLimitAllowList(String sourceRateLimitAllowList);
+	/**
+	 * @return the maximum number of sources for which the rate is tracked
+	 */
+	int getSourceRateLimitMaxSources();
+	void setSourceRateLimitMaxSources(int sourceRateLimitMaxSources);
+	/**
+	 * @return the number of initial requests rejected or dropped because their source exceeded its rate
+	 */
+	long getSourceRateLimitedRequests();
+	/**
+	 * @return the number of sources for which the rate is currently tracked
+	 */
+	int getSourceRateLimitSources();
+	/**
+	 * @return true if the RFC 7339 overload control parameters are exchanged in the Via headers
+	 */
+	boolean isOverloadControl();
+	void setOverloadControl(boolean overloadControl);
+	/**
+	 * @return the time in milliseconds the upstream clients are asked to apply the advertised reduction
+	 */
+	long getOverloadControlValidity();
+	void setOverloadControlValidity(long overloadControlValidity);
+	/**
+	 * Adds the RFC 7339 overload control feedback to the top Via header of a response about to be sent, 
+	 * if overload control is enabled and the client advertised its support
+	 */
+	void addOverloadControlFeedback(Response response);
+	/**
+	 * Advertises the RFC 7339 overload control support in the top Via header of a request about to be sent, 
+	 * if overload control is enabled
+	 */
+	void addOverloadControlSupport(Request request);
+	/**
+	 * @return true if the request should not be sent because of the reduction asked by the downstream server it is sent to
+	 */
+	boolean isOverloadControlThrottled(Request request);
+	/**
+	 * @return the percentage of requests the upstream clients are currently asked to drop
+	 */
+	int getOverloadControlReduction();
+	/**
+	 * @return the number of requests not sent because of the reduction asked by downstream servers
+	 */
+	long getOverloadControlThrottledRequests();
+	/**
+	 * @return the percentage of requests currently dropped for each downstream server
+	 */
+	Map<String, Integer> getOverloadControlServerReductions();
 	
 	int getNumberOfMessagesInQueue();
 	double getPercentageOfMemoryUsed();
@@ -240,6 +342,75 @@ public interface SipApplicationDispatcher extends SipListenerExt {
 	
 	void updateResponseStatistics(final Response response, final boolean processed);
 	void updateRequestsStatistics(final Request request, final boolean processed);
+	/**
+	 * Count a request processed by or sent from an application, only if statistics gathering is enabled
+	 */
+	void updateApplicationRequestsStatistics(final String applicationName, final String method, final boolean processed);
+	/**
+	 * Count a response processed by or sent from an application, only if statistics gathering is enabled
+	 */
+	void updateApplicationResponseStatistics(final String applicationName, final int statusCode, final boolean processed);
+	/**
+	 * @return the requests and responses processed and sent per second over the last second and the last minute
+	 */
+	Map<String, Double> getMessageRates();
+	/**
+	 * @return the requests and responses processed and sent by method and class of status code, for each application
+	 */
+	Map<String, Map<String, Long>> getApplicationMessageStatistics();
+	/**
+	 * @return the requests and responses processed and sent per second over the last second and the last minute, for each application
+	 */
+	Map<String, Map<String, Double>> getApplicationMessageRates();
+	/**
+	 * @return the requests and responses processed and sent by method and class of status code, for each transport
+	 */
+	Map<String, Map<String, Long>> getTransportMessageStatistics();
+	/**
+	 * @return the requests and responses processed and sent per second over the last second and the last minute, for each transport
+	 */
+	Map<String, Map<String, Double>> getTransportMessageRates();
+	/**
+	 * Record how long a message spent in one of the container stages, only if statistics gathering is enabled
+	 * @param stage the stage
+	 * @param method the method of the message, can be null
+	 * @param applicationName the application the message is dispatched to or sent from, can be null
+	 * @param latencyNanos the latency in nanoseconds
+	 */
+	void updateDispatchStageLatency(final DispatchStage stage, final String method, final String applicationName, final long latencyNanos);
+	/**
+	 * @return the count and the mean, median, 75th, 95th, 99th, 99.9th percentiles and max latencies in milliseconds
+	 * of each stage, keyed by &lt;stage&gt;.method.&lt;method&gt; and &lt;stage&gt;.app.&lt;application name&gt;
+	 */
+	Map<String, Map<String, Double>> getDispatchStageLatencies();
+	/**
+	 * Record how long a thread waited for a session lock, only if statistics gathering is enabled
+	 * @param applicationName the application the session belongs to
+	 * @param sessionKey the key of the session
+	 * @param waitNanos the time waited in nanoseconds, 0 if the lock was free
+	 */
+	void updateSessionLockWait(final String applicationName, final Object sessionKey, final long waitNanos);
+	/**
+	 * Record how long a session lock was held, only if statistics gathering is enabled
+	 * @param applicationName the application the session belongs to
+	 * @param holdNanos the time held in nanoseconds
+	 */
+	void updateSessionLockHold(final String applicationName, final long holdNanos);
+	/**
+	 * Record a session lock released by a thread that couldn't acquire it for 30 seconds
+	 * @param applicationName the application the session belongs to
+	 * @param sessionKey the key of the session
+	 */
+	void incSessionLockForcedReleases(final String applicationName, final Object sessionKey);
+	/**
+	 * @return the count and the mean, median, 95th, 99th percentiles and max times in milliseconds spent waiting for 
+	 * and holding the session locks, keyed by wait.&lt;application name&gt; and hold.&lt;application name&gt;
+	 */
+	Map<String, Map<String, Double>> getSessionLockLatencies();
+	/**
+	 * @return the sessions that waited the most for their lock
+	 */
+	Map<String, Map<String, Object>> getMostContendedSessions();
 	
 	void incCalls();
 	void incMessages();
@@ -254,6 +425,71 @@ public interface SipApplicationDispatcher extends SipListenerExt {
 
 	ExecutorService getAsynchronousExecutor();
 	ScheduledExecutorService getAsynchronousScheduledExecutor();
+	/**
+	 * Retrieve the executor on which a SIP message should be handed off to the application when the request/response
+	 * executors are not bypassed. Depending on the dispatcher executor type, this is either the shared asynchronous executor
+	 * or the lane dedicated to the affinity key
+	 * @param affinityKey the Call-ID or application session id of the message
+	 * @param initialRequest true if the message is an initial request that can be shed under load, 
+	 * only used by the priority lanes dispatcher executor
+	 * @return the executor to use
+	 */
+	ExecutorService getDispatchExecutor(Object affinityKey, boolean initialRequest);
+	/**
+	 * @return the number of messages waiting in each lane of the striped dispatcher executor, an empty array if the striped executor is not used
+	 */
+	int[] getDispatcherLaneQueueSizes();
+	/**
+	 * Executor for the asynchronous work scheduled by the applications on their sessions, the tasks acquire the session themselves.
+	 * @return one virtual thread per task if the VirtualThread dispatcher executor type is used, the asynchronous executor otherwise
+	 */
+	ExecutorService getAsynchronousWorkExecutor();
+	/**
+	 * @param applicationName the name of the application
+	 * @return the executor dedicated to this application or null if it shares the dispatcher executor
+	 */
+	ExecutorService getApplicationDispatchExecutor(String applicationName);
+	/**
+	 * @return the number of messages waiting in the executor of each application having its own executor
+	 */
+	Map<String, Integer> getApplicationDispatchExecutorPendingMessages();
+	/**
+	 * @return the number of initial requests shed by the executor of each application having its own executor
+	 */
+	Map<String, Long> getApplicationDispatchExecutorRejectedMessages();
+	/**
+	 * @return the direct memory allocated and used, the number of sessions stored and the number of passivations and activations
+	 * of the off heap session store of each application having one
+	 */
+	Map<String, Map<String, Long>> getOffHeapSessionStores();
+	int getInitialRequestsLaneSize();
+	void setInitialRequestsLaneSize(int initialRequestsLaneSize);
+	int getInDialogLaneSize();
+	void setInDialogLaneSize(int inDialogLaneSize);
+	/**
+	 * @return the number of initial requests waiting in their lane, -1 if the priority lanes dispatcher executor is not used
+	 */
+	int getInitialRequestsLanePendingMessages();
+	/**
+	 * @return the number of in dialog messages waiting in their lane, -1 if the priority lanes dispatcher executor is not used
+	 */
+	int getInDialogLanePendingMessages();
+	/**
+	 * @return the number of initial requests shed because their lane was full, -1 if the priority lanes dispatcher executor is not used
+	 */
+	long getInitialRequestsLaneRejectedMessages();
+	/**
+	 * @return the number of virtual threads started by the dispatcher, -1 if virtual threads are not used
+	 */
+	long getVirtualThreadsStarted();
+	/**
+	 * @return the number of times a virtual thread got pinned to its carrier thread, -1 if virtual threads are not used or pinning can't be monitored
+	 */
+	long getVirtualThreadsPinnedCount();
+	/**
+	 * @return the time in milliseconds virtual threads spent pinned to their carrier thread, -1 if virtual threads are not used or pinning can't be monitored
+	 */
+	long getVirtualThreadsPinnedTime();
 
 	void setSipStack(SipStack sipStack);
 	SipStack getSipStack();
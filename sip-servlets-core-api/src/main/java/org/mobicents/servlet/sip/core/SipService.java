@@ -63,6 +63,7 @@ public interface SipService {
 	public String getJvmRoute();
 	public OutboundProxy getOutboundProxy();
 	public int getDispatcherThreadPoolSize();
+	public String getDispatcherExecutorType();
 	public int getCanceledTimerTasksPurgePeriod();
 	public SipConnector[] findSipConnectors();
 	public boolean isDialogPendingRequestChecking();
@@ -23,6 +23,8 @@ import javax.servlet.sip.SipServletMessage;
 import javax.sip.Transaction;
 import javax.sip.message.Message;
 
+import org.mobicents.javax.servlet.sip.SipServletMessageExt;
+
 import org.mobicents.servlet.sip.core.session.MobicentsSipApplicationSession;
 import org.mobicents.servlet.sip.core.session.MobicentsSipSession;
 import org.mobicents.servlet.sip.core.session.MobicentsSipSessionKey;
@@ -33,7 +35,7 @@ import org.mobicents.servlet.sip.core.session.MobicentsSipSessionKey;
  * @author jean.deruelle@gmail.com
  *
  */
-public interface MobicentsSipServletMessage extends SipServletMessage {
+public interface MobicentsSipServletMessage extends SipServletMessage, SipServletMessageExt {
 	MobicentsSipSession getSipSession();
 	void setSipSession(MobicentsSipSession sipSession);
 	// https://github.com/RestComm/sip-servlets/issues/101
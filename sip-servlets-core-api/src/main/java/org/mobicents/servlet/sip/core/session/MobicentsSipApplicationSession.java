@@ -22,6 +22,7 @@
 package org.mobicents.servlet.sip.core.session;
 
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import javax.servlet.http.HttpSession;
 import javax.servlet.sip.ServletTimer;
@@ -78,6 +79,11 @@ public interface MobicentsSipApplicationSession extends SipApplicationSession, S
 	
 	void acquire();
 	void release();
+	/**
+	 * @return the mailbox serializing the tasks of this session, used instead of acquire and release, 
+	 * null if the container doesn't use mailboxes or the application doesn't use the SipApplicationSession concurrency control mode
+	 */
+	Executor getMailbox();
 	
 	MobicentsSipApplicationSession getFacade();
 	
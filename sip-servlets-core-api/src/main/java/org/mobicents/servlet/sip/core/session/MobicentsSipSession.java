@@ -25,6 +25,7 @@ import java.io.Serializable;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import javax.servlet.sip.Address;
 import javax.servlet.sip.SipSession;
@@ -147,6 +148,11 @@ public interface MobicentsSipSession extends SipSession, SipSessionExt {
 
 	void acquire();
 	void release();
+	/**
+	 * @return the mailbox serializing the tasks of this session, used instead of acquire and release, 
+	 * null if the container doesn't use mailboxes or the application doesn't use the SipSession concurrency control mode
+	 */
+	Executor getMailbox();
 
 	//RFC 3265
 	void addSubscription(MobicentsSipServletMessage sipServletMessage) throws SipException;
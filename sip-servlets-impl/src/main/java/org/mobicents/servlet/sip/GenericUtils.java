@@ -68,6 +68,18 @@ public class GenericUtils {
 		}
 	}
 	
+	// MessageDigest.getInstance goes through the security providers on every call, digests are reused per thread instead
+	private static final ThreadLocal<MessageDigest> SHA_DIGEST = new ThreadLocal<MessageDigest>() {
+		@Override
+		protected MessageDigest initialValue() {
+			try {
+				return MessageDigest.getInstance("SHA");
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalArgumentException("The SHA Algorithm could not be found", e);
+			}
+		}
+	};
+	
 	/**
 	 * Compute hash value of a string
 	 * 
@@ -75,12 +87,8 @@ public class GenericUtils {
 	 * @return
 	 */
 	public static String hashString(String input, int length) {
-		MessageDigest md;
-		try {
-			md = MessageDigest.getInstance("SHA");
-		} catch (NoSuchAlgorithmException e) {
-			throw new IllegalArgumentException("The SHA Algorithm could not be found", e);
-		}
+		MessageDigest md = SHA_DIGEST.get();
+		md.reset();
 		byte[] bytes = input.getBytes();
 		md.update(bytes);
 		String hashed =  convertToHex(md.digest());
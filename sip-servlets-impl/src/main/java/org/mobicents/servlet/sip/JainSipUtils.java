@@ -46,7 +46,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.UUID;
 
 import javax.sip.InvalidArgumentException;
 import javax.sip.ListeningPoint;
@@ -117,6 +116,7 @@ import org.mobicents.servlet.sip.core.session.MobicentsSipSession;
 import org.mobicents.servlet.sip.message.SipFactoryImpl;
 import org.mobicents.servlet.sip.message.SipFactoryImpl.NamesComparator;
 import org.mobicents.servlet.sip.startup.StaticServiceHolder;
+import org.mobicents.servlet.sip.utils.IdGenerators;
 
 /**
  * 
@@ -276,7 +276,7 @@ public final class JainSipUtils {
 	
 	public static final Map<String, String> HEADER_COMPACT_2_FULL_NAMES_MAPPINGS = new HashMap<String, String>();
 
-	{ // http://www.iana.org/assignments/sip-parameters
+	static { // http://www.iana.org/assignments/sip-parameters
 		// Header Name compact Reference
 		// ----------------- ------- ---------
 		// Call-ID i [RFC3261]
@@ -538,7 +538,7 @@ public final class JainSipUtils {
 	 */
 	public static String createBranch(String appSessionId, String appname) {
 	    // https://code.google.com/p/sipservlets/issues/detail?id=269
-		return createBranch(appSessionId, appname, UUID.randomUUID().toString());
+		return createBranch(appSessionId, appname, IdGenerators.getIdGenerator().generateId());
     }
 	
 	public static String createBranch(String appSessionId, String appname, String random) {
@@ -642,6 +642,15 @@ public final class JainSipUtils {
 		return listeningPoint.createRecordRouteURI(usePublicAddress);
 	}
 
+	/**
+	 * Creates a record route URI with the local address of the listening point matching the transport of the message,
+	 * never the static or public one, for the requests the container routes to itself
+	 */
+	public static javax.sip.address.SipURI createLocalRecordRouteURI(SipNetworkInterfaceManager sipNetworkInterfaceManager, Message message) {
+		MobicentsExtendedListeningPoint listeningPoint = sipNetworkInterfaceManager.findMatchingListeningPoint(findTransport(message), false);
+		return listeningPoint.createRecordRouteURI(false);
+	}
+
 	/**
 	 * 
 	 * @param sipNetworkInterfaceManager
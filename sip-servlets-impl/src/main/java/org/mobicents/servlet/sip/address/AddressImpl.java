@@ -120,7 +120,8 @@ public class AddressImpl extends ParameterableImpl implements Address {
 		}
 		this.address = header.getAddress();
 		if(header instanceof Parameters) {
-			super.parameters = getParameters((Parameters)header);
+			// parameters are read from the header and only copied once the application modifies them
+			super.parameters = null;
 		} else {
 			super.parameters = new ConcurrentHashMap<String, String>();
 		}
@@ -264,7 +265,7 @@ public class AddressImpl extends ParameterableImpl implements Address {
 	public Object clone() {
 		AddressImpl retval = new AddressImpl();
 		retval.address = (javax.sip.address.Address) address.clone();
-		retval.parameters = ParameterableHeaderImpl.cloneParameters(this.parameters);
+		retval.parameters = copyParameters();
 		return retval;
 	}
 
@@ -275,15 +276,14 @@ public class AddressImpl extends ParameterableImpl implements Address {
 		StringBuffer retval = new StringBuffer();
 		retval.append(address.toString());
 		//excluding the parameters already present in the address uri
-		if ( parameters!= null) {
-			for(Map.Entry<java.lang.String, String> entry : parameters.entrySet()) {
-				if((!(address.getURI() instanceof Parameters)) || ((Parameters)address.getURI()).getParameter(entry.getKey()) == null) {
-					String value = entry.getValue();
-					if(value != null && value.length() > 0) {
-						retval.append(PARAM_SEPARATOR).append(entry.getKey()).append(PARAM_NAME_VALUE_SEPARATOR).append(value);
-					} else {
-						retval.append(PARAM_SEPARATOR).append(entry.getKey());
-					}
+		for(Iterator<String> names = readParameterNames(); names.hasNext();) {
+			final String name = names.next();
+			if((!(address.getURI() instanceof Parameters)) || ((Parameters)address.getURI()).getParameter(name) == null) {
+				String value = readParameter(name);
+				if(value != null && value.length() > 0) {
+					retval.append(PARAM_SEPARATOR).append(name).append(PARAM_NAME_VALUE_SEPARATOR).append(value);
+				} else {
+					retval.append(PARAM_SEPARATOR).append(name);
 				}
 			}
 		}
@@ -316,6 +316,15 @@ public class AddressImpl extends ParameterableImpl implements Address {
 	public void setAddress(javax.sip.address.Address address) {
 		this.address = address;
 	}
+
+	/**
+	 * Whether this address is still an unmodified view of the given header,
+	 * in which case it can be handed out again for that header.
+	 */
+	public boolean isViewOf(HeaderAddress header, ModifiableRule modifiable) {
+		return super.header == header && isBackedByHeader() && isModifiable == modifiable
+				&& address == header.getAddress();
+	}
 	
 	@Override
 	public void setParameter(String name, String value) {		
@@ -340,7 +349,7 @@ public class AddressImpl extends ParameterableImpl implements Address {
 		final int prime = 31;
 		int result = 1;
 		result = prime * result + ((address == null) ? 0 : address.hashCode());
-		result = prime * result + ((parameters == null) ? 0 : parameters.hashCode());
+		result = prime * result + parametersHashCode();
 		return result;
 	}
 
@@ -362,28 +371,23 @@ public class AddressImpl extends ParameterableImpl implements Address {
 		} else if (!address.getURI().equals(other.address.getURI())) {
 			return false;
 		}
-		if (parameters == null) {
-			if (other.parameters != null)
-				return false;
-		} else {
-			for (Iterator<String> it = parameters.keySet().iterator(); it.hasNext();) {
-				String pname = it.next();
-				
-				String p1 = parameters.get(pname);
-				String p2 = other.parameters.get(pname);
+		for (Iterator<String> it = readParameterNames(); it.hasNext();) {
+			String pname = it.next();
+			
+			String p1 = readParameter(pname);
+			String p2 = other.readParameter(pname);
 
-				// those present in both must match (case-insensitive)
-				if (p1!=null && p2!=null) {
-					if(Q_PARAM_NAME.equalsIgnoreCase(pname)) {
-						// https://github.com/RestComm/sip-servlets/issues/123
-						float p1Float = Float.valueOf(p1);
-						float p2Float = Float.valueOf(p2);
-						if(p1Float != p2Float) {
-							return false;
-						}
-					} else if(!RFC2396UrlDecoder.decode(p1).equalsIgnoreCase(RFC2396UrlDecoder.decode(p2))) {
+			// those present in both must match (case-insensitive)
+			if (p1!=null && p2!=null) {
+				if(Q_PARAM_NAME.equalsIgnoreCase(pname)) {
+					// https://github.com/RestComm/sip-servlets/issues/123
+					float p1Float = Float.valueOf(p1);
+					float p2Float = Float.valueOf(p2);
+					if(p1Float != p2Float) {
 						return false;
 					}
+				} else if(!RFC2396UrlDecoder.decode(p1).equalsIgnoreCase(RFC2396UrlDecoder.decode(p2))) {
+					return false;
 				}
 			}
 		}
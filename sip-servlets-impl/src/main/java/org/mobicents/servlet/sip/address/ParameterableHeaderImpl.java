@@ -54,7 +54,7 @@ public class ParameterableHeaderImpl extends ParameterableImpl {
 	@Override
 	public Object clone() {
 		ParameterableHeaderImpl cloned = new ParameterableHeaderImpl();
-		cloned.parameters = cloneParameters(super.parameters);
+		cloned.parameters = copyParameters();
 		cloned.value = this.value;
 		cloned.header = (Parameters)((Header)super.header).clone();
 		return cloned;
@@ -24,9 +24,12 @@ package org.mobicents.servlet.sip.address;
 
 import gov.nist.javax.sip.header.ParametersExt;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -64,6 +67,7 @@ public abstract class ParameterableImpl implements Parameterable ,Cloneable, Ser
         // Name of the parameter for the list of quotable params
         private static final String QUOTABLE_PARAMS = INTERNAL_ATT_PREFIX + ".QUOTABLE_PARAMETER";
 
+	// null while the parameters are read straight from the header, see readParameters()
 	protected Map<String,String> parameters = new ConcurrentHashMap<String, String>();
 
 	protected transient Parameters header = null;
@@ -101,7 +105,7 @@ public abstract class ParameterableImpl implements Parameterable ,Cloneable, Ser
 		if(name == null) {
 			throw new NullPointerException("the parameter given in parameter is null !");
 		}
-		String value = this.parameters.get(name);
+		String value = readParameter(name);
 		if(value != null) {
 			return RFC2396UrlDecoder.decode(value);
 		} else {
@@ -115,7 +119,7 @@ public abstract class ParameterableImpl implements Parameterable ,Cloneable, Ser
 	 * @see javax.servlet.sip.Parameterable#getParameterNames()
 	 */
 	public Iterator<String> getParameterNames() {
-			return this.parameters.keySet().iterator();
+		return readParameterNames();
 	}
 
 	/*
@@ -135,7 +139,7 @@ public abstract class ParameterableImpl implements Parameterable ,Cloneable, Ser
 		if(name.equalsIgnoreCase("branch") && isModifiable == ModifiableRule.Via) {
 			throw new IllegalStateException("it is forbidden to set the branch parameter on the Via Header");
 		}
-		this.parameters.remove(name);
+		writeParameters().remove(name);
 		if(header != null) {
 			header.removeParameter(name);
 		}
@@ -164,7 +168,7 @@ public abstract class ParameterableImpl implements Parameterable ,Cloneable, Ser
 			throw new IllegalStateException("it is forbidden to set the branch parameter on the Via Header");
 		}
 		//Fix from abondar for Issue 494 and angelo.marletta for Issue 502
-		this.parameters.put(name.toLowerCase(), value);
+		writeParameters().put(name.toLowerCase(), value);
 		if(header != null) {
 			try {
 				if (isQuotableParam(name) && (header instanceof ParametersExt)){
@@ -227,8 +231,9 @@ public abstract class ParameterableImpl implements Parameterable ,Cloneable, Ser
 	 */
 	public Set<Entry<String, String>> getParameters() {
 		Map<String,String> retval = new HashMap<String,String> ();
-		for(Entry<String, String> nameValue : this.parameters.entrySet()) {
-			retval.put(nameValue.getKey(), (RFC2396UrlDecoder.decode(nameValue.getValue())));
+		for(Iterator<String> names = readParameterNames(); names.hasNext();) {
+			final String name = names.next();
+			retval.put(name, (RFC2396UrlDecoder.decode(readParameter(name))));
 		}
 		return retval.entrySet();
 	}
@@ -238,9 +243,130 @@ public abstract class ParameterableImpl implements Parameterable ,Cloneable, Ser
 	 * @see javax.servlet.sip.Parameterable#getParameters()
 	 */
 	public Map<String, String> getInternalParameters() {
+		return writeParameters();
+	}
+
+	/**
+	 * Returns the raw value of the given parameter, read straight from the header
+	 * when the parameters haven't been modified yet.
+	 */
+	protected String readParameter(String name) {
+		if(parameters == null) {
+			return getHeaderParameter(header, name);
+		}
+		return parameters.get(name);
+	}
+
+	/**
+	 * Returns the names of the parameters, iterating over the header itself when the
+	 * parameters haven't been modified yet. As for the header, the parameters must not
+	 * be modified while iterating.
+	 */
+	@SuppressWarnings("unchecked")
+	protected Iterator<String> readParameterNames() {
+		if(parameters == null) {
+			if(header == null) {
+				return Collections.<String>emptyList().iterator();
+			}
+			return new ReadOnlyIterator(header.getParameterNames());
+		}
+		return parameters.keySet().iterator();
+	}
+
+	/**
+	 * Returns a modifiable copy of the parameters.
+	 */
+	protected Map<String, String> copyParameters() {
+		if(parameters != null) {
+			return ParameterableHeaderImpl.cloneParameters(parameters);
+		}
+		final Map<String, String> copy = new ConcurrentHashMap<String, String>();
+		for(Iterator<String> names = readParameterNames(); names.hasNext();) {
+			final String name = names.next();
+			copy.put(name, readParameter(name));
+		}
+		return copy;
+	}
+
+	/**
+	 * Same value as the hash code of the parameters map, computed without copying them out of the header.
+	 */
+	protected int parametersHashCode() {
+		if(parameters != null) {
+			return parameters.hashCode();
+		}
+		int hashCode = 0;
+		for(Iterator<String> names = readParameterNames(); names.hasNext();) {
+			final String name = names.next();
+			final String value = readParameter(name);
+			hashCode += name.hashCode() ^ (value == null ? 0 : value.hashCode());
+		}
+		return hashCode;
+	}
+
+	/**
+	 * Same result as comparing the parameters maps, computed without copying them out of the header.
+	 */
+	protected boolean parametersEqual(ParameterableImpl other) {
+		if(parameters != null && other.parameters != null) {
+			return parameters.equals(other.parameters);
+		}
+		int count = 0;
+		for(Iterator<String> names = readParameterNames(); names.hasNext(); count++) {
+			final String name = names.next();
+			final String value = readParameter(name);
+			if(!other.hasParameter(name) || (value == null ? other.readParameter(name) != null : !value.equals(other.readParameter(name)))) {
+				return false;
+			}
+		}
+		for(Iterator<String> names = other.readParameterNames(); names.hasNext(); count--) {
+			names.next();
+		}
+		return count == 0;
+	}
+
+	private boolean hasParameter(String name) {
+		if(parameters == null) {
+			// values read from the header are never null, flag parameters have an empty value
+			return getHeaderParameter(header, name) != null;
+		}
+		return parameters.containsKey(name);
+	}
+
+	/**
+	 * Returns the parameters of this parameterable, copying them out of the header
+	 * the first time they are modified.
+	 */
+	protected Map<String, String> writeParameters() {
+		if(parameters == null) {
+			if(header == null) {
+				parameters = new ConcurrentHashMap<String, String>();
+			} else {
+				parameters = AddressImpl.getParameters(header);
+			}
+		}
 		return parameters;
 	}
 
+	/**
+	 * Whether the parameters are still read straight from the header,
+	 * i.e. they haven't been copied to be modified.
+	 */
+	public boolean isBackedByHeader() {
+		return parameters == null && header != null;
+	}
+
+	private static String getHeaderParameter(Parameters header, String name) {
+		if(header == null) {
+			return null;
+		}
+		// same unquoted value AddressImpl.getParameters would have copied
+		if(header instanceof ParametersExt) {
+			return ((ParametersExt) header).getParameter(name, false);
+		}
+		return header.getParameter(name);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see java.lang.Object#toString()
@@ -248,16 +374,17 @@ public abstract class ParameterableImpl implements Parameterable ,Cloneable, Ser
 	public String toString() {
 		StringBuffer retVal = new StringBuffer();
 		boolean firstTime = true;
-		for(java.util.Map.Entry<String, String> entry : parameters.entrySet()) {
+		for(Iterator<String> names = readParameterNames(); names.hasNext();) {
 			if(!firstTime) {
 				retVal.append(PARAM_SEPARATOR);
 			}
 			firstTime = false;
-			String value = entry.getValue();
+			String name = names.next();
+			String value = readParameter(name);
 			if(value != null && value.length() > 0) {
-				retVal.append(entry.getKey()).append(PARAM_NAME_VALUE_SEPARATOR).append(value);
+				retVal.append(name).append(PARAM_NAME_VALUE_SEPARATOR).append(value);
 			} else {
-				retVal.append(entry.getKey());
+				retVal.append(name);
 			}
 		}
 		return retVal.toString();
@@ -278,6 +405,35 @@ public abstract class ParameterableImpl implements Parameterable ,Cloneable, Ser
 
 	public abstract Object clone();
 
+	/**
+	 * Hands out the parameter names of the header without letting the application remove them behind our back.
+	 */
+	private static final class ReadOnlyIterator implements Iterator<String> {
+		private final Iterator<String> names;
+
+		ReadOnlyIterator(Iterator<String> names) {
+			this.names = names;
+		}
+
+		public boolean hasNext() {
+			return names.hasNext();
+		}
+
+		public String next() {
+			return names.next();
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException("the parameters can only be removed through removeParameter");
+		}
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		// the header is transient so the parameters read from it have to be copied before going out
+		writeParameters();
+		out.defaultWriteObject();
+	}
+
 	/* (non-Javadoc)
 	 * @see java.lang.Object#hashCode()
 	 */
@@ -286,8 +442,7 @@ public abstract class ParameterableImpl implements Parameterable ,Cloneable, Ser
 		final int prime = 31;
 		int result = 1;
 		result = prime * result + ((header == null) ? 0 : header.hashCode());
-		result = prime * result
-				+ ((parameters == null) ? 0 : parameters.hashCode());
+		result = prime * result + parametersHashCode();
 		return result;
 	}
 
@@ -308,10 +463,7 @@ public abstract class ParameterableImpl implements Parameterable ,Cloneable, Ser
 				return false;
 		} else if (!header.equals(other.header))
 			return false;
-		if (parameters == null) {
-			if (other.parameters != null)
-				return false;
-		} else if (!parameters.equals(other.parameters))
+		if (!parametersEqual(other))
 			return false;
 		return true;
 	}
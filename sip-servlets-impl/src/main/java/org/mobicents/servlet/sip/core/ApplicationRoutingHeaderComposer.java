@@ -19,9 +19,8 @@
 
 package org.mobicents.servlet.sip.core;
 
-import java.util.Random;
-
 import org.apache.log4j.Logger;
+import org.mobicents.servlet.sip.utils.IdGenerators;
 
 /**
  * This class manipulates strings representing the AR stack for cases when the container
@@ -38,20 +37,14 @@ public class ApplicationRoutingHeaderComposer {
 	private static final Logger logger = Logger.getLogger(ApplicationRoutingHeaderComposer.class
 			.getCanonicalName());
 	
-	private static final Random RANDOM = new Random();
 	private static final String TOKEN_SEPARATOR = "_";
 	
-	private final static String reduceRandomValue(String str, int maxChars) {
-		int len = str.length();
-		if(len > maxChars) {
-			return str.substring(len-maxChars, len);
-		} else {
-			return str;
-		}
-	}
 	public final static String randomString(int length) {
-		long randValue = Math.abs(RANDOM.nextInt(1211111) ^ System.nanoTime());
-		return reduceRandomValue(String.valueOf(randValue), length);
+		// the tag hash length derived from a small configured tag length can be 0, the prefix is left empty then
+		if(length <= 0) {
+			return "";
+		}
+		return IdGenerators.getIdGenerator().generateId(length);
 	}
 
 	
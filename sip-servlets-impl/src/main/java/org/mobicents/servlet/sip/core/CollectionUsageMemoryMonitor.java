@@ -0,0 +1,234 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package org.mobicents.servlet.sip.core;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Memory congestion detection based on the memory left in the tenured pool right after a garbage collection.
+ * Unlike the heap usage, which includes the garbage not yet collected, the collection usage only
+ * accounts for live objects so a healthy node is not flagged after a young collection.
+ * 
+ * The collection usage threshold of the tenured pool is set to the memory threshold so the JVM notifies
+ * as soon as a collection leaves too much memory used, and the garbage collectors notifications are used to
+ * detect that the collection usage went back below the back to normal memory threshold.
+ *
+ */
+public class CollectionUsageMemoryMonitor implements NotificationListener {
+	private static final Logger logger = Logger.getLogger(CollectionUsageMemoryMonitor.class);
+
+	/**
+	 * Notified of the memory congestion state transitions
+	 */
+	public interface Listener {
+		void memoryCongestionStarted(String message);
+		void memoryCongestionStopped(String message);
+	}
+
+	// com.sun.management.GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION, not referenced to avoid depending on com.sun classes
+	static final String GARBAGE_COLLECTION_NOTIFICATION = "com.sun.management.gc.notification";
+
+	private final Listener listener;
+	private volatile int memoryThreshold;
+	private volatile int backToNormalMemoryThreshold;
+
+	private volatile MemoryPoolMXBean tenuredPool;
+	private final List<NotificationEmitter> emitters = new ArrayList<NotificationEmitter>();
+	private final AtomicBoolean congested = new AtomicBoolean(false);
+	private volatile double percentageOfMemoryUsed;
+
+	public CollectionUsageMemoryMonitor(int memoryThreshold, int backToNormalMemoryThreshold, Listener listener) {
+		this.listener = listener;
+		this.memoryThreshold = memoryThreshold;
+		this.backToNormalMemoryThreshold = backToNormalMemoryThreshold;
+	}
+
+	/**
+	 * Looks up the tenured pool and registers for the memory and garbage collection notifications
+	 * @return false if no pool supporting collection usage thresholds could be found, in which case nothing is monitored
+	 */
+	public synchronized boolean start() {
+		if(tenuredPool != null) {
+			return true;
+		}
+		final MemoryPoolMXBean pool = findTenuredPool();
+		if(pool == null) {
+			return false;
+		}
+		tenuredPool = pool;
+		updateCollectionUsageThreshold();
+		if(ManagementFactory.getMemoryMXBean() instanceof NotificationEmitter) {
+			addListener((NotificationEmitter) ManagementFactory.getMemoryMXBean());
+		}
+		for (GarbageCollectorMXBean garbageCollector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			if(garbageCollector instanceof NotificationEmitter && 
+					Arrays.asList(garbageCollector.getMemoryPoolNames()).contains(pool.getName())) {
+				addListener((NotificationEmitter) garbageCollector);
+			}
+		}
+		if(logger.isInfoEnabled()) {
+			logger.info("Monitoring the memory left after garbage collection in the " + pool.getName() + " pool");
+		}
+		// the pool may already be above the threshold if we are restarted
+		checkCollectionUsage();
+		return true;
+	}
+
+	/**
+	 * Unregisters from the notifications and resets the congestion state
+	 */
+	public synchronized void stop() {
+		for (NotificationEmitter emitter : emitters) {
+			try {
+				emitter.removeNotificationListener(this);
+			} catch (ListenerNotFoundException e) {
+				if(logger.isDebugEnabled()) {
+					logger.debug("listener already removed from " + emitter, e);
+				}
+			}
+		}
+		emitters.clear();
+		tenuredPool = null;
+		congested.set(false);
+	}
+
+	public boolean isStarted() {
+		return tenuredPool != null;
+	}
+
+	public void handleNotification(Notification notification, Object handback) {
+		final String type = notification.getType();
+		if(MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(type) ||
+				GARBAGE_COLLECTION_NOTIFICATION.equals(type)) {
+			checkCollectionUsage();
+		}
+	}
+
+	private void checkCollectionUsage() {
+		final MemoryPoolMXBean pool = tenuredPool;
+		if(pool == null) {
+			return;
+		}
+		final MemoryUsage collectionUsage = pool.getCollectionUsage();
+		if(collectionUsage != null) {
+			long max = collectionUsage.getMax();
+			if(max <= 0) {
+				max = collectionUsage.getCommitted();
+			}
+			update(collectionUsage.getUsed(), max);
+		}
+	}
+
+	/**
+	 * Compares the memory used after the last collection against the thresholds
+	 * @param used bytes used in the pool after the last collection
+	 * @param max maximum size of the pool in bytes
+	 */
+	void update(long used, long max) {
+		if(max <= 0) {
+			return;
+		}
+		percentageOfMemoryUsed = ((double) used * 100) / max;
+		if(congested.get()) {
+			if(percentageOfMemoryUsed < backToNormalMemoryThreshold && congested.compareAndSet(true, false)) {
+				listener.memoryCongestionStopped("Memory used after garbage collection: " + percentageOfMemoryUsed + 
+						"% < to the back to normal memory threshold : " + backToNormalMemoryThreshold + "%");
+			}
+		} else if(percentageOfMemoryUsed > memoryThreshold && congested.compareAndSet(false, true)) {
+			listener.memoryCongestionStarted("Memory used after garbage collection: " + percentageOfMemoryUsed + 
+					"% > to the memory threshold : " + memoryThreshold + "%");
+		}
+	}
+
+	private void addListener(NotificationEmitter emitter) {
+		emitter.addNotificationListener(this, null, null);
+		emitters.add(emitter);
+	}
+
+	private void updateCollectionUsageThreshold() {
+		final MemoryPoolMXBean pool = tenuredPool;
+		if(pool == null) {
+			return;
+		}
+		final long max = pool.getUsage().getMax();
+		if(max > 0) {
+			pool.setCollectionUsageThreshold(max * memoryThreshold / 100);
+		} else if(logger.isDebugEnabled()) {
+			logger.debug("no maximum size for the " + pool.getName() + " pool, relying on garbage collection notifications only");
+		}
+	}
+
+	/**
+	 * The tenured pool is the heap pool supporting both usage and collection usage thresholds,
+	 * eden and survivor spaces don't support usage thresholds
+	 */
+	static MemoryPoolMXBean findTenuredPool() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if(MemoryType.HEAP.equals(pool.getType()) && pool.isUsageThresholdSupported() && pool.isCollectionUsageThresholdSupported()) {
+				return pool;
+			}
+		}
+		return null;
+	}
+
+	public boolean isCongested() {
+		return congested.get();
+	}
+
+	/**
+	 * @return the percentage of the tenured pool used after the last collection
+	 */
+	public double getPercentageOfMemoryUsed() {
+		return percentageOfMemoryUsed;
+	}
+
+	public int getMemoryThreshold() {
+		return memoryThreshold;
+	}
+
+	public void setMemoryThreshold(int memoryThreshold) {
+		this.memoryThreshold = memoryThreshold;
+		updateCollectionUsageThreshold();
+	}
+
+	public int getBackToNormalMemoryThreshold() {
+		return backToNormalMemoryThreshold;
+	}
+
+	public void setBackToNormalMemoryThreshold(int backToNormalMemoryThreshold) {
+		this.backToNormalMemoryThreshold = backToNormalMemoryThreshold;
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package org.mobicents.servlet.sip.core;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+
+/**
+ * Latency of each {@link DispatchStage} per method and per application. 
+ * The timers are registered in the codahale {@link MetricRegistry} under 
+ * dispatch.latency.&lt;stage&gt;.method.&lt;method&gt; and dispatch.latency.&lt;stage&gt;.app.&lt;application name&gt; 
+ * so that the percentiles can be reported along with the other metrics.
+ * Methods not known in advance share the {@link MessageStatistics#OTHER_METHODS} timer, so that peers sending 
+ * made up methods can't make the number of timers registered grow.
+ *
+ */
+public class DispatchLatencyStatistics {
+
+	private static final String METRIC_PREFIX = "dispatch.latency";
+	private static final String METHOD_DIMENSION = "method";
+	private static final String APPLICATION_DIMENSION = "app";
+	private static final double NANOS_PER_MILLI = 1000000d;
+
+	private final MetricRegistry metrics;
+	private final Set<String> methods;
+	// timers are cached per stage so that recording doesn't build the metric name for every message
+	private final Map<DispatchStage, ConcurrentMap<String, Timer>> timersByMethod = new EnumMap<DispatchStage, ConcurrentMap<String, Timer>>(DispatchStage.class);
+	private final Map<DispatchStage, ConcurrentMap<String, Timer>> timersByApplication = new EnumMap<DispatchStage, ConcurrentMap<String, Timer>>(DispatchStage.class);
+
+	/**
+	 * @param metrics the registry the timers are registered in
+	 * @param methods the methods having their own timer
+	 */
+	public DispatchLatencyStatistics(MetricRegistry metrics, String[] methods) {
+		this.metrics = metrics;
+		this.methods = new HashSet<String>(Arrays.asList(methods));
+		for (DispatchStage stage : DispatchStage.values()) {
+			timersByMethod.put(stage, new ConcurrentHashMap<String, Timer>());
+			timersByApplication.put(stage, new ConcurrentHashMap<String, Timer>());
+		}
+	}
+
+	/**
+	 * Record the latency of a stage
+	 * @param stage the stage
+	 * @param method the method of the message, can be null
+	 * @param applicationName the application the message is dispatched to or sent from, can be null
+	 * @param latencyNanos the latency in nanoseconds
+	 */
+	public void update(DispatchStage stage, String method, String applicationName, long latencyNanos) {
+		if(method != null) {
+			final String methodKey = methods.contains(method) ? method : MessageStatistics.OTHER_METHODS;
+			getTimer(timersByMethod.get(stage), stage, METHOD_DIMENSION, methodKey).update(latencyNanos, TimeUnit.NANOSECONDS);
+		}
+		if(applicationName != null) {
+			getTimer(timersByApplication.get(stage), stage, APPLICATION_DIMENSION, applicationName).update(latencyNanos, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private Timer getTimer(ConcurrentMap<String, Timer> timers, DispatchStage stage, String dimension, String key) {
+		Timer timer = timers.get(key);
+		if(timer == null) {
+			// the registry returns the existing timer if another thread registered it first
+			timer = metrics.timer(MetricRegistry.name(METRIC_PREFIX, stage.toString(), dimension, key));
+			timers.putIfAbsent(key, timer);
+		}
+		return timer;
+	}
+
+	/**
+	 * @return the count and the mean, median, 75th, 95th, 99th, 99.9th percentiles and max latencies in milliseconds 
+	 * keyed by stage.method.&lt;method&gt; and stage.app.&lt;application name&gt;
+	 */
+	public Map<String, Map<String, Double>> getLatencies() {
+		final Map<String, Map<String, Double>> latencies = new HashMap<String, Map<String, Double>>();
+		for (DispatchStage stage : DispatchStage.values()) {
+			addLatencies(latencies, stage, METHOD_DIMENSION, timersByMethod.get(stage));
+			addLatencies(latencies, stage, APPLICATION_DIMENSION, timersByApplication.get(stage));
+		}
+		return latencies;
+	}
+
+	private static void addLatencies(Map<String, Map<String, Double>> latencies, DispatchStage stage, String dimension, Map<String, Timer> timers) {
+		for (Map.Entry<String, Timer> entry : timers.entrySet()) {
+			final Timer timer = entry.getValue();
+			final Snapshot snapshot = timer.getSnapshot();
+			final Map<String, Double> percentiles = new HashMap<String, Double>();
+			percentiles.put("count", (double) timer.getCount());
+			percentiles.put("mean", snapshot.getMean() / NANOS_PER_MILLI);
+			percentiles.put("p50", snapshot.getMedian() / NANOS_PER_MILLI);
+			percentiles.put("p75", snapshot.get75thPercentile() / NANOS_PER_MILLI);
+			percentiles.put("p95", snapshot.get95thPercentile() / NANOS_PER_MILLI);
+			percentiles.put("p99", snapshot.get99thPercentile() / NANOS_PER_MILLI);
+			percentiles.put("p999", snapshot.get999thPercentile() / NANOS_PER_MILLI);
+			percentiles.put("max", snapshot.getMax() / NANOS_PER_MILLI);
+			latencies.put(stage + "." + dimension + "." + entry.getKey(), percentiles);
+		}
+	}
+
+	/**
+	 * Unregister all the timers, codahale timers can't be reset
+	 */
+	public void reset() {
+		for (DispatchStage stage : DispatchStage.values()) {
+			removeTimers(stage, METHOD_DIMENSION, timersByMethod.get(stage));
+			removeTimers(stage, APPLICATION_DIMENSION, timersByApplication.get(stage));
+		}
+	}
+
+	private void removeTimers(DispatchStage stage, String dimension, Map<String, Timer> timers) {
+		for (String key : timers.keySet()) {
+			metrics.remove(MetricRegistry.name(METRIC_PREFIX, stage.toString(), dimension, key));
+		}
+		timers.clear();
+	}
+}
@@ -0,0 +1,39 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package org.mobicents.servlet.sip.core;
+
+/**
+ * The different executor models the {@link SipApplicationDispatcherImpl} can use to hand off
+ * SIP messages to the applications when the request/response executors are not bypassed.
+ * <ul>
+ * <li>Default : one shared thread pool for all messages, session ordering is enforced by the session semaphores</li>
+ * <li>Striped : messages are hashed by Call-ID (or application session id if the application uses
+ * the SipApplicationSession concurrency control mode) onto single consumer lanes so that messages
+ * for the same dialog are processed in order by construction</li>
+ * <li>VirtualThread : one virtual thread per message and per asynchronous work task, so that applications
+ * doing blocking calls don't exhaust the pool. Requires JDK 21+, falls back to Default otherwise</li>
+ * <li>PriorityLanes : one bounded lane for the initial requests and one for the in-dialog messages and responses,
+ * so that the traffic freeing resources is never queued behind new requests. Only the initial requests lane is shed</li>
+ * </ul>
+ *
+ */
+public enum DispatcherExecutorType {
+	Default, Striped, VirtualThread, PriorityLanes;
+}
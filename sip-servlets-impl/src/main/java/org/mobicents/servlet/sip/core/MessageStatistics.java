@@ -0,0 +1,277 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package org.mobicents.servlet.sip.core;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.codahale.metrics.Counter;
+
+/**
+ * Requests and responses counters of one scope (the whole container, an application or a transport).
+ * 
+ * The counters are striped codahale {@link Counter}s indexed by method ordinal and class of status code so that
+ * updating them doesn't allocate and doesn't make the threads contend on a few AtomicLongs. 
+ * Methods not known in advance are all counted together under {@link #OTHER_METHODS}, so that peers sending
+ * made up methods can't make the number of counters grow.
+ * 
+ * The totals are sampled every second by {@link #sample()} to provide the rates over the last second and the last minute
+ * without adding any work on the messages path.
+ * 
+ * {@link #reset()} swaps all the counters for new ones instead of decrementing them, so that it doesn't race with 
+ * the threads updating them : a message counted while the reset happens is counted either before or after it.
+ *
+ */
+public class MessageStatistics {
+
+	// the requests whose method isn't one of the methods of the scope
+	public static final String OTHER_METHODS = "OTHER";
+
+	public static final String[] STATUS_CLASSES =
+		{"1XX", "2XX", "3XX", "4XX", "5XX", "6XX", "7XX", "8XX", "9XX"};
+
+	// number of one second samples kept for the rate over the last minute
+	private static final int WINDOW = 60;
+
+	/**
+	 * All the counters of the scope, replaced as a whole on reset
+	 */
+	private static final class Counters {
+		final Counter requestsProcessed = new Counter();
+		final Counter responsesProcessed = new Counter();
+		final Counter requestsSent = new Counter();
+		final Counter responsesSent = new Counter();
+		// indexed by method ordinal, the last one counting the other methods
+		final Counter[] requestsProcessedByMethod;
+		final Counter[] requestsSentByMethod;
+		final Counter[] responsesProcessedByStatusClass = newCounters(STATUS_CLASSES.length);
+		final Counter[] responsesSentByStatusClass = newCounters(STATUS_CLASSES.length);
+
+		Counters(int methodCount) {
+			requestsProcessedByMethod = newCounters(methodCount + 1);
+			requestsSentByMethod = newCounters(methodCount + 1);
+		}
+
+		Counter[] getTotals() {
+			return new Counter[] {requestsProcessed, responsesProcessed, requestsSent, responsesSent};
+		}
+	}
+
+	// the methods of the scope followed by OTHER_METHODS
+	private final String[] methods;
+	private final Map<String, Integer> methodOrdinals = new HashMap<String, Integer>();
+
+	private volatile Counters counters;
+
+	// samples of the totals, only written by the thread calling sample()
+	private final long[][] samples = new long[4][WINDOW + 1];
+	private volatile int samplesTaken;
+
+	/**
+	 * @param methods the methods counted without any lookup in a map
+	 */
+	public MessageStatistics(String[] methods) {
+		this.methods = new String[methods.length + 1];
+		System.arraycopy(methods, 0, this.methods, 0, methods.length);
+		this.methods[methods.length] = OTHER_METHODS;
+		for (int i = 0; i < methods.length; i++) {
+			methodOrdinals.put(methods[i], i);
+		}
+		counters = new Counters(methods.length);
+	}
+
+	private static Counter[] newCounters(int size) {
+		final Counter[] counters = new Counter[size];
+		for (int i = 0; i < size; i++) {
+			counters[i] = new Counter();
+		}
+		return counters;
+	}
+
+	public void updateRequest(String method, boolean processed) {
+		final Counters counters = this.counters;
+		(processed ? counters.requestsProcessed : counters.requestsSent).inc();
+		final Integer ordinal = methodOrdinals.get(method);
+		(processed ? counters.requestsProcessedByMethod : counters.requestsSentByMethod)[ordinal != null ? ordinal : methods.length - 1].inc();
+	}
+
+	public void updateResponse(int statusCode, boolean processed) {
+		final Counters counters = this.counters;
+		(processed ? counters.responsesProcessed : counters.responsesSent).inc();
+		final int statusClass = statusCode / 100;
+		if(statusClass >= 1 && statusClass <= STATUS_CLASSES.length) {
+			(processed ? counters.responsesProcessedByStatusClass : counters.responsesSentByStatusClass)[statusClass - 1].inc();
+		}
+	}
+
+	public long getRequestsProcessed() {
+		return counters.requestsProcessed.getCount();
+	}
+
+	public long getResponsesProcessed() {
+		return counters.responsesProcessed.getCount();
+	}
+
+	public long getRequestsSent() {
+		return counters.requestsSent.getCount();
+	}
+
+	public long getResponsesSent() {
+		return counters.responsesSent.getCount();
+	}
+
+	/**
+	 * @param method one of the methods of the scope or {@link #OTHER_METHODS}
+	 */
+	public long getRequestsProcessedByMethod(String method) {
+		return getRequestsByMethod(method, counters.requestsProcessedByMethod);
+	}
+
+	/**
+	 * @param method one of the methods of the scope or {@link #OTHER_METHODS}
+	 */
+	public long getRequestsSentByMethod(String method) {
+		return getRequestsByMethod(method, counters.requestsSentByMethod);
+	}
+
+	private long getRequestsByMethod(String method, Counter[] byMethod) {
+		final Integer ordinal = methodOrdinals.get(method);
+		if(ordinal != null) {
+			return byMethod[ordinal].getCount();
+		}
+		if(OTHER_METHODS.equals(method)) {
+			return byMethod[methods.length - 1].getCount();
+		}
+		// the methods not known in advance are only counted together
+		return 0;
+	}
+
+	public long getResponsesProcessedByStatusClass(String statusClass) {
+		return getResponsesByStatusClass(statusClass, counters.responsesProcessedByStatusClass);
+	}
+
+	public long getResponsesSentByStatusClass(String statusClass) {
+		return getResponsesByStatusClass(statusClass, counters.responsesSentByStatusClass);
+	}
+
+	private long getResponsesByStatusClass(String statusClass, Counter[] byStatusClass) {
+		for (int i = 0; i < STATUS_CLASSES.length; i++) {
+			if(STATUS_CLASSES[i].equals(statusClass)) {
+				return byStatusClass[i].getCount();
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * @return a snapshot of the requests processed by method, in the format of the former maps of AtomicLong
+	 */
+	public Map<String, AtomicLong> getRequestsProcessedByMethod() {
+		return snapshot(methods, counters.requestsProcessedByMethod);
+	}
+
+	public Map<String, AtomicLong> getRequestsSentByMethod() {
+		return snapshot(methods, counters.requestsSentByMethod);
+	}
+
+	public Map<String, AtomicLong> getResponsesProcessedByStatusClass() {
+		return snapshot(STATUS_CLASSES, counters.responsesProcessedByStatusClass);
+	}
+
+	public Map<String, AtomicLong> getResponsesSentByStatusClass() {
+		return snapshot(STATUS_CLASSES, counters.responsesSentByStatusClass);
+	}
+
+	private static Map<String, AtomicLong> snapshot(String[] names, Counter[] counters) {
+		final Map<String, AtomicLong> snapshot = new LinkedHashMap<String, AtomicLong>();
+		for (int i = 0; i < names.length; i++) {
+			snapshot.put(names[i], new AtomicLong(counters[i].getCount()));
+		}
+		return snapshot;
+	}
+
+	/**
+	 * @return all the counters of this scope, keyed by requestsProcessed, requestsProcessed.&lt;method&gt;,
+	 * responsesSent.&lt;class of status code&gt; and so on
+	 */
+	public Map<String, Long> getCounts() {
+		final Map<String, Long> counts = new LinkedHashMap<String, Long>();
+		counts.put("requestsProcessed", getRequestsProcessed());
+		addCounts(counts, "requestsProcessed.", getRequestsProcessedByMethod());
+		counts.put("responsesProcessed", getResponsesProcessed());
+		addCounts(counts, "responsesProcessed.", getResponsesProcessedByStatusClass());
+		counts.put("requestsSent", getRequestsSent());
+		addCounts(counts, "requestsSent.", getRequestsSentByMethod());
+		counts.put("responsesSent", getResponsesSent());
+		addCounts(counts, "responsesSent.", getResponsesSentByStatusClass());
+		return counts;
+	}
+
+	private static void addCounts(Map<String, Long> counts, String prefix, Map<String, AtomicLong> snapshot) {
+		for (Map.Entry<String, AtomicLong> entry : snapshot.entrySet()) {
+			counts.put(prefix + entry.getKey(), entry.getValue().get());
+		}
+	}
+
+	/**
+	 * Records the current totals, to be called every second by a single thread
+	 */
+	public void sample() {
+		final int index = samplesTaken % samples[0].length;
+		final Counter[] totals = counters.getTotals();
+		for (int i = 0; i < totals.length; i++) {
+			samples[i][index] = totals[i].getCount();
+		}
+		samplesTaken++;
+	}
+
+	/**
+	 * @return the number of messages per second over the last second and the last minute, keyed by 
+	 * requestsProcessedPerSecond, requestsProcessedPerMinute (still per second) and so on
+	 */
+	public Map<String, Double> getRates() {
+		final Map<String, Double> rates = new LinkedHashMap<String, Double>();
+		final String[] names = {"requestsProcessed", "responsesProcessed", "requestsSent", "responsesSent"};
+		final int taken = samplesTaken;
+		for (int i = 0; i < samples.length; i++) {
+			rates.put(names[i] + "PerSecond", rate(samples[i], taken, 1));
+			rates.put(names[i] + "PerMinute", rate(samples[i], taken, WINDOW));
+		}
+		return rates;
+	}
+
+	private static double rate(long[] samples, int taken, int seconds) {
+		// the window is shorter until enough samples have been taken
+		final int span = Math.min(seconds, taken - 1);
+		if(span <= 0) {
+			return 0;
+		}
+		final long last = samples[(taken - 1) % samples.length];
+		final long first = samples[(taken - 1 - span) % samples.length];
+		// the counters may have been reset within the window
+		return ((double) Math.max(0, last - first)) / span;
+	}
+
+	public void reset() {
+		counters = new Counters(methods.length - 1);
+	}
+}
@@ -0,0 +1,172 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package org.mobicents.servlet.sip.core;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Queue delay based congestion detection, inspired by CoDel (RFC 8289). Instead of polling the queue length,
+ * the time each dispatch task waited in the executor queue (its sojourn time) is measured when it is dequeued.
+ * Congestion starts when the sojourn time stays above the target for a whole interval and stops as soon as
+ * a task waited less than the target, or when no task has been dequeued for an interval.
+ * 
+ * The rate at which tasks are dequeued is tracked so that a Retry-After can be computed from the time
+ * needed to drain the pending messages.
+ *
+ */
+public class QueueDelayCongestionControl {
+
+	/**
+	 * Notified of the congestion state transitions
+	 */
+	public interface Listener {
+		void queueDelayCongestionStarted(String message);
+		void queueDelayCongestionStopped(String message);
+	}
+
+	private static final long DRAIN_RATE_WINDOW = TimeUnit.SECONDS.toNanos(1);
+	private static final int MIN_RETRY_AFTER = 1;
+	private static final int MAX_RETRY_AFTER = 60;
+
+	private final Listener listener;
+	private volatile long targetNanos;
+	private volatile long intervalNanos;
+
+	private final AtomicBoolean congested = new AtomicBoolean(false);
+	// time at which the sojourn time will have been above target for a whole interval, 0 if below target
+	private final AtomicLong firstAboveTime = new AtomicLong(0);
+	private volatile long lastSojournTime;
+	private volatile long lastDequeueTime;
+
+	private final AtomicLong dequeued = new AtomicLong(0);
+	private final AtomicLong drainRateWindowStart = new AtomicLong(System.nanoTime());
+	private volatile long drainRateWindowDequeued;
+	// tasks dequeued per second over the last window
+	private volatile double drainRate;
+
+	public QueueDelayCongestionControl(long targetMillis, long intervalMillis, Listener listener) {
+		this.listener = listener;
+		setTarget(targetMillis);
+		setInterval(intervalMillis);
+	}
+
+	/**
+	 * Called every time a task is taken out of the queue
+	 * @param sojournNanos the time the task waited in the queue
+	 */
+	public void onDequeue(long sojournNanos) {
+		final long now = System.nanoTime();
+		lastSojournTime = sojournNanos;
+		lastDequeueTime = now;
+		dequeued.incrementAndGet();
+		updateDrainRate(now);
+		if(sojournNanos < targetNanos) {
+			firstAboveTime.set(0);
+			if(congested.compareAndSet(true, false)) {
+				listener.queueDelayCongestionStopped("Queue delay : " + TimeUnit.NANOSECONDS.toMillis(sojournNanos) + 
+						" ms < to the target : " + TimeUnit.NANOSECONDS.toMillis(targetNanos) + " ms");
+			}
+			return;
+		}
+		final long firstAbove = firstAboveTime.get();
+		if(firstAbove == 0) {
+			firstAboveTime.compareAndSet(0, now + intervalNanos);
+		} else if(now - firstAbove >= 0 && congested.compareAndSet(false, true)) {
+			listener.queueDelayCongestionStarted("Queue delay : " + TimeUnit.NANOSECONDS.toMillis(sojournNanos) + 
+					" ms > to the target : " + TimeUnit.NANOSECONDS.toMillis(targetNanos) + " ms for more than " + 
+					TimeUnit.NANOSECONDS.toMillis(intervalNanos) + " ms");
+		}
+	}
+
+	private void updateDrainRate(long now) {
+		final long windowStart = drainRateWindowStart.get();
+		final long elapsed = now - windowStart;
+		if(elapsed >= DRAIN_RATE_WINDOW && drainRateWindowStart.compareAndSet(windowStart, now)) {
+			final long total = dequeued.get();
+			drainRate = (total - drainRateWindowDequeued) * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+			drainRateWindowDequeued = total;
+		}
+	}
+
+	/**
+	 * Stops the congestion if nothing has been dequeued for an interval, 
+	 * since the sojourn time is only measured when tasks are dequeued
+	 * @param pendingMessages the number of messages currently waiting in the queues
+	 */
+	public void checkIdle(int pendingMessages) {
+		if(congested.get() && pendingMessages == 0 && System.nanoTime() - lastDequeueTime >= intervalNanos) {
+			firstAboveTime.set(0);
+			if(congested.compareAndSet(true, false)) {
+				listener.queueDelayCongestionStopped("Queues drained");
+			}
+		}
+	}
+
+	/**
+	 * @param pendingMessages the number of messages currently waiting in the queues
+	 * @return the number of seconds needed to drain the pending messages at the observed drain rate
+	 */
+	public int getRetryAfter(int pendingMessages) {
+		final double rate = drainRate;
+		if(rate <= 0) {
+			return MAX_RETRY_AFTER;
+		}
+		final double seconds = Math.ceil(pendingMessages / rate);
+		return (int) Math.max(MIN_RETRY_AFTER, Math.min(MAX_RETRY_AFTER, seconds));
+	}
+
+	/**
+	 * Forget the current state, used when another congestion control policy is selected
+	 */
+	public void reset() {
+		firstAboveTime.set(0);
+		congested.set(false);
+	}
+
+	public boolean isCongested() {
+		return congested.get();
+	}
+
+	public long getLastSojournTime() {
+		return TimeUnit.NANOSECONDS.toMillis(lastSojournTime);
+	}
+
+	public double getDrainRate() {
+		return drainRate;
+	}
+
+	public long getTarget() {
+		return TimeUnit.NANOSECONDS.toMillis(targetNanos);
+	}
+
+	public void setTarget(long targetMillis) {
+		this.targetNanos = TimeUnit.MILLISECONDS.toNanos(targetMillis);
+	}
+
+	public long getInterval() {
+		return TimeUnit.NANOSECONDS.toMillis(intervalNanos);
+	}
+
+	public void setInterval(long intervalMillis) {
+		this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+	}
+}
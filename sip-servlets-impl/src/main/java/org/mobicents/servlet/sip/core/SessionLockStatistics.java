@@ -0,0 +1,277 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package org.mobicents.servlet.sip.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+
+/**
+ * Contention on the sip session and sip application session locks of the SipSession and SipApplicationSession 
+ * concurrency control modes, per application. The time spent waiting for the lock and holding it are registered
+ * in the codahale {@link MetricRegistry} under session.lock.wait.&lt;application name&gt; and 
+ * session.lock.hold.&lt;application name&gt;, the locks forcibly released after waiting 30 seconds under 
+ * session.lock.forcedReleases.&lt;application name&gt;.
+ * 
+ * The sessions whose lock was found busy are tracked in a bounded map, when it is full the session 
+ * that waited the least among a few sampled ones is evicted, so that the most contended sessions can be reported
+ * without scanning all the tracked sessions for each newly contended one.
+ *
+ */
+public class SessionLockStatistics {
+
+	private static final String METRIC_PREFIX = "session.lock";
+	private static final String WAIT = "wait";
+	private static final String HOLD = "hold";
+	private static final String FORCED_RELEASES = "forcedReleases";
+	private static final double NANOS_PER_MILLI = 1000000d;
+	// number of tracked sessions compared to pick the one to evict
+	private static final int EVICTION_SAMPLES = 8;
+
+	private final MetricRegistry metrics;
+	private final int maxContendedSessions;
+	private final ConcurrentMap<String, Timer> waitTimers = new ConcurrentHashMap<String, Timer>();
+	private final ConcurrentMap<String, Timer> holdTimers = new ConcurrentHashMap<String, Timer>();
+	private final ConcurrentMap<String, Counter> forcedReleases = new ConcurrentHashMap<String, Counter>();
+	private final ConcurrentMap<Object, ContendedSession> contendedSessions = new ConcurrentHashMap<Object, ContendedSession>();
+	// the keys of the tracked sessions by slot so that they can be sampled, guarded by itself
+	private final Object[] contendedSessionKeys;
+	private int contendedSessionCount;
+
+	/**
+	 * @param metrics the registry to register the timers and counters in
+	 * @param maxContendedSessions the maximum number of contended sessions tracked
+	 */
+	public SessionLockStatistics(MetricRegistry metrics, int maxContendedSessions) {
+		this.metrics = metrics;
+		this.maxContendedSessions = Math.max(1, maxContendedSessions);
+		this.contendedSessionKeys = new Object[this.maxContendedSessions];
+	}
+
+	/**
+	 * Record the time a thread waited for a session lock
+	 * @param applicationName the application the session belongs to
+	 * @param sessionKey the key of the session, only used if the lock was busy
+	 * @param waitNanos the time waited in nanoseconds, 0 if the lock was free
+	 */
+	public void updateWait(String applicationName, Object sessionKey, long waitNanos) {
+		getTimer(waitTimers, WAIT, applicationName).update(waitNanos, TimeUnit.NANOSECONDS);
+		if(waitNanos > 0) {
+			getContendedSession(applicationName, sessionKey).update(waitNanos);
+		}
+	}
+
+	/**
+	 * Record the time a session lock was held
+	 * @param applicationName the application the session belongs to
+	 * @param holdNanos the time held in nanoseconds
+	 */
+	public void updateHold(String applicationName, long holdNanos) {
+		getTimer(holdTimers, HOLD, applicationName).update(holdNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Record a session lock released by a thread that couldn't acquire it
+	 * @param applicationName the application the session belongs to
+	 * @param sessionKey the key of the session
+	 */
+	public void incForcedReleases(String applicationName, Object sessionKey) {
+		Counter counter = forcedReleases.get(applicationName);
+		if(counter == null) {
+			// the registry returns the existing counter if another thread registered it first
+			counter = metrics.counter(MetricRegistry.name(METRIC_PREFIX, FORCED_RELEASES, applicationName));
+			forcedReleases.putIfAbsent(applicationName, counter);
+		}
+		counter.inc();
+		getContendedSession(applicationName, sessionKey).forcedReleases.incrementAndGet();
+	}
+
+	private Timer getTimer(ConcurrentMap<String, Timer> timers, String kind, String applicationName) {
+		Timer timer = timers.get(applicationName);
+		if(timer == null) {
+			// the registry returns the existing timer if another thread registered it first
+			timer = metrics.timer(MetricRegistry.name(METRIC_PREFIX, kind, applicationName));
+			timers.putIfAbsent(applicationName, timer);
+		}
+		return timer;
+	}
+
+	private ContendedSession getContendedSession(String applicationName, Object sessionKey) {
+		ContendedSession contendedSession = contendedSessions.get(sessionKey);
+		if(contendedSession != null) {
+			return contendedSession;
+		}
+		// only the first contention of a session gets there
+		synchronized (contendedSessionKeys) {
+			contendedSession = contendedSessions.get(sessionKey);
+			if(contendedSession == null) {
+				final int slot;
+				if(contendedSessionCount < maxContendedSessions) {
+					slot = contendedSessionCount++;
+				} else {
+					slot = sampleLeastContendedSlot();
+					contendedSessions.remove(contendedSessionKeys[slot]);
+				}
+				contendedSession = new ContendedSession(applicationName);
+				contendedSessionKeys[slot] = sessionKey;
+				contendedSessions.put(sessionKey, contendedSession);
+			}
+			return contendedSession;
+		}
+	}
+
+	private int sampleLeastContendedSlot() {
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		int leastContendedSlot = 0;
+		long leastWaitNanos = Long.MAX_VALUE;
+		for (int i = 0; i < EVICTION_SAMPLES; i++) {
+			final int slot = random.nextInt(contendedSessionCount);
+			final long waitNanos = contendedSessions.get(contendedSessionKeys[slot]).waitNanos.get();
+			if(waitNanos < leastWaitNanos) {
+				leastWaitNanos = waitNanos;
+				leastContendedSlot = slot;
+			}
+		}
+		return leastContendedSlot;
+	}
+
+	/**
+	 * @return the count and the mean, median, 95th, 99th percentiles and max wait and hold times in milliseconds, 
+	 * keyed by wait.&lt;application name&gt; and hold.&lt;application name&gt;, along with the number of forced releases
+	 */
+	public Map<String, Map<String, Double>> getLatencies() {
+		final Map<String, Map<String, Double>> latencies = new HashMap<String, Map<String, Double>>();
+		addLatencies(latencies, WAIT, waitTimers);
+		addLatencies(latencies, HOLD, holdTimers);
+		for (Map.Entry<String, Counter> entry : forcedReleases.entrySet()) {
+			final Map<String, Double> waitLatencies = latencies.get(WAIT + "." + entry.getKey());
+			if(waitLatencies != null) {
+				waitLatencies.put(FORCED_RELEASES, (double) entry.getValue().getCount());
+			}
+		}
+		return latencies;
+	}
+
+	private static void addLatencies(Map<String, Map<String, Double>> latencies, String kind, Map<String, Timer> timers) {
+		for (Map.Entry<String, Timer> entry : timers.entrySet()) {
+			final Timer timer = entry.getValue();
+			final Snapshot snapshot = timer.getSnapshot();
+			final Map<String, Double> percentiles = new HashMap<String, Double>();
+			percentiles.put("count", (double) timer.getCount());
+			percentiles.put("mean", snapshot.getMean() / NANOS_PER_MILLI);
+			percentiles.put("p50", snapshot.getMedian() / NANOS_PER_MILLI);
+			percentiles.put("p95", snapshot.get95thPercentile() / NANOS_PER_MILLI);
+			percentiles.put("p99", snapshot.get99thPercentile() / NANOS_PER_MILLI);
+			percentiles.put("max", snapshot.getMax() / NANOS_PER_MILLI);
+			latencies.put(kind + "." + entry.getKey(), percentiles);
+		}
+	}
+
+	/**
+	 * @param count the number of sessions to return
+	 * @return the sessions that waited the most for their lock, with the application they belong to, 
+	 * the number of times their lock was busy, the total and max time waited in milliseconds and the number of forced releases
+	 */
+	public Map<String, Map<String, Object>> getMostContendedSessions(int count) {
+		final List<Map.Entry<Object, ContendedSession>> entries = new ArrayList<Map.Entry<Object, ContendedSession>>();
+		final Map<Object, Long> waits = new HashMap<Object, Long>();
+		for (Map.Entry<Object, ContendedSession> entry : contendedSessions.entrySet()) {
+			entries.add(entry);
+			// snapshot the waits so that the order doesn't change while sorting
+			waits.put(entry.getKey(), entry.getValue().waitNanos.get());
+		}
+		Collections.sort(entries, new Comparator<Map.Entry<Object, ContendedSession>>() {
+			public int compare(Map.Entry<Object, ContendedSession> o1, Map.Entry<Object, ContendedSession> o2) {
+				final long wait1 = waits.get(o1.getKey());
+				final long wait2 = waits.get(o2.getKey());
+				return wait1 < wait2 ? 1 : (wait1 == wait2 ? 0 : -1);
+			}
+		});
+		final Map<String, Map<String, Object>> mostContendedSessions = new LinkedHashMap<String, Map<String, Object>>();
+		for (Map.Entry<Object, ContendedSession> entry : entries.subList(0, Math.min(count, entries.size()))) {
+			final ContendedSession contendedSession = entry.getValue();
+			final Map<String, Object> statistics = new LinkedHashMap<String, Object>();
+			statistics.put("application", contendedSession.applicationName);
+			statistics.put("contentions", contendedSession.contentions.get());
+			statistics.put("wait", waits.get(entry.getKey()) / NANOS_PER_MILLI);
+			statistics.put("maxWait", contendedSession.maxWaitNanos / NANOS_PER_MILLI);
+			statistics.put(FORCED_RELEASES, contendedSession.forcedReleases.get());
+			mostContendedSessions.put(entry.getKey().toString(), statistics);
+		}
+		return mostContendedSessions;
+	}
+
+	/**
+	 * Unregister all the timers and counters and forget the contended sessions, codahale timers can't be reset
+	 */
+	public void reset() {
+		removeMetrics(WAIT, waitTimers);
+		removeMetrics(HOLD, holdTimers);
+		removeMetrics(FORCED_RELEASES, forcedReleases);
+		synchronized (contendedSessionKeys) {
+			contendedSessions.clear();
+			Arrays.fill(contendedSessionKeys, null);
+			contendedSessionCount = 0;
+		}
+	}
+
+	private void removeMetrics(String kind, Map<String, ?> metricsByApplication) {
+		for (String applicationName : metricsByApplication.keySet()) {
+			metrics.remove(MetricRegistry.name(METRIC_PREFIX, kind, applicationName));
+		}
+		metricsByApplication.clear();
+	}
+
+	private static class ContendedSession {
+		private final String applicationName;
+		private final AtomicLong contentions = new AtomicLong();
+		private final AtomicLong waitNanos = new AtomicLong();
+		private final AtomicLong forcedReleases = new AtomicLong();
+		private volatile long maxWaitNanos;
+
+		ContendedSession(String applicationName) {
+			this.applicationName = applicationName;
+		}
+
+		void update(long waitNanos) {
+			contentions.incrementAndGet();
+			this.waitNanos.addAndGet(waitNanos);
+			// a lost update only under-reports the max of a concurrent contention
+			if(waitNanos > maxWaitNanos) {
+				maxWaitNanos = waitNanos;
+			}
+		}
+	}
+}
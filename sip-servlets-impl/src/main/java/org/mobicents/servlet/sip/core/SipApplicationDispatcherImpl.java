@@ -23,6 +23,7 @@ import gov.nist.javax.sip.ClientTransactionExt;
 import gov.nist.javax.sip.DialogTimeoutEvent;
 import gov.nist.javax.sip.DialogTimeoutEvent.Reason;
 import gov.nist.javax.sip.IOExceptionEventExt;
+import gov.nist.javax.sip.RequestEventExt;
 import gov.nist.javax.sip.ResponseEventExt;
 import gov.nist.javax.sip.SipStackImpl;
 import gov.nist.javax.sip.TransactionExt;
@@ -33,13 +34,17 @@ import java.io.Serializable;
 import java.lang.reflect.Constructor;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ScheduledFuture;
@@ -89,7 +94,9 @@ import javax.sip.header.Header;
 import javax.sip.header.MaxForwardsHeader;
 import javax.sip.header.Parameters;
 import javax.sip.header.RouteHeader;
+import javax.sip.header.ToHeader;
 import javax.sip.header.ViaHeader;
+import javax.sip.message.Message;
 import javax.sip.message.Request;
 import javax.sip.message.Response;
 
@@ -110,14 +117,23 @@ import org.mobicents.servlet.sip.annotation.ConcurrencyControlMode;
 import org.mobicents.servlet.sip.core.b2bua.MobicentsB2BUAHelper;
 import org.mobicents.servlet.sip.core.dispatchers.MessageDispatcher;
 import org.mobicents.servlet.sip.core.dispatchers.MessageDispatcherFactory;
+import org.mobicents.servlet.sip.core.dispatchers.ApplicationDispatchExecutor;
+import org.mobicents.servlet.sip.core.dispatchers.PriorityLanesDispatchExecutor;
+import org.mobicents.servlet.sip.core.dispatchers.StripedDispatchExecutor;
+import org.mobicents.servlet.sip.core.dispatchers.VirtualThreadDispatchExecutor;
 import org.mobicents.servlet.sip.core.message.MobicentsSipServletRequest;
 import org.mobicents.servlet.sip.core.proxy.MobicentsProxy;
+import org.mobicents.servlet.sip.core.session.ApplicationNameRegistry;
 import org.mobicents.servlet.sip.core.session.DistributableSipManager;
 import org.mobicents.servlet.sip.core.session.MobicentsSipApplicationSession;
 import org.mobicents.servlet.sip.core.session.MobicentsSipSession;
 import org.mobicents.servlet.sip.core.session.MobicentsSipSessionKey;
+import org.mobicents.servlet.sip.core.session.OffHeapSessionStore;
+import org.mobicents.servlet.sip.core.session.SessionMailbox;
 import org.mobicents.servlet.sip.core.session.SessionManagerUtil;
+import org.mobicents.servlet.sip.core.session.SipApplicationSessionImpl;
 import org.mobicents.servlet.sip.core.session.SipApplicationSessionKey;
+import org.mobicents.servlet.sip.core.session.SipSessionImpl;
 import org.mobicents.servlet.sip.dns.MobicentsDNSResolver;
 import org.mobicents.servlet.sip.listener.SipConnectorListener;
 import org.mobicents.servlet.sip.message.SipFactoryImpl;
@@ -161,8 +177,60 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 	private static final String[] RFC_SUPPORTED =
 		{"3261", "3428", "2976", "3265", "3311", "3903", "3515", "3262", "3489", "3327", "3911", "5626", "4916", "5627"};
 
-	private static final String[] RESPONSES_PER_CLASS_OF_SC =
-		{"1XX", "2XX", "3XX", "4XX", "5XX", "6XX", "7XX", "8XX", "9XX"};
+	/**
+	 * Samples every second the messages counters to compute their rates
+	 */
+	class MessageStatisticsSamplingTask implements Runnable {
+		public void run() {
+			messageStatistics.sample();
+			for (MessageStatistics applicationStatistics : applicationMessageStatistics.values()) {
+				applicationStatistics.sample();
+			}
+			for (MessageStatistics transportStatistics : transportMessageStatistics) {
+				transportStatistics.sample();
+			}
+		}
+	}
+
+	/**
+	 * Moves off heap the attributes of the sessions that have been idle for too long,
+	 * for the applications having an off heap session store
+	 */
+	class OffHeapSessionPassivationTask implements Runnable {
+		public void run() {
+			for (Map.Entry<String, OffHeapSessionStore> storeEntry : offHeapSessionStores.entrySet()) {
+				final SipContext sipContext = applicationDeployed.get(storeEntry.getKey());
+				if(sipContext == null) {
+					continue;
+				}
+				final OffHeapSessionStore store = storeEntry.getValue();
+				final long now = System.currentTimeMillis();
+				int passivated = 0;
+				try {
+					final Iterator<MobicentsSipApplicationSession> sipApplicationSessions = sipContext.getSipManager().getAllSipApplicationSessions();
+					while (sipApplicationSessions.hasNext()) {
+						final MobicentsSipApplicationSession sipApplicationSession = sipApplicationSessions.next();
+						if(sipApplicationSession instanceof SipApplicationSessionImpl && ((SipApplicationSessionImpl) sipApplicationSession).passivateAttributes(store, now)) {
+							passivated++;
+						}
+					}
+					final Iterator<MobicentsSipSession> sipSessions = sipContext.getSipManager().getAllSipSessions();
+					while (sipSessions.hasNext()) {
+						final MobicentsSipSession sipSession = sipSessions.next();
+						if(sipSession instanceof SipSessionImpl && ((SipSessionImpl) sipSession).passivateAttributes(store, now)) {
+							passivated++;
+						}
+					}
+				} catch (Throwable t) {
+					logger.error("Problem moving the idle sessions of application " + storeEntry.getKey() + " off heap", t);
+				}
+				if(logger.isDebugEnabled()) {
+					logger.debug(passivated + " sessions of application " + storeEntry.getKey() + " moved off heap, " +
+							store.getStoredEntries() + " sessions and " + store.getUsedBytes() + " bytes now stored off heap");
+				}
+			}
+		}
+	}
 
 	/**
 	 * Timer task that will gather information about congestion control
@@ -176,8 +244,14 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 			if(logger.isDebugEnabled()) {
 				logger.debug("CongestionControlTimerTask now running ");
 			}
-			analyzeQueueCongestionState();
-			analyzeMemory();
+			// with the QueueDelay policy the queue congestion is detected as messages are dequeued
+			if(!CongestionControlPolicy.QueueDelay.equals(congestionControlPolicy)) {
+				analyzeQueueCongestionState();
+			}
+			// the memory is checked after each garbage collection when the tenured pool can be monitored
+			if(!collectionUsageMemoryMonitor.isStarted()) {
+				analyzeMemory();
+			}
 			if(gatherStatistics) {
 				for (SipContext sipContext : applicationDeployed.values()) {
 					sipContext.getSipManager().updateStats();
@@ -225,25 +299,68 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
     Counter counterCalls = metrics.counter("calls");
     Counter counterSeconds = metrics.counter("seconds");
     Counter counterMessages = metrics.counter("messages");
+    final DispatchLatencyStatistics dispatchLatencyStatistics = new DispatchLatencyStatistics(metrics, METHODS_SUPPORTED);
+    // number of contended sessions tracked and reported
+    private static final int MAX_CONTENDED_SESSIONS = 1000;
+    private static final int MOST_CONTENDED_SESSIONS = 20;
+    final SessionLockStatistics sessionLockStatistics = new SessionLockStatistics(metrics, MAX_CONTENDED_SESSIONS);
     //
 	private boolean gatherStatistics = true;
-	private final AtomicLong requestsProcessed = new AtomicLong(0);
-	private final AtomicLong responsesProcessed = new AtomicLong(0);
-	final Map<String, AtomicLong> requestsProcessedByMethod = new ConcurrentHashMap<String, AtomicLong>();
-	final Map<String, AtomicLong> responsesProcessedByStatusCode = new ConcurrentHashMap<String, AtomicLong>();
-	// https://telestax.atlassian.net/browse/MSS-74
-	private final AtomicLong requestsSent = new AtomicLong(0);
-	private final AtomicLong responsesSent= new AtomicLong(0);
-	final Map<String, AtomicLong> requestsSentByMethod = new ConcurrentHashMap<String, AtomicLong>();
-	final Map<String, AtomicLong> responsesSentByStatusCode = new ConcurrentHashMap<String, AtomicLong>();
+	// requests and responses processed and sent (https://telestax.atlassian.net/browse/MSS-74)
+	final MessageStatistics messageStatistics = new MessageStatistics(METHODS_SUPPORTED);
+	final Map<String, MessageStatistics> applicationMessageStatistics = new ConcurrentHashMap<String, MessageStatistics>();
+	// the transports are taken from the top Via header since the listening point isn't known on all the paths
+	private static final String[] TRANSPORTS = {ListeningPoint.UDP, ListeningPoint.TCP, ListeningPoint.TLS, ListeningPoint.SCTP, "WS", "WSS"};
+	final MessageStatistics[] transportMessageStatistics = new MessageStatistics[TRANSPORTS.length];
+	protected transient ScheduledFuture messageStatisticsSamplingFuture;
+	// context params allowing an application to move the attributes of its idle sessions off heap
+	public static final String APPLICATION_OFF_HEAP_SESSION_IDLE_TIME = "org.restcomm.servlets.sip.OFF_HEAP_SESSION_IDLE_TIME";
+	public static final String APPLICATION_OFF_HEAP_SESSION_STORE_SIZE = "org.restcomm.servlets.sip.OFF_HEAP_SESSION_STORE_SIZE";
+	private static final long DEFAULT_OFF_HEAP_SESSION_STORE_SIZE = 256;
+	private static final long OFF_HEAP_SESSION_PASSIVATION_INTERVAL = 10;
+	//map app names to their off heap session stores
+	final Map<String, OffHeapSessionStore> offHeapSessionStores = new ConcurrentHashMap<String, OffHeapSessionStore>();
+	protected transient ScheduledFuture offHeapSessionPassivationFuture;
 
 	// congestion control
-	private boolean memoryToHigh = false;
+	private volatile boolean memoryToHigh = false;
 	private double maxMemory;
 	private int memoryThreshold;
 	private int backToNormalMemoryThreshold;
-	private boolean rejectSipMessages = false;
+	// drives memoryToHigh from the memory left after garbage collection, analyzeMemory is only used if no tenured pool can be monitored
+	private final CollectionUsageMemoryMonitor collectionUsageMemoryMonitor = new CollectionUsageMemoryMonitor(95, 90, new CollectionUsageMemoryMonitor.Listener() {
+		public void memoryCongestionStarted(String message) {
+			logger.warn(message + " => starting to reject requests");
+			memoryToHigh = true;
+			callbackContainerEventListener(new CongestionStartedEvent(
+					org.mobicents.javax.servlet.CongestionControlEvent.Reason.Memory, message));
+		}
+
+		public void memoryCongestionStopped(String message) {
+			logger.warn(message + " => stopping to reject requests");
+			memoryToHigh = false;
+			callbackContainerEventListener(new CongestionStoppedEvent(
+					org.mobicents.javax.servlet.CongestionControlEvent.Reason.Memory, message));
+		}
+	});
+	private volatile boolean rejectSipMessages = false;
 	long congestionControlCheckingInterval; //30 sec
+	// drives rejectSipMessages from the time messages wait in the queues when the QueueDelay policy is used
+	private final QueueDelayCongestionControl queueDelayCongestionControl = new QueueDelayCongestionControl(50, 500, new QueueDelayCongestionControl.Listener() {
+		public void queueDelayCongestionStarted(String message) {
+			logger.warn(message + " => starting to reject requests");
+			rejectSipMessages = true;
+			callbackContainerEventListener(new CongestionStartedEvent(
+					org.mobicents.javax.servlet.CongestionControlEvent.Reason.Queue, message));
+		}
+
+		public void queueDelayCongestionStopped(String message) {
+			logger.warn(message + " => stopping to reject requests");
+			rejectSipMessages = false;
+			callbackContainerEventListener(new CongestionStoppedEvent(
+					org.mobicents.javax.servlet.CongestionControlEvent.Reason.Queue, message));
+		}
+	});
 	@Deprecated
 	protected transient CongestionControlTimerTask congestionControlTimerTask;
 	@Deprecated
@@ -257,6 +374,29 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 	private int queueSize;
 	@Deprecated
 	private int backToNormalQueueSize;
+	// per source rate limiting of the initial requests, disabled if the rate is 0 or less
+	private double sourceRateLimit = 0;
+	private int sourceRateLimitBurst = 50;
+	private boolean sourceRateLimitByPort = false;
+	private String sourceRateLimitAllowList;
+	private int sourceRateLimitMaxSources = 10000;
+	private volatile SourceRateLimiter sourceRateLimiter;
+	// RFC 7339 overload control
+	private volatile boolean overloadControl = false;
+	private final ViaOverloadControl viaOverloadControl = new ViaOverloadControl(new ViaOverloadControl.LoadEstimator() {
+		public int getReduction() {
+			if(rejectSipMessages || memoryToHigh) {
+				// we are rejecting new requests anyway
+				return 100;
+			}
+			final int pendingMessages = getNumberOfPendingMessages();
+			if(pendingMessages <= backToNormalQueueSize || queueSize <= backToNormalQueueSize) {
+				return 0;
+			}
+			// ask for a reduction growing with the queues between the back to normal queue size and the queue size
+			return (int) ((pendingMessages - backToNormalQueueSize) * 100L / (queueSize - backToNormalQueueSize));
+		}
+	});
 	//used for graceful stops and congestion control mechanism (which is now deprecated)
 	private ScheduledThreadPoolExecutor asynchronousScheduledThreadPoolExecutor = null;
 
@@ -268,6 +408,8 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 	private int t4Interval = 5000; // t4 timer interval for jain sip tx
 	private int timerDInterval = 32000; // timer D interval for jain sip tx
 	private ConcurrencyControlMode concurrencyControlMode;
+	private boolean concurrencyControlMailbox = false;
+	private boolean localApplicationComposition = false;
 	public static int APP_ID_HASHING_MAX_LENGTH = 8;
 	private static final int NUMBER_OF_TAG_SEPARATORS = 3;
 	private int tagHashMaxLength = 8;
@@ -276,6 +418,18 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 	// This executor is used for async things that don't need to wait on session executors, like CANCEL requests
 	// or when the container is configured to execute every request ASAP without waiting on locks (no concurrency control)
 	private ThreadPoolExecutor asynchronousExecutor = null;
+	// Call-ID affine single consumer lanes used to hand off messages to the applications when the dispatcher
+	// executor type is Striped, null otherwise
+	private StripedDispatchExecutor stripedDispatchExecutor = null;
+	private VirtualThreadDispatchExecutor virtualThreadDispatchExecutor = null;
+	private PriorityLanesDispatchExecutor priorityLanesDispatchExecutor = null;
+	private int initialRequestsLaneSize = 1000;
+	private int inDialogLaneSize = 1000;
+	// context params allowing an application to get its own executor instead of sharing the dispatcher one
+	public static final String APPLICATION_DISPATCHER_THREADS = "org.restcomm.servlets.sip.DISPATCHER_THREADS";
+	public static final String APPLICATION_DISPATCHER_QUEUE_SIZE = "org.restcomm.servlets.sip.DISPATCHER_QUEUE_SIZE";
+	//map app names to their dedicated executors
+	private Map<String, ApplicationDispatchExecutor> applicationDispatchExecutors = null;
 
 	// fatcory for dispatching SIP messages
 	private MessageDispatcherFactory messageDispatcherFactory;
@@ -287,10 +441,14 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 	 *
 	 */
 	public SipApplicationDispatcherImpl() {
+		for (int i = 0; i < TRANSPORTS.length; i++) {
+			transportMessageStatistics[i] = new MessageStatistics(METHODS_SUPPORTED);
+		}
                 resetStatsCounters();
 		applicationDeployed = new ConcurrentHashMap<String, SipContext>();
 		mdToApplicationName = new ConcurrentHashMap<String, String>();
 		applicationNameToMd = new ConcurrentHashMap<String, String>();
+		applicationDispatchExecutors = new ConcurrentHashMap<String, ApplicationDispatchExecutor>();
 		sipFactoryImpl = new SipFactoryImpl(this);
 		hostNames = new CopyOnWriteArraySet<String>();
 		sipNetworkInterfaceManager = new SipNetworkInterfaceManagerImpl(this);
@@ -301,26 +459,15 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 
         @Override
         public final void resetStatsCounters() {
-            requestsProcessed.set(0);
-            responsesProcessed.set(0);
-            requestsSent.set(0);
-            responsesSent.set(0);
-            for (String method : METHODS_SUPPORTED) {
-                    requestsProcessedByMethod.put(method, new AtomicLong(0));
-            }
-
-            for (String classOfSc : RESPONSES_PER_CLASS_OF_SC) {
-                    responsesProcessedByStatusCode.put(classOfSc, new AtomicLong(0));
-            }
-
-            for (String classOfSc : RESPONSES_PER_CLASS_OF_SC) {
-                    responsesSentByStatusCode.put(classOfSc, new AtomicLong(0));
+            messageStatistics.reset();
+            for (MessageStatistics applicationStatistics : applicationMessageStatistics.values()) {
+                    applicationStatistics.reset();
             }
-
-            for (String method : METHODS_SUPPORTED) {
-                    requestsSentByMethod.put(method, new AtomicLong(0));
+            for (MessageStatistics transportStatistics : transportMessageStatistics) {
+                    transportStatistics.reset();
             }
-
+            dispatchLatencyStatistics.reset();
+            sessionLockStatistics.reset();
         }
 
         class InitAction implements DispatcherFSM.Action {
@@ -452,6 +599,25 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 			}
 
 		});
+		DispatcherExecutorType dispatcherExecutorType = DispatcherExecutorType.Default;
+		if(sipService.getDispatcherExecutorType() != null && sipService.getDispatcherExecutorType().trim().length() > 0) {
+			dispatcherExecutorType = DispatcherExecutorType.valueOf(sipService.getDispatcherExecutorType().trim());
+		}
+		logger.info("Dispatcher Executor type is " + dispatcherExecutorType);
+		if(DispatcherExecutorType.Striped.equals(dispatcherExecutorType)) {
+			stripedDispatchExecutor = new StripedDispatchExecutor(sipService.getDispatcherThreadPoolSize(), ((SipStackImpl)sipStack).getThreadPriority());
+			logger.info("Striped Dispatcher Executor number of lanes is " + stripedDispatchExecutor.getNumberOfLanes());
+		} else if(DispatcherExecutorType.VirtualThread.equals(dispatcherExecutorType)) {
+			virtualThreadDispatchExecutor = VirtualThreadDispatchExecutor.create("MSS-Executor-Virtual-Thread");
+			if(virtualThreadDispatchExecutor == null) {
+				logger.warn("Virtual threads are not supported by this JVM " + System.getProperty("java.version") + 
+						", falling back to the " + DispatcherExecutorType.Default + " Dispatcher Executor");
+			}
+		} else if(DispatcherExecutorType.PriorityLanes.equals(dispatcherExecutorType)) {
+			priorityLanesDispatchExecutor = new PriorityLanesDispatchExecutor(sipService.getDispatcherThreadPoolSize(), 
+					initialRequestsLaneSize, inDialogLaneSize, ((SipStackImpl)sipStack).getThreadPriority());
+			logger.info("Priority Lanes Dispatcher Executor initial requests lane size is " + initialRequestsLaneSize + ", in dialog lane size is " + inDialogLaneSize);
+		}
 
                 if (getGatherStatistics()) {
                     statsReporter = new RestcommStatsReporter();
@@ -495,11 +661,17 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 		 	if(logger.isInfoEnabled()) {
 		 		logger.info("Congestion control background task started and checking every " + congestionControlCheckingInterval + " milliseconds.");
 		 	}
+		 	startMemoryMonitor();
 		} else {
 			if(logger.isInfoEnabled()) {
 		 		logger.info("No Congestion control background task started since the checking interval is equals to " + congestionControlCheckingInterval + " milliseconds.");
 		 	}
 		}
+		scheduleMessageStatisticsSampling();
+		if(offHeapSessionPassivationFuture == null) {
+			offHeapSessionPassivationFuture = asynchronousScheduledThreadPoolExecutor.scheduleWithFixedDelay(new OffHeapSessionPassivationTask(),
+					OFF_HEAP_SESSION_PASSIVATION_INTERVAL, OFF_HEAP_SESSION_PASSIVATION_INTERVAL, TimeUnit.SECONDS);
+		}
                 if (statsReporter != null) {
                     //define periodicy - default to once a day
                     statsReporter.start(86400, TimeUnit.SECONDS);
@@ -544,8 +716,21 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 
         @Override
         public void execute(DispatcherFSM.Context ctx) {
+		collectionUsageMemoryMonitor.stop();
 		asynchronousScheduledThreadPoolExecutor.shutdownNow();
 		asynchronousExecutor.shutdownNow();
+		if(stripedDispatchExecutor != null) {
+			stripedDispatchExecutor.shutdownNow();
+		}
+		if(virtualThreadDispatchExecutor != null) {
+			virtualThreadDispatchExecutor.shutdownNow();
+		}
+		if(priorityLanesDispatchExecutor != null) {
+			priorityLanesDispatchExecutor.shutdownNow();
+		}
+		for (ApplicationDispatchExecutor applicationDispatchExecutor : applicationDispatchExecutors.values()) {
+			applicationDispatchExecutor.shutdownNow();
+		}
 		sipApplicationRouter.destroy();
 
 		stopSipStack();
@@ -609,7 +794,12 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
                 logger.info("Concurrency control mode for application " + sipApplicationName + " is " + sipApplication.getConcurrencyControlMode());
             }
             sipApplication.getServletContext().setAttribute(ConcurrencyControlMode.class.getCanonicalName(), sipApplication.getConcurrencyControlMode());
+            createApplicationDispatchExecutor(sipApplication);
+            createOffHeapSessionStore(sipApplication);
+            applicationMessageStatistics.put(sipApplicationName, new MessageStatistics(METHODS_SUPPORTED));
 
+            // the session keys of the application share its name instead of their own copy
+            ApplicationNameRegistry.register(sipApplicationName);
             applicationDeployed.put(sipApplicationName, sipApplication);
 
             String hash = GenericUtils.hashString(sipApplicationName, tagHashMaxLength);
@@ -640,7 +830,73 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 
     }
 
-        static final String CONTEXT_EV_DATA = "Context";
+        /*
+     * Creates the executor dedicated to the application if it asked for its own thread budget through the
+     * org.restcomm.servlets.sip.DISPATCHER_THREADS context param
+     */
+    private void createApplicationDispatchExecutor(SipContext sipApplication) {
+        String strThreads = sipApplication.getServletContext().getInitParameter(APPLICATION_DISPATCHER_THREADS);
+        if (strThreads == null || strThreads.trim().isEmpty()) {
+            return;
+        }
+        int threads = 0;
+        int applicationQueueSize = queueSize;
+        try {
+            threads = Integer.parseInt(strThreads.trim());
+            String strQueueSize = sipApplication.getServletContext().getInitParameter(APPLICATION_DISPATCHER_QUEUE_SIZE);
+            if (strQueueSize != null && !strQueueSize.trim().isEmpty()) {
+                applicationQueueSize = Integer.parseInt(strQueueSize.trim());
+            }
+        } catch (NumberFormatException ex) {
+            logger.warn("Failed to parse the dispatcher executor configuration of application " + sipApplication.getApplicationName() + ", using the shared executor", ex);
+            return;
+        }
+        if (threads <= 0 || applicationQueueSize <= 0) {
+            return;
+        }
+        int threadPriority = Thread.NORM_PRIORITY;
+        if (sipStack != null) {
+            threadPriority = ((SipStackImpl) sipStack).getThreadPriority();
+        }
+        applicationDispatchExecutors.put(sipApplication.getApplicationName(),
+                new ApplicationDispatchExecutor(sipApplication.getApplicationName(), threads, applicationQueueSize, threadPriority));
+        if (logger.isInfoEnabled()) {
+            logger.info("Application " + sipApplication.getApplicationName() + " uses its own dispatcher executor with " + threads + " threads and a queue size of " + applicationQueueSize);
+        }
+    }
+
+    /*
+     * Creates the off heap store of the application if it asked for its idle sessions to be moved off heap through the
+     * org.restcomm.servlets.sip.OFF_HEAP_SESSION_IDLE_TIME context param
+     */
+    private void createOffHeapSessionStore(SipContext sipApplication) {
+        String strIdleTime = sipApplication.getServletContext().getInitParameter(APPLICATION_OFF_HEAP_SESSION_IDLE_TIME);
+        if (strIdleTime == null || strIdleTime.trim().isEmpty()) {
+            return;
+        }
+        long idleTime = 0;
+        long storeSize = DEFAULT_OFF_HEAP_SESSION_STORE_SIZE;
+        try {
+            idleTime = Long.parseLong(strIdleTime.trim());
+            String strStoreSize = sipApplication.getServletContext().getInitParameter(APPLICATION_OFF_HEAP_SESSION_STORE_SIZE);
+            if (strStoreSize != null && !strStoreSize.trim().isEmpty()) {
+                storeSize = Long.parseLong(strStoreSize.trim());
+            }
+        } catch (NumberFormatException ex) {
+            logger.warn("Failed to parse the off heap session store configuration of application " + sipApplication.getApplicationName() + ", keeping its sessions on the heap", ex);
+            return;
+        }
+        if (idleTime <= 0 || storeSize <= 0) {
+            return;
+        }
+        offHeapSessionStores.put(sipApplication.getApplicationName(),
+                new OffHeapSessionStore(sipApplication.getApplicationName(), storeSize * 1024 * 1024, idleTime * 1000));
+        if (logger.isInfoEnabled()) {
+            logger.info("Application " + sipApplication.getApplicationName() + " moves the attributes of the sessions idle for more than " + idleTime + " seconds off heap, in a store of " + storeSize + " MB");
+        }
+    }
+
+    static final String CONTEXT_EV_DATA = "Context";
 	/**
 	 * {@inheritDoc}
 	 */
@@ -664,9 +920,19 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
             if (sipContext != null) {
                 sipContext.getSipManager().removeAllSessions();
             }
+            ApplicationDispatchExecutor applicationDispatchExecutor = applicationDispatchExecutors.remove(sipApplicationName);
+            if (applicationDispatchExecutor != null) {
+                applicationDispatchExecutor.shutdown();
+            }
+            applicationMessageStatistics.remove(sipApplicationName);
+            OffHeapSessionStore offHeapSessionStore = offHeapSessionStores.remove(sipApplicationName);
+            if (offHeapSessionStore != null) {
+                offHeapSessionStore.destroy();
+            }
             String hash = GenericUtils.hashString(sipApplicationName, tagHashMaxLength);
             mdToApplicationName.remove(hash);
             applicationNameToMd.remove(sipApplicationName);
+            ApplicationNameRegistry.unregister(sipApplicationName);
             if (logger.isInfoEnabled()) {
                 logger.info("the following sip servlet application has been removed : " + sipApplicationName);
             }
@@ -741,7 +1007,21 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 	 * Gives the number of pending messages in all queues for all concurrency control modes.
 	 */
 	public int getNumberOfPendingMessages() {
-		return this.asynchronousExecutor.getQueue().size();
+		int size = this.asynchronousExecutor.getQueue().size();
+		if(stripedDispatchExecutor != null) {
+			size += stripedDispatchExecutor.getQueueSize();
+		}
+		if(virtualThreadDispatchExecutor != null) {
+			// no queue with virtual threads, the tasks in flight are what piles up under load
+			size += virtualThreadDispatchExecutor.getTasksInFlight();
+		}
+		if(priorityLanesDispatchExecutor != null) {
+			size += priorityLanesDispatchExecutor.getQueueSize();
+		}
+		for (ApplicationDispatchExecutor applicationDispatchExecutor : applicationDispatchExecutors.values()) {
+			size += applicationDispatchExecutor.getQueue().size();
+		}
+		return size;
 //		int size = 0;
 //		Iterator<SipContext> applicationsIterator = this.applicationDeployed
 //				.values().iterator();
@@ -858,7 +1138,7 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 
 		if((rejectSipMessages || memoryToHigh) && CongestionControlPolicy.DropMessage.equals(congestionControlPolicy)) {
 			String method = requestEvent.getRequest().getMethod();
-			boolean goodMethod = method.equals(Request.ACK) || method.equals(Request.PRACK) || method.equals(Request.BYE) || method.equals(Request.CANCEL) || method.equals(Request.UPDATE) || method.equals(Request.INFO);
+			boolean goodMethod = MessageDispatcher.isCongestionControlGoodMethod(method);
 			if(logger.isDebugEnabled()) {
 				logger.debug("congestion control good method " + goodMethod + ", dialog "  + dialog + " routeHeader " + routeHeader);
 			}
@@ -870,6 +1150,11 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 			}
 		}
 
+		// rate limiting is done before creating the STX so that a single source can't allocate transactions at will
+		if(requestTransaction == null && dialog == null && isSourceRateLimited(requestEvent, request, sipProvider)) {
+			return;
+		}
+
 		try {
 			if(logger.isDebugEnabled()) {
 				logger.debug("sipApplicationDispatcher " + this + ", Got a request event "  + request.toString());
@@ -880,7 +1165,9 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 				    if(request.getHeader(MaxForwardsHeader.NAME) == null){
 					    request.setHeader(SipFactoryImpl.headerFactory.createMaxForwardsHeader(70));
 					}
+				    final long serverTransactionStart = System.nanoTime();
 				    requestTransaction = sipProvider.getNewServerTransaction(request);
+				    updateDispatchStageLatency(DispatchStage.ServerTransaction, requestMethod, null, System.nanoTime() - serverTransactionStart);
 				    JainSipUtils.setTransactionTimers(((TransactionExt)requestTransaction), this);
 				} catch ( TransactionUnavailableException tae) {
 					logger.error("cannot get a new Server transaction for this request " + request, tae);
@@ -1006,10 +1293,61 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 
         private static final String THROTTLED_RESPONSE = "org.mobicents.servlet.sip.THROTTLED_RESPONSE";
 
+	/**
+	 * Checks the rate of initial requests from the source of the request and rejects it 
+	 * or drops it depending on the congestion control policy if it is above the limit
+	 * @return true if the request shouldn't be processed further
+	 */
+	private boolean isSourceRateLimited(RequestEvent requestEvent, Request request, SipProvider sipProvider) {
+		final SourceRateLimiter rateLimiter = sourceRateLimiter;
+		if(rateLimiter == null || MessageDispatcher.isCongestionControlGoodMethod(request.getMethod())) {
+			return false;
+		}
+		final ToHeader toHeader = (ToHeader) request.getHeader(ToHeader.NAME);
+		if(toHeader != null && toHeader.getTag() != null) {
+			// in dialog request
+			return false;
+		}
+		String remoteIpAddress = null;
+		int remotePort = -1;
+		if(requestEvent instanceof RequestEventExt) {
+			remoteIpAddress = ((RequestEventExt) requestEvent).getRemoteIpAddress();
+			remotePort = ((RequestEventExt) requestEvent).getRemotePort();
+		}
+		if(remoteIpAddress == null) {
+			final ViaHeader viaHeader = (ViaHeader) request.getHeader(ViaHeader.NAME);
+			if(viaHeader == null) {
+				return false;
+			}
+			remoteIpAddress = viaHeader.getReceived() != null ? viaHeader.getReceived() : viaHeader.getHost();
+			remotePort = viaHeader.getRPort() > 0 ? viaHeader.getRPort() : viaHeader.getPort();
+		}
+		if(rateLimiter.tryAcquire(remoteIpAddress, remotePort)) {
+			return false;
+		}
+		if(CongestionControlPolicy.DropMessage.equals(congestionControlPolicy)) {
+			if(logger.isDebugEnabled()) {
+				logger.debug("dropping request, too many requests from " + remoteIpAddress + ":" + remotePort);
+			}
+		} else {
+			if(logger.isDebugEnabled()) {
+				logger.debug("rejecting request, too many requests from " + remoteIpAddress + ":" + remotePort);
+			}
+			// sent statelessly, no transaction is created for the request
+			MessageDispatcher.sendErrorResponse(this, Response.SERVICE_UNAVAILABLE, null, request, sipProvider, 
+					rateLimiter.getRetryAfter(remoteIpAddress, remotePort));
+		}
+		return true;
+	}
+
 	private boolean controlCongestion(Request request, SipServletRequestImpl sipServletRequest, Dialog dialog, RouteHeader routeHeader, SipProvider sipProvider) {
+		final boolean queueDelayPolicy = CongestionControlPolicy.QueueDelay.equals(congestionControlPolicy);
+		if(queueDelayPolicy && rejectSipMessages) {
+			queueDelayCongestionControl.checkIdle(getNumberOfPendingMessages());
+		}
 		if(rejectSipMessages || memoryToHigh) {
 			String method = request.getMethod();
-			boolean goodMethod = method.equals(Request.ACK) || method.equals(Request.PRACK) || method.equals(Request.BYE) || method.equals(Request.CANCEL) || method.equals(Request.UPDATE) || method.equals(Request.INFO);
+			boolean goodMethod = MessageDispatcher.isCongestionControlGoodMethod(method);
 			if(logger.isDebugEnabled()) {
 				logger.debug("congestion control good method " + goodMethod + ", dialog "  + dialog + " routeHeader " + routeHeader);
 			}
@@ -1021,10 +1359,12 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 					}
 					SipServletResponse sipServletResponse = null;
 					String message = null;
-					if(rejectSipMessages) {
+					if(rejectSipMessages && queueDelayPolicy) {
+						message = "Queue delay : " + queueDelayCongestionControl.getLastSojournTime() + " ms > to the target : " + queueDelayCongestionControl.getTarget() + " ms";
+					} else if(rejectSipMessages) {
 						message = "Number of pending messages in the queues : " + numberOfMessagesInQueue + " > to the queue Size : " + queueSize;
 					} else if (memoryToHigh) {
-						message = "Memory used: " + percentageOfMemoryUsed + "% > to the memory threshold : " + memoryThreshold + "%";
+						message = "Memory used: " + getPercentageOfMemoryUsed() + "% > to the memory threshold : " + memoryThreshold + "%";
 					}
 					final RequestThrottledEvent congestionControlEvent = new RequestThrottledEvent(sipServletRequest,
 							org.mobicents.javax.servlet.CongestionControlEvent.Reason.Memory, message);
@@ -1065,7 +1405,12 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 					}
 					// no application implements the container listener or the container listener didn't generate any responses so we send back a generic one.
 					if(sipServletResponse == null) {
-						MessageDispatcher.sendErrorResponse(this, Response.SERVICE_UNAVAILABLE, (ServerTransaction) sipServletRequest.getTransaction(), request, sipProvider);
+						int retryAfter = -1;
+						if(rejectSipMessages && queueDelayPolicy) {
+							// let the client come back once the pending messages have been drained
+							retryAfter = queueDelayCongestionControl.getRetryAfter(getNumberOfPendingMessages());
+						}
+						MessageDispatcher.sendErrorResponse(this, Response.SERVICE_UNAVAILABLE, (ServerTransaction) sipServletRequest.getTransaction(), request, sipProvider, retryAfter);
 						return true;
 					}
 				}
@@ -1079,30 +1424,106 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 	 */
 	public void updateRequestsStatistics(final Request request, final boolean processed) {
 		if(gatherStatistics) {
-			AtomicLong requestsStats = null;
-			if(processed) {
-				requestsStats = requestsProcessed;
-			} else {
-				requestsStats = requestsSent;
-			}
-			requestsStats.incrementAndGet();
 			final String method = request.getMethod();
-			AtomicLong requestsStatsMethod = null;
-			if(processed) {
-				requestsStatsMethod = requestsProcessedByMethod.get(method);
-			} else {
-				requestsStatsMethod = requestsSentByMethod.get(method);
+			messageStatistics.updateRequest(method, processed);
+			final MessageStatistics transportStatistics = getTransportMessageStatistics(request);
+			if(transportStatistics != null) {
+				transportStatistics.updateRequest(method, processed);
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#updateApplicationRequestsStatistics(java.lang.String, java.lang.String, boolean)
+	 */
+	public void updateApplicationRequestsStatistics(final String applicationName, final String method, final boolean processed) {
+		if(gatherStatistics && applicationName != null) {
+			final MessageStatistics applicationStatistics = applicationMessageStatistics.get(applicationName);
+			if(applicationStatistics != null) {
+				applicationStatistics.updateRequest(method, processed);
 			}
-			if(requestsStatsMethod == null) {
-				if(processed) {
-					requestsProcessedByMethod.put(method, new AtomicLong());
-				} else {
-					requestsSentByMethod.put(method, new AtomicLong());
+		}
+	}
+
+	private MessageStatistics getTransportMessageStatistics(final Message message) {
+		final ViaHeader viaHeader = (ViaHeader) message.getHeader(ViaHeader.NAME);
+		if(viaHeader != null && viaHeader.getTransport() != null) {
+			final String transport = viaHeader.getTransport();
+			for (int i = 0; i < TRANSPORTS.length; i++) {
+				if(TRANSPORTS[i].equalsIgnoreCase(transport)) {
+					return transportMessageStatistics[i];
 				}
-			} else {
-				requestsStatsMethod.incrementAndGet();
 			}
 		}
+		return null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#updateDispatchStageLatency(org.mobicents.servlet.sip.core.DispatchStage, java.lang.String, java.lang.String, long)
+	 */
+	public void updateDispatchStageLatency(final DispatchStage stage, final String method, final String applicationName, final long latencyNanos) {
+		if(gatherStatistics) {
+			dispatchLatencyStatistics.update(stage, method, applicationName, latencyNanos);
+		}
+		if(DispatchStage.ExecutorQueue.equals(stage) && CongestionControlPolicy.QueueDelay.equals(congestionControlPolicy)) {
+			queueDelayCongestionControl.onDequeue(latencyNanos);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getDispatchStageLatencies()
+	 */
+	public Map<String, Map<String, Double>> getDispatchStageLatencies() {
+		return dispatchLatencyStatistics.getLatencies();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#updateSessionLockWait(java.lang.String, java.lang.Object, long)
+	 */
+	public void updateSessionLockWait(final String applicationName, final Object sessionKey, final long waitNanos) {
+		if(gatherStatistics) {
+			sessionLockStatistics.updateWait(applicationName, sessionKey, waitNanos);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#updateSessionLockHold(java.lang.String, long)
+	 */
+	public void updateSessionLockHold(final String applicationName, final long holdNanos) {
+		if(gatherStatistics) {
+			sessionLockStatistics.updateHold(applicationName, holdNanos);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#incSessionLockForcedReleases(java.lang.String, java.lang.Object)
+	 */
+	public void incSessionLockForcedReleases(final String applicationName, final Object sessionKey) {
+		if(gatherStatistics) {
+			sessionLockStatistics.incForcedReleases(applicationName, sessionKey);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getSessionLockLatencies()
+	 */
+	public Map<String, Map<String, Double>> getSessionLockLatencies() {
+		return sessionLockStatistics.getLatencies();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getMostContendedSessions()
+	 */
+	public Map<String, Map<String, Object>> getMostContendedSessions() {
+		return sessionLockStatistics.getMostContendedSessions(MOST_CONTENDED_SESSIONS);
 	}
 
 	/**
@@ -1110,46 +1531,24 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 	 */
 	public void updateResponseStatistics(final Response response, final boolean processed) {
 		if(gatherStatistics) {
-			AtomicLong responsesStats = null;
-			Map<String, AtomicLong> responsesStatsStatusCode = null;
-			if(processed) {
-				responsesStats = responsesProcessed;
-				responsesStatsStatusCode = responsesProcessedByStatusCode;
-			} else {
-				responsesStats = responsesSent;
-				responsesStatsStatusCode = responsesSentByStatusCode;
-			}
-			responsesStats.incrementAndGet();
 			final int statusCode = response.getStatusCode();
-			int statusCodeDiv = statusCode / 100;
-			switch (statusCodeDiv) {
-				case 1:
-					responsesStatsStatusCode.get("1XX").incrementAndGet();
-					break;
-				case 2:
-					responsesStatsStatusCode.get("2XX").incrementAndGet();
-					break;
-				case 3:
-					responsesStatsStatusCode.get("3XX").incrementAndGet();
-					break;
-				case 4:
-					responsesStatsStatusCode.get("4XX").incrementAndGet();
-					break;
-				case 5:
-					responsesStatsStatusCode.get("5XX").incrementAndGet();
-					break;
-				case 6:
-					responsesStatsStatusCode.get("6XX").incrementAndGet();
-					break;
-				case 7:
-					responsesStatsStatusCode.get("7XX").incrementAndGet();
-					break;
-				case 8:
-					responsesStatsStatusCode.get("8XX").incrementAndGet();
-					break;
-				case 9:
-					responsesStatsStatusCode.get("9XX").incrementAndGet();
-					break;
+			messageStatistics.updateResponse(statusCode, processed);
+			final MessageStatistics transportStatistics = getTransportMessageStatistics(response);
+			if(transportStatistics != null) {
+				transportStatistics.updateResponse(statusCode, processed);
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#updateApplicationResponseStatistics(java.lang.String, int, boolean)
+	 */
+	public void updateApplicationResponseStatistics(final String applicationName, final int statusCode, final boolean processed) {
+		if(gatherStatistics && applicationName != null) {
+			final MessageStatistics applicationStatistics = applicationMessageStatistics.get(applicationName);
+			if(applicationStatistics != null) {
+				applicationStatistics.updateResponse(statusCode, processed);
 			}
 		}
 	}
@@ -1219,6 +1618,9 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 			}
 			clientTransaction = originalTransaction;
 		}
+		if(overloadControl && clientTransaction != null) {
+			viaOverloadControl.onResponse(clientTransaction.getRequest(), response);
+		}
 
 		// Transate the response to SipServletResponse
 		final SipServletResponseImpl sipServletResponse = (SipServletResponseImpl) sipFactoryImpl.getMobicentsSipServletMessageFactory().createSipServletResponse(
@@ -1247,9 +1649,10 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 			logger.debug("Dialog Terminated => dialog Id : " + dialogTerminatedEvent.getDialog().getDialogId());
 		}
 
-		getAsynchronousExecutor().execute(new Runnable() {
-			// https://github.com/RestComm/sip-servlets/issues/107 guard against NPEon concurrent cleanup
-			final TransactionApplicationData dialogAppData = (TransactionApplicationData) dialog.getApplicationData();
+		// https://github.com/RestComm/sip-servlets/issues/107 guard against NPEon concurrent cleanup
+		final TransactionApplicationData dialogAppData = (TransactionApplicationData) dialog.getApplicationData();
+		final SipServletMessageImpl dialogMessage = concurrencyControlMailbox && dialogAppData != null ? dialogAppData.getSipServletMessage() : null;
+		getAsynchronousExecutor().execute(SessionMailbox.serialize(dialogMessage != null ? dialogMessage.getSipSession() : null, new Runnable() {
 			public void run() {
 				try {
 					boolean appDataFound = false;
@@ -1276,7 +1679,7 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 					logger.error("Problem handling dialog termination", e);
 				}
 			}
-		});
+		}));
 
 	}
 
@@ -1405,7 +1808,7 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 				final SipServletMessageImpl sipServletMessage = tad.getSipServletMessage();
 				final MobicentsSipSessionKey sipSessionKey = sipServletMessage.getSipSessionKey();
 				final MobicentsSipSession sipSession = sipServletMessage.getSipSession();
-				getAsynchronousExecutor().execute(new Runnable() {
+				getAsynchronousExecutor().execute(SessionMailbox.serialize(sipSession, new Runnable() {
 					public void run() {
 						if(logger.isDebugEnabled()) {
 							logger.info("Running process dialog timeout " + dialog + " reason => " + timeoutEvent.getReason());
@@ -1436,7 +1839,7 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 							logger.error("Problem handling dialog timeout", e);
 						}
 					}
-				});
+				}));
 			} else{
 				dialog.setApplicationData(null);
 			}
@@ -1474,7 +1877,7 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 			final SipServletMessageImpl sipServletMessage = tad.getSipServletMessage();
 			final MobicentsSipSessionKey sipSessionKey = sipServletMessage.getSipSessionKey();
 			final MobicentsSipSession sipSession = sipServletMessage.getSipSession();
-			getAsynchronousExecutor().execute(new Runnable() {
+			getAsynchronousExecutor().execute(SessionMailbox.serialize(sipSession, new Runnable() {
 				public void run() {
 					try {
 						if(logger.isDebugEnabled()) {
@@ -1556,7 +1959,7 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 						logger.error("Problem handling timeout", e);
 					}
 				}
-			});
+			}));
 		}
 	}
 
@@ -1681,7 +2084,7 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 			final SipServletMessageImpl sipServletMessageImpl = tad.getSipServletMessage();
 			final MobicentsSipSessionKey sipSessionKey = sipServletMessageImpl.getSipSessionKey();
 			final MobicentsSipSession sipSession = sipServletMessageImpl.getSipSession();
-			getAsynchronousExecutor().execute(new Runnable() {
+			getAsynchronousExecutor().execute(SessionMailbox.serialize(sipSession, new Runnable() {
 				public void run() {
 					try {
 						if(logger.isDebugEnabled()) {
@@ -1753,7 +2156,7 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 						logger.error("Problem handling transaction termination", e);
 					}
 				}
-			});
+			}));
 		} else {
 			if(logger.isDebugEnabled()) {
 				logger.debug("TransactionApplicationData not available on the following request " + transaction.getRequest());
@@ -1965,12 +2368,14 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 		final Request request = (Request) sipServletRequest.getMessage();
 
 		sipServletRequest.setReadOnly(true);
+		final long applicationRoutingStart = System.nanoTime();
 		SipApplicationRouterInfo applicationRouterInfo = sipApplicationRouter.getNextApplication(
 			sipServletRequest,
 			routingRegion,
 			sipServletRequest.getRoutingDirective(),
 			null,
 			stateInfo);
+		updateDispatchStageLatency(DispatchStage.ApplicationRouting, request.getMethod(), applicationRouterInfo.getNextApplicationName(), System.nanoTime() - applicationRoutingStart);
 		sipServletRequest.setReadOnly(false);
 		// 15.4.1 Procedure : point 2
 		final SipRouteModifier sipRouteModifier = applicationRouterInfo.getRouteModifier();
@@ -2021,6 +2426,162 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 		return asynchronousScheduledThreadPoolExecutor;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getDispatchExecutor(java.lang.Object, boolean)
+	 */
+	public ExecutorService getDispatchExecutor(Object affinityKey, boolean initialRequest) {
+		if(priorityLanesDispatchExecutor != null) {
+			return priorityLanesDispatchExecutor.getLane(initialRequest);
+		}
+		if(stripedDispatchExecutor != null) {
+			return stripedDispatchExecutor.getLane(affinityKey);
+		}
+		if(virtualThreadDispatchExecutor != null) {
+			return virtualThreadDispatchExecutor;
+		}
+		return asynchronousExecutor;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getApplicationDispatchExecutor(java.lang.String)
+	 */
+	public ExecutorService getApplicationDispatchExecutor(String applicationName) {
+		return applicationDispatchExecutors.get(applicationName);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getApplicationDispatchExecutorPendingMessages()
+	 */
+	public Map<String, Integer> getApplicationDispatchExecutorPendingMessages() {
+		final Map<String, Integer> pendingMessages = new HashMap<String, Integer>();
+		for (ApplicationDispatchExecutor applicationDispatchExecutor : applicationDispatchExecutors.values()) {
+			pendingMessages.put(applicationDispatchExecutor.getApplicationName(), applicationDispatchExecutor.getQueue().size());
+		}
+		return pendingMessages;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getApplicationDispatchExecutorRejectedMessages()
+	 */
+	public Map<String, Long> getApplicationDispatchExecutorRejectedMessages() {
+		final Map<String, Long> rejectedMessages = new HashMap<String, Long>();
+		for (ApplicationDispatchExecutor applicationDispatchExecutor : applicationDispatchExecutors.values()) {
+			rejectedMessages.put(applicationDispatchExecutor.getApplicationName(), applicationDispatchExecutor.getRejectedTasks());
+		}
+		return rejectedMessages;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getOffHeapSessionStores()
+	 */
+	public Map<String, Map<String, Long>> getOffHeapSessionStores() {
+		final Map<String, Map<String, Long>> stores = new HashMap<String, Map<String, Long>>();
+		for (Map.Entry<String, OffHeapSessionStore> storeEntry : offHeapSessionStores.entrySet()) {
+			final OffHeapSessionStore store = storeEntry.getValue();
+			final Map<String, Long> storeStatistics = new HashMap<String, Long>();
+			storeStatistics.put("AllocatedBytes", store.getAllocatedBytes());
+			storeStatistics.put("UsedBytes", store.getUsedBytes());
+			storeStatistics.put("StoredSessions", (long) store.getStoredEntries());
+			storeStatistics.put("Passivations", store.getPassivations());
+			storeStatistics.put("Activations", store.getActivations());
+			stores.put(storeEntry.getKey(), storeStatistics);
+		}
+		return stores;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getInitialRequestsLanePendingMessages()
+	 */
+	public int getInitialRequestsLanePendingMessages() {
+		if(priorityLanesDispatchExecutor != null) {
+			return priorityLanesDispatchExecutor.getInitialRequestsLaneQueueSize();
+		}
+		return -1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getInDialogLanePendingMessages()
+	 */
+	public int getInDialogLanePendingMessages() {
+		if(priorityLanesDispatchExecutor != null) {
+			return priorityLanesDispatchExecutor.getInDialogLaneQueueSize();
+		}
+		return -1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getInitialRequestsLaneRejectedMessages()
+	 */
+	public long getInitialRequestsLaneRejectedMessages() {
+		if(priorityLanesDispatchExecutor != null) {
+			return priorityLanesDispatchExecutor.getInitialRequestsLaneRejectedTasks();
+		}
+		return -1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getAsynchronousWorkExecutor()
+	 */
+	public ExecutorService getAsynchronousWorkExecutor() {
+		if(virtualThreadDispatchExecutor != null) {
+			return virtualThreadDispatchExecutor;
+		}
+		return asynchronousExecutor;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getVirtualThreadsStarted()
+	 */
+	public long getVirtualThreadsStarted() {
+		if(virtualThreadDispatchExecutor != null) {
+			return virtualThreadDispatchExecutor.getTasksStarted();
+		}
+		return -1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getVirtualThreadsPinnedCount()
+	 */
+	public long getVirtualThreadsPinnedCount() {
+		if(virtualThreadDispatchExecutor != null) {
+			return virtualThreadDispatchExecutor.getPinnedCount();
+		}
+		return -1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getVirtualThreadsPinnedTime()
+	 */
+	public long getVirtualThreadsPinnedTime() {
+		if(virtualThreadDispatchExecutor != null) {
+			return virtualThreadDispatchExecutor.getPinnedTime();
+		}
+		return -1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getDispatcherLaneQueueSizes()
+	 */
+	public int[] getDispatcherLaneQueueSizes() {
+		if(stripedDispatchExecutor != null) {
+			return stripedDispatchExecutor.getLaneQueueSizes();
+		}
+		return new int[0];
+	}
+
 	/**
 	 * Serialize the state info in memory and deserialize it and return the new object.
 	 * Since there is no clone method this is the only way to get the same object with a new reference
@@ -2236,6 +2797,28 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 		}
 	}
 
+	public int getInitialRequestsLaneSize() {
+		return initialRequestsLaneSize;
+	}
+
+	public void setInitialRequestsLaneSize(int initialRequestsLaneSize) {
+		this.initialRequestsLaneSize = initialRequestsLaneSize;
+		if(logger.isInfoEnabled()) {
+			logger.info("Initial Requests Lane Size set to " + initialRequestsLaneSize);
+		}
+	}
+
+	public int getInDialogLaneSize() {
+		return inDialogLaneSize;
+	}
+
+	public void setInDialogLaneSize(int inDialogLaneSize) {
+		this.inDialogLaneSize = inDialogLaneSize;
+		if(logger.isInfoEnabled()) {
+			logger.info("In Dialog Lane Size set to " + inDialogLaneSize);
+		}
+	}
+
 	public void setConcurrencyControlModeByName(String concurrencyControlMode) {
 		this.concurrencyControlMode = ConcurrencyControlMode.valueOf(concurrencyControlMode);
 		if(logger.isInfoEnabled()) {
@@ -2248,98 +2831,176 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 		return concurrencyControlMode.toString();
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#isConcurrencyControlMailbox()
+	 */
+	public boolean isConcurrencyControlMailbox() {
+		return concurrencyControlMailbox;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#setConcurrencyControlMailbox(boolean)
+	 */
+	public void setConcurrencyControlMailbox(boolean concurrencyControlMailbox) {
+		this.concurrencyControlMailbox = concurrencyControlMailbox;
+		if(logger.isInfoEnabled()) {
+			logger.info("Container wide Concurrency Control through session mailboxes set to " + concurrencyControlMailbox);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#isLocalApplicationComposition()
+	 */
+	public boolean isLocalApplicationComposition() {
+		return localApplicationComposition;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#setLocalApplicationComposition(boolean)
+	 */
+	public void setLocalApplicationComposition(boolean localApplicationComposition) {
+		this.localApplicationComposition = localApplicationComposition;
+		if(logger.isInfoEnabled()) {
+			logger.info("Local application composition set to " + localApplicationComposition);
+		}
+	}
+
 	/**
 	 * @return the requestsProcessed
 	 */
 	public long getRequestsProcessed() {
-		return requestsProcessed.get();
+		return messageStatistics.getRequestsProcessed();
 	}
 
 	/**
 	 * @return the requestsProcessedByMethod
 	 */
 	public Map<String, AtomicLong> getRequestsProcessedByMethod() {
-		return requestsProcessedByMethod;
+		return messageStatistics.getRequestsProcessedByMethod();
 	}
 
 	/**
 	 * @return the responsesProcessedByStatusCode
 	 */
 	public Map<String, AtomicLong> getResponsesProcessedByStatusCode() {
-		return responsesProcessedByStatusCode;
+		return messageStatistics.getResponsesProcessedByStatusClass();
 	}
 
 	/**
 	 * @return the requestsProcessed
 	 */
 	public long getRequestsProcessedByMethod(String method) {
-		AtomicLong requestsProcessed = requestsProcessedByMethod.get(method);
-		if(requestsProcessed != null) {
-			return requestsProcessed.get();
-		}
-		return 0;
+		return messageStatistics.getRequestsProcessedByMethod(method);
 	}
 
 	public long getResponsesProcessedByStatusCode(String statusCode) {
-		AtomicLong responsesProcessed = responsesProcessedByStatusCode.get(statusCode);
-		if(responsesProcessed != null) {
-			return responsesProcessed.get();
-		}
-		return 0;
+		return messageStatistics.getResponsesProcessedByStatusClass(statusCode);
 	}
 
 	/**
 	 * @return the requestsProcessed
 	 */
 	public long getResponsesProcessed() {
-		return responsesProcessed.get();
+		return messageStatistics.getResponsesProcessed();
 	}
 
 	/**
 	 * @return the requestsProcessed
 	 */
 	public long getRequestsSent() {
-		return requestsSent.get();
+		return messageStatistics.getRequestsSent();
 	}
 
 	/**
 	 * @return the requestsProcessedByMethod
 	 */
 	public Map<String, AtomicLong> getRequestsSentByMethod() {
-		return requestsSentByMethod;
+		return messageStatistics.getRequestsSentByMethod();
 	}
 
 	/**
 	 * @return the responsesProcessedByStatusCode
 	 */
 	public Map<String, AtomicLong> getResponsesSentByStatusCode() {
-		return responsesSentByStatusCode;
+		return messageStatistics.getResponsesSentByStatusClass();
 	}
 
 	/**
 	 * @return the requestsProcessed
 	 */
 	public long getRequestsSentByMethod(String method) {
-		AtomicLong requestsSent = requestsSentByMethod.get(method);
-		if(requestsSent != null) {
-			return requestsSent.get();
-		}
-		return 0;
+		return messageStatistics.getRequestsSentByMethod(method);
 	}
 
 	public long getResponsesSentByStatusCode(String statusCode) {
-		AtomicLong responsesSent = responsesSentByStatusCode.get(statusCode);
-		if(responsesSent != null) {
-			return responsesSent.get();
-		}
-		return 0;
+		return messageStatistics.getResponsesSentByStatusClass(statusCode);
 	}
 
 	/**
 	 * @return the requestsProcessed
 	 */
 	public long getResponsesSent() {
-		return responsesSent.get();
+		return messageStatistics.getResponsesSent();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getMessageRates()
+	 */
+	public Map<String, Double> getMessageRates() {
+		return messageStatistics.getRates();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getApplicationMessageStatistics()
+	 */
+	public Map<String, Map<String, Long>> getApplicationMessageStatistics() {
+		final Map<String, Map<String, Long>> statistics = new TreeMap<String, Map<String, Long>>();
+		for (Map.Entry<String, MessageStatistics> entry : applicationMessageStatistics.entrySet()) {
+			statistics.put(entry.getKey(), entry.getValue().getCounts());
+		}
+		return statistics;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getApplicationMessageRates()
+	 */
+	public Map<String, Map<String, Double>> getApplicationMessageRates() {
+		final Map<String, Map<String, Double>> rates = new TreeMap<String, Map<String, Double>>();
+		for (Map.Entry<String, MessageStatistics> entry : applicationMessageStatistics.entrySet()) {
+			rates.put(entry.getKey(), entry.getValue().getRates());
+		}
+		return rates;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getTransportMessageStatistics()
+	 */
+	public Map<String, Map<String, Long>> getTransportMessageStatistics() {
+		final Map<String, Map<String, Long>> statistics = new LinkedHashMap<String, Map<String, Long>>();
+		for (int i = 0; i < TRANSPORTS.length; i++) {
+			statistics.put(TRANSPORTS[i], transportMessageStatistics[i].getCounts());
+		}
+		return statistics;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getTransportMessageRates()
+	 */
+	public Map<String, Map<String, Double>> getTransportMessageRates() {
+		final Map<String, Map<String, Double>> rates = new LinkedHashMap<String, Map<String, Double>>();
+		for (int i = 0; i < TRANSPORTS.length; i++) {
+			rates.put(TRANSPORTS[i], transportMessageStatistics[i].getRates());
+		}
+		return rates;
 	}
 
         static final String INTERVAL_ATT = "Interval";
@@ -2354,12 +3015,25 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
                     if (logger.isInfoEnabled()) {
                         logger.info("Congestion control background task modified to check every " + congestionControlCheckingInterval + " milliseconds.");
                     }
-                } else if (logger.isInfoEnabled()) {
-                    logger.info("No Congestion control background task started since the checking interval is equals to " + congestionControlCheckingInterval + " milliseconds.");
+                    startMemoryMonitor();
+                } else {
+                    if (logger.isInfoEnabled()) {
+                        logger.info("No Congestion control background task started since the checking interval is equals to " + congestionControlCheckingInterval + " milliseconds.");
+                    }
+                    if (collectionUsageMemoryMonitor.isStarted()) {
+                        collectionUsageMemoryMonitor.stop();
+                        memoryToHigh = false;
+                    }
                 }
             }
 
         }
+
+	private void startMemoryMonitor() {
+		if(!collectionUsageMemoryMonitor.start() && logger.isInfoEnabled()) {
+			logger.info("No tenured memory pool supporting collection usage thresholds, the memory will be checked every " + congestionControlCheckingInterval + " milliseconds.");
+		}
+	}
 	/**
 	 * @param congestionControlCheckingInterval the congestionControlCheckingInterval to set
 	 */
@@ -2385,6 +3059,10 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 	 */
 	public void setCongestionControlPolicy(CongestionControlPolicy congestionControlPolicy) {
 		this.congestionControlPolicy = congestionControlPolicy;
+		if(!CongestionControlPolicy.QueueDelay.equals(congestionControlPolicy)) {
+			// the queue congestion state is back to the polling task
+			queueDelayCongestionControl.reset();
+		}
 		if(logger.isInfoEnabled()) {
 			logger.info("Congestion Control policy set to " + this.congestionControlPolicy.toString());
 		}
@@ -2392,12 +3070,282 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 
 
 	public void setCongestionControlPolicyByName(String congestionControlPolicy) {
-		this.congestionControlPolicy = CongestionControlPolicy.valueOf(congestionControlPolicy);
+		setCongestionControlPolicy(CongestionControlPolicy.valueOf(congestionControlPolicy));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getCongestionControlQueueDelayTarget()
+	 */
+	public long getCongestionControlQueueDelayTarget() {
+		return queueDelayCongestionControl.getTarget();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#setCongestionControlQueueDelayTarget(long)
+	 */
+	public void setCongestionControlQueueDelayTarget(long congestionControlQueueDelayTarget) {
+		queueDelayCongestionControl.setTarget(congestionControlQueueDelayTarget);
 		if(logger.isInfoEnabled()) {
-			logger.info("Congestion Control policy set to " + this.congestionControlPolicy.toString());
+			logger.info("Congestion Control queue delay target set to " + congestionControlQueueDelayTarget + " ms");
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getCongestionControlQueueDelayInterval()
+	 */
+	public long getCongestionControlQueueDelayInterval() {
+		return queueDelayCongestionControl.getInterval();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#setCongestionControlQueueDelayInterval(long)
+	 */
+	public void setCongestionControlQueueDelayInterval(long congestionControlQueueDelayInterval) {
+		queueDelayCongestionControl.setInterval(congestionControlQueueDelayInterval);
+		if(logger.isInfoEnabled()) {
+			logger.info("Congestion Control queue delay interval set to " + congestionControlQueueDelayInterval + " ms");
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getQueueDelay()
+	 */
+	public long getQueueDelay() {
+		return queueDelayCongestionControl.getLastSojournTime();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getQueueDrainRate()
+	 */
+	public double getQueueDrainRate() {
+		return queueDelayCongestionControl.getDrainRate();
+	}
+
+	private void updateSourceRateLimiter() {
+		if(sourceRateLimit <= 0) {
+			sourceRateLimiter = null;
+			return;
+		}
+		final SourceRateLimiter rateLimiter = new SourceRateLimiter(sourceRateLimit, sourceRateLimitBurst, sourceRateLimitMaxSources);
+		rateLimiter.setKeyByPort(sourceRateLimitByPort);
+		rateLimiter.setAllowList(sourceRateLimitAllowList);
+		sourceRateLimiter = rateLimiter;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getSourceRateLimit()
+	 */
+	public double getSourceRateLimit() {
+		return sourceRateLimit;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#setSourceRateLimit(double)
+	 */
+	public synchronized void setSourceRateLimit(double sourceRateLimit) {
+		this.sourceRateLimit = sourceRateLimit;
+		updateSourceRateLimiter();
+		if(logger.isInfoEnabled()) {
+			logger.info("Source rate limit set to " + sourceRateLimit + " initial requests per second");
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getSourceRateLimitBurst()
+	 */
+	public int getSourceRateLimitBurst() {
+		return sourceRateLimitBurst;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#setSourceRateLimitBurst(int)
+	 */
+	public synchronized void setSourceRateLimitBurst(int sourceRateLimitBurst) {
+		this.sourceRateLimitBurst = sourceRateLimitBurst;
+		updateSourceRateLimiter();
+		if(logger.isInfoEnabled()) {
+			logger.info("Source rate limit burst set to " + sourceRateLimitBurst);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#isSourceRateLimitByPort()
+	 */
+	public boolean isSourceRateLimitByPort() {
+		return sourceRateLimitByPort;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#setSourceRateLimitByPort(boolean)
+	 */
+	public synchronized void setSourceRateLimitByPort(boolean sourceRateLimitByPort) {
+		this.sourceRateLimitByPort = sourceRateLimitByPort;
+		updateSourceRateLimiter();
+		if(logger.isInfoEnabled()) {
+			logger.info("Source rate limit by port ? " + sourceRateLimitByPort);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getSourceRateLimitAllowList()
+	 */
+	public String getSourceRateLimitAllowList() {
+		return sourceRateLimitAllowList;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#setSourceRateLimitAllowList(java.lang.String)
+	 */
+	public synchronized void setSourceRateLimitAllowList(String sourceRateLimitAllowList) {
+		this.sourceRateLimitAllowList = sourceRateLimitAllowList;
+		updateSourceRateLimiter();
+		if(logger.isInfoEnabled()) {
+			logger.info("Source rate limit allow list set to " + sourceRateLimitAllowList);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getSourceRateLimitMaxSources()
+	 */
+	public int getSourceRateLimitMaxSources() {
+		return sourceRateLimitMaxSources;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#setSourceRateLimitMaxSources(int)
+	 */
+	public synchronized void setSourceRateLimitMaxSources(int sourceRateLimitMaxSources) {
+		this.sourceRateLimitMaxSources = sourceRateLimitMaxSources;
+		updateSourceRateLimiter();
+		if(logger.isInfoEnabled()) {
+			logger.info("Source rate limit max sources set to " + sourceRateLimitMaxSources);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getSourceRateLimitedRequests()
+	 */
+	public long getSourceRateLimitedRequests() {
+		final SourceRateLimiter rateLimiter = sourceRateLimiter;
+		return rateLimiter == null ? 0 : rateLimiter.getRejectedRequests();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getSourceRateLimitSources()
+	 */
+	public int getSourceRateLimitSources() {
+		final SourceRateLimiter rateLimiter = sourceRateLimiter;
+		return rateLimiter == null ? 0 : rateLimiter.getSources();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#isOverloadControl()
+	 */
+	public boolean isOverloadControl() {
+		return overloadControl;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#setOverloadControl(boolean)
+	 */
+	public void setOverloadControl(boolean overloadControl) {
+		this.overloadControl = overloadControl;
+		if(logger.isInfoEnabled()) {
+			logger.info("RFC 7339 Overload Control enabled ? " + overloadControl);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getOverloadControlValidity()
+	 */
+	public long getOverloadControlValidity() {
+		return viaOverloadControl.getValidity();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#setOverloadControlValidity(long)
+	 */
+	public void setOverloadControlValidity(long overloadControlValidity) {
+		viaOverloadControl.setValidity(overloadControlValidity);
+		if(logger.isInfoEnabled()) {
+			logger.info("RFC 7339 Overload Control validity set to " + overloadControlValidity + " ms");
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#addOverloadControlFeedback(javax.sip.message.Response)
+	 */
+	public void addOverloadControlFeedback(Response response) {
+		if(overloadControl) {
+			viaOverloadControl.addFeedback(response);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#addOverloadControlSupport(javax.sip.message.Request)
+	 */
+	public void addOverloadControlSupport(Request request) {
+		if(overloadControl) {
+			viaOverloadControl.addSupport(request);
 		}
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#isOverloadControlThrottled(javax.sip.message.Request)
+	 */
+	public boolean isOverloadControlThrottled(Request request) {
+		return overloadControl && viaOverloadControl.isThrottled(request);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getOverloadControlReduction()
+	 */
+	public int getOverloadControlReduction() {
+		return viaOverloadControl.getReduction();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getOverloadControlThrottledRequests()
+	 */
+	public long getOverloadControlThrottledRequests() {
+		return viaOverloadControl.getThrottledRequests();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.SipApplicationDispatcher#getOverloadControlServerReductions()
+	 */
+	public Map<String, Integer> getOverloadControlServerReductions() {
+		return viaOverloadControl.getServerReductions();
+	}
+
 	/**
 	 * @return the congestionControlPolicy
 	 */
@@ -2417,6 +3365,7 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 	 */
 	public void setMemoryThreshold(int memoryThreshold) {
 		this.memoryThreshold = memoryThreshold;
+		collectionUsageMemoryMonitor.setMemoryThreshold(memoryThreshold);
 		if(logger.isInfoEnabled()) {
 			logger.info("Memory threshold set to " + this.memoryThreshold +"%");
 		}
@@ -2440,6 +3389,9 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 	 * @return the percentageOfMemoryUsed
 	 */
 	public double getPercentageOfMemoryUsed() {
+		if(collectionUsageMemoryMonitor.isStarted()) {
+			return collectionUsageMemoryMonitor.getPercentageOfMemoryUsed();
+		}
 		return percentageOfMemoryUsed;
 	}
 
@@ -2652,6 +3604,21 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 		if(logger.isInfoEnabled()) {
 			logger.info("Gathering Statistics set to " + gatherStatistics);
 		}
+		if(asynchronousScheduledThreadPoolExecutor != null && !asynchronousScheduledThreadPoolExecutor.isShutdown()) {
+			scheduleMessageStatisticsSampling();
+		}
+	}
+
+	/**
+	 * Samples the messages counters only while statistics are gathered
+	 */
+	private synchronized void scheduleMessageStatisticsSampling() {
+		if(gatherStatistics && messageStatisticsSamplingFuture == null) {
+			messageStatisticsSamplingFuture = asynchronousScheduledThreadPoolExecutor.scheduleAtFixedRate(new MessageStatisticsSamplingTask(), 1, 1, TimeUnit.SECONDS);
+		} else if(!gatherStatistics && messageStatisticsSamplingFuture != null) {
+			messageStatisticsSamplingFuture.cancel(false);
+			messageStatisticsSamplingFuture = null;
+		}
 	}
 
 	/**
@@ -2675,6 +3642,7 @@ public class SipApplicationDispatcherImpl implements SipApplicationDispatcher, S
 	public void setBackToNormalMemoryThreshold(
 			int backToNormalMemoryThreshold) {
 		this.backToNormalMemoryThreshold = backToNormalMemoryThreshold;
+		collectionUsageMemoryMonitor.setBackToNormalMemoryThreshold(backToNormalMemoryThreshold);
 		if(logger.isInfoEnabled()) {
 			logger.info("Back To Normal Memory threshold set to " + backToNormalMemoryThreshold +"%");
 		}
@@ -0,0 +1,245 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package org.mobicents.servlet.sip.core;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per source token bucket limiting the rate of initial requests accepted from each remote address,
+ * checked before any server transaction is created for the request.
+ * 
+ * Each bucket is a single theoretical arrival time updated with compare and set (the virtual scheduling form
+ * of the token bucket, GCRA) so no lock is taken on the hot path. Once the maximum number of sources is tracked,
+ * a new source replaces the least recently used among a few sampled ones, the one with the earliest theoretical arrival time,
+ * which is a bucket full again if any was sampled. As for the contended sessions of {@link SessionLockStatistics},
+ * this keeps the cost of a new source constant instead of scanning all the tracked sources.
+ *
+ */
+public class SourceRateLimiter {
+
+	// number of tracked sources compared to pick the one to evict
+	private static final int EVICTION_SAMPLES = 8;
+
+	// time between two tokens
+	private volatile long emissionInterval;
+	// how far ahead of now the theoretical arrival time can be, (burst - 1) emission intervals
+	private volatile long tolerance;
+	private volatile double rate;
+	private volatile int burst;
+	private volatile boolean keyByPort;
+	private volatile Set<String> allowList = Collections.emptySet();
+
+	private final ConcurrentMap<String, AtomicLong> buckets = new ConcurrentHashMap<String, AtomicLong>();
+	// the keys of the tracked sources by slot so that they can be sampled, guarded by sourcesLock
+	private final Object sourcesLock = new Object();
+	private String[] sourceKeys;
+	private int sourceCount;
+	private final AtomicLong rejectedRequests = new AtomicLong(0);
+
+	/**
+	 * @param rate number of requests allowed per second and per source
+	 * @param burst number of requests a source can send at once after being idle
+	 * @param maxSources maximum number of sources tracked
+	 */
+	public SourceRateLimiter(double rate, int burst, int maxSources) {
+		this.sourceKeys = new String[Math.max(1, maxSources)];
+		setRate(rate, burst);
+	}
+
+	/**
+	 * @param host the source ip address
+	 * @param port the source port
+	 * @return true if the request from this source is within its rate
+	 */
+	public boolean tryAcquire(String host, int port) {
+		return tryAcquire(host, port, System.nanoTime());
+	}
+
+	boolean tryAcquire(String host, int port, long now) {
+		final Set<String> currentAllowList = allowList;
+		if(!currentAllowList.isEmpty() && (currentAllowList.contains(host) || currentAllowList.contains(host + ":" + port))) {
+			return true;
+		}
+		final String key = getKey(host, port);
+		AtomicLong bucket = buckets.get(key);
+		if(bucket == null) {
+			bucket = addSource(key, now);
+		}
+		final long interval = emissionInterval;
+		while(true) {
+			final long theoreticalArrivalTime = bucket.get();
+			final long start = theoreticalArrivalTime - now > 0 ? theoreticalArrivalTime : now;
+			if(start - now > tolerance) {
+				rejectedRequests.incrementAndGet();
+				return false;
+			}
+			if(bucket.compareAndSet(theoreticalArrivalTime, start + interval)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * @return the number of seconds after which the source will be allowed to send a request again, at least 1
+	 */
+	public int getRetryAfter(String host, int port) {
+		final AtomicLong bucket = buckets.get(getKey(host, port));
+		if(bucket == null) {
+			return 1;
+		}
+		final long wait = bucket.get() - System.nanoTime() - tolerance;
+		return (int) Math.max(1, (wait + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+	}
+
+	private String getKey(String host, int port) {
+		return keyByPort ? host + ":" + port : host;
+	}
+
+	private AtomicLong addSource(String key, long now) {
+		// only the first request of a source gets there
+		synchronized (sourcesLock) {
+			AtomicLong bucket = buckets.get(key);
+			if(bucket == null) {
+				final int slot;
+				if(sourceCount < sourceKeys.length) {
+					slot = sourceCount++;
+				} else {
+					slot = sampleLeastRecentlyUsedSlot();
+					buckets.remove(sourceKeys[slot]);
+				}
+				bucket = new AtomicLong(now);
+				sourceKeys[slot] = key;
+				buckets.put(key, bucket);
+			}
+			return bucket;
+		}
+	}
+
+	private int sampleLeastRecentlyUsedSlot() {
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		int leastRecentlyUsedSlot = 0;
+		long earliestArrivalTime = 0;
+		for (int i = 0; i < EVICTION_SAMPLES; i++) {
+			final int slot = random.nextInt(sourceCount);
+			final long theoreticalArrivalTime = buckets.get(sourceKeys[slot]).get();
+			if(i == 0 || theoreticalArrivalTime - earliestArrivalTime < 0) {
+				earliestArrivalTime = theoreticalArrivalTime;
+				leastRecentlyUsedSlot = slot;
+			}
+		}
+		return leastRecentlyUsedSlot;
+	}
+
+	public void setRate(double rate, int burst) {
+		if(rate <= 0) {
+			throw new IllegalArgumentException("the rate should be strictly positive : " + rate);
+		}
+		this.rate = rate;
+		this.burst = Math.max(1, burst);
+		this.emissionInterval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+		this.tolerance = emissionInterval * (this.burst - 1);
+	}
+
+	public double getRate() {
+		return rate;
+	}
+
+	public int getBurst() {
+		return burst;
+	}
+
+	public boolean isKeyByPort() {
+		return keyByPort;
+	}
+
+	/**
+	 * @param keyByPort true to have one bucket per source ip address and port, false for one bucket per source ip address
+	 */
+	public void setKeyByPort(boolean keyByPort) {
+		if(this.keyByPort != keyByPort) {
+			synchronized (sourcesLock) {
+				this.keyByPort = keyByPort;
+				buckets.clear();
+				Arrays.fill(sourceKeys, null);
+				sourceCount = 0;
+			}
+		}
+	}
+
+	public int getMaxSources() {
+		synchronized (sourcesLock) {
+			return sourceKeys.length;
+		}
+	}
+
+	public void setMaxSources(int maxSources) {
+		synchronized (sourcesLock) {
+			final String[] newSourceKeys = new String[Math.max(1, maxSources)];
+			// the sources above the new maximum aren't tracked anymore
+			for (int i = newSourceKeys.length; i < sourceCount; i++) {
+				buckets.remove(sourceKeys[i]);
+			}
+			sourceCount = Math.min(sourceCount, newSourceKeys.length);
+			System.arraycopy(sourceKeys, 0, newSourceKeys, 0, sourceCount);
+			sourceKeys = newSourceKeys;
+		}
+	}
+
+	/**
+	 * @param allowList comma separated list of ip addresses or ip:port never rate limited, such as trunks
+	 */
+	public void setAllowList(String allowList) {
+		final Set<String> newAllowList = new HashSet<String>();
+		if(allowList != null) {
+			final StringTokenizer tokenizer = new StringTokenizer(allowList, ",");
+			while (tokenizer.hasMoreTokens()) {
+				final String source = tokenizer.nextToken().trim();
+				if(source.length() > 0) {
+					newAllowList.add(source);
+				}
+			}
+		}
+		this.allowList = newAllowList;
+	}
+
+	public Set<String> getAllowList() {
+		return Collections.unmodifiableSet(allowList);
+	}
+
+	/**
+	 * @return the number of sources currently tracked
+	 */
+	public int getSources() {
+		return buckets.size();
+	}
+
+	public long getRejectedRequests() {
+		return rejectedRequests.get();
+	}
+}
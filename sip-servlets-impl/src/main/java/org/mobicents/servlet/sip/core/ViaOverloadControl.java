@@ -0,0 +1,321 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package org.mobicents.servlet.sip.core;
+
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sip.address.SipURI;
+import javax.sip.address.URI;
+import javax.sip.header.RouteHeader;
+import javax.sip.header.ViaHeader;
+import javax.sip.message.Message;
+import javax.sip.message.Request;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Loss-based SIP overload control as defined in RFC 7339, carried in the Via header.
+ * 
+ * As a server, the reduction computed from the current load is advertised in the oc, oc-validity, oc-seq and oc-algo
+ * parameters of the top Via of the responses, provided the client advertised its support with the oc parameter in its request.
+ * 
+ * As a client, the oc parameter is added to the Via of the requests sent and the reduction advertised by each 
+ * downstream server is honored by dropping the same percentage of the initial requests sent to it until its validity expires.
+ * The downstream server is identified by the host and port of the top Route or of the Request-URI of the request.
+ *
+ */
+public class ViaOverloadControl {
+	private static final Logger logger = Logger.getLogger(ViaOverloadControl.class);
+
+	public static final String OC_PARAM = "oc";
+	public static final String OC_VALIDITY_PARAM = "oc-validity";
+	public static final String OC_SEQ_PARAM = "oc-seq";
+	public static final String OC_ALGO_PARAM = "oc-algo";
+	public static final String LOSS_ALGORITHM = "loss";
+
+	// RFC 7339 Section 5.2 : the default validity when oc-validity is absent
+	private static final long DEFAULT_VALIDITY = 500;
+	// the load is not estimated for every response
+	private static final long REDUCTION_REFRESH_PERIOD = TimeUnit.MILLISECONDS.toNanos(100);
+
+	/**
+	 * Estimates the percentage of requests the clients should drop
+	 */
+	public interface LoadEstimator {
+		int getReduction();
+	}
+
+	/**
+	 * Overload control state received from a downstream server
+	 */
+	static class ServerState {
+		final int reduction;
+		final long expirationTime;
+		final double sequence;
+
+		ServerState(int reduction, long expirationTime, double sequence) {
+			this.reduction = reduction;
+			this.expirationTime = expirationTime;
+			this.sequence = sequence;
+		}
+	}
+
+	private final LoadEstimator loadEstimator;
+	private volatile long validity = DEFAULT_VALIDITY;
+
+	// server side
+	private volatile int reduction;
+	private volatile long reductionTime;
+	private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis());
+
+	// client side
+	private final ConcurrentMap<String, ServerState> servers = new ConcurrentHashMap<String, ServerState>();
+	private final AtomicLong throttledRequests = new AtomicLong(0);
+
+	public ViaOverloadControl(LoadEstimator loadEstimator) {
+		this.loadEstimator = loadEstimator;
+		this.reductionTime = System.nanoTime() - REDUCTION_REFRESH_PERIOD;
+	}
+
+	/**
+	 * Adds the overload control feedback to the top Via header of a response, if the client supports overload control
+	 * @param message the response to send
+	 */
+	public void addFeedback(Message message) {
+		final ViaHeader viaHeader = (ViaHeader) message.getHeader(ViaHeader.NAME);
+		if(viaHeader == null || !hasParameter(viaHeader, OC_PARAM)) {
+			return;
+		}
+		final int currentReduction = getReduction();
+		try {
+			viaHeader.setParameter(OC_PARAM, Integer.toString(currentReduction));
+			viaHeader.setParameter(OC_VALIDITY_PARAM, Long.toString(currentReduction > 0 ? validity : 0));
+			viaHeader.setParameter(OC_SEQ_PARAM, formatSequence(sequence.get()));
+			viaHeader.setParameter(OC_ALGO_PARAM, "\"" + LOSS_ALGORITHM + "\"");
+		} catch (ParseException e) {
+			logger.error("couldn't add the overload control parameters to " + viaHeader, e);
+		}
+	}
+
+	/**
+	 * @return the percentage of requests the clients are asked to drop, refreshed from the load estimator at most every 100 ms
+	 */
+	public int getReduction() {
+		final long now = System.nanoTime();
+		if(now - reductionTime >= REDUCTION_REFRESH_PERIOD) {
+			reductionTime = now;
+			final int newReduction = Math.max(0, Math.min(100, loadEstimator.getReduction()));
+			if(newReduction != reduction) {
+				reduction = newReduction;
+				// RFC 7339 Section 5.1 : the sequence is updated every time the feedback changes
+				long current;
+				long next;
+				do {
+					current = sequence.get();
+					next = Math.max(current + 1, System.currentTimeMillis());
+				} while(!sequence.compareAndSet(current, next));
+				if(logger.isDebugEnabled()) {
+					logger.debug("overload control reduction is now " + newReduction + "%");
+				}
+			}
+		}
+		return reduction;
+	}
+
+	/**
+	 * Advertises the overload control support in the top Via header of a request
+	 * @param request the request to send
+	 */
+	public void addSupport(Request request) {
+		final ViaHeader viaHeader = (ViaHeader) request.getHeader(ViaHeader.NAME);
+		if(viaHeader != null) {
+			try {
+				viaHeader.setParameter(OC_PARAM, null);
+			} catch (ParseException e) {
+				logger.error("couldn't add the overload control parameter to " + viaHeader, e);
+			}
+		}
+	}
+
+	/**
+	 * Checks whether an initial request should be dropped because of the reduction asked by the downstream server
+	 * @param request the request about to be sent
+	 * @return true if the request should not be sent
+	 */
+	public boolean isThrottled(Request request) {
+		final String server = getServer(request);
+		if(server == null) {
+			return false;
+		}
+		final ServerState serverState = servers.get(server);
+		if(serverState == null) {
+			return false;
+		}
+		if(System.nanoTime() - serverState.expirationTime >= 0) {
+			servers.remove(server, serverState);
+			return false;
+		}
+		if(ThreadLocalRandom.current().nextInt(100) < serverState.reduction) {
+			throttledRequests.incrementAndGet();
+			if(logger.isDebugEnabled()) {
+				logger.debug("throttling request to " + server + " overloaded at " + serverState.reduction + "%");
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Updates the state of the downstream server from the overload control feedback of a response
+	 * @param request the request sent, used to identify the downstream server
+	 * @param response the response received
+	 */
+	public void onResponse(Request request, Message response) {
+		final ViaHeader viaHeader = (ViaHeader) response.getHeader(ViaHeader.NAME);
+		if(viaHeader == null) {
+			return;
+		}
+		final String oc = viaHeader.getParameter(OC_PARAM);
+		if(oc == null || oc.length() == 0) {
+			return;
+		}
+		final String algorithm = viaHeader.getParameter(OC_ALGO_PARAM);
+		if(algorithm != null && !LOSS_ALGORITHM.equalsIgnoreCase(unquote(algorithm))) {
+			return;
+		}
+		final String server = getServer(request);
+		if(server == null) {
+			return;
+		}
+		try {
+			final int serverReduction = Math.max(0, Math.min(100, Integer.parseInt(oc.trim())));
+			final String validityParam = viaHeader.getParameter(OC_VALIDITY_PARAM);
+			final long serverValidity = validityParam == null ? DEFAULT_VALIDITY : Long.parseLong(validityParam.trim());
+			final String sequenceParam = viaHeader.getParameter(OC_SEQ_PARAM);
+			final double serverSequence = sequenceParam == null ? 0 : Double.parseDouble(sequenceParam.trim());
+
+			final ServerState previous = servers.get(server);
+			// RFC 7339 Section 5.2 : feedback older than the one already received is ignored
+			if(previous != null && serverSequence < previous.sequence) {
+				return;
+			}
+			if(serverReduction == 0 || serverValidity <= 0) {
+				if(previous != null) {
+					servers.remove(server, previous);
+				}
+				return;
+			}
+			final ServerState serverState = new ServerState(serverReduction, 
+					System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(serverValidity), serverSequence);
+			if(previous == null ? servers.putIfAbsent(server, serverState) == null : servers.replace(server, previous, serverState)) {
+				if(logger.isDebugEnabled()) {
+					logger.debug("downstream server " + server + " asked to reduce traffic by " + serverReduction + "% for " + serverValidity + " ms");
+				}
+			}
+		} catch (NumberFormatException e) {
+			if(logger.isDebugEnabled()) {
+				logger.debug("invalid overload control parameters in " + viaHeader, e);
+			}
+		}
+	}
+
+	/**
+	 * @return the reduction currently asked by each downstream server, expired entries are purged
+	 */
+	public Map<String, Integer> getServerReductions() {
+		final Map<String, Integer> reductions = new HashMap<String, Integer>();
+		final long now = System.nanoTime();
+		final Iterator<Entry<String, ServerState>> it = servers.entrySet().iterator();
+		while (it.hasNext()) {
+			final Entry<String, ServerState> entry = it.next();
+			if(now - entry.getValue().expirationTime >= 0) {
+				it.remove();
+			} else {
+				reductions.put(entry.getKey(), entry.getValue().reduction);
+			}
+		}
+		return reductions;
+	}
+
+	public long getThrottledRequests() {
+		return throttledRequests.get();
+	}
+
+	/**
+	 * @return the time in milliseconds the clients should apply the reduction advertised
+	 */
+	public long getValidity() {
+		return validity;
+	}
+
+	public void setValidity(long validity) {
+		this.validity = validity;
+	}
+
+	/**
+	 * The downstream server is the host and port of the top Route header or of the Request-URI
+	 */
+	static String getServer(Request request) {
+		URI uri = request.getRequestURI();
+		final RouteHeader routeHeader = (RouteHeader) request.getHeader(RouteHeader.NAME);
+		if(routeHeader != null) {
+			uri = routeHeader.getAddress().getURI();
+		}
+		if(uri == null || !uri.isSipURI()) {
+			return null;
+		}
+		final SipURI sipURI = (SipURI) uri;
+		return sipURI.getHost() + ":" + sipURI.getPort();
+	}
+
+	private static boolean hasParameter(ViaHeader viaHeader, String name) {
+		final Iterator<?> parameterNames = viaHeader.getParameterNames();
+		while (parameterNames.hasNext()) {
+			if(name.equalsIgnoreCase((String) parameterNames.next())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String unquote(String value) {
+		if(value.length() > 1 && value.startsWith("\"") && value.endsWith("\"")) {
+			return value.substring(1, value.length() - 1);
+		}
+		return value;
+	}
+
+	/**
+	 * oc-seq is a timestamp with a fractional part, seconds and milliseconds
+	 */
+	static String formatSequence(long millis) {
+		final long fraction = millis % 1000;
+		return (millis / 1000) + "." + (fraction < 10 ? "00" : fraction < 100 ? "0" : "") + fraction;
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package org.mobicents.servlet.sip.core.dispatchers;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.mobicents.servlet.sip.core.dispatchers.InitialRequestDispatcher.InitialDispatchTask;
+import org.mobicents.servlet.sip.core.session.SessionMailbox;
+
+/**
+ * Executor dedicated to a single application (bulkhead) so that an application with slow servlet code 
+ * can only exhaust its own threads and queue instead of starving every other application deployed on the node.
+ * 
+ * When the queue is full, initial requests are rejected with a {@link RejectedExecutionException} so that the 
+ * caller can shed them, other messages are run by the calling thread since they complete ongoing dialogs.
+ * A session mailbox handed off to the executor is judged on the task that made it busy.
+ *
+ */
+public class ApplicationDispatchExecutor extends ThreadPoolExecutor {
+
+	private static final Logger logger = Logger.getLogger(ApplicationDispatchExecutor.class);
+
+	private final String applicationName;
+	private final AtomicLong rejectedTasks = new AtomicLong(0);
+	private final AtomicLong callerRunsTasks = new AtomicLong(0);
+
+	public ApplicationDispatchExecutor(final String applicationName, int numberOfThreads, int queueSize, final int threadPriority) {
+		super(numberOfThreads, numberOfThreads, 0L, TimeUnit.MILLISECONDS, 
+				new LinkedBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+					private int threadCount = 0;
+
+					public Thread newThread(Runnable pRunnable) {
+						Thread thread = new Thread(pRunnable, String.format("%s-%s-%d",
+								"MSS-Executor", applicationName, threadCount++));
+						thread.setPriority(threadPriority);
+						return thread;
+					}
+				});
+		this.applicationName = applicationName;
+		setRejectedExecutionHandler(new RejectedExecutionHandler() {
+			public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+				if(executor.isShutdown()) {
+					logger.warn("Executor job for application " + ApplicationDispatchExecutor.this.applicationName + " was rejected " + r.toString());
+					return;
+				}
+				final Runnable task = r instanceof SessionMailbox.DrainTask ? ((SessionMailbox.DrainTask) r).getFirstTask() : r;
+				if(task instanceof InitialDispatchTask) {
+					rejectedTasks.incrementAndGet();
+					throw new RejectedExecutionException("Executor queue for application " + ApplicationDispatchExecutor.this.applicationName + " is full, rejecting " + r);
+				}
+				callerRunsTasks.incrementAndGet();
+				if(logger.isDebugEnabled()) {
+					logger.debug("Executor queue for application " + ApplicationDispatchExecutor.this.applicationName + " is full, running " + r + " in the calling thread");
+				}
+				r.run();
+			}
+		});
+		prestartAllCoreThreads();
+	}
+
+	public String getApplicationName() {
+		return applicationName;
+	}
+
+	/**
+	 * @return the number of initial requests rejected because the queue was full
+	 */
+	public long getRejectedTasks() {
+		return rejectedTasks.get();
+	}
+
+	/**
+	 * @return the number of messages run by the calling thread because the queue was full
+	 */
+	public long getCallerRunsTasks() {
+		return callerRunsTasks.get();
+	}
+}
@@ -37,6 +37,7 @@ import javax.sip.message.Request;
 import javax.sip.message.Response;
 
 import org.apache.log4j.Logger;
+import org.mobicents.servlet.sip.core.DispatchStage;
 import org.mobicents.servlet.sip.core.DispatcherException;
 import org.mobicents.servlet.sip.core.RoutingState;
 import org.mobicents.servlet.sip.core.SipContext;
@@ -258,7 +259,9 @@ public class CancelRequestDispatcher extends RequestDispatcher {
 			final MobicentsSipApplicationSession sipApplicationSession = sipSession.getSipApplicationSession();
 			final SipContext sipContext = sipApplicationSession.getSipContext();
 			try {
+				final long sessionLockStart = System.nanoTime();
 				sipContext.enterSipApp(sipApplicationSession, sipSession, false, true);
+				sipContext.getSipApplicationDispatcher().updateDispatchStageLatency(DispatchStage.SessionLock, Request.CANCEL, sipContext.getApplicationName(), System.nanoTime() - sessionLockStart);
 				final MobicentsProxy proxy = sipSession.getProxy();
 				if(proxy != null) {
 					if(logger.isDebugEnabled()) {
@@ -19,12 +19,17 @@
 
 package org.mobicents.servlet.sip.core.dispatchers;
 
+import java.util.concurrent.Executor;
+
 import javax.sip.SipProvider;
 import javax.sip.message.Request;
 import javax.sip.message.Response;
 
 import org.apache.log4j.Logger;
+import org.mobicents.servlet.sip.core.DispatchStage;
 import org.mobicents.servlet.sip.core.DispatcherException;
+import org.mobicents.servlet.sip.core.SipContext;
+import org.mobicents.servlet.sip.core.session.SessionMailbox;
 import org.mobicents.servlet.sip.message.SipServletMessageImpl;
 import org.mobicents.servlet.sip.message.SipServletRequestImpl;
 
@@ -41,6 +46,9 @@ public abstract class DispatchTask implements Runnable {
 	
 	protected SipServletMessageImpl sipServletMessage;
 	protected SipProvider sipProvider;
+	// set when the task is handed off to an executor, to measure the time it waited in the queue
+	private SipContext sipContext;
+	private long handOffTime;
 	
 	public DispatchTask(SipServletMessageImpl sipServletMessage, SipProvider sipProvider) {
 		this.sipProvider = sipProvider;
@@ -49,7 +57,45 @@ public abstract class DispatchTask implements Runnable {
 
 	abstract public void dispatch() throws DispatcherException;
 
+	/**
+	 * Hands the task off to the executor, the time it waits in the executor queue is recorded
+	 * as the {@link DispatchStage#ExecutorQueue} stage latency
+	 * @param sipContext the application the message is dispatched to
+	 * @param executor the executor to run the task
+	 */
+	public void handOff(SipContext sipContext, Executor executor) {
+		this.sipContext = sipContext;
+		this.handOffTime = System.nanoTime();
+		final SessionMailbox mailbox = SessionMailbox.getMailbox(null, sipServletMessage.getSipSession());
+		if(mailbox != null) {
+			mailbox.execute(this, executor);
+		} else {
+			executor.execute(this);
+		}
+	}
+
+	/**
+	 * Dispatches the message in the calling thread. If the container uses session mailboxes and the session 
+	 * is busy, the message is left in the mailbox of the session and dispatched by the thread draining it.
+	 */
+	public void dispatchInCallingThread() {
+		final SessionMailbox mailbox = SessionMailbox.getMailbox(null, sipServletMessage.getSipSession());
+		if(mailbox != null) {
+			mailbox.execute(new Runnable() {
+				public void run() {
+					dispatchAndHandleExceptions();
+				}
+			});
+		} else {
+			dispatchAndHandleExceptions();
+		}
+	}
+
 	public void run() {
+		if(sipContext != null) {
+			sipContext.getSipApplicationDispatcher().updateDispatchStageLatency(DispatchStage.ExecutorQueue, 
+					sipServletMessage.getMethod(), sipContext.getApplicationName(), System.nanoTime() - handOffTime);
+		}
 		dispatchAndHandleExceptions();
 	}
 
@@ -29,6 +29,7 @@ import java.io.Serializable;
 import java.text.ParseException;
 import java.util.Iterator;
 import java.util.ListIterator;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.servlet.ServletException;
 import javax.servlet.sip.SipURI;
@@ -56,6 +57,7 @@ import javax.sip.message.Request;
 import javax.sip.message.Response;
 
 import org.apache.log4j.Logger;
+import org.mobicents.javax.servlet.CongestionControlPolicy;
 import org.mobicents.servlet.sip.JainSipUtils;
 import org.mobicents.servlet.sip.address.AddressImpl.ModifiableRule;
 import org.mobicents.servlet.sip.address.GenericURIImpl;
@@ -63,6 +65,7 @@ import org.mobicents.servlet.sip.address.RFC2396UrlDecoder;
 import org.mobicents.servlet.sip.address.SipURIImpl;
 import org.mobicents.servlet.sip.address.TelURLImpl;
 import org.mobicents.servlet.sip.annotation.ConcurrencyControlMode;
+import org.mobicents.servlet.sip.core.DispatchStage;
 import org.mobicents.servlet.sip.core.DispatcherException;
 import org.mobicents.servlet.sip.core.MobicentsSipFactory;
 import org.mobicents.servlet.sip.core.SipContext;
@@ -496,7 +499,9 @@ public class InitialRequestDispatcher extends RequestDispatcher {
 		final InitialDispatchTask dispatchTask = new InitialDispatchTask(sipServletRequest, sipProvider);
 		// we enter the sip app here, thus acuiring the semaphore on the session (if concurrency control is set) before the jain sip tx semaphore is released and ensuring that
 		// the tx serialization is preserved		
+		final long sessionLockStart = System.nanoTime();
 		sipContext.enterSipApp(sipApplicationSession, sipSessionImpl, false, true);
+		sipApplicationDispatcher.updateDispatchStageLatency(DispatchStage.SessionLock, request.getMethod(), sipContext.getApplicationName(), System.nanoTime() - sessionLockStart);
 		
 		// The fastest way to figure out the transport is the mandatory Via transport header 
 		ViaHeader via = (ViaHeader) request.getHeader(ViaHeader.NAME);
@@ -506,9 +511,22 @@ public class InitialRequestDispatcher extends RequestDispatcher {
 		
 		// if the flag is set we bypass the executor. This flag should be made deprecated 
 		if(sipApplicationDispatcher.isBypassRequestExecutor() || ConcurrencyControlMode.Transaction.equals((sipContext.getConcurrencyControlMode()))) {
-			dispatchTask.dispatchAndHandleExceptions();
+			dispatchTask.dispatchInCallingThread();
 		} else {
-			getConcurrencyModelExecutorService(sipContext, sipServletRequest).execute(dispatchTask);
+			try {
+				dispatchTask.handOff(sipContext, getConcurrencyModelExecutorService(sipContext, sipServletRequest));
+			} catch (RejectedExecutionException e) {
+				// the initial requests lane or the executor dedicated to the application is full, shed the request
+				sipContext.exitSipApp(sipApplicationSession, sipSessionImpl);
+				if(CongestionControlPolicy.DropMessage.equals(sipApplicationDispatcher.getCongestionControlPolicy())) {
+					logger.error("dropping request, too many initial requests waiting to be dispatched : " + e.getMessage());
+				} else {
+					if(logger.isDebugEnabled()) {
+						logger.debug("Sending 503 because too many initial requests are waiting to be dispatched", e);
+					}
+					sendErrorResponse(sipApplicationDispatcher, Response.SERVICE_UNAVAILABLE, sipServletRequest, sipProvider);
+				}
+			}
 		}
 
 	}
@@ -35,6 +35,8 @@ import javax.sip.message.Request;
 import javax.sip.message.Response;
 
 import org.apache.log4j.Logger;
+import org.mobicents.servlet.sip.annotation.ConcurrencyControlMode;
+import org.mobicents.servlet.sip.core.DispatchStage;
 import org.mobicents.servlet.sip.core.DispatcherException;
 import org.mobicents.servlet.sip.core.MobicentsSipServlet;
 import org.mobicents.servlet.sip.core.SipApplicationDispatcher;
@@ -44,6 +46,7 @@ import org.mobicents.servlet.sip.core.message.MobicentsSipServletRequest;
 import org.mobicents.servlet.sip.core.message.MobicentsSipServletResponse;
 import org.mobicents.servlet.sip.core.session.MobicentsSipApplicationSession;
 import org.mobicents.servlet.sip.core.session.MobicentsSipSession;
+import org.mobicents.servlet.sip.core.session.MobicentsSipSessionKey;
 import org.mobicents.servlet.sip.core.session.SessionManagerUtil;
 import org.mobicents.servlet.sip.core.session.SipApplicationSessionKey;
 import org.mobicents.servlet.sip.message.SipFactoryImpl;
@@ -143,12 +146,30 @@ public abstract class MessageDispatcher {
 	public static void sendErrorResponse(SipApplicationDispatcher sipApplicationDispatcher, int errorCode,
 			ServerTransaction transaction, Request request,
 			SipProvider sipProvider) {
+		sendErrorResponse(sipApplicationDispatcher, errorCode, transaction, request, sipProvider, -1);
+	}
+	
+	/**
+	 * 
+	 * @param errorCode
+	 * @param transaction
+	 * @param request
+	 * @param sipProvider
+	 * @param retryAfter number of seconds to put in a Retry-After header, no header is added if negative
+	 */
+	public static void sendErrorResponse(SipApplicationDispatcher sipApplicationDispatcher, int errorCode,
+			ServerTransaction transaction, Request request,
+			SipProvider sipProvider, int retryAfter) {
 		if(logger.isDebugEnabled()) {
-			logger.debug("sendErrorResponse - errorCode=" + errorCode + ", request=" + request);
+			logger.debug("sendErrorResponse - errorCode=" + errorCode + ", request=" + request + ", retryAfter=" + retryAfter);
 		}
 		try{
 			Response response=SipFactoryImpl.messageFactory.createResponse
 	        	(errorCode,request);			
+	        if (retryAfter >= 0) {
+	        	response.setHeader(SipFactoryImpl.headerFactory.createRetryAfterHeader(retryAfter));
+	        }
+	        sipApplicationDispatcher.addOverloadControlFeedback(response);
 	        if (transaction!=null) {
 	        	transaction.sendResponse(response);
 	        } else { 
@@ -382,10 +403,13 @@ public abstract class MessageDispatcher {
 					logger.debug("Invoking instance " + servlet);
 				}
 				
+				final long serviceStart = System.nanoTime();
 				try {
 					servlet.service(request, null);
 				} finally {			
 					sipServletImpl.deallocate(servlet);
+					sipContext.getSipApplicationDispatcher().updateDispatchStageLatency(DispatchStage.Servlet, request.getMethod(), sipContext.getApplicationName(), System.nanoTime() - serviceStart);
+					sipContext.getSipApplicationDispatcher().updateApplicationRequestsStatistics(sipContext.getApplicationName(), request.getMethod(), true);
 				}
 			} finally {
 				sipContext.exitSipContext(oldClassLoader);
@@ -472,10 +496,13 @@ public abstract class MessageDispatcher {
 			try {
 				sipContext.enterSipContext();	
 			
+				final long serviceStart = System.nanoTime();
 				try {				
 					servlet.service(null, response);
 				} finally {
 					sipServletImpl.deallocate(servlet);
+					sipContext.getSipApplicationDispatcher().updateDispatchStageLatency(DispatchStage.Servlet, response.getMethod(), sipContext.getApplicationName(), System.nanoTime() - serviceStart);
+					sipContext.getSipApplicationDispatcher().updateApplicationResponseStatistics(sipContext.getApplicationName(), response.getStatus(), true);
 				}
 			} finally {
 				sipContext.exitSipContext(oldClassLoader);
@@ -512,12 +539,53 @@ public abstract class MessageDispatcher {
 	 * executor of a sip session, app session or just threadpool executor which doesn't limit concurrent processing
 	 * of requests per app or sip session.
 	 * Since 0.8.1 it always return threadpool executor which doesn't limit concurrent processing since concurrency is achieved through semaphore
+	 * When the Striped dispatcher executor is used, it returns the lane the message is hashed to, by application session id
+	 * if the application uses the SipApplicationSession concurrency control mode or by Call-ID otherwise
+	 * When the PriorityLanes dispatcher executor is used, initial requests that can be shed go to their own lane
+	 * If the application has its own executor, it is returned regardless of the dispatcher executor type
 	 * 
 	 * @param sipServletMessage the request you put here must have app and sip session associated
 	 * @return
 	 */
 	public final ExecutorService getConcurrencyModelExecutorService(
 			SipContext sipContext, SipServletMessageImpl sipServletMessage) {
-			return this.sipApplicationDispatcher.getAsynchronousExecutor();
+		if(sipContext != null) {
+			final ExecutorService applicationDispatchExecutor = this.sipApplicationDispatcher.getApplicationDispatchExecutor(sipContext.getApplicationName());
+			if(applicationDispatchExecutor != null) {
+				return applicationDispatchExecutor;
+			}
+		}
+		final boolean initialRequest = sipServletMessage instanceof SipServletRequestImpl && 
+				((SipServletRequestImpl) sipServletMessage).isInitial() && !isCongestionControlGoodMethod(sipServletMessage.getMethod());
+		return this.sipApplicationDispatcher.getDispatchExecutor(getAffinityKey(sipContext, sipServletMessage), initialRequest);
+	}
+
+	/**
+	 * Methods which are never shed by congestion control since they complete or terminate ongoing dialogs and transactions
+	 * 
+	 * @param method the request method
+	 * @return true if the request should not be shed
+	 */
+	public static boolean isCongestionControlGoodMethod(String method) {
+		return method.equals(Request.ACK) || method.equals(Request.PRACK) || method.equals(Request.BYE) || method.equals(Request.CANCEL) || method.equals(Request.UPDATE) || method.equals(Request.INFO);
+	}
+
+	/**
+	 * Computes the key used to keep all the messages of a dialog (or of an application session 
+	 * depending on the concurrency control mode of the application) on the same dispatcher lane
+	 * 
+	 * @param sipContext the application the message is dispatched to
+	 * @param sipServletMessage the message to dispatch
+	 * @return the application session id or the Call-ID of the message
+	 */
+	protected static Object getAffinityKey(SipContext sipContext, SipServletMessageImpl sipServletMessage) {
+		final MobicentsSipSessionKey sipSessionKey = sipServletMessage.getSipSessionKey();
+		if(sipSessionKey == null) {
+			return sipServletMessage.getCallId();
+		}
+		if(sipContext != null && ConcurrencyControlMode.SipApplicationSession.equals(sipContext.getConcurrencyControlMode())) {
+			return sipSessionKey.getApplicationSessionId();
+		}
+		return sipSessionKey.getCallId();
 	}
 }
@@ -0,0 +1,144 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package org.mobicents.servlet.sip.core.dispatchers;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Executor made of two bounded lanes so that the in-dialog traffic (ACK, BYE, CANCEL, PRACK, responses, ...) which frees
+ * resources is never queued behind a storm of initial requests.
+ * 
+ * When the initial requests lane is full the task is rejected with a {@link RejectedExecutionException} so that the
+ * caller can shed the request. The in-dialog lane is never shed, when it is full the task is run by the calling thread
+ * which slows down the stack thread reading the messages instead.
+ *
+ */
+public class PriorityLanesDispatchExecutor {
+
+	private static final Logger logger = Logger.getLogger(PriorityLanesDispatchExecutor.class);
+
+	private final ThreadPoolExecutor initialRequestsLane;
+	private final ThreadPoolExecutor inDialogLane;
+	private final AtomicLong initialRequestsLaneRejectedTasks = new AtomicLong(0);
+	private final AtomicLong inDialogLaneCallerRunsTasks = new AtomicLong(0);
+
+	public PriorityLanesDispatchExecutor(int numberOfThreadsPerLane, int initialRequestsLaneSize, int inDialogLaneSize, final int threadPriority) {
+		if(numberOfThreadsPerLane < 1) {
+			throw new IllegalArgumentException("The number of threads per lane should be at least 1, got " + numberOfThreadsPerLane);
+		}
+		initialRequestsLane = createLane("MSS-Executor-Initial-Lane", numberOfThreadsPerLane, initialRequestsLaneSize, threadPriority, new RejectedExecutionHandler() {
+			public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+				initialRequestsLaneRejectedTasks.incrementAndGet();
+				throw new RejectedExecutionException("Initial requests lane is full, rejecting " + r);
+			}
+		});
+		inDialogLane = createLane("MSS-Executor-In-Dialog-Lane", numberOfThreadsPerLane, inDialogLaneSize, threadPriority, new RejectedExecutionHandler() {
+			public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+				if(executor.isShutdown()) {
+					logger.warn("Executor in dialog lane job was rejected " + r.toString());
+					return;
+				}
+				inDialogLaneCallerRunsTasks.incrementAndGet();
+				if(logger.isDebugEnabled()) {
+					logger.debug("In dialog lane is full, running " + r + " in the calling thread");
+				}
+				r.run();
+			}
+		});
+	}
+
+	private static ThreadPoolExecutor createLane(final String threadNamePrefix, int numberOfThreads, int laneSize, final int threadPriority, RejectedExecutionHandler rejectedExecutionHandler) {
+		if(laneSize < 1) {
+			throw new IllegalArgumentException("The size of the " + threadNamePrefix + " should be at least 1, got " + laneSize);
+		}
+		final ThreadPoolExecutor lane = new ThreadPoolExecutor(numberOfThreads, numberOfThreads, 0L, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>(laneSize), new ThreadFactory() {
+					private int threadCount = 0;
+
+					public Thread newThread(Runnable pRunnable) {
+						Thread thread = new Thread(pRunnable, String.format("%s-%d",
+								threadNamePrefix, threadCount++));
+						thread.setPriority(threadPriority);
+						return thread;
+					}
+				}, rejectedExecutionHandler);
+		lane.prestartAllCoreThreads();
+		return lane;
+	}
+
+	/**
+	 * @param initialRequest true if the task dispatches an initial request that can be shed under load
+	 * @return the lane on which the task should be executed
+	 */
+	public ThreadPoolExecutor getLane(boolean initialRequest) {
+		if(initialRequest) {
+			return initialRequestsLane;
+		}
+		return inDialogLane;
+	}
+
+	/**
+	 * @return the number of initial requests waiting to be dispatched
+	 */
+	public int getInitialRequestsLaneQueueSize() {
+		return initialRequestsLane.getQueue().size();
+	}
+
+	/**
+	 * @return the number of in dialog messages waiting to be dispatched
+	 */
+	public int getInDialogLaneQueueSize() {
+		return inDialogLane.getQueue().size();
+	}
+
+	/**
+	 * @return the number of initial requests rejected because their lane was full
+	 */
+	public long getInitialRequestsLaneRejectedTasks() {
+		return initialRequestsLaneRejectedTasks.get();
+	}
+
+	/**
+	 * @return the number of in dialog messages run by the calling thread because their lane was full
+	 */
+	public long getInDialogLaneCallerRunsTasks() {
+		return inDialogLaneCallerRunsTasks.get();
+	}
+
+	/**
+	 * @return the number of tasks waiting in both lanes
+	 */
+	public int getQueueSize() {
+		return getInitialRequestsLaneQueueSize() + getInDialogLaneQueueSize();
+	}
+
+	public void shutdownNow() {
+		initialRequestsLane.shutdownNow();
+		inDialogLane.shutdownNow();
+	}
+}
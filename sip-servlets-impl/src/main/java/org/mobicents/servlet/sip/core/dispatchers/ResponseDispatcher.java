@@ -52,6 +52,7 @@ import org.apache.log4j.Logger;
 import org.mobicents.javax.servlet.sip.SipFactoryExt;
 import org.mobicents.servlet.sip.JainSipUtils;
 import org.mobicents.servlet.sip.annotation.ConcurrencyControlMode;
+import org.mobicents.servlet.sip.core.DispatchStage;
 import org.mobicents.servlet.sip.core.DispatcherException;
 import org.mobicents.servlet.sip.core.SipContext;
 import org.mobicents.servlet.sip.core.SipManager;
@@ -559,12 +560,14 @@ public class ResponseDispatcher extends MessageDispatcher {
 			};
 			// we enter the sip app here, thus acuiring the semaphore on the session (if concurrency control is set) before the jain sip tx semaphore is released and ensuring that
 			// the tx serialization is preserved
+			final long sessionLockStart = System.nanoTime();
 			sipContext.enterSipApp(session.getSipApplicationSession(), session, false, true);
+			sipApplicationDispatcher.updateDispatchStageLatency(DispatchStage.SessionLock, sipServletResponse.getMethod(), sipContext.getApplicationName(), System.nanoTime() - sessionLockStart);
 			// if the flag is set we bypass the executor, the bypassExecutor flag should be made deprecated 
 			if(sipApplicationDispatcher.isBypassResponseExecutor() || ConcurrencyControlMode.Transaction.equals((sipContext.getConcurrencyControlMode()))) {
-				dispatchTask.dispatchAndHandleExceptions();
+				dispatchTask.dispatchInCallingThread();
 			} else {				
-				getConcurrencyModelExecutorService(sipContext, sipServletMessage).execute(dispatchTask);				
+				dispatchTask.handOff(sipContext, getConcurrencyModelExecutorService(sipContext, sipServletMessage));
 			}
 		} else {
 			// No sessions here and no servlets called, no need for asynchronicity
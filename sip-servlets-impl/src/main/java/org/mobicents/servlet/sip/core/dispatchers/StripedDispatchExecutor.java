@@ -0,0 +1,132 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package org.mobicents.servlet.sip.core.dispatchers;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Executor made of N single consumer lanes. Each task is handed to the lane selected by hashing its affinity key
+ * (the Call-ID or the application session id of the message being dispatched) so that all the messages for
+ * a given dialog are executed in order, one at a time, by the same thread.
+ *
+ * Since the dispatchers acquire the session semaphores before handing off the task, a lane worker never parks on a
+ * session semaphore : the task it runs already holds it. Container tasks that acquire the session themselves
+ * (CANCEL, timeouts, asynchronous work) must not be put on a lane and still go to the shared asynchronous executor.
+ *
+ */
+public class StripedDispatchExecutor {
+
+	private static final Logger logger = Logger.getLogger(StripedDispatchExecutor.class);
+
+	private final ThreadPoolExecutor[] lanes;
+
+	public StripedDispatchExecutor(int numberOfLanes, final int threadPriority) {
+		if(numberOfLanes < 1) {
+			throw new IllegalArgumentException("The number of lanes should be at least 1, got " + numberOfLanes);
+		}
+		lanes = new ThreadPoolExecutor[numberOfLanes];
+		final RejectedExecutionHandler rejectedExecutionHandler = new RejectedExecutionHandler() {
+			public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+				logger.warn("Executor lane job was rejected " + r.toString());
+			}
+		};
+		for (int i = 0; i < numberOfLanes; i++) {
+			final int laneIndex = i;
+			lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+					new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+						public Thread newThread(Runnable pRunnable) {
+							Thread thread = new Thread(pRunnable, String.format("%s-%d",
+									"MSS-Executor-Lane", laneIndex));
+							thread.setPriority(threadPriority);
+							return thread;
+						}
+					}, rejectedExecutionHandler);
+			lanes[i].prestartAllCoreThreads();
+		}
+	}
+
+	/**
+	 * Retrieve the lane on which the tasks for the given affinity key are executed
+	 * @param affinityKey the Call-ID or application session id, if null the first lane is returned
+	 * @return the single consumer executor for this key
+	 */
+	public ThreadPoolExecutor getLane(Object affinityKey) {
+		return lanes[getLaneIndex(affinityKey)];
+	}
+
+	public int getLaneIndex(Object affinityKey) {
+		if(affinityKey == null) {
+			return 0;
+		}
+		int hash = affinityKey.hashCode();
+		// spread the high bits since Call-IDs often only differ in their last characters
+		hash ^= (hash >>> 16);
+		return (hash & 0x7fffffff) % lanes.length;
+	}
+
+	public int getNumberOfLanes() {
+		return lanes.length;
+	}
+
+	/**
+	 * @return the number of tasks waiting in each lane
+	 */
+	public int[] getLaneQueueSizes() {
+		final int[] queueSizes = new int[lanes.length];
+		for (int i = 0; i < lanes.length; i++) {
+			queueSizes[i] = lanes[i].getQueue().size();
+		}
+		return queueSizes;
+	}
+
+	/**
+	 * @return the number of tasks completed by each lane
+	 */
+	public long[] getLaneCompletedTaskCounts() {
+		final long[] completedTasks = new long[lanes.length];
+		for (int i = 0; i < lanes.length; i++) {
+			completedTasks[i] = lanes[i].getCompletedTaskCount();
+		}
+		return completedTasks;
+	}
+
+	/**
+	 * @return the number of tasks waiting in all lanes
+	 */
+	public int getQueueSize() {
+		int size = 0;
+		for (ThreadPoolExecutor lane : lanes) {
+			size += lane.getQueue().size();
+		}
+		return size;
+	}
+
+	public void shutdownNow() {
+		for (ThreadPoolExecutor lane : lanes) {
+			lane.shutdownNow();
+		}
+	}
+}
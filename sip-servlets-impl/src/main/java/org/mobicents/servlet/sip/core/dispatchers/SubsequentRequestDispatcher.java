@@ -57,6 +57,7 @@ import org.mobicents.servlet.sip.SipConnector;
 import org.mobicents.servlet.sip.address.URIImpl;
 import org.mobicents.servlet.sip.annotation.ConcurrencyControlMode;
 import org.mobicents.servlet.sip.core.ApplicationRoutingHeaderComposer;
+import org.mobicents.servlet.sip.core.DispatchStage;
 import org.mobicents.servlet.sip.core.DispatcherException;
 import org.mobicents.servlet.sip.core.MobicentsSipFactory;
 import org.mobicents.servlet.sip.core.SipContext;
@@ -447,7 +448,9 @@ public class SubsequentRequestDispatcher extends RequestDispatcher {
 		final SubsequentDispatchTask dispatchTask = new SubsequentDispatchTask(sipServletRequest, sipProvider);
 		// we enter the sip app here, thus acuiring the semaphore on the session (if concurrency control is set) before the jain sip tx semaphore is released and ensuring that
 		// the tx serialization is preserved
+		final long sessionLockStart = System.nanoTime();
 		sipContext.enterSipApp(sipApplicationSession, sipSession, false, true);
+		sipApplicationDispatcher.updateDispatchStageLatency(DispatchStage.SessionLock, sipServletRequest.getMethod(), sipContext.getApplicationName(), System.nanoTime() - sessionLockStart);
 
 		// Issue 2886 : http://code.google.com/p/mobicents/issues/detail?id=2886 ACK is bound out of replication context
 		// we need to enter the serialization here because validateCSeq below can set the CSeq so we need to replicate it
@@ -531,7 +534,7 @@ public class SubsequentRequestDispatcher extends RequestDispatcher {
 			}
 			
 			dispatchTask.setBatchStarted(batchStarted);
-			dispatchTask.dispatchAndHandleExceptions();
+			dispatchTask.dispatchInCallingThread();
 		} else {
 			if(logger.isDebugEnabled()) {
 				logger.debug("dispatchMessage - finally calling sipContext.exitSipAppHa");
@@ -543,7 +546,7 @@ public class SubsequentRequestDispatcher extends RequestDispatcher {
 			if(logger.isDebugEnabled()) {
 				logger.debug("We are just before executor with sipAppSession=" + sipApplicationSession + " and sipSession=" + sipSession + " for " + sipServletMessage);
 			}
-			getConcurrencyModelExecutorService(sipContext, sipServletMessage).execute(dispatchTask);
+			dispatchTask.handOff(sipContext, getConcurrencyModelExecutorService(sipContext, sipServletMessage));
 			if(logger.isDebugEnabled()) {
 				logger.debug("We are just after executor with sipAppSession=" + sipApplicationSession + " and sipSession=" + sipSession + " for " + sipServletMessage);
 			}
@@ -0,0 +1,220 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package org.mobicents.servlet.sip.core.dispatchers;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Executor starting one virtual thread per task, so that servlets doing blocking calls (Diameter, DB, ...) 
+ * don't exhaust a bounded pool of platform threads.
+ * 
+ * Virtual threads are only available starting with JDK 21 so everything is looked up by reflection, 
+ * {@link #create(String)} returns null if the running JVM doesn't support them so that the caller can fall back
+ * to a platform thread pool.
+ * 
+ * When JFR streaming is available, the jdk.VirtualThreadPinned events are counted so that servlet code pinning 
+ * the carrier threads (synchronized blocks, native frames) can be spotted.
+ *
+ */
+public class VirtualThreadDispatchExecutor extends AbstractExecutorService {
+
+	private static final Logger logger = Logger.getLogger(VirtualThreadDispatchExecutor.class);
+
+	private static final String VIRTUAL_THREAD_PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+	private final ThreadFactory virtualThreadFactory;
+	private final AtomicLong tasksStarted = new AtomicLong(0);
+	private final AtomicInteger tasksInFlight = new AtomicInteger(0);
+	private final AtomicLong pinnedCount = new AtomicLong(0);
+	private final AtomicLong pinnedTime = new AtomicLong(0);
+	private volatile boolean shutdown = false;
+	// jdk.jfr.consumer.RecordingStream listening to the pinned events, null if not available
+	private Object pinnedEventsRecordingStream;
+
+	private VirtualThreadDispatchExecutor(ThreadFactory virtualThreadFactory) {
+		this.virtualThreadFactory = virtualThreadFactory;
+	}
+
+	/**
+	 * Creates a new executor
+	 * @param threadNamePrefix prefix of the virtual threads names
+	 * @return the executor or null if virtual threads are not supported by the running JVM
+	 */
+	public static VirtualThreadDispatchExecutor create(String threadNamePrefix) {
+		ThreadFactory virtualThreadFactory = null;
+		try {
+			final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			builderClass.getMethod("name", String.class, long.class).invoke(builder, threadNamePrefix + "-", 0L);
+			virtualThreadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+		} catch (Throwable t) {
+			if(logger.isDebugEnabled()) {
+				logger.debug("Virtual threads are not supported by this JVM " + System.getProperty("java.version"), t);
+			}
+			return null;
+		}
+		final VirtualThreadDispatchExecutor executor = new VirtualThreadDispatchExecutor(virtualThreadFactory);
+		executor.startPinnedEventsMonitoring();
+		return executor;
+	}
+
+	private void startPinnedEventsMonitoring() {
+		try {
+			final Class<?> recordingStreamClass = Class.forName("jdk.jfr.consumer.RecordingStream");
+			final Class<?> consumerClass = Class.forName("java.util.function.Consumer");
+			final Object recordingStream = recordingStreamClass.getConstructor().newInstance();
+			recordingStreamClass.getMethod("enable", String.class).invoke(recordingStream, VIRTUAL_THREAD_PINNED_EVENT);
+			final Object pinnedEventConsumer = Proxy.newProxyInstance(consumerClass.getClassLoader(), new Class[] {consumerClass}, new InvocationHandler() {
+				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+					if("accept".equals(method.getName())) {
+						onPinnedEvent(args[0]);
+						return null;
+					}
+					// equals, hashCode and toString
+					return method.invoke(this, args);
+				}
+			});
+			recordingStreamClass.getMethod("onEvent", String.class, consumerClass).invoke(recordingStream, VIRTUAL_THREAD_PINNED_EVENT, pinnedEventConsumer);
+			recordingStreamClass.getMethod("startAsync").invoke(recordingStream);
+			pinnedEventsRecordingStream = recordingStream;
+		} catch (Throwable t) {
+			logger.info("JFR streaming not available, virtual threads carrier pinning won't be monitored");
+			if(logger.isDebugEnabled()) {
+				logger.debug("Couldn't start the " + VIRTUAL_THREAD_PINNED_EVENT + " recording stream", t);
+			}
+		}
+	}
+
+	private void onPinnedEvent(Object recordedEvent) {
+		pinnedCount.incrementAndGet();
+		try {
+			final Object duration = recordedEvent.getClass().getMethod("getDuration").invoke(recordedEvent);
+			pinnedTime.addAndGet((Long) duration.getClass().getMethod("toMillis").invoke(duration));
+		} catch (Throwable t) {
+			if(logger.isDebugEnabled()) {
+				logger.debug("Couldn't get the duration of the pinned event " + recordedEvent, t);
+			}
+		}
+	}
+
+	public void execute(final Runnable command) {
+		if(shutdown) {
+			throw new RejectedExecutionException("Virtual thread executor is shut down, rejecting " + command);
+		}
+		tasksStarted.incrementAndGet();
+		tasksInFlight.incrementAndGet();
+		try {
+			virtualThreadFactory.newThread(new Runnable() {
+				public void run() {
+					try {
+						command.run();
+					} finally {
+						tasksInFlight.decrementAndGet();
+					}
+				}
+			}).start();
+		} catch (RuntimeException e) {
+			tasksInFlight.decrementAndGet();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return the number of virtual threads started since the executor was created
+	 */
+	public long getTasksStarted() {
+		return tasksStarted.get();
+	}
+
+	/**
+	 * @return the number of tasks currently running, there is no queue so this is what congestion control looks at
+	 */
+	public int getTasksInFlight() {
+		return tasksInFlight.get();
+	}
+
+	/**
+	 * @return the number of times a virtual thread has been pinned to its carrier, -1 if it can't be monitored
+	 */
+	public long getPinnedCount() {
+		if(pinnedEventsRecordingStream == null) {
+			return -1;
+		}
+		return pinnedCount.get();
+	}
+
+	/**
+	 * @return the total time in milliseconds virtual threads spent pinned to their carrier, -1 if it can't be monitored
+	 */
+	public long getPinnedTime() {
+		if(pinnedEventsRecordingStream == null) {
+			return -1;
+		}
+		return pinnedTime.get();
+	}
+
+	public void shutdown() {
+		shutdown = true;
+		if(pinnedEventsRecordingStream != null) {
+			try {
+				pinnedEventsRecordingStream.getClass().getMethod("close").invoke(pinnedEventsRecordingStream);
+			} catch (Throwable t) {
+				logger.warn("Couldn't close the " + VIRTUAL_THREAD_PINNED_EVENT + " recording stream", t);
+			}
+		}
+	}
+
+	public List<Runnable> shutdownNow() {
+		shutdown();
+		// tasks are started right away, nothing is ever pending
+		return Collections.emptyList();
+	}
+
+	public boolean isShutdown() {
+		return shutdown;
+	}
+
+	public boolean isTerminated() {
+		return shutdown && tasksInFlight.get() == 0;
+	}
+
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while(!isTerminated()) {
+			if(System.nanoTime() - deadline >= 0) {
+				return false;
+			}
+			Thread.sleep(10);
+		}
+		return true;
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package org.mobicents.servlet.sip.core.session;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of the names of the applications deployed, so that session keys share the same
+ * application name instance instead of each holding their own copy of it.
+ * Only the dispatcher registers names, when an application is deployed. Names coming from the network
+ * or from applications are only looked up, a name that isn't registered is kept as it is by the key.
+ */
+public final class ApplicationNameRegistry {
+
+	private static final ConcurrentMap<String, String> names = new ConcurrentHashMap<String, String>();
+
+	private ApplicationNameRegistry() {}
+
+	/**
+	 * @param applicationName the name of an application being deployed
+	 */
+	public static void register(final String applicationName) {
+		if(applicationName != null) {
+			names.putIfAbsent(applicationName, applicationName);
+		}
+	}
+
+	/**
+	 * @param applicationName the name of an application being undeployed
+	 */
+	public static void unregister(final String applicationName) {
+		if(applicationName != null) {
+			names.remove(applicationName);
+		}
+	}
+
+	/**
+	 * @param applicationName the application name
+	 * @return the registered instance equal to the application name, or the application name itself 
+	 * if no application with that name is deployed
+	 */
+	public static String canonicalName(final String applicationName) {
+		if(applicationName == null) {
+			return null;
+		}
+		final String registered = names.get(applicationName);
+		return registered != null ? registered : applicationName;
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package org.mobicents.servlet.sip.core.session;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Helpers for the immutable sets held by the sessions for their ongoing transactions or sip sessions.
+ * Most sessions only ever hold zero or one element, for which the shared empty set and the singleton set
+ * of {@link Collections} are used, a backing set is only allocated from the second element on.
+ * The sets are replaced on every change, the caller publishing the new set with a compare and set,
+ * so that they can be iterated without locking as the CopyOnWriteArraySet they replace.
+ */
+final class CompactSets {
+
+	private CompactSets() {}
+
+	/**
+	 * @return a set holding the elements of the given set and the given element, the same set if it already held it
+	 */
+	static <E> Set<E> with(Set<E> set, E element) {
+		if(set.contains(element)) {
+			return set;
+		}
+		if(set.isEmpty()) {
+			return Collections.singleton(element);
+		}
+		final Set<E> copy = new LinkedHashSet<E>(set);
+		copy.add(element);
+		return Collections.unmodifiableSet(copy);
+	}
+
+	/**
+	 * @return a set holding the elements of the given set but the given element, the same set if it didn't hold it
+	 */
+	static <E> Set<E> without(Set<E> set, Object element) {
+		if(!set.contains(element)) {
+			return set;
+		}
+		if(set.size() == 1) {
+			return Collections.emptySet();
+		}
+		final Set<E> copy = new LinkedHashSet<E>(set);
+		copy.remove(element);
+		if(copy.size() == 1) {
+			return Collections.singleton(copy.iterator().next());
+		}
+		return Collections.unmodifiableSet(copy);
+	}
+}
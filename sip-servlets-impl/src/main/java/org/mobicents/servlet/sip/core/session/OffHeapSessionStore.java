@@ -0,0 +1,308 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package org.mobicents.servlet.sip.core.session;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Stores the attributes of dormant sessions outside of the java heap, in direct memory slabs,
+ * so that a node holding millions of long lived dialogs doesn't have to scan their attributes on every old generation collection.
+ * The attributes are serialized when the session is passivated and deserialized back the first time they are accessed.
+ *
+ * Memory is allocated by blocks whose size is a power of two, freed blocks being kept on a free list per size to be reused.
+ * An entry that doesn't fit in a slab, or when the store is full, is not stored and the attributes stay on the heap.
+ */
+public final class OffHeapSessionStore {
+	private static final Logger logger = Logger.getLogger(OffHeapSessionStore.class);
+
+	static final int SLAB_SIZE = 1 << 20;
+	private static final int MIN_BLOCK_SHIFT = 6;
+	private static final int MAX_BLOCK_SHIFT = 20;
+
+	private final String applicationName;
+	private final long maxSize;
+	private final long idleTime;
+	private final List<ByteBuffer> slabs = new ArrayList<ByteBuffer>();
+	// free blocks per size class, encoded as slab index << 32 | offset
+	@SuppressWarnings("unchecked")
+	private final ArrayDeque<Long>[] freeBlocks = new ArrayDeque[MAX_BLOCK_SHIFT - MIN_BLOCK_SHIFT + 1];
+	private int slabPosition = SLAB_SIZE;
+	private long usedBytes;
+	private int storedEntries;
+	private long passivations;
+	private long activations;
+	private boolean destroyed;
+
+	/**
+	 * @param applicationName the application whose sessions are stored
+	 * @param maxSize maximum number of bytes of direct memory the store can allocate
+	 * @param idleTime time in milliseconds a session must not have been accessed before being passivated
+	 */
+	public OffHeapSessionStore(String applicationName, long maxSize, long idleTime) {
+		this.applicationName = applicationName;
+		this.maxSize = maxSize;
+		this.idleTime = idleTime;
+		for (int i = 0; i < freeBlocks.length; i++) {
+			freeBlocks[i] = new ArrayDeque<Long>();
+		}
+	}
+
+	/**
+	 * Handle on attributes stored off heap, to be kept by the session in place of its attribute map
+	 */
+	public static final class StoredAttributes {
+		private final OffHeapSessionStore store;
+		private final long block;
+		private final int length;
+
+		private StoredAttributes(OffHeapSessionStore store, long block, int length) {
+			this.store = store;
+			this.block = block;
+			this.length = length;
+		}
+
+		/**
+		 * Deserializes the attributes and frees their off heap memory, the handle can't be used afterwards
+		 * @param classLoader the class loader of the application the attributes belong to
+		 * @return the attributes
+		 */
+		public Map<String, Object> load(ClassLoader classLoader) throws IOException, ClassNotFoundException {
+			return store.load(this, classLoader);
+		}
+
+		/**
+		 * Frees the off heap memory of attributes that won't be loaded, the session being invalidated
+		 */
+		public void free() {
+			store.free(block, length);
+		}
+	}
+
+	/**
+	 * @return the time in milliseconds a session must not have been accessed before being passivated
+	 */
+	public long getIdleTime() {
+		return idleTime;
+	}
+
+	/**
+	 * Serializes the attributes off heap
+	 * @param attributes the attributes to store, they should all be serializable
+	 * @return the handle on the stored attributes or null if they couldn't be stored and should stay on the heap
+	 */
+	public StoredAttributes store(Map<String, Object> attributes) {
+		final byte[] bytes;
+		try {
+			final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(256);
+			final ObjectOutputStream out = new ObjectOutputStream(byteArrayOutputStream);
+			out.writeInt(attributes.size());
+			for (Entry<String, Object> attribute : attributes.entrySet()) {
+				out.writeUTF(attribute.getKey());
+				out.writeObject(attribute.getValue());
+			}
+			out.close();
+			bytes = byteArrayOutputStream.toByteArray();
+		} catch (IOException e) {
+			if(logger.isDebugEnabled()) {
+				logger.debug("attributes of application " + applicationName + " can't be serialized, keeping them on the heap", e);
+			}
+			return null;
+		}
+		final long block = allocate(bytes.length);
+		if(block < 0) {
+			return null;
+		}
+		final ByteBuffer slab = slab(block);
+		if(slab == null) {
+			return null;
+		}
+		final ByteBuffer view = slab.duplicate();
+		view.position(offset(block));
+		view.put(bytes);
+		synchronized (this) {
+			passivations++;
+		}
+		return new StoredAttributes(this, block, bytes.length);
+	}
+
+	private Map<String, Object> load(StoredAttributes storedAttributes, final ClassLoader classLoader) throws IOException, ClassNotFoundException {
+		final byte[] bytes = new byte[storedAttributes.length];
+		final ByteBuffer slab = slab(storedAttributes.block);
+		if(slab == null) {
+			throw new IOException("the off heap session store of application " + applicationName + " has been destroyed");
+		}
+		final ByteBuffer view = slab.duplicate();
+		view.position(offset(storedAttributes.block));
+		view.get(bytes);
+		free(storedAttributes.block, storedAttributes.length);
+		final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes)) {
+			@Override
+			protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+				if(classLoader != null) {
+					try {
+						return Class.forName(desc.getName(), false, classLoader);
+					} catch (ClassNotFoundException e) {
+						// fall back on the default resolution for primitive types and container classes
+					}
+				}
+				return super.resolveClass(desc);
+			}
+		};
+		try {
+			final int size = in.readInt();
+			final Map<String, Object> attributes = new ConcurrentHashMap<String, Object>(Math.max(size, 1));
+			for (int i = 0; i < size; i++) {
+				final String name = in.readUTF();
+				attributes.put(name, in.readObject());
+			}
+			synchronized (this) {
+				activations++;
+			}
+			return attributes;
+		} finally {
+			in.close();
+		}
+	}
+
+	private synchronized long allocate(int length) {
+		final int sizeClass = sizeClass(length);
+		if(sizeClass < 0 || destroyed) {
+			return -1;
+		}
+		final int blockSize = 1 << (sizeClass + MIN_BLOCK_SHIFT);
+		final Long freeBlock = freeBlocks[sizeClass].poll();
+		if(freeBlock != null) {
+			usedBytes += blockSize;
+			storedEntries++;
+			return freeBlock;
+		}
+		if(slabPosition + blockSize > SLAB_SIZE) {
+			if((long) (slabs.size() + 1) * SLAB_SIZE > maxSize) {
+				if(logger.isDebugEnabled()) {
+					logger.debug("off heap session store of application " + applicationName + " is full, keeping the attributes on the heap");
+				}
+				return -1;
+			}
+			// the end of the current slab is lost, blocks are small compared to the slab size
+			slabs.add(ByteBuffer.allocateDirect(SLAB_SIZE));
+			slabPosition = 0;
+		}
+		final long block = ((long) (slabs.size() - 1) << 32) | slabPosition;
+		slabPosition += blockSize;
+		usedBytes += blockSize;
+		storedEntries++;
+		return block;
+	}
+
+	private synchronized void free(long block, int length) {
+		if(destroyed) {
+			return;
+		}
+		final int sizeClass = sizeClass(length);
+		freeBlocks[sizeClass].push(block);
+		usedBytes -= 1 << (sizeClass + MIN_BLOCK_SHIFT);
+		storedEntries--;
+	}
+
+	private synchronized ByteBuffer slab(long block) {
+		if(destroyed) {
+			return null;
+		}
+		return slabs.get((int) (block >>> 32));
+	}
+
+	private static int offset(long block) {
+		return (int) block;
+	}
+
+	private static int sizeClass(int length) {
+		int shift = MIN_BLOCK_SHIFT;
+		while((1 << shift) < length) {
+			shift++;
+		}
+		if(shift > MAX_BLOCK_SHIFT) {
+			return -1;
+		}
+		return shift - MIN_BLOCK_SHIFT;
+	}
+
+	/**
+	 * @return the number of bytes of direct memory allocated by the store
+	 */
+	public synchronized long getAllocatedBytes() {
+		return (long) slabs.size() * SLAB_SIZE;
+	}
+
+	/**
+	 * @return the number of bytes of direct memory used by stored attributes
+	 */
+	public synchronized long getUsedBytes() {
+		return usedBytes;
+	}
+
+	/**
+	 * @return the number of sessions whose attributes are currently stored
+	 */
+	public synchronized int getStoredEntries() {
+		return storedEntries;
+	}
+
+	/**
+	 * @return the number of times attributes have been moved off heap
+	 */
+	public synchronized long getPassivations() {
+		return passivations;
+	}
+
+	/**
+	 * @return the number of times attributes have been brought back on heap
+	 */
+	public synchronized long getActivations() {
+		return activations;
+	}
+
+	/**
+	 * Drops all the slabs, the stored attributes are lost
+	 */
+	public synchronized void destroy() {
+		destroyed = true;
+		slabs.clear();
+		for (ArrayDeque<Long> blocks : freeBlocks) {
+			blocks.clear();
+		}
+		slabPosition = SLAB_SIZE;
+		usedBytes = 0;
+		storedEntries = 0;
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.core.session;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Semaphores of a sip session and of the B2BUA session linked to it, taken together in a global order 
+ * so that two threads entering the application on each leg can't wait on each other.
+ * 
+ * The group acquired is kept by the session until it is released rather than by the acquiring thread, 
+ * since the container takes the lock in the stack thread and gives it back in the executor thread 
+ * that ran the application.
+ *
+ */
+final class SessionLockGroup {
+
+	/**
+	 * Takes and gives back a single semaphore of the group
+	 */
+	interface Locker {
+		/**
+		 * @return true if the semaphore was contended
+		 */
+		boolean lock(Semaphore semaphore);
+
+		void unlock(Semaphore semaphore);
+	}
+
+	private final Semaphore[] semaphores;
+
+	private SessionLockGroup(Semaphore... semaphores) {
+		this.semaphores = semaphores;
+	}
+
+	/**
+	 * @param semaphore the semaphore of the session
+	 * @param id the id of the session
+	 * @param linkedSemaphore the semaphore of the linked session, null if the session is not linked
+	 * @param linkedId the id of the linked session
+	 * @return the group of semaphores sorted by session id
+	 */
+	static SessionLockGroup of(Semaphore semaphore, String id, Semaphore linkedSemaphore, String linkedId) {
+		if(linkedSemaphore == null || linkedSemaphore == semaphore) {
+			return new SessionLockGroup(semaphore);
+		}
+		if(id.compareTo(linkedId) <= 0) {
+			return new SessionLockGroup(semaphore, linkedSemaphore);
+		}
+		return new SessionLockGroup(linkedSemaphore, semaphore);
+	}
+
+	/**
+	 * Takes all the semaphores of the group in order
+	 * @return true if any of them was contended
+	 */
+	boolean acquire(Locker locker) {
+		boolean contended = false;
+		for (Semaphore semaphore : semaphores) {
+			contended |= locker.lock(semaphore);
+		}
+		return contended;
+	}
+
+	/**
+	 * Gives back all the semaphores of the group in reverse order, from any thread
+	 */
+	void release(Locker locker) {
+		for (int i = semaphores.length - 1; i >= 0; i--) {
+			locker.unlock(semaphores[i]);
+		}
+	}
+}
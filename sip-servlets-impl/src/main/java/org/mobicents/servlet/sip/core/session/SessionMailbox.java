@@ -0,0 +1,165 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package org.mobicents.servlet.sip.core.session;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Lock free mailbox of the tasks of a sip session or a sip application session, used instead of the session semaphore 
+ * when the container runs the SipSession and SipApplicationSession concurrency control modes with mailboxes.
+ * 
+ * The thread enqueuing a task while the mailbox is empty runs it and then every task enqueued in the meantime, 
+ * in order. The threads enqueuing a task while the mailbox is being drained return immediately, 
+ * so no thread ever waits for a busy session and the tasks of a session never run concurrently.
+ * A task enqueued by a task of the same mailbox is run later by the same thread instead of dead locking.
+ *
+ */
+public class SessionMailbox implements Executor {
+	private static final Logger logger = Logger.getLogger(SessionMailbox.class);
+
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+	// number of tasks enqueued and not yet run, the thread moving it from 0 drains the mailbox
+	private final AtomicInteger pendingTasks = new AtomicInteger();
+	private final DrainTask drainTask = new DrainTask();
+
+	/**
+	 * Task handed off to an executor to drain the mailbox. It exposes the task that made the mailbox busy 
+	 * so that a rejection policy can decide on that task rather than on the anonymous draining.
+	 */
+	public final class DrainTask implements Runnable {
+		public void run() {
+			drain();
+		}
+
+		/**
+		 * @return the first task of the mailbox, only meaningful until the draining starts 
+		 */
+		public Runnable getFirstTask() {
+			return tasks.peek();
+		}
+
+		@Override
+		public String toString() {
+			return "DrainTask[" + getFirstTask() + "]";
+		}
+	}
+
+	/**
+	 * Enqueues the task and runs the mailbox if no other thread is running it
+	 * @param task the task to run
+	 */
+	public void execute(Runnable task) {
+		tasks.offer(task);
+		if(pendingTasks.getAndIncrement() == 0) {
+			drain();
+		} else if(logger.isDebugEnabled()) {
+			logger.debug("mailbox " + this + " busy, task " + task + " will be run by the thread draining it");
+		}
+	}
+
+	/**
+	 * Enqueues the task and hands the draining of the mailbox off to the executor if no other thread is running it.
+	 * The task is enqueued in the calling thread so the tasks of a session run in the order they are handed off.
+	 * The executor is given a {@link DrainTask} whose first task is the given one, so that its rejection policy 
+	 * can still tell the initial requests apart.
+	 * @param task the task to run
+	 * @param executor the executor to drain the mailbox
+	 * @throws RejectedExecutionException if the executor rejected the draining, the task is then not run
+	 */
+	public void execute(Runnable task, Executor executor) {
+		tasks.offer(task);
+		if(pendingTasks.getAndIncrement() == 0) {
+			try {
+				executor.execute(drainTask);
+			} catch (RejectedExecutionException e) {
+				tasks.remove(task);
+				// the tasks enqueued in the meantime are waiting for this thread to drain the mailbox
+				if(pendingTasks.decrementAndGet() > 0) {
+					drain();
+				}
+				throw e;
+			}
+		}
+	}
+
+	private void drain() {
+		do {
+			// the task is always there since it is offered before the counter is incremented
+			final Runnable task = tasks.poll();
+			try {
+				task.run();
+			} catch (Throwable t) {
+				logger.error("Unexpected exception while running the task " + task + " of mailbox " + this, t);
+			}
+		} while (pendingTasks.decrementAndGet() > 0);
+	}
+
+	/**
+	 * @return the number of tasks waiting or running in the mailbox
+	 */
+	public int getPendingTasks() {
+		return pendingTasks.get();
+	}
+
+	/**
+	 * @param sipApplicationSession the sip application session, can be null
+	 * @param sipSession the sip session, can be null
+	 * @return the mailbox serializing the tasks of the sessions depending on the concurrency control mode 
+	 * of the application, null if the container doesn't use mailboxes
+	 */
+	public static SessionMailbox getMailbox(MobicentsSipApplicationSession sipApplicationSession, MobicentsSipSession sipSession) {
+		if(sipSession != null) {
+			final Executor mailbox = sipSession.getMailbox();
+			if(mailbox != null) {
+				return (SessionMailbox) mailbox;
+			}
+			if(sipApplicationSession == null) {
+				sipApplicationSession = sipSession.getSipApplicationSession();
+			}
+		}
+		if(sipApplicationSession != null) {
+			return (SessionMailbox) sipApplicationSession.getMailbox();
+		}
+		return null;
+	}
+
+	/**
+	 * @param sipSession the sip session the task works on, can be null
+	 * @param task the task
+	 * @return a task running the given one in the mailbox of the session, or the given task if there is no mailbox
+	 */
+	public static Runnable serialize(MobicentsSipSession sipSession, final Runnable task) {
+		final SessionMailbox mailbox = getMailbox(null, sipSession);
+		if(mailbox == null) {
+			return task;
+		}
+		return new Runnable() {
+			public void run() {
+				mailbox.execute(task);
+			}
+		};
+	}
+}
@@ -179,22 +179,35 @@ public class SessionManagerUtil {
 		if(indexOfRightParenthesis == -1) {
 			throw new ParseException("The right parenthesis could not be found in the following key " + sipSessionKey, 0);
 		}
-		String sipSessionKeyToParse = sipSessionKey.substring(indexOfLeftParenthesis+1, indexOfRightParenthesis);
-		if(logger.isDebugEnabled()) {
-			logger.debug("sipSession key to parse " + sipSessionKeyToParse );
+		// single pass over the separators, the components being (FROM-TAG[,TO-TAG],CALL-ID,APP-SESSION-ID,APPNAME)
+		final int[] separators = new int[4];
+		int separatorCount = 0;
+		int index = sipSessionKey.indexOf(SESSION_KEY_SEPARATOR, indexOfLeftParenthesis + 1);
+		while(index != -1 && index < indexOfRightParenthesis) {
+			if(separatorCount == separators.length) {
+				throw new ParseException("Too many components in the following key " + sipSessionKey, index);
+			}
+			separators[separatorCount++] = index;
+			index = sipSessionKey.indexOf(SESSION_KEY_SEPARATOR, index + 1);
 		}
-		StringTokenizer stringTokenizer = new StringTokenizer(sipSessionKeyToParse, SESSION_KEY_SEPARATOR);		
-		String fromTag = stringTokenizer.nextToken();
+		if(separatorCount < 3) {
+			throw new ParseException("Missing components in the following key " + sipSessionKey, indexOfRightParenthesis);
+		}
+		int component = 0;
+		String fromTag = sipSessionKey.substring(indexOfLeftParenthesis + 1, separators[component]);
 		String toTag = null;
-		if(stringTokenizer.countTokens() == 4) {
+		if(separatorCount == 4) {
 			// Issue 2365 : to tag needed for getApplicationSession().getSipSession(<sessionId>) to return forked session and not the parent one
-			toTag = stringTokenizer.nextToken();
+			toTag = sipSessionKey.substring(separators[component] + 1, separators[++component]);
 		}
-		String callId = stringTokenizer.nextToken();
-		String applicationSessionId = stringTokenizer.nextToken();
-		String applicationName = stringTokenizer.nextToken();
+		String callId = sipSessionKey.substring(separators[component] + 1, separators[++component]);
+		String applicationSessionId = sipSessionKey.substring(separators[component] + 1, separators[++component]);
+		String applicationName = sipSessionKey.substring(separators[component] + 1, indexOfRightParenthesis);
 		
-		return new SipSessionKey(fromTag, toTag, callId, applicationSessionId, applicationName);
+		// the key id has the same form as the string parsed, no need to compute it again
+		String id = indexOfLeftParenthesis == 0 && indexOfRightParenthesis == sipSessionKey.length() - 1 ?
+				sipSessionKey : sipSessionKey.substring(indexOfLeftParenthesis, indexOfRightParenthesis + 1);
+		return new SipSessionKey(fromTag, toTag, callId, applicationSessionId, applicationName, id);
 	}
 	
 	
@@ -56,34 +56,19 @@ public class SipApplicationSessionAsyncTask implements Runnable {
 		if(sipContext != null) {
 			SipManager sipManager = sipContext.getSipManager();
 									
-			MobicentsSipApplicationSession sipApplicationSession = sipManager.getSipApplicationSession(key, false);
+			final MobicentsSipApplicationSession sipApplicationSession = sipManager.getSipApplicationSession(key, false);
 					
 			if(sipApplicationSession != null) {				
-				ClassLoader oldClassLoader = Thread.currentThread().getContextClassLoader();
-				boolean batchStarted = false;
-				try {
-					if(logger.isDebugEnabled()) {
-						logger.debug("Asynchronous work for sip app session " + key + " scheduled to run once the sipappsession lock is available.");
-					}
-					sipContext.enterSipContext();	
-					sipContext.enterSipApp(sipApplicationSession, null, false, true);
-					batchStarted = sipContext.enterSipAppHa(true);
-					if(logger.isDebugEnabled()) {
-						logger.debug("Starting Asynchronous work for sip app session " + key);
-					}
-					work.doAsynchronousWork(sipApplicationSession);
-					if(logger.isDebugEnabled()) {
-						logger.debug("Done with Asynchronous work for sip app session " + key);
-					}
-				} catch(Throwable t) {
-					logger.error("An unexpected exception happened in the SipApplicationSessionAsynchronousWork callback on sip application session " + key, t);
-				} finally {
-					if(logger.isDebugEnabled()) {
-						logger.debug("Exiting Asynchronous work for sip app session " + key);
-					}
-					sipContext.exitSipAppHa(null, null, batchStarted);
-					sipContext.exitSipApp(sipApplicationSession, null);
-					sipContext.exitSipContext(oldClassLoader);			
+				// with session mailboxes the work is done once the other tasks of the session are done
+				final SessionMailbox mailbox = SessionMailbox.getMailbox(sipApplicationSession, null);
+				if(mailbox != null) {
+					mailbox.execute(new Runnable() {
+						public void run() {
+							doAsynchronousWork(sipContext, sipApplicationSession);
+						}
+					});
+				} else {
+					doAsynchronousWork(sipContext, sipApplicationSession);
 				}
 			} else {
 				if(logger.isDebugEnabled()) {
@@ -92,4 +77,33 @@ public class SipApplicationSessionAsyncTask implements Runnable {
 			}
 		}
 	}
+
+	private void doAsynchronousWork(final SipContext sipContext, final MobicentsSipApplicationSession sipApplicationSession) {
+		ClassLoader oldClassLoader = Thread.currentThread().getContextClassLoader();
+		boolean batchStarted = false;
+		try {
+			if(logger.isDebugEnabled()) {
+				logger.debug("Asynchronous work for sip app session " + key + " scheduled to run once the sipappsession lock is available.");
+			}
+			sipContext.enterSipContext();	
+			sipContext.enterSipApp(sipApplicationSession, null, false, true);
+			batchStarted = sipContext.enterSipAppHa(true);
+			if(logger.isDebugEnabled()) {
+				logger.debug("Starting Asynchronous work for sip app session " + key);
+			}
+			work.doAsynchronousWork(sipApplicationSession);
+			if(logger.isDebugEnabled()) {
+				logger.debug("Done with Asynchronous work for sip app session " + key);
+			}
+		} catch(Throwable t) {
+			logger.error("An unexpected exception happened in the SipApplicationSessionAsynchronousWork callback on sip application session " + key, t);
+		} finally {
+			if(logger.isDebugEnabled()) {
+				logger.debug("Exiting Asynchronous work for sip app session " + key);
+			}
+			sipContext.exitSipAppHa(null, null, batchStarted);
+			sipContext.exitSipApp(sipApplicationSession, null);
+			sipContext.exitSipContext(oldClassLoader);			
+		}
+	}
 }
@@ -27,6 +27,7 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -35,9 +36,11 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import javax.servlet.http.HttpSession;
 import javax.servlet.sip.ServletTimer;
@@ -83,8 +86,13 @@ public class SipApplicationSessionImpl implements MobicentsSipApplicationSession
 	private static final Logger logger = Logger.getLogger(SipApplicationSessionImpl.class);
 
 	protected Map<String, Object> sipApplicationSessionAttributeMap;
+	// attributes moved off heap while the session is dormant, see OffHeapSessionStore
+	protected transient volatile OffHeapSessionStore.StoredAttributes storedAttributes;
 
-	protected transient Set<SipSessionKey> sipSessions;
+	// immutable set replaced on every change through SIP_SESSIONS, see CompactSets
+	protected transient volatile Set<SipSessionKey> sipSessions;
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<SipApplicationSessionImpl, Set> SIP_SESSIONS = AtomicReferenceFieldUpdater.newUpdater(SipApplicationSessionImpl.class, Set.class, "sipSessions");
 
 	protected transient Set<String> httpSessions;
 
@@ -94,7 +102,9 @@ public class SipApplicationSessionImpl implements MobicentsSipApplicationSession
 
 	protected long creationTime;
 
-	protected long expirationTime;
+	// volatile so that the expiration timer, which only reads it when it fires, sees the last access
+	// made by any thread, lastAccessedTime is written before it so it is published along with it
+	protected volatile long expirationTime;
 
 	protected boolean expired;
 
@@ -104,7 +114,9 @@ public class SipApplicationSessionImpl implements MobicentsSipApplicationSession
 
 	protected transient ConcurrentHashMap<String, ServletTimer> servletTimers;
 
-	protected transient AtomicBoolean isValidInternal;
+	// 1 if valid and 0 otherwise, updated through VALID_INTERNAL to avoid an AtomicBoolean per session
+	protected transient volatile int validInternal;
+	private static final AtomicIntegerFieldUpdater<SipApplicationSessionImpl> VALID_INTERNAL = AtomicIntegerFieldUpdater.newUpdater(SipApplicationSessionImpl.class, "validInternal");
 
 	protected transient boolean isValid;
 
@@ -120,6 +132,9 @@ public class SipApplicationSessionImpl implements MobicentsSipApplicationSession
 	protected String currentRequestHandler;
 
 	protected transient Semaphore semaphore;
+	protected transient SessionMailbox mailbox;
+	// when the semaphore was acquired, to measure how long it is held
+	protected transient volatile long semaphoreAcquiredTime;
 
 	protected transient MobicentsSipApplicationSessionFacade facade = null;
 
@@ -127,6 +142,9 @@ public class SipApplicationSessionImpl implements MobicentsSipApplicationSession
 
 	// Does it need to be synchronized?
 	protected Map<String,Object> getAttributeMap() {
+		if(storedAttributes != null) {
+			activateAttributes();
+		}
 		if(sipApplicationSessionAttributeMap == null) {
 			sipApplicationSessionAttributeMap = new ConcurrentHashMap<String,Object>() ;
 		}
@@ -135,18 +153,22 @@ public class SipApplicationSessionImpl implements MobicentsSipApplicationSession
 
 	@SuppressWarnings(value="unchecked")
 	protected SipApplicationSessionImpl(SipApplicationSessionKey key, SipContext sipContext) {
-		sipSessions = new CopyOnWriteArraySet<SipSessionKey>();
+		sipSessions = Collections.emptySet();
 		this.key = key;
 		creationTime = System.currentTimeMillis();
 		expired = false;
 		isValid = true;
-		isValidInternal = new AtomicBoolean(true);
+		validInternal = 1;
 		// the sip context can be null if the AR returned an application that was not deployed
 		if(sipContext != null) {
 			this.sipContext = sipContext;
 			this.currentRequestHandler = sipContext.getServletHandler();
 			if(ConcurrencyControlMode.SipApplicationSession.equals(sipContext.getConcurrencyControlMode())) {
-				semaphore = new Semaphore(1);
+				if(sipContext.getSipApplicationDispatcher().isConcurrencyControlMailbox()) {
+					mailbox = new SessionMailbox();
+				} else {
+					semaphore = new Semaphore(1);
+				}
 			}
 			//scheduling the timer for session expiration
 			final int sipContextTimeout = sipContext.getSipApplicationSessionTimeout();
@@ -209,7 +231,21 @@ public class SipApplicationSessionImpl implements MobicentsSipApplicationSession
 	}
 
 	public boolean addSipSession(MobicentsSipSession mobicentsSipSession) {
-		boolean wasNotPresent = this.sipSessions.add((SipSessionKey)mobicentsSipSession.getKey());
+		boolean wasNotPresent = false;
+		for(;;) {
+			final Set<SipSessionKey> current = sipSessions;
+			if(current == null) {
+				break;
+			}
+			final Set<SipSessionKey> updated = CompactSets.with(current, (SipSessionKey)mobicentsSipSession.getKey());
+			if(updated == current) {
+				break;
+			}
+			if(SIP_SESSIONS.compareAndSet(this, current, updated)) {
+				wasNotPresent = true;
+				break;
+			}
+		}
 		if(logger.isDebugEnabled() && wasNotPresent) {
 			logger.debug("Added sip session " + mobicentsSipSession.getKey() + " to sip app session " + getKey());
 		}
@@ -259,7 +295,21 @@ public class SipApplicationSessionImpl implements MobicentsSipApplicationSession
 			return null;
 		}
 		if(sipSessions != null) {
-			boolean wasPresent = this.sipSessions.remove(key);
+			boolean wasPresent = false;
+			for(;;) {
+				final Set<SipSessionKey> current = sipSessions;
+				if(current == null) {
+					break;
+				}
+				final Set<SipSessionKey> updated = CompactSets.without(current, key);
+				if(updated == current) {
+					break;
+				}
+				if(SIP_SESSIONS.compareAndSet(this, current, updated)) {
+					wasPresent = true;
+					break;
+				}
+			}
 
 			if(logger.isDebugEnabled() && wasPresent) {
 				logger.debug("Removed sip session " + key + " from sip app session " + getKey());
@@ -432,6 +482,8 @@ public class SipApplicationSessionImpl implements MobicentsSipApplicationSession
 		}
 		this.lastAccessedTime = lastAccessTime;
 		//JSR 289 Section 6.3 : starting the sip app session expiry timer anew
+		// the timer is not rescheduled here, it fires at the deadline it was scheduled for,
+		// checks the expiration time and re-arms itself if the session has been accessed in the meantime
 		if(sipApplicationSessionTimeout > 0) {
 			expirationTime = lastAccessedTime + sipApplicationSessionTimeout;
 			if(logger.isDebugEnabled()) {
@@ -628,7 +680,7 @@ public class SipApplicationSessionImpl implements MobicentsSipApplicationSession
 		//When the IllegalStateException is thrown, the application is guaranteed
 		//that the state of the SipApplicationSession object will be unchanged from its state prior to the invalidate()
 		//method call. Even session objects that were eligible for invalidation will not have been invalidated.
-		boolean wasValid = isValidInternal.compareAndSet(true, false);
+		boolean wasValid = VALID_INTERNAL.compareAndSet(this, 1, 0);
 		if(!wasValid) {
 			if(!bypassCheck) {
 				throw new IllegalStateException("SipApplicationSession " + key + " already invalidated !");
@@ -677,6 +729,10 @@ public class SipApplicationSessionImpl implements MobicentsSipApplicationSession
 				}
 			}
 		}
+		// bring back the attributes stored off heap so that their removal is notified to the listeners
+		if(storedAttributes != null) {
+			activateAttributes();
+		}
 		if(this.sipApplicationSessionAttributeMap != null) {
 			for (String key : getAttributeMap().keySet()) {
 				removeAttribute(key, true);
@@ -737,14 +793,16 @@ public class SipApplicationSessionImpl implements MobicentsSipApplicationSession
 		if(sipApplicationSessionAttributeMap != null) {
 			sipApplicationSessionAttributeMap.clear();
 		}
-		if(sipSessions != null) {
-			sipSessions.clear();
-		}
 //		executorService.shutdown();
 //		executorService = null;
 		httpSessions = null;
 		sipSessions = null;
 		sipApplicationSessionAttributeMap = null;
+		final OffHeapSessionStore.StoredAttributes attributesToFree = storedAttributes;
+		if(attributesToFree != null) {
+			storedAttributes = null;
+			attributesToFree.free();
+		}
 		servletTimers = null;
 		if(logger.isInfoEnabled()) {
 			logger.info("The following sip application session " + key + " has been invalidated");
@@ -793,7 +851,7 @@ public class SipApplicationSessionImpl implements MobicentsSipApplicationSession
 	 * @see org.mobicents.servlet.sip.core.session.MobicentsSipApplicationSession#isValidInternal()
 	 */
 	public boolean isValidInternal() {
-		return isValidInternal.get();
+		return validInternal == 1;
 	}
 
 
@@ -801,7 +859,7 @@ public class SipApplicationSessionImpl implements MobicentsSipApplicationSession
 	 * @param isValid the isValid to set
 	 */
 	protected void setValid(boolean isValid) {
-		this.isValidInternal.set(isValid);
+		this.validInternal = isValid ? 1 : 0;
 	}
 
 	/*
@@ -1100,6 +1158,68 @@ public class SipApplicationSessionImpl implements MobicentsSipApplicationSession
 	    }
     }
 
+	/**
+	 * Moves the attributes of this session off heap if it hasn't been accessed for the idle time of the store.
+	 * @param store the store to move the attributes to
+	 * @param now the current time in milliseconds
+	 * @return true if the attributes have been moved off heap
+	 */
+	public boolean passivateAttributes(OffHeapSessionStore store, long now) {
+		if(!isValidInternal() || storedAttributes != null || sipApplicationSessionAttributeMap == null || sipApplicationSessionAttributeMap.isEmpty() ||
+				now - lastAccessedTime < store.getIdleTime()) {
+			return false;
+		}
+		// the attributes are read and written without synchronization, only the session semaphore keeps
+		// the application from using them while they are moved, so the other concurrency control modes never passivate
+		if(semaphore == null || !semaphore.tryAcquire()) {
+			return false;
+		}
+		try {
+			synchronized (this) {
+				if(storedAttributes != null || sipApplicationSessionAttributeMap == null) {
+					return false;
+				}
+				// the listeners are notified before the attributes are serialized so that they can still change them
+				passivate();
+				final OffHeapSessionStore.StoredAttributes attributes = store.store(sipApplicationSessionAttributeMap);
+				if(attributes == null) {
+					// the attributes stay on the heap
+					activate();
+					return false;
+				}
+				storedAttributes = attributes;
+				sipApplicationSessionAttributeMap = null;
+				if(logger.isDebugEnabled()) {
+					logger.debug("attributes of sip application session " + key + " moved off heap");
+				}
+				return true;
+			}
+		} finally {
+			semaphore.release();
+		}
+	}
+
+	/**
+	 * Brings back the attributes of this session on the heap if they have been stored off heap
+	 */
+	protected synchronized void activateAttributes() {
+		final OffHeapSessionStore.StoredAttributes attributes = storedAttributes;
+		if(attributes == null) {
+			return;
+		}
+		try {
+			sipApplicationSessionAttributeMap = attributes.load(sipContext.getSipContextClassLoader());
+		} catch (Exception e) {
+			logger.error("couldn't load back the attributes of sip application session " + key + " from off heap memory, they are lost", e);
+			sipApplicationSessionAttributeMap = new ConcurrentHashMap<String,Object>();
+		}
+		storedAttributes = null;
+		if(logger.isDebugEnabled()) {
+			logger.debug("attributes of sip application session " + key + " moved back on heap");
+		}
+		activate();
+	}
+
 	public boolean getInvalidateWhenReady() {
 		if(!isValid()) {
 			throw new IllegalStateException("SipApplicationSession already invalidated !");
@@ -1368,7 +1488,15 @@ public class SipApplicationSessionImpl implements MobicentsSipApplicationSession
 	 */
 	public void scheduleAsynchronousWork(
 			SipApplicationSessionAsynchronousWork work) {
-		sipContext.getSipApplicationDispatcher().getAsynchronousExecutor().execute(new SipApplicationSessionAsyncTask(key, work, (SipFactoryImpl)sipContext.getSipApplicationDispatcher().getSipFactory()));
+		sipContext.getSipApplicationDispatcher().getAsynchronousWorkExecutor().execute(new SipApplicationSessionAsyncTask(key, work, (SipFactoryImpl)sipContext.getSipApplicationDispatcher().getSipFactory()));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.session.MobicentsSipApplicationSession#getMailbox()
+	 */
+	public Executor getMailbox() {
+		return mailbox;
 	}
 
 	public void acquire() {
@@ -1376,20 +1504,26 @@ public class SipApplicationSessionImpl implements MobicentsSipApplicationSession
 			if(logger.isDebugEnabled()) {
 				logger.debug("Before semaphore acquire for sipApplicationSession=" + this + " semaphore=" + semaphore);
 			}
+			final long acquireStart = System.nanoTime();
+			boolean contended = false;
 			try {
-				while(!semaphore.tryAcquire(30000, TimeUnit.MILLISECONDS)){
-					logger.warn("Failed to acquire session semaphore " +
-							semaphore + " for 30 secs. We will unlock the " +
-							"semaphore no matter what because the " +
-							"transaction is about to timeout. THIS " +
-							"MIGHT ALSO BE CONCURRENCY CONTROL RISK." +
-							" app Session is" + this);
-					if(logger.isDebugEnabled()) {
-						logger.debug("releasing semaphore, this=" + this + ", semaphore=" + semaphore);
-					}
-					semaphore.release();
-					if(logger.isDebugEnabled()) {
-						logger.debug("semaphore released, this=" + this + ", semaphore=" + semaphore);
+				if(!semaphore.tryAcquire()) {
+					contended = true;
+					while(!semaphore.tryAcquire(30000, TimeUnit.MILLISECONDS)){
+						logger.warn("Failed to acquire session semaphore " +
+								semaphore + " for 30 secs. We will unlock the " +
+								"semaphore no matter what because the " +
+								"transaction is about to timeout. THIS " +
+								"MIGHT ALSO BE CONCURRENCY CONTROL RISK." +
+								" app Session is" + this);
+						if(logger.isDebugEnabled()) {
+							logger.debug("releasing semaphore, this=" + this + ", semaphore=" + semaphore);
+						}
+						semaphore.release();
+						if(logger.isDebugEnabled()) {
+							logger.debug("semaphore released, this=" + this + ", semaphore=" + semaphore);
+						}
+						sipContext.getSipApplicationDispatcher().incSessionLockForcedReleases(key.getApplicationName(), key);
 					}
 				}
 
@@ -1399,6 +1533,8 @@ public class SipApplicationSessionImpl implements MobicentsSipApplicationSession
 			} catch (InterruptedException e) {
 				logger.error("Problem acquiring semaphore on app session " + this, e);
 			}
+			semaphoreAcquiredTime = System.nanoTime();
+			sipContext.getSipApplicationDispatcher().updateSessionLockWait(key.getApplicationName(), key, contended ? semaphoreAcquiredTime - acquireStart : 0);
 			if(logger.isDebugEnabled()) {
 				logger.debug("After semaphore acquire for sipApplicationSession=" + this + " semaphore=" + semaphore);
 			}
@@ -1432,6 +1568,12 @@ public class SipApplicationSessionImpl implements MobicentsSipApplicationSession
 				}
 			}
 
+			// the semaphore may be released without having been acquired by the container
+			final long acquiredTime = semaphoreAcquiredTime;
+			if(acquiredTime != 0) {
+				semaphoreAcquiredTime = 0;
+				sipContext.getSipApplicationDispatcher().updateSessionLockHold(key.getApplicationName(), System.nanoTime() - acquiredTime);
+			}
 			semaphore.release();
 			if(logger.isDebugEnabled()) {
 				logger.debug("After Semaphore released for sipApplicationSession=" + this + " semaphore=" + semaphore);
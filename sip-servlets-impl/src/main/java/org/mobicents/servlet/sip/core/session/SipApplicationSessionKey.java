@@ -22,17 +22,26 @@
 
 package org.mobicents.servlet.sip.core.session;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
-import java.util.UUID;
 
 import org.apache.log4j.Logger;
 import org.mobicents.servlet.sip.GenericUtils;
 import org.mobicents.servlet.sip.core.SipApplicationDispatcherImpl;
+import org.mobicents.servlet.sip.utils.IdGenerators;
 
 /**
  * <p>
  * Class representing the key (which will also be its id) for a sip application session.<br/>
- * It is composed of a random UUID and the application Name.
+ * It is composed of a random id and the application Name.
+ * </p>
+ * <p>
+ * As for {@link SipSessionKey}, the application name is the instance shared through {@link ApplicationNameRegistry}
+ * when the application is deployed and a 64 bit hash of all the characters of the id and the application name 
+ * is computed once, the serialized form still holding the application name. 
  * </p>
  * 
  * @author <A HREF="mailto:jean.deruelle@gmail.com">Jean Deruelle</A>
@@ -43,9 +52,17 @@ public final class SipApplicationSessionKey implements Serializable, MobicentsSi
 	private static final long serialVersionUID = 1L;
 	private static final Logger logger = Logger.getLogger(SipApplicationSessionKey.class
 			.getCanonicalName());
-	private final String uuid;
-	private final String appGeneratedKey;
-	private final String applicationName;
+	// keep the serialized form of the previous versions, which held the application name
+	private static final ObjectStreamField[] serialPersistentFields = {
+		new ObjectStreamField("uuid", String.class),
+		new ObjectStreamField("appGeneratedKey", String.class),
+		new ObjectStreamField("applicationName", String.class),
+		new ObjectStreamField("toString", String.class)
+	};
+	private String uuid;
+	private String appGeneratedKey;
+	private transient String applicationName;
+	private transient long hash;
 	private String toString;
 	
 	/**
@@ -55,7 +72,7 @@ public final class SipApplicationSessionKey implements Serializable, MobicentsSi
 	public SipApplicationSessionKey(String id, String applicationName, String appGeneratedKey) {
 		super();
 		this.appGeneratedKey = appGeneratedKey;
-		this.applicationName = applicationName;
+		this.applicationName = ApplicationNameRegistry.canonicalName(applicationName);
 		// "While processing the initial request after selecting the application, the 
 		// container MUST look for this annotated static method within the application. 
 		// If found, the container MUST call the method to get the key and generate an 
@@ -71,17 +88,17 @@ public final class SipApplicationSessionKey implements Serializable, MobicentsSi
 		} else {
 			if(id == null) {
 				// Issue 1551 : SipApplicationSessionKey is not unique
-				String tempUuid = "" + UUID.randomUUID();
 				if(SipApplicationDispatcherImpl.APP_ID_HASHING_MAX_LENGTH > 0) {
-					this.uuid = tempUuid.substring(0, SipApplicationDispatcherImpl.APP_ID_HASHING_MAX_LENGTH);
+					this.uuid = IdGenerators.getIdGenerator().generateId(SipApplicationDispatcherImpl.APP_ID_HASHING_MAX_LENGTH);
 				} else {
-					this.uuid = tempUuid;
+					this.uuid = IdGenerators.getIdGenerator().generateId();
 				}
 			} else {
 				this.uuid = id;
 			}					
 			toString = uuid + SessionManagerUtil.SESSION_KEY_SEPARATOR + applicationName;
 		}
+		hash = computeHash();
 	}
 	/**
 	 * @return the Id
@@ -110,12 +127,11 @@ public final class SipApplicationSessionKey implements Serializable, MobicentsSi
 	 */
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result
-				+ ((applicationName == null) ? 0 : applicationName.hashCode());		
-		result = prime * result + ((uuid == null) ? 0 : uuid.hashCode());	
-		return result;
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	private long computeHash() {
+		return SipSessionKey.hash(getApplicationName(), uuid);
 	}
 	/* (non-Javadoc)
 	 * @see java.lang.Object#equals(java.lang.Object)
@@ -129,11 +145,13 @@ public final class SipApplicationSessionKey implements Serializable, MobicentsSi
 		if (getClass() != obj.getClass())
 			return false;
 		final SipApplicationSessionKey other = (SipApplicationSessionKey) obj;
-		if (applicationName == null) {
-			if (other.applicationName != null)
+		if (hash != other.hash)
+			return false;
+		// the names of the applications deployed are the same instance
+		if (applicationName != other.applicationName) {
+			if (applicationName == null || !applicationName.equals(other.applicationName))
 				return false;
-		} else if (!applicationName.equals(other.applicationName))
-			return false;		
+		}		
 		if (uuid == null) {
 			if (other.uuid != null)
 				return false;
@@ -146,4 +164,22 @@ public final class SipApplicationSessionKey implements Serializable, MobicentsSi
 	public String toString() {
 		return toString;
 	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		final ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("uuid", uuid);
+		fields.put("appGeneratedKey", appGeneratedKey);
+		fields.put("applicationName", getApplicationName());
+		fields.put("toString", toString);
+		out.writeFields();
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		final ObjectInputStream.GetField fields = in.readFields();
+		uuid = (String) fields.get("uuid", null);
+		appGeneratedKey = (String) fields.get("appGeneratedKey", null);
+		applicationName = ApplicationNameRegistry.canonicalName((String) fields.get("applicationName", null));
+		toString = (String) fields.get("toString", null);
+		hash = computeHash();
+	}
 }
@@ -59,24 +59,20 @@ public class SipSessionAsyncTask implements Runnable {
 					key.getApplicationName(), 
 					key.getApplicationSessionId(),
 					null);								
-			MobicentsSipApplicationSession sipApplicationSession = sipManager.getSipApplicationSession(sipApplicationSessionKey, false);
-			MobicentsSipSession sipSession = sipManager.getSipSession(key, false, sipFactoryImpl, sipApplicationSession);	
+			final MobicentsSipApplicationSession sipApplicationSession = sipManager.getSipApplicationSession(sipApplicationSessionKey, false);
+			final MobicentsSipSession sipSession = sipManager.getSipSession(key, false, sipFactoryImpl, sipApplicationSession);	
 					
-			if(sipSession != null) {				
-				boolean batchStarted = false;
-				ClassLoader oldClassLoader = Thread.currentThread().getContextClassLoader();
-				try {
-					sipContext.enterSipContext();	
-					sipContext.enterSipApp(sipApplicationSession, sipSession, false, true);
-					batchStarted = sipContext.enterSipAppHa(true);
-					
-					work.doAsynchronousWork(sipSession);
-				} catch(Throwable t) {
-					logger.error("An unexpected exception happened in the SipSessionAsynchronousWork callback on sip session " + key, t);
-				} finally {
-					sipContext.exitSipAppHa(null, null, batchStarted);
-					sipContext.exitSipApp(sipApplicationSession, sipSession);
-					sipContext.exitSipContext(oldClassLoader);				
+			if(sipSession != null) {
+				// with session mailboxes the work is done once the other tasks of the session are done
+				final SessionMailbox mailbox = SessionMailbox.getMailbox(sipApplicationSession, sipSession);
+				if(mailbox != null) {
+					mailbox.execute(new Runnable() {
+						public void run() {
+							doAsynchronousWork(sipContext, sipApplicationSession, sipSession);
+						}
+					});
+				} else {
+					doAsynchronousWork(sipContext, sipApplicationSession, sipSession);
 				}
 			} else {
 				if(logger.isDebugEnabled()) {
@@ -85,4 +81,22 @@ public class SipSessionAsyncTask implements Runnable {
 			}
 		}
 	}
+
+	private void doAsynchronousWork(final SipContext sipContext, final MobicentsSipApplicationSession sipApplicationSession, final MobicentsSipSession sipSession) {
+		boolean batchStarted = false;
+		ClassLoader oldClassLoader = Thread.currentThread().getContextClassLoader();
+		try {
+			sipContext.enterSipContext();	
+			sipContext.enterSipApp(sipApplicationSession, sipSession, false, true);
+			batchStarted = sipContext.enterSipAppHa(true);
+			
+			work.doAsynchronousWork(sipSession);
+		} catch(Throwable t) {
+			logger.error("An unexpected exception happened in the SipSessionAsynchronousWork callback on sip session " + key, t);
+		} finally {
+			sipContext.exitSipAppHa(null, null, batchStarted);
+			sipContext.exitSipApp(sipApplicationSession, sipSession);
+			sipContext.exitSipContext(oldClassLoader);				
+		}
+	}
 }
@@ -32,6 +32,7 @@ import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -43,9 +44,11 @@ import java.util.Set;
 import java.util.Vector;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
@@ -156,6 +159,8 @@ public class SipSessionImpl implements MobicentsSipSession {
 	protected transient int requestsPending;
 
 	volatile protected Map<String, Object> sipSessionAttributeMap;
+	// attributes moved off heap while the session is dormant, see OffHeapSessionStore
+	volatile protected transient OffHeapSessionStore.StoredAttributes storedAttributes;
 
 	protected transient SipSessionKey key;
 
@@ -199,9 +204,10 @@ public class SipSessionImpl implements MobicentsSipSession {
 	protected State state;
 
 	/**
-	 * Is the session valid.
+	 * Is the session valid, 1 if valid and 0 otherwise, updated through VALID_INTERNAL to avoid an AtomicBoolean per session.
 	 */
-	protected AtomicBoolean isValidInternal;
+	protected volatile int validInternal;
+	private static final AtomicIntegerFieldUpdater<SipSessionImpl> VALID_INTERNAL = AtomicIntegerFieldUpdater.newUpdater(SipSessionImpl.class, "validInternal");
 
 	protected transient boolean isValid;
 
@@ -241,7 +247,10 @@ public class SipSessionImpl implements MobicentsSipSession {
 	// =============================================================
 
 	// TODO : Can be optimized into separate server tx and client tx to speed up some parts of the code
-	protected transient Set<Transaction> ongoingTransactions;
+	// immutable set replaced on every change through ONGOING_TRANSACTIONS, see CompactSets, null once the session is cleaned up
+	protected transient volatile Set<Transaction> ongoingTransactions;
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<SipSessionImpl, Set> ONGOING_TRANSACTIONS = AtomicReferenceFieldUpdater.newUpdater(SipSessionImpl.class, Set.class, "ongoingTransactions");
 
 	volatile protected transient ConcurrentHashMap<String, MobicentsSipSession> derivedSipSessions;
 
@@ -274,10 +283,20 @@ public class SipSessionImpl implements MobicentsSipSession {
 	protected transient boolean copyRecordRouteHeadersOnSubsequentResponses = false;
 
 	protected transient Semaphore semaphore;
+	protected transient SessionMailbox mailbox;
+	// when the semaphore was acquired, to measure how long it is held
+	protected transient volatile long semaphoreAcquiredTime;
+	// the semaphores taken by acquire(), given back by release() which may run in another thread
+	private transient volatile SessionLockGroup acquiredLockGroup;
 
 	protected transient MobicentsSipSessionFacade facade = null;
 
-	protected transient ConcurrentHashMap<Long, Boolean> acksReceived = new ConcurrentHashMap<Long, Boolean>(2);
+	// the ack of a single CSeq is tracked in place, the map is only created when the acks of several CSeqs are awaited at once
+	private static final long NO_ACK_CSEQ = -1;
+	private static final long ACKS_CLEANED_UP = -2;
+	protected transient long ackCSeq = NO_ACK_CSEQ;
+	protected transient boolean ackCSeqReceived;
+	protected transient ConcurrentHashMap<Long, Boolean> acksReceived;
 	// Added for Issue 2173 http://code.google.com/p/mobicents/issues/detail?id=2173
     // Handle Header [Authentication-Info: nextnonce="xyz"] in sip authorization responses
 	protected transient MobicentsSipSessionSecurity sipSessionSecurity;
@@ -308,11 +327,15 @@ public class SipSessionImpl implements MobicentsSipSession {
 		this.sipFactory = sipFactoryImpl;
 		this.creationTime = this.lastAccessedTime = System.currentTimeMillis();
 		this.state = State.INITIAL;
-		this.isValidInternal = new AtomicBoolean(true);
+		this.validInternal = 1;
 		this.isValid = true;
-		this.ongoingTransactions = new CopyOnWriteArraySet<Transaction>();
+		this.ongoingTransactions = Collections.emptySet();
 		if(mobicentsSipApplicationSession.getSipContext() != null && ConcurrencyControlMode.SipSession.equals(mobicentsSipApplicationSession.getSipContext().getConcurrencyControlMode())) {
-			semaphore = new Semaphore(1);
+			if(mobicentsSipApplicationSession.getSipContext().getSipApplicationDispatcher().isConcurrencyControlMailbox()) {
+				mailbox = new SessionMailbox();
+			} else {
+				semaphore = new Semaphore(1);
+			}
 		}
 	}
 	/**
@@ -724,6 +747,9 @@ public class SipSessionImpl implements MobicentsSipSession {
 
 	// Does it need to be synchronized?
 	protected Map<String, Object> getAttributeMap() {
+		if(this.storedAttributes != null) {
+			activateAttributes();
+		}
 		if(this.sipSessionAttributeMap == null) {
 			this.sipSessionAttributeMap = new ConcurrentHashMap<String, Object>();
 		}
@@ -942,7 +968,7 @@ public class SipSessionImpl implements MobicentsSipSession {
 			String msg = String.format("About to invalidate sip session [%s], hasParent [%s], hasDerivedSessions [%s], bypassCheck [%s]", key, parentSession!= null, derivedSipSessions != null, bypassCheck);
 			logger.debug(msg);
 		}
-		boolean wasValid = isValidInternal.compareAndSet(true, false);
+		boolean wasValid = VALID_INTERNAL.compareAndSet(this, 1, 0);
 		if(!wasValid) {
 			if(!bypassCheck) {
 				throw new IllegalStateException("SipSession " + key + " already invalidated !");
@@ -988,6 +1014,10 @@ public class SipSessionImpl implements MobicentsSipSession {
         // FQN Memory Leak in HA mode with PESSIMISTIC locking
         // remove it before the DELETION notification to avoid the sip application session to be destroyed before
         // and leaking in the JBoss Cache
+        // bring back the attributes stored off heap so that their removal is notified to the listeners
+        if(storedAttributes != null) {
+        	activateAttributes();
+        }
         MobicentsSipSession parentSipSession = getParentSession();
         if(parentSipSession == null) {
         	if(derivedSipSessions == null || derivedSipSessions.isEmpty()) {
@@ -1095,14 +1125,12 @@ public class SipSessionImpl implements MobicentsSipSession {
 					}
 				}
 			}
-			ongoingTransactions.clear();
+			ongoingTransactions = Collections.emptySet();
 		}
 		if(subscriptions != null) {
 			subscriptions.clear();
 		}
-		if(acksReceived != null) {
-			acksReceived.clear();
-		}
+		clearAcksReceived();
 		if(sipSessionSecurity != null) {
 			sipSessionSecurity.getCachedAuthInfos().clear();
 		}
@@ -1124,6 +1152,11 @@ public class SipSessionImpl implements MobicentsSipSession {
 		originalMethod = null;
 		outboundInterface = null;
 		sipSessionAttributeMap = null;
+		final OffHeapSessionStore.StoredAttributes attributesToFree = storedAttributes;
+		if(attributesToFree != null) {
+			storedAttributes = null;
+			attributesToFree.free();
+		}
 //		key = null;
 		if(sessionCreatingDialog != null) {
 			cleanDialogInformation(true);
@@ -1170,7 +1203,7 @@ public class SipSessionImpl implements MobicentsSipSession {
 		stateInfo = null;
 		subscriberURI = null;
 		subscriptions = null;
-		acksReceived = null;
+		clearAcksReceived();
 		sipSessionSecurity = null;
 		// don't release or nullify the semaphore, it should be done externally
 		// see Issue http://code.google.com/p/mobicents/issues/detail?id=1294
@@ -1242,14 +1275,14 @@ public class SipSessionImpl implements MobicentsSipSession {
 	 * @see org.mobicents.servlet.sip.core.session.MobicentsSipSession#isValidInternal()
 	 */
 	public boolean isValidInternal() {
-		return isValidInternal.get();
+		return validInternal == 1;
 	}
 
 	/**
 	 * @param isValid the isValid to set
 	 */
 	public void setValid(boolean isValid) {
-		this.isValidInternal.set(isValid);
+		this.validInternal = isValid ? 1 : 0;
 	}
 	/*
 	 * (non-Javadoc)
@@ -1613,7 +1646,21 @@ public class SipSessionImpl implements MobicentsSipSession {
 	public void addOngoingTransaction(Transaction transaction) {
 
 		if(transaction != null && ongoingTransactions != null  && !isReadyToInvalidate() ) {
-			boolean added = this.ongoingTransactions.add(transaction);
+			boolean added = false;
+			for(;;) {
+				final Set<Transaction> current = ongoingTransactions;
+				if(current == null) {
+					break;
+				}
+				final Set<Transaction> updated = CompactSets.with(current, transaction);
+				if(updated == current) {
+					break;
+				}
+				if(ONGOING_TRANSACTIONS.compareAndSet(this, current, updated)) {
+					added = true;
+					break;
+				}
+			}
 			if(added) {
 				if(logger.isDebugEnabled()) {
 					logger.debug("transaction "+ transaction +" has been added to sip session's ongoingTransactions" );
@@ -1628,8 +1675,19 @@ public class SipSessionImpl implements MobicentsSipSession {
 	 */
 	public void removeOngoingTransaction(Transaction transaction) {
 		boolean removed = false;
-		if(this.ongoingTransactions != null) {
-			removed = this.ongoingTransactions.remove(transaction);
+		for(;;) {
+			final Set<Transaction> current = ongoingTransactions;
+			if(current == null) {
+				break;
+			}
+			final Set<Transaction> updated = CompactSets.without(current, transaction);
+			if(updated == current) {
+				break;
+			}
+			if(ONGOING_TRANSACTIONS.compareAndSet(this, current, updated)) {
+				removed = true;
+				break;
+			}
 		}
 
 //		if(sessionCreatingTransactionRequest != null && sessionCreatingTransactionRequest.getMessage() != null && JainSipUtils.DIALOG_CREATING_METHODS.contains(sessionCreatingTransactionRequest.getMethod())) {
@@ -2177,6 +2235,70 @@ public class SipSessionImpl implements MobicentsSipSession {
 	    }
     }
 
+	/**
+	 * Moves the attributes of this session off heap if it hasn't been accessed for the idle time of the store.
+	 * Forked sessions share their attributes with their parent session and are never passivated.
+	 * @param store the store to move the attributes to
+	 * @param now the current time in milliseconds
+	 * @return true if the attributes have been moved off heap
+	 */
+	public boolean passivateAttributes(OffHeapSessionStore store, long now) {
+		if(!isValidInternal() || storedAttributes != null || sipSessionAttributeMap == null || sipSessionAttributeMap.isEmpty() ||
+				parentSession != null || (derivedSipSessions != null && !derivedSipSessions.isEmpty()) ||
+				now - lastAccessedTime < store.getIdleTime()) {
+			return false;
+		}
+		// the attributes are read and written without synchronization, only the session semaphore keeps
+		// the application from using them while they are moved, so the other concurrency control modes never passivate
+		if(semaphore == null || !semaphore.tryAcquire()) {
+			return false;
+		}
+		try {
+			synchronized (this) {
+				if(storedAttributes != null || sipSessionAttributeMap == null) {
+					return false;
+				}
+				// the listeners are notified before the attributes are serialized so that they can still change them
+				passivate();
+				final OffHeapSessionStore.StoredAttributes attributes = store.store(sipSessionAttributeMap);
+				if(attributes == null) {
+					// the attributes stay on the heap
+					activate();
+					return false;
+				}
+				storedAttributes = attributes;
+				sipSessionAttributeMap = null;
+				if(logger.isDebugEnabled()) {
+					logger.debug("attributes of sip session " + key + " moved off heap");
+				}
+				return true;
+			}
+		} finally {
+			semaphore.release();
+		}
+	}
+
+	/**
+	 * Brings back the attributes of this session on the heap if they have been stored off heap
+	 */
+	protected synchronized void activateAttributes() {
+		final OffHeapSessionStore.StoredAttributes attributes = storedAttributes;
+		if(attributes == null) {
+			return;
+		}
+		try {
+			sipSessionAttributeMap = attributes.load(sipApplicationSession.getSipContext().getSipContextClassLoader());
+		} catch (Exception e) {
+			logger.error("couldn't load back the attributes of sip session " + key + " from off heap memory, they are lost", e);
+			sipSessionAttributeMap = new ConcurrentHashMap<String, Object>();
+		}
+		storedAttributes = null;
+		if(logger.isDebugEnabled()) {
+			logger.debug("attributes of sip session " + key + " moved back on heap");
+		}
+		activate();
+	}
+
 	public SipPrincipal getUserPrincipal() {
 		return userPrincipal;
 	}
@@ -2485,6 +2607,14 @@ public class SipSessionImpl implements MobicentsSipSession {
 		return semaphore;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.session.MobicentsSipSession#getMailbox()
+	 */
+	public Executor getMailbox() {
+		return mailbox;
+	}
+
 	public MobicentsSipSessionFacade getFacade() {
 		MobicentsSipApplicationSession sipApplicationSession = getSipApplicationSession();
         if (facade == null && sipApplicationSession != null){
@@ -2548,9 +2678,23 @@ public class SipSessionImpl implements MobicentsSipSession {
 		if(logger.isDebugEnabled()) {
 			logger.debug("setting AckReceived to : " + ackReceived + " for CSeq " + cSeq);
 		}
-		acksReceived.put(cSeq, ackReceived);
-		if(ackReceived) {
-			cleanupAcksReceived(cSeq);
+		synchronized (this) {
+			if(ackCSeq == ACKS_CLEANED_UP) {
+				return;
+			}
+			// a received ack can be overwritten, an unknown CSeq being considered as received
+			if(ackCSeq == NO_ACK_CSEQ || ackCSeq == cSeq || ackCSeqReceived) {
+				ackCSeq = cSeq;
+				ackCSeqReceived = ackReceived;
+			} else {
+				if(acksReceived == null) {
+					acksReceived = new ConcurrentHashMap<Long, Boolean>(2);
+				}
+				acksReceived.put(cSeq, ackReceived);
+			}
+			if(ackReceived) {
+				cleanupAcksReceived(cSeq);
+			}
 		}
 	}
 
@@ -2560,13 +2704,18 @@ public class SipSessionImpl implements MobicentsSipSession {
 	 * @param cSeq CSeq number to check if the ack has already been received
 	 * @return
 	 */
-	protected boolean isAckReceived(long cSeq) {
-		if(acksReceived == null) {
+	protected synchronized boolean isAckReceived(long cSeq) {
+		if(ackCSeq == ACKS_CLEANED_UP) {
 			// http://code.google.com/p/sipservlets/issues/detail?id=152
-			// if there is no map, it means that the session was already destroyed and it is a retransmission
+			// if the acks have been cleaned up, it means that the session was already destroyed and it is a retransmission
 			return true;
 		}
-		Boolean ackReceived = acksReceived.get(cSeq);
+		Boolean ackReceived = null;
+		if(ackCSeq == cSeq) {
+			ackReceived = ackCSeqReceived;
+		} else if(acksReceived != null) {
+			ackReceived = acksReceived.get(cSeq);
+		}
 		if(logger.isDebugEnabled()) {
 			logger.debug("isAckReceived for CSeq " + cSeq +" : " + ackReceived);
 		}
@@ -2582,7 +2731,16 @@ public class SipSessionImpl implements MobicentsSipSession {
 	 * that the ackReceived is true
 	 * @param remoteCSeq remoteCSeq the basis CSeq for cleaning up earlier (lower CSeq) stored ackReceived
 	 */
-	protected void cleanupAcksReceived(long remoteCSeq) {
+	protected synchronized void cleanupAcksReceived(long remoteCSeq) {
+		if(ackCSeq >= 0 && ackCSeqReceived && ackCSeq < remoteCSeq) {
+			if(logger.isDebugEnabled()) {
+				logger.debug("removed ackReceived for CSeq " + ackCSeq);
+			}
+			ackCSeq = NO_ACK_CSEQ;
+		}
+		if(acksReceived == null) {
+			return;
+		}
 		List<Long> toBeRemoved = new ArrayList<Long>();
 		final Iterator<Entry<Long, Boolean>> cSeqs = acksReceived.entrySet().iterator();
 		while (cSeqs.hasNext()) {
@@ -2601,6 +2759,11 @@ public class SipSessionImpl implements MobicentsSipSession {
 		}
 	}
 
+	private synchronized void clearAcksReceived() {
+		ackCSeq = ACKS_CLEANED_UP;
+		acksReceived = null;
+	}
+
 	public long getCseq() {
 		return cseq;
 	}
@@ -2674,7 +2837,7 @@ public class SipSessionImpl implements MobicentsSipSession {
 	 * @see org.mobicents.javax.servlet.sip.SipSessionExt#scheduleAsynchronousWork(org.mobicents.javax.servlet.sip.SipSessionAsynchronousWork)
 	 */
 	public void scheduleAsynchronousWork(SipSessionAsynchronousWork work) {
-		sipFactory.getSipApplicationDispatcher().getAsynchronousExecutor().execute(new SipSessionAsyncTask(key, work, sipFactory));
+		sipFactory.getSipApplicationDispatcher().getAsynchronousWorkExecutor().execute(new SipSessionAsyncTask(key, work, sipFactory));
 	}
 	public int getRequestsPending() {
 		return requestsPending;
@@ -2722,19 +2885,14 @@ public class SipSessionImpl implements MobicentsSipSession {
 			if(logger.isDebugEnabled()) {
 				logger.debug("Before semaphore acquire for sipSession=" + this + " semaphore=" + semaphore);
 			}
-			try {
-				while(!semaphore.tryAcquire(30000, TimeUnit.MILLISECONDS)){
-					logger.warn("Failed to acquire session semaphore " +
-							semaphore + " for 30 secs. We will unlock the " +
-							"semaphore no matter what because the " +
-							"transaction is about to timeout. THIS " +
-							"MIGHT ALSO BE CONCURRENCY CONTROL RISK." +
-							" sip Session is" + this);
-					semaphore.release();
-				}
-			} catch (InterruptedException e) {
-				logger.error("Problem acquiring semaphore on sip session " + this, e);
-			}
+			final long acquireStart = System.nanoTime();
+			// B2BUA linked sessions are locked together in a global order so that
+			// two threads entering the application on each leg can't wait on each other
+			final SessionLockGroup lockGroup = getLockGroup();
+			final boolean contended = lockGroup == null ? acquireSemaphore(semaphore) : lockGroup.acquire(new SemaphoreLocker());
+			semaphoreAcquiredTime = System.nanoTime();
+			acquiredLockGroup = lockGroup;
+			sipFactory.getSipApplicationDispatcher().updateSessionLockWait(key.getApplicationName(), key, contended ? System.nanoTime() - acquireStart : 0);
 			if(logger.isDebugEnabled()) {
 				logger.debug("After semaphore acquire for sipSession=" + this + " semaphore=" + semaphore);
 			}
@@ -2746,33 +2904,108 @@ public class SipSessionImpl implements MobicentsSipSession {
 			if(logger.isDebugEnabled()) {
 				logger.debug("Before Semaphore released for sipSession=" + this + " semaphore=" + semaphore);
 			}
-			//equalize the semaphore permits to the expected number for binary semaphore
-			if(semaphore.availablePermits()>0) {
-				logger.warn("About to release semaphore but we expected permits = 0. We will adjust to normal "
-						+ semaphore + " sip session=" + this);
-				while(semaphore.availablePermits()>0) {
-					try {
-						semaphore.acquire();
-					} catch (Exception e) {
-					}
-				}
+			// the group is the one taken by acquire(), even if the sessions have been linked or unlinked since
+			final SessionLockGroup lockGroup = acquiredLockGroup;
+			acquiredLockGroup = null;
+			updateSessionLockHold();
+			if(lockGroup == null) {
+				releaseSemaphore(semaphore);
+			} else {
+				lockGroup.release(new SemaphoreLocker());
 			}
-			if(semaphore.availablePermits()<0) {
-				logger.warn("About to release semaphore but we expected permits = 0. We will adjust to normal "
-						+ semaphore + " sip session=" + this);
-				while(semaphore.availablePermits()<0) {
-					try {
-						semaphore.release();
-					} catch (Exception e) {
-					}
+			if(logger.isDebugEnabled()) {
+				logger.debug("After Semaphore released for sipSession=" + this + " semaphore=" + semaphore);
+			}
+		}
+	}
+
+	/**
+	 * Returns our semaphore and the one of the linked session sorted in the global lock order,
+	 * or null if only our semaphore needs to be taken
+	 */
+	private SessionLockGroup getLockGroup() {
+		SipSessionImpl linkedSession = null;
+		final B2buaHelperImpl b2buaHelper = getB2buaHelper();
+		if(b2buaHelper != null) {
+			final MobicentsSipSession session = b2buaHelper.lookupLinkedSession(this);
+			if(session instanceof SipSessionImpl) {
+				linkedSession = (SipSessionImpl) session;
+			}
+		}
+		if(linkedSession == null || linkedSession.semaphore == null || linkedSession.semaphore == semaphore) {
+			return null;
+		}
+		return SessionLockGroup.of(semaphore, getId(), linkedSession.semaphore, linkedSession.getId());
+	}
+
+	private final class SemaphoreLocker implements SessionLockGroup.Locker {
+		public boolean lock(Semaphore lock) {
+			return acquireSemaphore(lock);
+		}
+
+		public void unlock(Semaphore lock) {
+			releaseSemaphore(lock);
+		}
+	}
+
+	/**
+	 * Acquire the given session semaphore, forcing it open if it couldn't be taken for 30 secs
+	 * @return true if the semaphore was contended
+	 */
+	private boolean acquireSemaphore(final Semaphore lock) {
+		boolean contended = false;
+		try {
+			if(!lock.tryAcquire()) {
+				contended = true;
+				while(!lock.tryAcquire(30000, TimeUnit.MILLISECONDS)){
+					logger.warn("Failed to acquire session semaphore " +
+							lock + " for 30 secs. We will unlock the " +
+							"semaphore no matter what because the " +
+							"transaction is about to timeout. THIS " +
+							"MIGHT ALSO BE CONCURRENCY CONTROL RISK." +
+							" sip Session is" + this);
+					lock.release();
+					sipFactory.getSipApplicationDispatcher().incSessionLockForcedReleases(key.getApplicationName(), key);
 				}
 			}
+		} catch (InterruptedException e) {
+			logger.error("Problem acquiring semaphore on sip session " + this, e);
+		}
+		return contended;
+	}
 
-			semaphore.release();
-			if(logger.isDebugEnabled()) {
-				logger.debug("After Semaphore released for sipSession=" + this + " semaphore=" + semaphore);
+	private void releaseSemaphore(final Semaphore lock) {
+		//equalize the semaphore permits to the expected number for binary semaphore
+		if(lock.availablePermits()>0) {
+			logger.warn("About to release semaphore but we expected permits = 0. We will adjust to normal "
+					+ lock + " sip session=" + this);
+			while(lock.availablePermits()>0) {
+				try {
+					lock.acquire();
+				} catch (Exception e) {
+				}
 			}
 		}
+		if(lock.availablePermits()<0) {
+			logger.warn("About to release semaphore but we expected permits = 0. We will adjust to normal "
+					+ lock + " sip session=" + this);
+			while(lock.availablePermits()<0) {
+				try {
+					lock.release();
+				} catch (Exception e) {
+				}
+			}
+		}
+		lock.release();
+	}
+
+	private void updateSessionLockHold() {
+		// the semaphore may be released without having been acquired by the container
+		final long acquiredTime = semaphoreAcquiredTime;
+		if(acquiredTime != 0) {
+			semaphoreAcquiredTime = 0;
+			sipFactory.getSipApplicationDispatcher().updateSessionLockHold(key.getApplicationName(), System.nanoTime() - acquiredTime);
+		}
 	}
 
 	/*
@@ -22,6 +22,10 @@
 
 package org.mobicents.servlet.sip.core.session;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 
 /**
@@ -34,19 +38,37 @@ import java.io.Serializable;
  * It is to be noted that the To Header parameter Tag will not be used in SipSessionKey comparison (equals() and hashcode() methods).<br/>
  * It will only be used to check if a new derived sip session needs to be created.
  * </p>
+ * <p>
+ * The application name is the instance shared through {@link ApplicationNameRegistry} when the application is deployed
+ * and a 64 bit FNV-1a hash of all the characters of the compared components is computed once, so that map lookups 
+ * only compare the strings of keys having the same hash. The hash is the same for equal keys on every node. 
+ * The serialized form is unchanged, it still holds the application name.
+ * </p>
  * 
  * @author <A HREF="mailto:jean.deruelle@gmail.com">Jean Deruelle</A>
  *
  */
 public final class SipSessionKey implements MobicentsSipSessionKey, Serializable {
 	private static final long serialVersionUID = 1L;
-	private final String fromTag;
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+	// keep the serialized form of the previous versions, which held the application name
+	private static final ObjectStreamField[] serialPersistentFields = {
+		new ObjectStreamField("fromTag", String.class),
+		new ObjectStreamField("toTag", String.class),
+		new ObjectStreamField("callId", String.class),
+		new ObjectStreamField("applicationName", String.class),
+		new ObjectStreamField("applicationSessionId", String.class),
+		new ObjectStreamField("toString", String.class)
+	};
+	private String fromTag;
 	private String toTag;
-	private final String callId; 
-	private final String applicationName;
+	private String callId; 
+	private transient String applicationName;
 	// Issue 790 : 1 SipSession should not be used in 2 different app session (http://code.google.com/p/mobicents/issues/detail?id=790)
 	// so we add the app session id in the key as well
-	private final String applicationSessionId;
+	private String applicationSessionId;
+	private transient long hash;
 	private String toString;
 	/**
 	 * @param fromAddress
@@ -58,14 +80,27 @@ public final class SipSessionKey implements MobicentsSipSessionKey, Serializable
 	 * @param applicationName
 	 */
 	public SipSessionKey(String fromTag, String toTag, String callId, String applicationSessionId, String applicationName) {
+		this(fromTag, toTag, callId, applicationSessionId, applicationName, null);
+	}
+
+	/**
+	 * Creates a key whose id is already known, to avoid recomputing it when parsing a session id
+	 * @param toString the id of the key, computed from the other parameters if null
+	 */
+	SipSessionKey(String fromTag, String toTag, String callId, String applicationSessionId, String applicationName, String toString) {
 		super();
 		this.fromTag = fromTag;
 		this.toTag = toTag;
 		this.callId = callId;
-		this.applicationName = applicationName;
+		this.applicationName = ApplicationNameRegistry.canonicalName(applicationName);
 		this.applicationSessionId = applicationSessionId;
+		this.hash = computeHash();
 		
-		computeToString();		
+		if(toString == null) {
+			computeToString();
+		} else {
+			this.toString = toString;
+		}
 	}
 	/**
 	 * @return the fromTag
@@ -97,20 +132,49 @@ public final class SipSessionKey implements MobicentsSipSessionKey, Serializable
 	public String getApplicationName() {
 		return applicationName;
 	}
+	/**
+	 * @return the 64 bit hash of the components used in the key comparison
+	 */
+	public long getHash() {
+		return hash;
+	}
+
+	private long computeHash() {
+		// the to tag is not part of the hash since it is not used in the comparison
+		return hash(getApplicationName(), applicationSessionId, callId, fromTag);
+	}
+
+	/**
+	 * Mixes every character of the value in a FNV-1a 64 bit hash. The length is mixed first 
+	 * so that the same characters split differently among the components don't give the same hash.
+	 * @param hash the hash of the previous components, {@link #FNV_OFFSET_BASIS} for the first one
+	 * @param value the component, can be null
+	 */
+	static long hash(long hash, String value) {
+		if(value == null) {
+			return (hash ^ -1L) * FNV_PRIME;
+		}
+		final int length = value.length();
+		hash = (hash ^ length) * FNV_PRIME;
+		for (int i = 0; i < length; i++) {
+			hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+		}
+		return hash;
+	}
+
+	static long hash(String... values) {
+		long result = FNV_OFFSET_BASIS;
+		for (String value : values) {
+			result = hash(result, value);
+		}
+		return result;
+	}
 	/* (non-Javadoc)
 	 * @see java.lang.Object#hashCode()
 	 */
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result
-				+ ((applicationName == null) ? 0 : applicationName.hashCode());
-		result = prime * result
-				+ ((applicationSessionId == null) ? 0 : applicationSessionId.hashCode());
-		result = prime * result + ((callId == null) ? 0 : callId.hashCode());
-		result = prime * result + ((fromTag == null) ? 0 : fromTag.hashCode());
-		return result;
+		return (int) (hash ^ (hash >>> 32));
 	}
 	/* (non-Javadoc)
 	 * @see java.lang.Object#equals(java.lang.Object)
@@ -124,11 +188,13 @@ public final class SipSessionKey implements MobicentsSipSessionKey, Serializable
 		if (getClass() != obj.getClass())
 			return false;
 		final SipSessionKey other = (SipSessionKey) obj;
-		if (applicationName == null) {
-			if (other.applicationName != null)
-				return false;
-		} else if (!applicationName.equals(other.applicationName))
+		if (hash != other.hash)
 			return false;
+		// the names of the applications deployed are the same instance
+		if (applicationName != other.applicationName) {
+			if (applicationName == null || !applicationName.equals(other.applicationName))
+				return false;
+		}
 		if (applicationSessionId == null) {
 			if (other.applicationSessionId != null)
 				return false;
@@ -180,10 +246,32 @@ public final class SipSessionKey implements MobicentsSipSessionKey, Serializable
 	public void computeToString() {
 		if(toTag != null) {
 			// Issue 2365 : to tag needed for getApplicationSession().getSipSession(<sessionId>) to return forked session and not the parent one
-			toString = "(" + fromTag + SessionManagerUtil.SESSION_KEY_SEPARATOR + toTag + SessionManagerUtil.SESSION_KEY_SEPARATOR + callId + SessionManagerUtil.SESSION_KEY_SEPARATOR + applicationSessionId +SessionManagerUtil.SESSION_KEY_SEPARATOR + applicationName + ")";
+			toString = "(" + fromTag + SessionManagerUtil.SESSION_KEY_SEPARATOR + toTag + SessionManagerUtil.SESSION_KEY_SEPARATOR + callId + SessionManagerUtil.SESSION_KEY_SEPARATOR + applicationSessionId +SessionManagerUtil.SESSION_KEY_SEPARATOR + getApplicationName() + ")";
 		} else {
-			toString = "(" + fromTag + SessionManagerUtil.SESSION_KEY_SEPARATOR + callId + SessionManagerUtil.SESSION_KEY_SEPARATOR + applicationSessionId +SessionManagerUtil.SESSION_KEY_SEPARATOR + applicationName + ")";
+			toString = "(" + fromTag + SessionManagerUtil.SESSION_KEY_SEPARATOR + callId + SessionManagerUtil.SESSION_KEY_SEPARATOR + applicationSessionId +SessionManagerUtil.SESSION_KEY_SEPARATOR + getApplicationName() + ")";
 		}
 	}	
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		final ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("fromTag", fromTag);
+		fields.put("toTag", toTag);
+		fields.put("callId", callId);
+		fields.put("applicationName", getApplicationName());
+		fields.put("applicationSessionId", applicationSessionId);
+		fields.put("toString", toString);
+		out.writeFields();
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		final ObjectInputStream.GetField fields = in.readFields();
+		fromTag = (String) fields.get("fromTag", null);
+		toTag = (String) fields.get("toTag", null);
+		callId = (String) fields.get("callId", null);
+		applicationName = ApplicationNameRegistry.canonicalName((String) fields.get("applicationName", null));
+		applicationSessionId = (String) fields.get("applicationSessionId", null);
+		toString = (String) fields.get("toString", null);
+		hash = computeHash();
+	}
 	
 }
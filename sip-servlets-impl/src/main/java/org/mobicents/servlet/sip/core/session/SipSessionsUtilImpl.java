@@ -246,7 +246,7 @@ public class SipSessionsUtilImpl implements MobicentsSipSessionsUtil, Serializab
 			throw new IllegalArgumentException("the given application session id : " + sipSessionId + 
 					" couldn't be parsed correctly ",e);
 		}
-		sipContext.getSipApplicationDispatcher().getAsynchronousExecutor().execute(new SipSessionAsyncTask(sipSessionKey, work, sipContext.getSipApplicationDispatcher().getSipFactory()));
+		sipContext.getSipApplicationDispatcher().getAsynchronousWorkExecutor().execute(new SipSessionAsyncTask(sipSessionKey, work, sipContext.getSipApplicationDispatcher().getSipFactory()));
 	}
 
 	@Override
@@ -259,6 +259,6 @@ public class SipSessionsUtilImpl implements MobicentsSipSessionsUtil, Serializab
 			throw new IllegalArgumentException("the given application session id : " + sipApplicationSessionId + 
 					" couldn't be parsed correctly ",e);
 		}
-		sipContext.getSipApplicationDispatcher().getAsynchronousExecutor().execute(new SipApplicationSessionAsyncTask(applicationSessionKey, work, sipContext.getSipApplicationDispatcher().getSipFactory()));
+		sipContext.getSipApplicationDispatcher().getAsynchronousWorkExecutor().execute(new SipApplicationSessionAsyncTask(applicationSessionKey, work, sipContext.getSipApplicationDispatcher().getSipFactory()));
 	}
 }
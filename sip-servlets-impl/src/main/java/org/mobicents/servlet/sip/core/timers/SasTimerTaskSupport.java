@@ -0,0 +1,116 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.core.timers;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.mobicents.servlet.sip.core.SipContext;
+import org.mobicents.servlet.sip.core.session.MobicentsSipApplicationSession;
+import org.mobicents.servlet.sip.core.session.SessionMailbox;
+import org.mobicents.servlet.sip.core.session.SipApplicationSessionEventType;
+
+/**
+ * Expiration logic shared by the sip application session timer tasks of the default and timing wheel timer services.
+ */
+final class SasTimerTaskSupport {
+
+	private static final Logger logger = Logger.getLogger(SasTimerTaskSupport.class);
+
+	private SasTimerTaskSupport() {}
+
+	/**
+	 * Expires the session of the task, or reschedules the same task if the session has been accessed since it was scheduled
+	 */
+	static void run(SipApplicationSessionTimerTask task) {
+		try {
+			final MobicentsSipApplicationSession sipApplicationSession = task.getSipApplicationSession();
+			if(logger.isDebugEnabled()) {
+				logger.debug("initial kick off of SipApplicationSessionTimerTask running for sip application session " + sipApplicationSession.getId());
+			}
+
+			long sleep = task.getDelay();
+			if(sleep > 0) {
+				// if the session has been accessed since we started it, put it to sleep
+				if(logger.isDebugEnabled()) {
+					logger.debug("expirationTime is " + sipApplicationSession.getExpirationTimeInternal() + 
+							", now is " + System.currentTimeMillis() + 
+							" sleeping for " + sleep / 1000L + " seconds");
+				}
+				// re-arm this same task rather than allocating a new one every time the session outlives its timer
+				sipApplicationSession.getSipContext().getSipApplicationSessionTimerService().schedule(task, sleep, TimeUnit.MILLISECONDS);
+			} else {
+				tryToExpire(task);
+			}
+		} catch (Throwable t) {
+			logger.error("Timer problem", t);
+		}
+	}
+
+	private static void tryToExpire(final SipApplicationSessionTimerTask task) {
+		// with session mailboxes the session expires once the other tasks of the session are done
+		final SessionMailbox mailbox = SessionMailbox.getMailbox(task.getSipApplicationSession(), null);
+		if(mailbox != null) {
+			mailbox.execute(new Runnable() {
+				public void run() {
+					expire(task);
+				}
+			});
+		} else {
+			expire(task);
+		}
+	}
+
+	private static void expire(SipApplicationSessionTimerTask task) {
+		final MobicentsSipApplicationSession sipApplicationSession = task.getSipApplicationSession();
+		final SipContext sipContext = sipApplicationSession.getSipContext();
+		sipContext.enterSipApp(sipApplicationSession, null, false, true);
+		boolean batchStarted = sipContext.enterSipAppHa(true);
+		try {
+			sipApplicationSession.setExpirationTimerTask(null);
+			sipApplicationSession.notifySipApplicationSessionListeners(SipApplicationSessionEventType.EXPIRATION);
+			//It is possible that the application grant an extension to the lifetime of the session, thus the sip application
+			//should not be treated as expired.
+			if(task.getDelay() <= 0) {
+				sipApplicationSession.setExpired(true);
+				if(sipApplicationSession.isValidInternal()) {			
+					sipApplicationSession.invalidate(true);				
+				}
+			} else {
+				// Issue 1773 : http://code.google.com/p/mobicents/issues/detail?id=1773 
+				// the session is not rescheduled here because of JSR 289, Section 6.1.2 SipApplicationSession Lifetime :
+				// "Servlets can register for application session timeout notifications using the SipApplicationSessionListener interface. 
+				// In the sessionExpired() callback method, the application may request an extension of the application session lifetime 
+				// by invoking setExpires() on the timed out SipApplicationSession giving as an argument the number of minutes until the session expires again"
+				// Even sending a message out will not start the expiration timer anew indirectly otherwise it makes some TCK tests fail
+				if(logger.isDebugEnabled()) {
+					if(sipApplicationSession.getExpirationTimerTask() != null) {
+						logger.debug("expiration timer task is non null so the application has extended the session lifetime directly through setExpires");
+					}
+				}
+			}
+		} finally {							
+			sipContext.exitSipAppHa(null, null, batchStarted);
+			sipContext.exitSipApp(sipApplicationSession, null);
+			task.setSipApplicationSession(null);
+		}
+	}
+}
@@ -20,7 +20,6 @@
 package org.mobicents.servlet.sip.core.timers;
 
 import java.io.Serializable;
-import java.util.UUID;
 import java.util.concurrent.ScheduledFuture;
 
 import javax.servlet.sip.TimerListener;
@@ -30,6 +29,8 @@ import org.mobicents.servlet.sip.core.SipContext;
 import org.mobicents.servlet.sip.core.SipManager;
 import org.mobicents.servlet.sip.core.session.MobicentsSipApplicationSession;
 import org.mobicents.servlet.sip.core.session.MobicentsSipApplicationSessionKey;
+import org.mobicents.servlet.sip.core.session.SessionMailbox;
+import org.mobicents.servlet.sip.utils.IdGenerators;
 
 public class ServletTimerImpl implements MobicentsServletTimer, Runnable {
 	private static final Logger logger = Logger.getLogger(ServletTimerImpl.class);
@@ -165,7 +166,7 @@ public class ServletTimerImpl implements MobicentsServletTimer, Runnable {
 	public ServletTimerImpl(Serializable info, long delay, boolean fixedDelay,
 			long period, TimerListener listener,
 			MobicentsSipApplicationSession appSession) {
-            this(info, UUID.randomUUID().toString(), delay, fixedDelay, period, listener, appSession);
+            this(info, IdGenerators.getIdGenerator().generateId(), delay, fixedDelay, period, listener, appSession);
 	}
         
         /**
@@ -320,8 +321,21 @@ public class ServletTimerImpl implements MobicentsServletTimer, Runnable {
 	 * Method that actually
 	 */
 	public void run() {
-
 		final MobicentsSipApplicationSession sipApplicationSession = getApplicationSession();
+		// with session mailboxes the timer fires once the other tasks of the session are done
+		final SessionMailbox mailbox = SessionMailbox.getMailbox(sipApplicationSession, null);
+		if(mailbox != null) {
+			mailbox.execute(new Runnable() {
+				public void run() {
+					fire(sipApplicationSession);
+				}
+			});
+		} else {
+			fire(sipApplicationSession);
+		}
+	}
+
+	private void fire(final MobicentsSipApplicationSession sipApplicationSession) {
 		SipContext sipContext = sipApplicationSession.getSipContext();
 		
 		if(logger.isDebugEnabled()) {
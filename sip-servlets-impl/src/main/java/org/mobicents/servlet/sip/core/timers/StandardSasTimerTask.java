@@ -28,6 +28,7 @@ import java.util.concurrent.TimeUnit;
 import org.apache.log4j.Logger;
 import org.mobicents.servlet.sip.core.SipContext;
 import org.mobicents.servlet.sip.core.session.MobicentsSipApplicationSession;
+import org.mobicents.servlet.sip.core.session.SessionMailbox;
 import org.mobicents.servlet.sip.core.session.SipApplicationSessionEventType;
 
 /**
@@ -75,6 +76,20 @@ public class StandardSasTimerTask extends TimerTask implements SipApplicationSes
 	}
 
 	private void tryToExpire() {
+		// with session mailboxes the session expires once the other tasks of the session are done
+		final SessionMailbox mailbox = SessionMailbox.getMailbox(getSipApplicationSession(), null);
+		if(mailbox != null) {
+			mailbox.execute(new Runnable() {
+				public void run() {
+					expire();
+				}
+			});
+		} else {
+			expire();
+		}
+	}
+
+	private void expire() {
 		final SipContext sipContext = getSipApplicationSession().getSipContext();
 		sipContext.enterSipApp(getSipApplicationSession(), null, false, true);
 		boolean batchStarted = sipContext.enterSipAppHa(true);
@@ -0,0 +1,228 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.core.timers;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Hashed timing wheel holding the expiration timers of an application.
+ * The wheel is an array of buckets each covering one tick, an entry lands in the bucket of its deadline tick
+ * and counts the remaining rounds of the wheel it has to wait for when its deadline is further than a full
+ * revolution. Entries are the timer tasks themselves, linked in their bucket through their own fields, so
+ * scheduling and cancelling are O(1) and allocate nothing, and cancelled timers are unlinked right away
+ * instead of staying in a queue until a purge.
+ */
+final class TimingWheel {
+
+	private static final Logger logger = Logger.getLogger(TimingWheel.class);
+
+	static final int IDLE = 0;
+	static final int SCHEDULED = 1;
+	static final int EXPIRING = 2;
+
+	/**
+	 * Timer task that can be scheduled on a timing wheel.
+	 * All the fields are guarded by the wheel the entry is scheduled on.
+	 */
+	abstract static class Entry implements Runnable {
+		Entry prev;
+		Entry next;
+		Entry nextExpired;
+		int bucket = -1;
+		long remainingRounds;
+		int state = IDLE;
+	}
+
+	private final long tickDuration;
+	private final int mask;
+	private final Entry[] buckets;
+	private final long startTime;
+	// last tick processed by the wheel
+	private long currentTick;
+	private int size;
+
+	TimingWheel(long tickDuration, int wheelSize, long startTime) {
+		if(tickDuration <= 0) {
+			throw new IllegalArgumentException("tick duration must be positive: " + tickDuration);
+		}
+		if(wheelSize <= 0 || (wheelSize & (wheelSize - 1)) != 0) {
+			throw new IllegalArgumentException("wheel size must be a power of two: " + wheelSize);
+		}
+		this.tickDuration = tickDuration;
+		this.mask = wheelSize - 1;
+		this.buckets = new Entry[wheelSize];
+		this.startTime = startTime;
+	}
+
+	/**
+	 * Schedules the entry to run once delay milliseconds have elapsed from now, rescheduling it if it was pending already
+	 */
+	synchronized void schedule(Entry entry, long delay, long now) {
+		if(entry.state == SCHEDULED) {
+			unlink(entry);
+		}
+		long deadlineTick = (now + Math.max(delay, 0L) - startTime + tickDuration - 1) / tickDuration;
+		if(deadlineTick <= currentTick) {
+			deadlineTick = currentTick + 1;
+		}
+		final int bucket = (int) (deadlineTick & mask);
+		entry.remainingRounds = (deadlineTick - currentTick - 1) / buckets.length;
+		entry.bucket = bucket;
+		entry.prev = null;
+		entry.next = buckets[bucket];
+		if(entry.next != null) {
+			entry.next.prev = entry;
+		}
+		buckets[bucket] = entry;
+		entry.state = SCHEDULED;
+		size++;
+	}
+
+	/**
+	 * Cancels the entry, returns false if it wasn't pending
+	 */
+	synchronized boolean cancel(Entry entry) {
+		if(entry.state == SCHEDULED) {
+			unlink(entry);
+			entry.state = IDLE;
+			return true;
+		}
+		if(entry.state == EXPIRING) {
+			// collected by the current tick but not run yet
+			entry.state = IDLE;
+			return true;
+		}
+		return false;
+	}
+
+	synchronized boolean isScheduled(Entry entry) {
+		return entry.state == SCHEDULED;
+	}
+
+	synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Moves the wheel up to now and runs the entries whose deadline has passed in the calling thread, 
+	 * outside of the wheel lock so that they can reschedule themselves or others.
+	 * @return the number of entries that have been run
+	 */
+	int expire(long now) {
+		return expire(now, null);
+	}
+
+	/**
+	 * Moves the wheel up to now and hands the entries whose deadline has passed off to the executor, 
+	 * so that the thread moving the wheel is never held by a slow entry. 
+	 * An entry cancelled or rescheduled before the executor runs it is skipped.
+	 * @param executor the executor to run the entries, null to run them in the calling thread
+	 * @return the number of entries run or handed off
+	 */
+	int expire(long now, Executor executor) {
+		Entry expired = collectExpired(now);
+		int count = 0;
+		while(expired != null) {
+			final Entry entry = expired;
+			expired = entry.nextExpired;
+			synchronized (this) {
+				entry.nextExpired = null;
+			}
+			if(executor == null) {
+				if(runExpired(entry)) {
+					count++;
+				}
+			} else {
+				try {
+					executor.execute(new Runnable() {
+						public void run() {
+							runExpired(entry);
+						}
+					});
+					count++;
+				} catch (RejectedExecutionException e) {
+					logger.error("couldn't hand off the expired timer " + entry, e);
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Runs the entry if it is still expiring
+	 * @return true if it has been run
+	 */
+	private boolean runExpired(Entry entry) {
+		synchronized (this) {
+			if(entry.state != EXPIRING) {
+				return false;
+			}
+			entry.state = IDLE;
+		}
+		try {
+			entry.run();
+		} catch (Throwable t) {
+			logger.error("Timer problem", t);
+		}
+		return true;
+	}
+
+	private synchronized Entry collectExpired(long now) {
+		final long targetTick = (now - startTime) / tickDuration;
+		Entry expired = null;
+		while(currentTick < targetTick) {
+			currentTick++;
+			final int bucket = (int) (currentTick & mask);
+			Entry entry = buckets[bucket];
+			while(entry != null) {
+				final Entry next = entry.next;
+				if(entry.remainingRounds <= 0) {
+					unlink(entry);
+					entry.state = EXPIRING;
+					entry.nextExpired = expired;
+					expired = entry;
+				} else {
+					entry.remainingRounds--;
+				}
+				entry = next;
+			}
+		}
+		return expired;
+	}
+
+	private void unlink(Entry entry) {
+		if(entry.prev != null) {
+			entry.prev.next = entry.next;
+		} else {
+			buckets[entry.bucket] = entry.next;
+		}
+		if(entry.next != null) {
+			entry.next.prev = entry.prev;
+		}
+		entry.prev = null;
+		entry.next = null;
+		entry.bucket = -1;
+		size--;
+	}
+}
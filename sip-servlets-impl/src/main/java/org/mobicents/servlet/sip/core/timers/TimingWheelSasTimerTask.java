@@ -0,0 +1,69 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.core.timers;
+
+import org.apache.log4j.Logger;
+import org.mobicents.servlet.sip.core.session.MobicentsSipApplicationSession;
+
+/**
+ * Timer task that will notify the listeners that the sip application session has expired.
+ * It is the entry of the timing wheel itself and reschedules itself when the session
+ * has been accessed since it was scheduled, so that a session allocates a single timer task
+ * for its whole lifetime.
+ */
+public class TimingWheelSasTimerTask extends TimingWheel.Entry implements SipApplicationSessionTimerTask {
+	
+	private static final Logger logger = Logger.getLogger(TimingWheelSasTimerTask.class);
+	
+	private MobicentsSipApplicationSession sipApplicationSession;
+	
+	public TimingWheelSasTimerTask(MobicentsSipApplicationSession mobicentsSipApplicationSession) {
+		this.sipApplicationSession = mobicentsSipApplicationSession;
+	}
+	
+	public void run() {
+		SasTimerTaskSupport.run(this);
+	}
+
+	public long getDelay() {
+		if(sipApplicationSession != null) {
+			return sipApplicationSession.getExpirationTimeInternal() - System.currentTimeMillis();
+		}
+		if(logger.isDebugEnabled()) {
+			logger.debug("sipapplicationsession has been nullified, return -1");
+		}
+		return -1;
+	}
+
+	/**
+	 * @param sipApplicationSession the sipApplicationSession to set
+	 */
+	public void setSipApplicationSession(MobicentsSipApplicationSession sipApplicationSession) {
+		this.sipApplicationSession = sipApplicationSession;
+	}
+
+	/**
+	 * @return the sipApplicationSession
+	 */
+	public MobicentsSipApplicationSession getSipApplicationSession() {
+		return sipApplicationSession;
+	}
+} 
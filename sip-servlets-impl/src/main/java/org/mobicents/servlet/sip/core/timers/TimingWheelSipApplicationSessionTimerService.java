@@ -0,0 +1,128 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.core.timers;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
+import org.mobicents.servlet.sip.core.session.MobicentsSipApplicationSession;
+import org.mobicents.servlet.sip.utils.NamingThreadFactory;
+
+/**
+ * Sip application session timer service backed by a hashed timing wheel, selected by setting
+ * sasTimerServiceImplementationType to "TimingWheel".
+ * Scheduling and cancelling an expiration are O(1) and don't allocate, cancelled expirations are removed
+ * right away so no purge is needed, and a single thread ticks the wheel every second.
+ * The expirations are run by a pool of threads of the same size as the default service, 
+ * since expiring a session waits for its lock and runs the application listeners.
+ * Sip application session lifetimes are in minutes so a one second resolution is plenty.
+ */
+public class TimingWheelSipApplicationSessionTimerService implements SipApplicationSessionTimerService {
+
+	private static final Logger logger = Logger.getLogger(TimingWheelSipApplicationSessionTimerService.class);
+
+	public static final long TICK_DURATION = 1000L;
+	// 4096 ticks of one second is a bit more than an hour, so most sessions never go around the wheel more than once
+	public static final int WHEEL_SIZE = 4096;
+
+	private final TimingWheel wheel;
+	private final ScheduledThreadPoolExecutor ticker;
+	private final ExecutorService expirationExecutor;
+	private final AtomicBoolean started = new AtomicBoolean(false);
+
+	public TimingWheelSipApplicationSessionTimerService(String applicationName) {
+		wheel = new TimingWheel(TICK_DURATION, WHEEL_SIZE, System.currentTimeMillis());
+		ticker = new ScheduledThreadPoolExecutor(1, new NamingThreadFactory(applicationName + "_sip_timing_wheel_sas_timer_service"));
+		expirationExecutor = Executors.newFixedThreadPool(DefaultSipApplicationSessionTimerService.SCHEDULER_THREAD_POOL_DEFAULT_SIZE, 
+				new NamingThreadFactory(applicationName + "_sip_timing_wheel_sas_expiration"));
+		ticker.scheduleAtFixedRate(new Runnable() {
+			public void run() {
+				try {
+					int expired = wheel.expire(System.currentTimeMillis(), expirationExecutor);
+					if(expired > 0 && logger.isDebugEnabled()) {
+						logger.debug(expired + " sip application session expiration timers fired, " + wheel.size() + " pending");
+					}
+				} catch (Throwable t) {
+					logger.error("failed to tick the sip application session timing wheel", t);
+				}
+			}
+		}, TICK_DURATION, TICK_DURATION, TimeUnit.MILLISECONDS);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.timers.SipApplicationSessionTimerService#createSipApplicationSessionTimerTask(org.mobicents.servlet.sip.core.session.MobicentsSipApplicationSession)
+	 */
+	public SipApplicationSessionTimerTask createSipApplicationSessionTimerTask(MobicentsSipApplicationSession sipApplicationSession) {
+		return new TimingWheelSasTimerTask(sipApplicationSession);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.timers.SipApplicationSessionTimerService#schedule(org.mobicents.servlet.sip.core.timers.SipApplicationSessionTimerTask, long, java.util.concurrent.TimeUnit)
+	 */
+	public SipApplicationSessionTimerTask schedule(
+			SipApplicationSessionTimerTask expirationTimerTask, long delay,
+			TimeUnit unit) {
+		if(logger.isDebugEnabled()) {
+			logger.debug("Scheduling sip application session "+ expirationTimerTask.getSipApplicationSession().getKey() +" to expire in " + (unit.toMillis(delay) / (double) 1000 / (double) 60) + " minutes");
+		}
+		wheel.schedule((TimingWheelSasTimerTask) expirationTimerTask, unit.toMillis(delay), System.currentTimeMillis());
+		return expirationTimerTask;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.core.timers.SipApplicationSessionTimerService#cancel(org.mobicents.servlet.sip.core.timers.SipApplicationSessionTimerTask)
+	 */
+	public boolean cancel(SipApplicationSessionTimerTask expirationTimerTask) {
+		return wheel.cancel((TimingWheelSasTimerTask) expirationTimerTask);
+	}
+
+	/**
+	 * @return the number of sip application session expirations pending in the wheel
+	 */
+	public int getPendingExpirations() {
+		return wheel.size();
+	}
+
+	public void stop() {
+		started.set(false);
+		ticker.shutdownNow();
+		expirationExecutor.shutdownNow();
+		if(logger.isInfoEnabled()) {
+			logger.info("Stopped timer service "+ this);
+		}
+	}
+
+	public void start() {
+		started.set(true);
+		if(logger.isInfoEnabled()) {
+			logger.info("Started timer service "+ this);
+		}
+	}
+
+	public boolean isStarted() {
+		return started.get();
+	}
+
+}
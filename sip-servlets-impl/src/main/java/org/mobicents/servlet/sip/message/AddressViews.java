@@ -0,0 +1,49 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.message;
+
+import java.text.ParseException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import javax.sip.header.HeaderAddress;
+
+import org.mobicents.servlet.sip.address.AddressImpl;
+import org.mobicents.servlet.sip.address.AddressImpl.ModifiableRule;
+
+/**
+ * Address facades handed out to the application for the headers of a message, keyed by the header they read through to.
+ * A facade is handed out again for the same header as long as it is still an unmodified view of it with the same
+ * modifiable rule, so that asking for the same header several times doesn't copy its parameters over and over.
+ */
+final class AddressViews {
+
+	private final Map<HeaderAddress, AddressImpl> views = new IdentityHashMap<HeaderAddress, AddressImpl>(4);
+
+	AddressImpl get(HeaderAddress header, ModifiableRule modifiableRule) throws ParseException {
+		AddressImpl address = views.get(header);
+		if(address == null || !address.isViewOf(header, modifiableRule)) {
+			address = new AddressImpl(header, modifiableRule);
+			views.put(header, address);
+		}
+		return address;
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.message;
+
+/**
+ * Characters view over a range of bytes made only of US-ASCII characters, such as an SDP body,
+ * so that the body can be read as text without being decoded into a new char array.
+ * The String is only built if toString is called, and then kept.
+ */
+final class AsciiCharSequence implements CharSequence {
+
+	private final byte[] bytes;
+	private final int offset;
+	private final int length;
+	private String string;
+
+	AsciiCharSequence(byte[] bytes) {
+		this(bytes, 0, bytes.length);
+	}
+
+	private AsciiCharSequence(byte[] bytes, int offset, int length) {
+		this.bytes = bytes;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	/**
+	 * @return true if all the bytes are US-ASCII characters, i.e. can be viewed as chars without decoding
+	 */
+	static boolean isAscii(byte[] bytes) {
+		for(int i = 0; i < bytes.length; i++) {
+			if(bytes[i] < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public int length() {
+		return length;
+	}
+
+	public char charAt(int index) {
+		if(index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException("index " + index + " out of [0, " + length + "[");
+		}
+		return (char) bytes[offset + index];
+	}
+
+	public CharSequence subSequence(int start, int end) {
+		if(start < 0 || end > length || start > end) {
+			throw new IndexOutOfBoundsException("[" + start + ", " + end + "[ out of [0, " + length + "[");
+		}
+		return new AsciiCharSequence(bytes, offset + start, end - start);
+	}
+
+	@Override
+	public String toString() {
+		if(string == null) {
+			char[] chars = new char[length];
+			for(int i = 0; i < length; i++) {
+				chars[i] = (char) bytes[offset + i];
+			}
+			string = new String(chars);
+		}
+		return string;
+	}
+}
@@ -153,6 +153,7 @@ public class B2buaHelperImpl implements MobicentsB2BUAHelper, Serializable {
     }
 
     public SipServletRequestImpl cloneDerivedRequest(SipServletRequestImpl origRequestImpl, MobicentsSipSession parentSession) throws TransactionAlreadyExistsException, TransactionUnavailableException {
+        origRequestImpl.flushContent();
         SIPRequest newRequest = (SIPRequest) origRequestImpl.message.clone();
         String newToTag = ApplicationRoutingHeaderComposer.getHash(sipFactoryImpl.getSipApplicationDispatcher(),
                 parentSession.getKey().getApplicationName(),
@@ -193,6 +194,7 @@ public class B2buaHelperImpl implements MobicentsB2BUAHelper, Serializable {
     }
 
     private SipServletRequestImpl cloneRequest(SipServletRequestImpl origRequestImpl, Map<String, List<String>> headerMap) throws ParseException, ServletException {
+        origRequestImpl.flushContent();
         Request newRequest = (Request) origRequestImpl.message.clone();
         ((MessageExt) newRequest).setApplicationData(null);
         //content should be copied too, so commented out
@@ -488,7 +490,8 @@ public class B2buaHelperImpl implements MobicentsB2BUAHelper, Serializable {
         ListIterator<String> headerNames = origMessage.getHeaderNames();
         while (headerNames.hasNext()) {
             String headerName = headerNames.next();
-            if (!JainSipUtils.SYSTEM_HEADERS.contains(headerName) && !headerName.equalsIgnoreCase(ContactHeader.NAME)
+            final HeaderDescriptor descriptor = HeaderRegistry.lookup(headerName);
+            if ((descriptor == null || !descriptor.isSystem()) && !headerName.equalsIgnoreCase(ContactHeader.NAME)
                     && !headerName.equalsIgnoreCase(FromHeader.NAME) && !headerName.equalsIgnoreCase(ToHeader.NAME)) {
                 // Issue 184 : http://code.google.com/p/sipservlets/issues/detail?id=184
                 // Not all headers are copied for subsequent requests using B2buaHelper.createRequest(session, request, map)
@@ -636,7 +639,8 @@ public class B2buaHelperImpl implements MobicentsB2BUAHelper, Serializable {
                     for (String value : entry.getValue()) {
                         final Header header = sipFactoryImpl.getHeaderFactory().createHeader(
                                 headerName, value);
-                        if (!JainSipUtils.SINGLETON_HEADER_NAMES.contains(header.getName())) {
+                        final HeaderDescriptor descriptor = HeaderRegistry.lookup(header.getName());
+                        if (descriptor == null || !descriptor.isSingleton()) {
                             newRequest.addHeader(header);
                         } else {
                             newRequest.setHeader(header);
@@ -781,6 +785,22 @@ public class B2buaHelperImpl implements MobicentsB2BUAHelper, Serializable {
         }
     }
 
+    /**
+     * Lookup the session currently linked to the given one, without the forking handling
+     * and checks done by {@link #getLinkedSession(SipSession, boolean)}.
+     * Used by the container to lock both legs of a B2BUA together.
+     *
+     * @param session the session to find the linked session of
+     * @return the linked session or null if the session is not linked
+     */
+    public MobicentsSipSession lookupLinkedSession(final MobicentsSipSession session) {
+        final String linkedSessionId = this.sessionMap.get(session.getId());
+        if (linkedSessionId == null) {
+            return null;
+        }
+        return lookupSessionById(linkedSessionId, session.getSipApplicationSession());
+    }
+
     /*
 	 * (non-Javadoc)
 	 * @see javax.servlet.sip.B2buaHelper#getLinkedSipServletRequest(javax.servlet.sip.SipServletRequest)
@@ -0,0 +1,112 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.message;
+
+import org.mobicents.servlet.sip.address.AddressImpl.ModifiableRule;
+
+/**
+ * What the container knows about a header name : its canonical full name, its compact form
+ * and how the servlet API treats it. Descriptors are immutable and shared, they are looked up
+ * through the {@link HeaderRegistry}.
+ */
+public final class HeaderDescriptor {
+
+	private final String name;
+	private final String compactName;
+	private final boolean system;
+	private final boolean address;
+	private final boolean parameterable;
+	private final boolean singleton;
+	private final boolean list;
+
+	HeaderDescriptor(String name, String compactName, boolean system, boolean address,
+			boolean parameterable, boolean singleton, boolean list) {
+		this.name = name;
+		this.compactName = compactName;
+		this.system = system;
+		this.address = address;
+		this.parameterable = parameterable;
+		this.singleton = singleton;
+		this.list = list;
+	}
+
+	/**
+	 * @return the full name of the header, with its canonical case
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the compact form of the header or null if it doesn't have one
+	 */
+	public String getCompactName() {
+		return compactName;
+	}
+
+	/**
+	 * @return true if the header is managed by the container in any message
+	 */
+	public boolean isSystem() {
+		return system;
+	}
+
+	/**
+	 * @return true if the header follows the name-addr grammar and can be accessed as an Address
+	 */
+	public boolean isAddress() {
+		return address;
+	}
+
+	/**
+	 * @return true if the header can be accessed as a Parameterable
+	 */
+	public boolean isParameterable() {
+		return parameterable;
+	}
+
+	/**
+	 * @return true if the header can appear only once in a message
+	 */
+	public boolean isSingleton() {
+		return singleton;
+	}
+
+	/**
+	 * @return true if the header values can be combined in a comma separated list
+	 */
+	public boolean isList() {
+		return list;
+	}
+
+	/**
+	 * @return the modifiable rule of the header regardless of the message it is in,
+	 * From, To and Contact are further refined by the message itself
+	 */
+	public ModifiableRule getModifiableRule() {
+		return system ? ModifiableRule.NotModifiable : ModifiableRule.Modifiable;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.message;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.log4j.Logger;
+import org.mobicents.servlet.sip.JainSipUtils;
+
+/**
+ * Case insensitive lookup of the {@link HeaderDescriptor} of a header name, full or compact.
+ * The descriptors are computed once from the header name sets of {@link JainSipUtils} and stored
+ * in an open addressing table hashed on the lower cased characters of the name, so a lookup
+ * neither lower cases nor allocates anything. Unknown (extension) headers have no descriptor.
+ */
+public final class HeaderRegistry {
+	private static final Logger logger = Logger.getLogger(HeaderRegistry.class);
+
+	// rebuilt as a whole and swapped when additional parameterable headers are configured
+	private static volatile Table table = build();
+
+	private HeaderRegistry() {}
+
+	/**
+	 * @param name the full or compact name of a header, in any case
+	 * @return the descriptor of the header or null if the container doesn't know about it
+	 */
+	public static HeaderDescriptor lookup(String name) {
+		if(name == null) {
+			return null;
+		}
+		return table.get(name);
+	}
+
+	/**
+	 * Makes an extension header accessible as a Parameterable,
+	 * see the additionalParameterableHeaders attribute of the Service
+	 */
+	public static synchronized void addParameterableHeader(String name) {
+		JainSipUtils.PARAMETERABLE_HEADER_NAMES.add(name);
+		table = build();
+		if(logger.isDebugEnabled()) {
+			logger.debug("header " + name + " is now parameterable");
+		}
+	}
+
+	private static Table build() {
+		final Set<String> system = caseInsensitive(JainSipUtils.SYSTEM_HEADERS);
+		final Set<String> address = caseInsensitive(JainSipUtils.ADDRESS_HEADER_NAMES);
+		final Set<String> parameterable = caseInsensitive(JainSipUtils.PARAMETERABLE_HEADER_NAMES);
+		final Set<String> singleton = caseInsensitive(JainSipUtils.SINGLETON_HEADER_NAMES);
+		final Set<String> list = caseInsensitive(JainSipUtils.LIST_HEADER_NAMES);
+		final Map<String, String> compactNames = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+		for(Entry<String, String> compactToFull : JainSipUtils.HEADER_COMPACT_2_FULL_NAMES_MAPPINGS.entrySet()) {
+			compactNames.put(compactToFull.getValue(), compactToFull.getKey());
+		}
+		compactNames.putAll(JainSipUtils.HEADER_FULL_TO_COMPACT_NAMES_MAPPINGS);
+
+		final Collection<String> names = fullNames().values();
+		final Table table = new Table(names.size() + compactNames.size());
+		for(String name : names) {
+			final String compactName = compactNames.get(name);
+			final HeaderDescriptor descriptor = new HeaderDescriptor(name, compactName,
+					system.contains(name), address.contains(name), parameterable.contains(name),
+					singleton.contains(name), list.contains(name));
+			table.put(name, descriptor);
+			if(compactName != null) {
+				table.put(compactName, descriptor);
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * The canonical full name of each header, keyed case insensitively. A header can be declared with different cases
+	 * in the sets of {@link JainSipUtils}, e.g. when an application configures an additional parameterable header,
+	 * so the first spelling wins, going through the JAIN SIP names of the compact mappings first, then through the sets
+	 * in a fixed order and through the names of each set in their natural order.
+	 */
+	private static Map<String, String> fullNames() {
+		final Map<String, String> fullNames = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+		addFullNames(fullNames, JainSipUtils.HEADER_FULL_TO_COMPACT_NAMES_MAPPINGS.keySet());
+		addFullNames(fullNames, JainSipUtils.HEADER_COMPACT_2_FULL_NAMES_MAPPINGS.values());
+		addFullNames(fullNames, JainSipUtils.SYSTEM_HEADERS);
+		addFullNames(fullNames, JainSipUtils.ADDRESS_HEADER_NAMES);
+		addFullNames(fullNames, JainSipUtils.SINGLETON_HEADER_NAMES);
+		addFullNames(fullNames, JainSipUtils.LIST_HEADER_NAMES);
+		addFullNames(fullNames, JainSipUtils.PARAMETERABLE_HEADER_NAMES);
+		return fullNames;
+	}
+
+	private static void addFullNames(Map<String, String> fullNames, Collection<String> names) {
+		// sorted by their natural order so that the iteration order of the set doesn't matter
+		for(String name : new TreeSet<String>(names)) {
+			if(!fullNames.containsKey(name)) {
+				fullNames.put(name, name);
+			}
+		}
+	}
+
+	private static Set<String> caseInsensitive(Set<String> names) {
+		final Set<String> set = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+		set.addAll(names);
+		return set;
+	}
+
+	private static int hash(String name) {
+		int h = 0;
+		for(int i = 0; i < name.length(); i++) {
+			// same folding as String.regionMatches with ignoreCase
+			h = 31 * h + Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+		}
+		return h ^ (h >>> 16);
+	}
+
+	private static final class Table {
+		private final String[] keys;
+		private final HeaderDescriptor[] descriptors;
+		private final int mask;
+
+		Table(int entries) {
+			// keep the table at most a quarter full so that probe sequences stay short
+			int capacity = 16;
+			while(capacity < entries * 4) {
+				capacity <<= 1;
+			}
+			keys = new String[capacity];
+			descriptors = new HeaderDescriptor[capacity];
+			mask = capacity - 1;
+		}
+
+		HeaderDescriptor get(String name) {
+			final int length = name.length();
+			int i = hash(name) & mask;
+			String key;
+			while((key = keys[i]) != null) {
+				if(key.length() == length && key.regionMatches(true, 0, name, 0, length)) {
+					return descriptors[i];
+				}
+				i = (i + 1) & mask;
+			}
+			return null;
+		}
+
+		void put(String name, HeaderDescriptor descriptor) {
+			int i = hash(name) & mask;
+			String key;
+			while((key = keys[i]) != null) {
+				if(key.equalsIgnoreCase(name)) {
+					break;
+				}
+				i = (i + 1) & mask;
+			}
+			keys[i] = name;
+			descriptors[i] = descriptor;
+		}
+	}
+}
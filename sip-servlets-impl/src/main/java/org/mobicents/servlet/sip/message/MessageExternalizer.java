@@ -0,0 +1,306 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.message;
+
+import gov.nist.javax.sip.header.SIPHeader;
+import gov.nist.javax.sip.message.SIPMessage;
+import gov.nist.javax.sip.parser.StringMsgParser;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.sip.SipServletMessage.HeaderForm;
+import javax.sip.ServerTransaction;
+import javax.sip.SipException;
+import javax.sip.SipFactory;
+import javax.sip.Transaction;
+import javax.sip.header.Header;
+import javax.sip.header.HeaderFactory;
+import javax.sip.message.Message;
+import javax.sip.message.Request;
+import javax.sip.message.Response;
+
+/**
+ * Binary format of the state of a {@link SipServletMessageImpl} replicated with {@link java.io.Externalizable}.</br>
+ * The JAIN SIP message is written as its start line, an index of its headers already split one per value,
+ * each one with its name as a single byte for the common ones, and its body as raw bytes. Restoring it
+ * builds each header on its own from its name and value : the message framing is not parsed again,
+ * extension headers are taken as they are and the body isn't decoded. There is no 64KB limit like with writeUTF.</br>
+ * The format starts with {@link #FORMAT_MARKER} where the layout of the previous releases had the session key,
+ * so that the state they replicated can still be read, see {@link #isFormatMarker(String)}. They can't read
+ * the state replicated in this format, so a cluster has to be upgraded as a whole.
+ */
+final class MessageExternalizer {
+
+	/**
+	 * Written in place of the session key of the previous layout, a NUL character can't appear in a session key
+	 */
+	static final String FORMAT_MARKER = "\u0000sip-message";
+	// version of the format written, to be bumped whenever that format changes
+	static final byte FORMAT_VERSION = 1;
+
+	private static final String CHARSET = "UTF-8";
+	private static final HeaderForm[] HEADER_FORMS = HeaderForm.values();
+	// the names written as a single byte, their index plus one, entries can only be appended
+	private static final String[] HEADER_NAMES = {
+		"Via", "From", "To", "Call-ID", "CSeq", "Max-Forwards", "Contact", "Route", "Record-Route",
+		"Content-Type", "Content-Length", "Allow", "Supported", "Require", "User-Agent", "Server",
+		"Expires", "Event", "Subscription-State", "Allow-Events", "Session-Expires", "Min-SE",
+		"P-Asserted-Identity", "Privacy", "Authorization", "Proxy-Authorization", "WWW-Authenticate",
+		"Proxy-Authenticate", "Accept", "Date", "RSeq", "RAck", "Reason", "Refer-To", "Referred-By",
+		"Content-Disposition", "Timestamp", "Path"
+	};
+	private static final Map<String, Byte> HEADER_CODES = new HashMap<String, Byte>();
+	static {
+		for (int i = 0; i < HEADER_NAMES.length; i++) {
+			HEADER_CODES.put(HEADER_NAMES[i].toLowerCase(), (byte) (i + 1));
+		}
+	}
+
+	private MessageExternalizer() {}
+
+	/**
+	 * @param marker what was read where the previous layout had the session key
+	 * @return true if the state was written in this format, false if it is the session key of the previous layout
+	 */
+	static boolean isFormatMarker(String marker) {
+		return FORMAT_MARKER.equals(marker);
+	}
+
+	static void writeAttributes(ObjectOutput out, Map<String, Object> attributes) throws IOException {
+		if(attributes == null || attributes.isEmpty()) {
+			out.writeInt(0);
+			return;
+		}
+		// snapshot so that the count written matches the entries written
+		final List<Entry<String, Object>> entries = new ArrayList<Entry<String, Object>>(attributes.entrySet());
+		out.writeInt(entries.size());
+		for (Entry<String, Object> entry : entries) {
+			out.writeUTF(entry.getKey());
+			out.writeObject(entry.getValue());
+		}
+	}
+
+	/**
+	 * @return the attributes or null if there wasn't any
+	 */
+	static Map<String, Object> readAttributes(ObjectInput in) throws IOException, ClassNotFoundException {
+		final int size = in.readInt();
+		if(size <= 0) {
+			return null;
+		}
+		final Map<String, Object> attributes = new ConcurrentHashMap<String, Object>();
+		for (int i = 0; i < size; i++) {
+			// the same few attribute names come back with every message
+			attributes.put(in.readUTF().intern(), in.readObject());
+		}
+		return attributes;
+	}
+
+	static void writeHeaderForm(ObjectOutput out, HeaderForm headerForm) throws IOException {
+		out.writeByte(headerForm.ordinal());
+	}
+
+	static HeaderForm readHeaderForm(ObjectInput in) throws IOException {
+		final int ordinal = in.readByte();
+		if(ordinal < 0 || ordinal >= HEADER_FORMS.length) {
+			throw new InvalidObjectException("Unknown header form " + ordinal);
+		}
+		return HEADER_FORMS[ordinal];
+	}
+
+	/**
+	 * Writes the branch of the transaction the message belongs to, so that it can be found again
+	 * in the stack once restored, with ReplicationStrategy.EarlyDialog
+	 */
+	static void writeTransactionReference(ObjectOutput out, Transaction transaction) throws IOException {
+		if(transaction == null) {
+			out.writeUTF("");
+		} else {
+			out.writeUTF(transaction.getBranchId());
+			out.writeBoolean(transaction instanceof ServerTransaction);
+		}
+	}
+
+	/**
+	 * @return the reference to the transaction of the message or null if it didn't have any
+	 */
+	static TransactionReference readTransactionReference(ObjectInput in) throws IOException {
+		final String branchId = in.readUTF();
+		if(branchId.length() == 0) {
+			return null;
+		}
+		return new TransactionReference(branchId, in.readBoolean());
+	}
+
+	static void writeMessage(ObjectOutput out, Message message) throws IOException {
+		if(message instanceof Request) {
+			final Request request = (Request) message;
+			out.writeUTF(request.getMethod() + " " + request.getRequestURI() + " " + request.getSIPVersion());
+		} else {
+			final Response response = (Response) message;
+			final String reasonPhrase = response.getReasonPhrase();
+			out.writeUTF(response.getSIPVersion() + " " + response.getStatusCode() + " " + (reasonPhrase == null ? "" : reasonPhrase));
+		}
+		final List<Header> headers = new ArrayList<Header>();
+		for (Iterator<String> names = message.getHeaderNames(); names.hasNext();) {
+			for (ListIterator<Header> values = message.getHeaders(names.next()); values.hasNext();) {
+				headers.add(values.next());
+			}
+		}
+		out.writeInt(headers.size());
+		for (Header header : headers) {
+			final Byte code = HEADER_CODES.get(header.getName().toLowerCase());
+			if(code == null) {
+				out.writeByte(0);
+				out.writeUTF(header.getName());
+			} else {
+				out.writeByte(code);
+			}
+			writeBytes(out, ((SIPHeader) header).getHeaderValue().getBytes(CHARSET));
+		}
+		writeBytes(out, message.getRawContent());
+	}
+
+	static SIPMessage readMessage(ObjectInput in) throws IOException {
+		final String startLine = in.readUTF();
+		SIPMessage message;
+		try {
+			message = new StringMsgParser().parseSIPMessage((startLine + "\r\n\r\n").getBytes(CHARSET), false, false, null);
+		} catch (ParseException e) {
+			throw invalid("Start line " + startLine + " previously serialized could not be reparsed", e);
+		}
+		final HeaderFactory headerFactory = headerFactory();
+		final int headerCount = in.readInt();
+		String previousName = null;
+		for (int i = 0; i < headerCount; i++) {
+			final String name = readHeaderName(in);
+			final String value = new String(readBytes(in), CHARSET);
+			try {
+				final Header header = headerFactory.createHeader(name, value);
+				// the values of a header come one after the other
+				if(name.equals(previousName)) {
+					message.addLast(header);
+				} else {
+					message.setHeader(header);
+				}
+			} catch (ParseException e) {
+				throw invalid("Header " + name + ": " + value + " previously serialized could not be reparsed", e);
+			} catch (SipException e) {
+				throw invalid("Header " + name + ": " + value + " previously serialized could not be added back", e);
+			}
+			previousName = name;
+		}
+		final byte[] body = readBytes(in);
+		if(body != null) {
+			message.setMessageContent(body);
+		}
+		return message;
+	}
+
+	/**
+	 * Reads the message written as text by the previous releases
+	 */
+	static SIPMessage readLegacyMessage(ObjectInput in) throws IOException {
+		final String messageString = in.readUTF();
+		try {
+			return new StringMsgParser().parseSIPMessage(messageString.getBytes(CHARSET), true, false, null);
+		} catch (ParseException e) {
+			throw invalid("Message " + messageString + " previously serialized could not be reparsed", e);
+		}
+	}
+
+	static final class TransactionReference {
+		private final String branchId;
+		private final boolean server;
+
+		TransactionReference(String branchId, boolean server) {
+			this.branchId = branchId;
+			this.server = server;
+		}
+
+		String getBranchId() {
+			return branchId;
+		}
+
+		boolean isServer() {
+			return server;
+		}
+	}
+
+	private static String readHeaderName(ObjectInput in) throws IOException {
+		final int code = in.readByte() & 0xFF;
+		if(code == 0) {
+			return in.readUTF().intern();
+		}
+		if(code > HEADER_NAMES.length) {
+			throw new InvalidObjectException("Unknown header name code " + code);
+		}
+		return HEADER_NAMES[code - 1];
+	}
+
+	private static void writeBytes(ObjectOutput out, byte[] bytes) throws IOException {
+		if(bytes == null) {
+			out.writeInt(-1);
+		} else {
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	private static byte[] readBytes(ObjectInput in) throws IOException {
+		final int length = in.readInt();
+		if(length < 0) {
+			return null;
+		}
+		final byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return bytes;
+	}
+
+	private static HeaderFactory headerFactory() throws IOException {
+		if(SipFactoryImpl.headerFactory != null) {
+			return SipFactoryImpl.headerFactory;
+		}
+		try {
+			return SipFactory.getInstance().createHeaderFactory();
+		} catch (Exception e) {
+			throw invalid("No JAIN SIP header factory to restore the message", e);
+		}
+	}
+
+	private static InvalidObjectException invalid(String message, Exception cause) {
+		final InvalidObjectException exception = new InvalidObjectException(message);
+		exception.initCause(cause);
+		return exception;
+	}
+}
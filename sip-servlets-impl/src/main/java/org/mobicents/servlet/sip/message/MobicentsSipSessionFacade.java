@@ -30,6 +30,7 @@ import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
@@ -525,6 +526,10 @@ public class MobicentsSipSessionFacade implements MobicentsSipSession, Serializa
 		sipSession.release();
 	}
 
+	public Executor getMailbox() {
+		return sipSession.getMailbox();
+	}
+
 	public void setFlow(final javax.sip.address.SipURI flow) {
 		this.sipSession.setFlow(flow);
 	}
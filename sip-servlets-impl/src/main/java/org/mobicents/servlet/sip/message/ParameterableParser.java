@@ -0,0 +1,183 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.message;
+
+import java.util.Map;
+
+import javax.servlet.sip.ServletParseException;
+
+/**
+ * Single pass parser for the value of a header handled as a Parameterable, works on the
+ * characters of the encoded header in place instead of substring/split/regex rounds.
+ * It handles quoted display names and quoted parameter values, which may contain ';', '=' or ','
+ * (+sip.instance, gruu, ...), and strips the quotes from the parameter values only for headers
+ * without a ';' whose parameters are separated by ','.
+ */
+final class ParameterableParser {
+
+	private ParameterableParser() {}
+
+	/**
+	 * Parses the header value starting at from, fills the parameters and returns the value, made of the optional display name
+	 * and the URI between angle brackets, or of everything before the first ';' for headers without angle brackets
+	 * @param header the encoded header, possibly prefixed by its name
+	 * @param from the index of the first character of the value
+	 * @param parameters the map to fill with the parameters
+	 */
+	static String parse(String header, int from, Map<String, String> parameters) throws ServletParseException {
+		final int end = trimEnd(header, from, header.length());
+		int i = skipWhitespaces(header, from, end);
+		final int valueStart = i;
+		int displayNameEnd = -1;
+		// Issue 2201 : the display name of Remote-Party-ID and the like
+		if(i < end && header.charAt(i) == '"') {
+			displayNameEnd = closingQuote(header, i + 1, end) + 1;
+			if(displayNameEnd == 0) {
+				throw new ServletParseException("Unclosed quote in the display name of " + header);
+			}
+			i = skipWhitespaces(header, displayNameEnd, end);
+		}
+		if(i < end && header.charAt(i) == '<') {
+			final int rightAngleBracket = header.indexOf('>', i + 1);
+			if(rightAngleBracket < 0 || rightAngleBracket >= end) {
+				throw new ServletParseException("Missing '>' in " + header);
+			}
+			final String value;
+			if(displayNameEnd < 0 || displayNameEnd == i) {
+				value = header.substring(valueStart, rightAngleBracket + 1);
+			} else {
+				value = header.substring(valueStart, displayNameEnd).concat(header.substring(i, rightAngleBracket + 1));
+			}
+			// anything between the '>' and the first ';' isn't a parameter
+			int semicolon = header.indexOf(';', rightAngleBracket + 1);
+			if(semicolon >= 0 && semicolon < end) {
+				parseParameters(header, semicolon + 1, end, ';', false, parameters);
+			}
+			return value;
+		}
+		final int semicolon = indexOfUnquoted(header, ';', i, end);
+		if(semicolon >= 0) {
+			parseParameters(header, semicolon + 1, end, ';', false, parameters);
+			return header.substring(valueStart, trimEnd(header, valueStart, semicolon));
+		}
+		// https://code.google.com/p/sipservlets/issues/detail?id=239 the value is kept whole
+		// and the parameters are the comma separated pairs
+		if(indexOfUnquoted(header, ',', i, end) >= 0) {
+			parseParameters(header, i, end, ',', true, parameters);
+		}
+		return header.substring(valueStart, end);
+	}
+
+	private static void parseParameters(String header, int from, int end, char separator, boolean unquote, Map<String, String> parameters) throws ServletParseException {
+		int i = from;
+		while(i < end) {
+			char c = header.charAt(i);
+			if(c == separator || isWhitespace(c)) {
+				i++;
+				continue;
+			}
+			final int nameStart = i;
+			while(i < end && (c = header.charAt(i)) != '=' && c != separator) {
+				i++;
+			}
+			final String name = header.substring(nameStart, trimEnd(header, nameStart, i));
+			// Fix to Issue 1010 : flag parameters have an empty value
+			String value = "";
+			if(i < end && c == '=') {
+				i = skipWhitespaces(header, i + 1, end);
+				final int valueStart = i;
+				while(i < end && (c = header.charAt(i)) != separator) {
+					if(c == '"') {
+						// http://code.google.com/p/sipservlets/issues/detail?id=105 quoted values can contain separators
+						final int closingQuote = closingQuote(header, i + 1, end);
+						if(closingQuote < 0) {
+							throw new ServletParseException("Unclosed quote in the parameters of " + header);
+						}
+						i = closingQuote + 1;
+					} else {
+						i++;
+					}
+				}
+				final int valueEnd = trimEnd(header, valueStart, i);
+				if(unquote && valueEnd - valueStart >= 2 && header.charAt(valueStart) == '"' && header.charAt(valueEnd - 1) == '"') {
+					value = header.substring(valueStart + 1, valueEnd - 1);
+				} else {
+					value = header.substring(valueStart, valueEnd);
+				}
+			}
+			if(name.length() > 0) {
+				parameters.put(name, value);
+			}
+		}
+	}
+
+	/**
+	 * @return the index of the quote closing the quoted string starting at from, -1 if it isn't closed
+	 */
+	private static int closingQuote(String header, int from, int end) {
+		for(int i = from; i < end; i++) {
+			final char c = header.charAt(i);
+			if(c == '\\') {
+				// quoted pair
+				i++;
+			} else if(c == '"') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static int indexOfUnquoted(String header, char character, int from, int end) throws ServletParseException {
+		for(int i = from; i < end; i++) {
+			final char c = header.charAt(i);
+			if(c == character) {
+				return i;
+			}
+			if(c == '"') {
+				i = closingQuote(header, i + 1, end);
+				if(i < 0) {
+					throw new ServletParseException("Unclosed quote in " + header);
+				}
+			}
+		}
+		return -1;
+	}
+
+	private static int skipWhitespaces(String header, int from, int end) {
+		int i = from;
+		while(i < end && isWhitespace(header.charAt(i))) {
+			i++;
+		}
+		return i;
+	}
+
+	private static int trimEnd(String header, int from, int end) {
+		int i = end;
+		while(i > from && isWhitespace(header.charAt(i - 1))) {
+			i--;
+		}
+		return i;
+	}
+
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+	}
+}
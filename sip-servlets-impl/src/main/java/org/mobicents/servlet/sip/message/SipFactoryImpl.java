@@ -445,6 +445,7 @@ public class SipFactoryImpl implements MobicentsSipFactory,  Externalizable {
 			throw new IllegalStateException("original request's app session does not exists");
 		}			
 		final MobicentsSipSession originalSession = origRequestImpl.getSipSession();
+		origRequestImpl.flushContent();
 		final Request newRequest = (Request) origRequestImpl.message.clone();
 		((MessageExt)newRequest).setApplicationData(null);
 		//removing the via header from original request
@@ -26,10 +26,13 @@ import gov.nist.javax.sip.stack.SIPTransaction;
 import java.io.ByteArrayOutputStream;
 import java.io.Externalizable;
 import java.io.IOException;
+import java.io.InvalidObjectException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
-import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Enumeration;
@@ -40,7 +43,6 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.StringTokenizer;
 import java.util.Vector;
 import java.util.concurrent.ConcurrentHashMap;
@@ -48,7 +50,6 @@ import java.util.concurrent.ConcurrentHashMap;
 import javax.activation.DataHandler;
 import javax.activation.DataSource;
 import javax.mail.MessagingException;
-import javax.mail.Multipart;
 import javax.mail.internet.MimeBodyPart;
 import javax.mail.internet.MimeMultipart;
 import javax.mail.util.ByteArrayDataSource;
@@ -60,7 +61,6 @@ import javax.servlet.sip.SipSession;
 import javax.sip.Dialog;
 import javax.sip.InvalidArgumentException;
 import javax.sip.ListeningPoint;
-import javax.sip.ServerTransaction;
 import javax.sip.SipFactory;
 import javax.sip.Transaction;
 import javax.sip.header.AcceptLanguageHeader;
@@ -88,6 +88,7 @@ import org.mobicents.servlet.sip.JainSipUtils;
 import org.mobicents.servlet.sip.address.AddressImpl;
 import org.mobicents.servlet.sip.address.AddressImpl.ModifiableRule;
 import org.mobicents.servlet.sip.address.ParameterableHeaderImpl;
+import org.mobicents.servlet.sip.core.DispatchStage;
 import org.mobicents.servlet.sip.core.MobicentsExtendedListeningPoint;
 import org.mobicents.servlet.sip.core.SipContext;
 import static org.mobicents.servlet.sip.core.SipContext.INTERNAL_ATT_PREFIX;
@@ -166,6 +167,14 @@ public abstract class SipServletMessageImpl implements MobicentsSipServletMessag
 
 	protected transient String method;
 
+	// address facades handed out to the application
+	private transient AddressViews addressViews;
+
+	// body decoded as characters, reused as long as the raw content and its charset stay the same
+	private transient DecodedContent decodedContent;
+	// multipart body handed out by getParsedContent, written back to the message when the application changed it
+	private transient TrackedMultipart multipartContent;
+
 	// needed for orphan routing
 	boolean orphan;
 	private String appSessionId;
@@ -308,7 +317,8 @@ public abstract class SipServletMessageImpl implements MobicentsSipServletMessag
 	}
 
 	public void addHeaderInternal(String name, String value, boolean bypassSystemHeaderCheck) {
-		String hName = getFullHeaderName(name);
+		final HeaderDescriptor descriptor = HeaderRegistry.lookup(name);
+		String hName = descriptor != null ? descriptor.getName() : name;
 
 		if (logger.isDebugEnabled())
 			logger.debug("Adding header under name [" + hName + "]");
@@ -321,16 +331,16 @@ public abstract class SipServletMessageImpl implements MobicentsSipServletMessag
 					+ "] is system header, cant add,cant modify it!!!");
 		}
 
-		String nameToAdd = getCorrectHeaderName(hName);
+		String nameToAdd = getCorrectHeaderName(descriptor, hName, this.headerForm);
 
 		try {
 			// Fix to Issue 1015 by alexander.kozlov.IV
-			if(JainSipUtils.SINGLETON_HEADER_NAMES.contains(name)) {
+			if(descriptor != null && descriptor.isSingleton()) {
 				Header header = SipFactory.getInstance().createHeaderFactory().createHeader(nameToAdd, value);
 				this.message.setHeader(header);
 			} else {
 				// Dealing with Allow:INVITE, ACK, CANCEL, OPTIONS, BYE kind of values
-				if(JainSipUtils.LIST_HEADER_NAMES.contains(name)) {
+				if(descriptor != null && descriptor.isList()) {
 					List<Header> headers = SipFactory.getInstance().createHeaderFactory()
 						.createHeaders(name + ":" + value);
 					for (Header header : headers) {
@@ -496,9 +506,9 @@ public abstract class SipServletMessageImpl implements MobicentsSipServletMessag
 			if (first instanceof HeaderAddress) {
 				try {
 					if(this.isCommitted()) {
-						return new AddressImpl((HeaderAddress) first, ModifiableRule.NotModifiable);
+						return getAddressView((HeaderAddress) first, ModifiableRule.NotModifiable);
 					} else {
-						return new AddressImpl((HeaderAddress) first, getModifiableRule(hName));
+						return getAddressView((HeaderAddress) first, getModifiableRule(hName));
 					}
 				} catch (ParseException e) {
 					throw new ServletParseException("Bad address " + first);
@@ -548,7 +558,7 @@ public abstract class SipServletMessageImpl implements MobicentsSipServletMessag
 			if (header instanceof HeaderAddress) {
 				HeaderAddress aph = (HeaderAddress) header;
 				try {
-					AddressImpl addressImpl = new AddressImpl(
+					AddressImpl addressImpl = getAddressView(
 							aph, getModifiableRule(hName));
 					retval.add(addressImpl);
 				} catch (ParseException ex) {
@@ -567,6 +577,24 @@ public abstract class SipServletMessageImpl implements MobicentsSipServletMessag
 		return retval.listIterator();
 	}
 
+	/**
+	 * Returns the address facade for the given header, reusing the one already handed out
+	 * for it as long as it is still an unmodified view of that header, see {@link AddressViews}.
+	 */
+	protected synchronized AddressImpl getAddressView(HeaderAddress header, ModifiableRule modifiableRule) throws ParseException {
+		if(addressViews == null) {
+			addressViews = new AddressViews();
+		}
+		return addressViews.get(header, modifiableRule);
+	}
+
+	/**
+	 * Forgets the address facades handed out so far, called when headers are replaced or removed.
+	 */
+	protected synchronized void clearAddressViews() {
+		addressViews = null;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 *
@@ -724,6 +752,7 @@ public abstract class SipServletMessageImpl implements MobicentsSipServletMessag
 	 * @see javax.servlet.sip.SipServletMessage#getContent()
 	 */
 	public Object getContent() throws IOException, UnsupportedEncodingException {
+		flushContent();
 		ContentTypeHeader contentTypeHeader = (ContentTypeHeader)
  			this.message.getHeader(ContentTypeHeader.NAME);
 		if(contentTypeHeader != null && logger.isDebugEnabled()) {
@@ -731,22 +760,15 @@ public abstract class SipServletMessageImpl implements MobicentsSipServletMessag
 			logger.debug("Content sub type " + contentTypeHeader.getContentSubType());
 		}
 		if(contentTypeHeader!= null && CONTENT_TYPE_TEXT.equals(contentTypeHeader.getContentType())) {
-			String content = null;
-			if(message.getRawContent() != null) {
-				String charset = this.getCharacterEncoding();
-				if(charset == null) {
-					content = new String(message.getRawContent());
-				} else {
-					content = new String(message.getRawContent(), charset);
-				}
-			} else {
-				content = "";
+			final CharSequence content = getContentCharSequence();
+			if(content == null) {
+				return "";
 			}
-			return content;
+			return content.toString();
 		} else if(contentTypeHeader!= null && CONTENT_TYPE_MULTIPART.equals(contentTypeHeader.getContentType())) {
 			try {
 				return new MimeMultipart(new ByteArrayDataSource(message.getRawContent(),
-						contentTypeHeader.toString().replaceAll(ContentTypeHeader.NAME+": ", "")));
+						getContentTypeValue(contentTypeHeader)));
 			} catch (MessagingException e) {
 				logger.warn("Problem with multipart message.", e);
 				return this.message.getRawContent();
@@ -756,6 +778,170 @@ public abstract class SipServletMessageImpl implements MobicentsSipServletMessag
 		}
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.javax.servlet.sip.SipServletMessageExt#getContentBuffer()
+	 */
+	public ByteBuffer getContentBuffer() {
+		flushContent();
+		final byte[] rawContent = message.getRawContent();
+		if(rawContent == null) {
+			return null;
+		}
+		return ByteBuffer.wrap(rawContent).asReadOnlyBuffer();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.javax.servlet.sip.SipServletMessageExt#getContentCharSequence()
+	 */
+	public CharSequence getContentCharSequence() throws UnsupportedEncodingException {
+		flushContent();
+		final byte[] rawContent = message.getRawContent();
+		if(rawContent == null) {
+			return null;
+		}
+		final String charset = getCharacterEncoding();
+		// the raw content array isn't guaranteed to be the same from one call to the other when the body was set
+		// as a String, so the decoded body is keyed on the content object the message holds
+		final Object content = message.getContent();
+		DecodedContent decoded = decodedContent;
+		if(decoded == null || !decoded.isDecodedFrom(content, charset)) {
+			decoded = new DecodedContent(content, rawContent, charset);
+			decodedContent = decoded;
+		}
+		return decoded.content;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.javax.servlet.sip.SipServletMessageExt#getParsedContent()
+	 */
+	public Object getParsedContent() throws IOException {
+		final ContentTypeHeader contentTypeHeader = (ContentTypeHeader)
+ 			this.message.getHeader(ContentTypeHeader.NAME);
+		if(contentTypeHeader != null && CONTENT_TYPE_TEXT.equals(contentTypeHeader.getContentType())) {
+			return getContentCharSequence();
+		} else if(contentTypeHeader != null && CONTENT_TYPE_MULTIPART.equals(contentTypeHeader.getContentType())) {
+			if(multipartContent == null) {
+				final byte[] rawContent = message.getRawContent();
+				if(rawContent == null) {
+					return null;
+				}
+				try {
+					multipartContent = new TrackedMultipart(new ByteArrayDataSource(rawContent,
+							getContentTypeValue(contentTypeHeader)));
+				} catch (MessagingException e) {
+					throw new IOException("Problem with multipart message.", e);
+				}
+			}
+			return multipartContent;
+		} else {
+			return getContentBuffer();
+		}
+	}
+
+	/**
+	 * Writes the multipart handed out by getParsedContent back to the body of the message if the application
+	 * changed it since it was parsed or last written back. Called before the body is read and whenever the JAIN SIP message
+	 * leaves this message : when it is sent, proxied or copied to another message.
+	 * The multipart is kept so that later changes are written back as well, until the message is committed :
+	 * the body of a committed message is never rewritten and the multipart is frozen.
+	 */
+	public void flushContent() {
+		final TrackedMultipart multipart = multipartContent;
+		if(multipart == null || multipart.isFrozen()) {
+			return;
+		}
+		if(isCommitted()) {
+			// the transaction may retransmit the body of a committed message, it must not change anymore
+			multipart.freeze();
+			return;
+		}
+		if(!multipart.isModified()) {
+			return;
+		}
+		final ContentTypeHeader contentTypeHeader = (ContentTypeHeader)
+ 			this.message.getHeader(ContentTypeHeader.NAME);
+		if(contentTypeHeader == null) {
+			return;
+		}
+		try {
+			final ByteArrayOutputStream os = new ByteArrayOutputStream();
+			multipart.writeTo(os);
+			this.message.setContent(os.toByteArray(), contentTypeHeader);
+			multipart.clearModified();
+		} catch (Exception e) {
+			throw new IllegalStateException("Problem writing the multipart content back to the message", e);
+		}
+	}
+
+	/**
+	 * @return the value of the Content-Type header, without the header name
+	 */
+	/**
+	 * Freezes the multipart handed out by getParsedContent once the message has been sent,
+	 * its changes aren't written to the body anymore
+	 */
+	protected void freezeContent() {
+		final TrackedMultipart multipart = multipartContent;
+		if(multipart != null) {
+			multipart.freeze();
+		}
+	}
+
+	private static String getContentTypeValue(ContentTypeHeader contentTypeHeader) {
+		final String header = contentTypeHeader.toString();
+		return header.substring(header.indexOf(':') + 1).trim();
+	}
+
+	private static void checkCharset(String charset) throws UnsupportedEncodingException {
+		if(charset == null) {
+			throw new NullPointerException("the charset is null");
+		}
+		try {
+			if(Charset.isSupported(charset)) {
+				return;
+			}
+		} catch (IllegalCharsetNameException e) {
+			// unsupported as well
+		}
+		throw new UnsupportedEncodingException(charset);
+	}
+
+	/**
+	 * Body of the message as characters along with what it was decoded from.
+	 * Bodies made only of US-ASCII characters in an ASCII compatible charset are not decoded,
+	 * the characters are read straight from the raw content.
+	 */
+	private static final class DecodedContent {
+		private final Object source;
+		private final String charset;
+		private final CharSequence content;
+
+		DecodedContent(Object source, byte[] rawContent, String charset) throws UnsupportedEncodingException {
+			this.source = source;
+			this.charset = charset;
+			if(isAsciiCompatible(charset) && AsciiCharSequence.isAscii(rawContent)) {
+				content = new AsciiCharSequence(rawContent);
+			} else if(charset == null) {
+				content = new String(rawContent);
+			} else {
+				content = new String(rawContent, charset);
+			}
+		}
+
+		boolean isDecodedFrom(Object source, String charset) {
+			return this.source == source
+					&& (this.charset == null ? charset == null : this.charset.equals(charset));
+		}
+
+		private static boolean isAsciiCompatible(String charset) {
+			return charset == null || "UTF-8".equalsIgnoreCase(charset) || "US-ASCII".equalsIgnoreCase(charset)
+					|| "ISO-8859-1".equalsIgnoreCase(charset);
+		}
+	}
+
 	/**
 	 * Return a mimemultipart from raw Content
 	 * FIXME Doesn't support nested multipart in the body content
@@ -892,7 +1078,7 @@ public abstract class SipServletMessageImpl implements MobicentsSipServletMessag
 //		AddressImpl address = new AddressImpl(from.getAddress(), AddressImpl.getParameters((Parameters)from), ModifiableRule.From);
 		// https://code.google.com/p/sipservlets/issues/detail?id=245
         try {
-            return new AddressImpl(from, ModifiableRule.From);
+            return getAddressView(from, ModifiableRule.From);
         } catch (ParseException e) {
             throw new IllegalArgumentException("Couldn't parse From Header " + from, e);
         }
@@ -1036,6 +1222,7 @@ public abstract class SipServletMessageImpl implements MobicentsSipServletMessag
 	 * @see javax.servlet.sip.SipServletMessage#getRawContent()
 	 */
 	public byte[] getRawContent() throws IOException {
+		flushContent();
 		if (message != null)
 			return message.getRawContent();
 		else
@@ -1278,6 +1465,15 @@ public abstract class SipServletMessageImpl implements MobicentsSipServletMessag
         } 
 	}
 
+	/**
+	 * Records the time spent sending the message out as the {@link DispatchStage#Send} stage latency
+	 * @param sendStart the System.nanoTime() when the send started
+	 */
+	protected void updateSendLatency(long sendStart) {
+		final String applicationName = sessionKey != null ? sessionKey.getApplicationName() : null;
+		sipFactoryImpl.getSipApplicationDispatcher().updateDispatchStageLatency(DispatchStage.Send, getMethod(), applicationName, System.nanoTime() - sendStart);
+	}
+
 	/**
 	 * @param session the session to set
 	 */
@@ -1302,7 +1498,7 @@ public abstract class SipServletMessageImpl implements MobicentsSipServletMessag
 		// return new AddressImpl(to.getAddress(), AddressImpl.getParameters((Parameters)to), ModifiableRule.To);
 		// https://code.google.com/p/sipservlets/issues/detail?id=245
 		try {
-            return new AddressImpl(to, ModifiableRule.From);
+            return getAddressView(to, ModifiableRule.From);
         } catch (ParseException e) {
             throw new IllegalArgumentException("Couldn't parse From Header " + to, e);
         }
@@ -1390,6 +1586,7 @@ public abstract class SipServletMessageImpl implements MobicentsSipServletMessag
 		String nameToSearch = getCorrectHeaderName(hName);
 
 		this.message.removeHeader(nameToSearch);
+		clearAddressViews();
 
 	}
 
@@ -1413,6 +1610,7 @@ public abstract class SipServletMessageImpl implements MobicentsSipServletMessag
 		String nameToRemove = getCorrectHeaderName(hName);
 		try {
 			message.removeHeader(nameToRemove);
+			clearAddressViews();
 		} catch (Exception ex) {
 			throw new IllegalArgumentException("Illegal args supplied ", ex);
 		}
@@ -1475,6 +1673,7 @@ public abstract class SipServletMessageImpl implements MobicentsSipServletMessag
 			h = SipFactoryImpl.headerFactory.createHeader(headerNameToAdd, addr
 					.toString());
 			this.message.setHeader(h);
+			clearAddressViews();
 		} catch (ParseException e) {
 			logger.error("Parsing problem while setting address header with name "
 					+ name + " and address "+ addr, e);
@@ -1499,7 +1698,7 @@ public abstract class SipServletMessageImpl implements MobicentsSipServletMessag
 	 * @see javax.servlet.sip.SipServletMessage#setCharacterEncoding(java.lang.String)
 	 */
 	public void setCharacterEncoding(String enc) throws UnsupportedEncodingException {
-		new String("testEncoding".getBytes(),enc);
+		checkCharset(enc);
 		checkCommitted();
 		try {
 			this.message.setContentEncoding(SipFactoryImpl.headerFactory
@@ -1522,6 +1721,8 @@ public abstract class SipServletMessageImpl implements MobicentsSipServletMessag
 		}
 		checkContentType(contentType);
 		checkCommitted();
+		// the multipart handed out so far doesn't describe the body anymore
+		multipartContent = null;
 
 		if(contentType != null && contentType.length() > 0) {
 			this.addHeader(ContentTypeHeader.NAME, contentType);
@@ -1532,15 +1733,13 @@ public abstract class SipServletMessageImpl implements MobicentsSipServletMessag
 				if(contentType.contains(CONTENT_TYPE_MULTIPART) && content instanceof Multipart) {
 					// Fix for Issue 2667 : Correct Handling of MimeMultipart
 					Multipart multipart = (Multipart) content;
-					OutputStream os = new ByteArrayOutputStream();
+					ByteArrayOutputStream os = new ByteArrayOutputStream();
 					multipart.writeTo(os);
-					this.message.setContent(os.toString(), contentTypeHeader);
+					this.message.setContent(os.toByteArray(), contentTypeHeader);
 				} else {
-					Object tmpContent = content;
-					if(tmpContent instanceof String  && charset != null) {
+					if(content instanceof String && charset != null) {
 						//test for unsupportedencoding exception
-						new String("testEncoding".getBytes(charset));
-						tmpContent = new String(((String)tmpContent).getBytes());
+						checkCharset(charset);
 					}
 					this.message.setContent(content, contentTypeHeader);
 				}
@@ -1655,7 +1854,8 @@ public abstract class SipServletMessageImpl implements MobicentsSipServletMessag
 
 		try {
 			// Dealing with Allow:INVITE, ACK, CANCEL, OPTIONS, BYE kind of headers
-			if(JainSipUtils.LIST_HEADER_NAMES.contains(name)) {
+			final HeaderDescriptor descriptor = HeaderRegistry.lookup(name);
+			if(descriptor != null && descriptor.isList()) {
 				this.message.removeHeader(name);
 				List<Header> headers = SipFactory.getInstance().createHeaderFactory()
 					.createHeaders(name + ":" + value);
@@ -1668,6 +1868,7 @@ public abstract class SipServletMessageImpl implements MobicentsSipServletMessag
 					.createHeader(name, value);
 				this.message.setHeader(header);
 			}
+			clearAddressViews();
 		} catch (Exception e) {
 			throw new IllegalArgumentException("Error creating header!", e);
 		}
@@ -1830,9 +2031,8 @@ public abstract class SipServletMessageImpl implements MobicentsSipServletMessag
 	 * @return
 	 */
 	public static boolean isAddressTypeHeader(String headerName) {
-
-		return JainSipUtils.ADDRESS_HEADER_NAMES.contains(getFullHeaderName(headerName));
-
+		final HeaderDescriptor descriptor = HeaderRegistry.lookup(headerName);
+		return descriptor != null && descriptor.isAddress();
 	}
 
 	/**
@@ -1844,12 +2044,8 @@ public abstract class SipServletMessageImpl implements MobicentsSipServletMessag
 	 */
 	protected static String getFullHeaderName(String headerName) {
 
-		String fullName = null;
-		if (JainSipUtils.HEADER_COMPACT_2_FULL_NAMES_MAPPINGS.containsKey(headerName)) {
-			fullName = JainSipUtils.HEADER_COMPACT_2_FULL_NAMES_MAPPINGS.get(headerName);
-		} else {
-			fullName = headerName;
-		}
+		final HeaderDescriptor descriptor = HeaderRegistry.lookup(headerName);
+		final String fullName = descriptor != null ? descriptor.getName() : headerName;
 		if (logger.isDebugEnabled())
 			logger.debug("Fetching full header name for [" + headerName
 					+ "] returning [" + fullName + "]");
@@ -1868,13 +2064,9 @@ public abstract class SipServletMessageImpl implements MobicentsSipServletMessag
 	 */
 	public static String getCompactName(String headerName) {
 
-		String compactName = null;
-		if (JainSipUtils.HEADER_COMPACT_2_FULL_NAMES_MAPPINGS.containsKey(headerName)) {
-			compactName = JainSipUtils.HEADER_COMPACT_2_FULL_NAMES_MAPPINGS.get(headerName);
-		} else {
-			// This can be null if there is no mapping!!!
-			compactName = JainSipUtils.HEADER_FULL_TO_COMPACT_NAMES_MAPPINGS.get(headerName);
-		}
+		final HeaderDescriptor descriptor = HeaderRegistry.lookup(headerName);
+		// This can be null if there is no mapping!!!
+		final String compactName = descriptor != null ? descriptor.getCompactName() : null;
 		if (logger.isDebugEnabled())
 			logger.debug("Fetching compact header name for [" + headerName
 					+ "] returning [" + compactName + "]");
@@ -1889,18 +2081,24 @@ public abstract class SipServletMessageImpl implements MobicentsSipServletMessag
 	}
 
 	protected static String getCorrectHeaderName(String name, HeaderForm form) {
+		if (form == HeaderForm.DEFAULT) {
+			return name;
+		}
+		return getCorrectHeaderName(HeaderRegistry.lookup(name), name, form);
+	}
+
+	private static String getCorrectHeaderName(HeaderDescriptor descriptor, String name, HeaderForm form) {
 
 		if (form == HeaderForm.DEFAULT) {
 			return name;
 		} else if (form == HeaderForm.COMPACT) {
 
-			String compact = getCompactName(name);
-			if (compact != null)
-				return compact;
+			if (descriptor != null && descriptor.getCompactName() != null)
+				return descriptor.getCompactName();
 			else
 				return name;
 		} else if (form == HeaderForm.LONG) {
-			return getFullHeaderName(name);
+			return descriptor != null ? descriptor.getName() : name;
 		} else {
 			// ERROR ? - this shouldnt happen
 			throw new IllegalStateException(
@@ -1980,162 +2178,12 @@ public abstract class SipServletMessageImpl implements MobicentsSipServletMessag
 		if (logger.isDebugEnabled())
 			logger.debug("Creating parametrable for [" + hName + "] from ["
 					+ whole + "]");
-		// Remove name
-		String stringHeader = whole.substring(whole.indexOf(":") + 1).trim();
-//		if (!stringHeader.contains("<") || !stringHeader.contains(">")
-//				|| !isParameterable(getFullHeaderName(hName))) {
-
 		Map<String, String> paramMap = new HashMap<String, String>();
-		String value = stringHeader;
-		String displayName = null;
-		// Issue 2201 : javax.servlet.sip.ServletParseException: Impossible to parse the following header Remote-Party-ID as an address.
-		// Need to handle the display name
-		if(stringHeader.trim().indexOf("\"") == 0) {
-			String displayNameString = stringHeader.substring(1);
-			int nextIndexOfDoubleQuote = displayNameString.indexOf("\"");
-			displayName = stringHeader.substring(0, nextIndexOfDoubleQuote + 2);
-			stringHeader = stringHeader.substring(nextIndexOfDoubleQuote + 2).trim();
-		}
-
-		boolean hasLaRaQuotes = false;
-		if(stringHeader.trim().indexOf("<") == 0) {
-
-			stringHeader = stringHeader.substring(1);
-			int indexOfBracket = stringHeader.indexOf(">");
-			if(indexOfBracket != -1) {
-				hasLaRaQuotes = true;
-			}
-			//String[] split = stringHeader.split(">");
-
-			value = stringHeader.substring(0, indexOfBracket);//split[0];
-			String restOfHeader = stringHeader.substring(indexOfBracket+1) ;
-
-			if (restOfHeader.length() > 1 && restOfHeader.contains(";")) {
-				// repleace first ";" with "" because it separates us from the URI that we romved
-				restOfHeader = restOfHeader.replaceFirst(";", "");
-				String[] split = restOfHeader.split(";");
-
-				// Now concatenate the items that have quotes that represent nested parameters http://code.google.com/p/sipservlets/issues/detail?id=105
-				// example <sip:1.2.3.4:5061>;expires=500;+sip.instance="<urn:uuid:00000000-0000-0000-0000-000000000000>";gruu="sip:100@ocs14.com;opaque=user:epid:xxxxxxxxxxxxxxxxxxxxxxxx;gruu"
-				ArrayList<StringBuffer> resplitListWithQuotes = new ArrayList<StringBuffer>(); // here we collect the items and append related entries that are part of the same quotation zone
-				int resplitIndex = 0;
-				boolean addToPrevious = false;
-				for(int q=0; q<split.length; q++) {
-					int countQuotes = countChars(split[q], '\"'); // how many " signs are there
-					if(countQuotes%2!=0) { // if not mod 2 then there is unclosed quote in that item
-						if(addToPrevious) { // if we alreay have seen one it means this quote is closing quote
-							resplitListWithQuotes.get(resplitIndex-1).append(";" + split[q]); // must reappend the ";" symbol because we lost it in the split
-							addToPrevious = false;
-						} else { // otherwise it's an opening quote
-							resplitListWithQuotes.add(new StringBuffer(split[q]));
-							resplitIndex++;
-							addToPrevious = true;
-						}
-					} else { // if mod 2 then there are no unclosed quotes in that item
-						if(addToPrevious) { // we will add any data
-							resplitListWithQuotes.get(resplitIndex-1).append(";" + split[q]); // must reappend the ";" symbol because we lost it in the split
-						} else {
-							resplitListWithQuotes.add(new StringBuffer(split[q])); // this is the normal case without quotes to take care of
-							resplitIndex++;
-						}
-					}
-				}
-
-				if(addToPrevious) {
-					// Lets warn if something is really that wrong
-					throw new RuntimeException("Unclosed quote sign in this string " + whole);
-				}
-
-				// Change the split array now with the adjusted array
-				String[] newSplit = new String[resplitListWithQuotes.size()];
-				for(int q=0; q<resplitListWithQuotes.size(); q++) {
-					newSplit[q] = resplitListWithQuotes.get(q).toString();
-				}
-				split = newSplit;
-
-				// And process with the usual algorithm
-				for (String pair : split) {
-					int indexOfEq = pair.indexOf('=');
-					String key = null;
-					String val = null;
-					if(indexOfEq<0) {
-						key = pair;
-						val = "";
-					} else {
-						key = pair.substring(0, indexOfEq);
-						if(indexOfEq+1>pair.length()) {
-							val = "";
-						} else {
-							val = pair.substring(indexOfEq+1);
-						}
-					}
-
-					// Fix to Issue 1010 (http://code.google.com/p/mobicents/issues/detail?id=1010) : Unable to set flag parameter to parameterable header
-					// from Alexander Kozlov from Codeminders
-					paramMap.put(key, val);
-				}
-			}
-		} else {
-			if (value.length() > 1 && value.contains(";")) {
-				// repleace first ";" with ""
-				String parameters = value.substring(value.indexOf(";") + 1);
-				value = value.substring(0, value.indexOf(";"));
-				String[] split = parameters.split(";");
-
-				for (String pair : split) {
-					String[] vals = pair.split("=");
-					if (vals.length > 2) {
-						logger
-								.error("Wrong parameter format, expected value and name, got ["
-										+ pair + "]");
-						throw new ServletParseException(
-								"Wrong parameter format, expected value or name["
-										+ pair + "]");
-					}
-					// Fix to Issue 1010 (http://code.google.com/p/mobicents/issues/detail?id=1010) : Unable to set flag parameter to parameterable header
-					// from Alexander Kozlov from Codeminders
-					paramMap.put(vals[0], vals.length == 2 ? vals[1] : "");
-				}
-			} else if (value.length() > 1 && value.contains(",")) {
-			    // Deals with https://code.google.com/p/sipservlets/issues/detail?id=239
-                // repleace first ";" with ""
-//                String parameters = value.substring(value.indexOf(",") + 1);
-//                value = value.substring(0, value.indexOf(","));
-                String[] split = value.split(",");
-
-                for (String pair : split) {
-                    String[] vals = pair.split("=");
-                    if (vals.length > 2) {
-                        logger
-                                .error("Wrong parameter format, expected value and name, got ["
-                                        + pair + "]");
-                        throw new ServletParseException(
-                                "Wrong parameter format, expected value or name["
-                                        + pair + "]");
-                    }
-                    String paramValue = vals[1];
-                    if(vals.length < 2) {
-                        paramValue ="";
-                    } else if(vals.length == 2 && vals[1].indexOf('\"') == 0 && vals[1].lastIndexOf('\"') == vals[1].length()-1) {
-                        paramValue  = vals[1].substring(1, vals[1].length()-1);
-                    }
-                    paramMap.put(vals[0], paramValue);
-                }
-            }
-		}
-
-		// quotes are parts of the value as well as the display Name
-		if(hasLaRaQuotes) {
-			value = "<" + value + ">";
-		}
-
-		// if a display name is present then we need add the quote back
-		if(displayName != null) {
-			value = displayName.concat(value);
-		}
-		final String headerName = header.getName();
-		final boolean isNotModifiable = JainSipUtils.SYSTEM_HEADERS.contains(headerName);
-		ModifiableRule modifiableRule = isNotModifiable ? ModifiableRule.NotModifiable : ModifiableRule.Modifiable;
+		// skip the name
+		String value = ParameterableParser.parse(whole, whole.indexOf(':') + 1, paramMap);
+		final HeaderDescriptor descriptor = HeaderRegistry.lookup(header.getName());
+		final String headerName = descriptor != null ? descriptor.getName() : header.getName();
+		ModifiableRule modifiableRule = descriptor != null ? descriptor.getModifiableRule() : ModifiableRule.Modifiable;
 		if(headerName.equalsIgnoreCase(FromHeader.NAME)) {
 			if(isRequest) {
 				modifiableRule = ModifiableRule.From;
@@ -2166,10 +2214,8 @@ public abstract class SipServletMessageImpl implements MobicentsSipServletMessag
 	}
 
 	public static boolean isParameterable(String header) {
-		if(JainSipUtils.PARAMETERABLE_HEADER_NAMES.contains(header)) {
-			return true;
-		}
-		return false;
+		final HeaderDescriptor descriptor = HeaderRegistry.lookup(header);
+		return descriptor != null && descriptor.isParameterable();
 	}
 
 	/**
@@ -2264,6 +2310,16 @@ public abstract class SipServletMessageImpl implements MobicentsSipServletMessag
         }
 		sipFactoryImpl = (SipFactoryImpl) in.readObject();
 		String sessionKeyString = in.readUTF();
+		// the state replicated by the previous releases has the session key right away
+		final boolean legacy = !MessageExternalizer.isFormatMarker(sessionKeyString);
+		if(!legacy) {
+			final byte version = in.readByte();
+			if(version != MessageExternalizer.FORMAT_VERSION) {
+				throw new InvalidObjectException("SIP message serialized with format version " + version
+						+ ", only version " + MessageExternalizer.FORMAT_VERSION + " is supported");
+			}
+			sessionKeyString = in.readUTF();
+		}
 		if(logger.isDebugEnabled()) {
         	logger.debug("readExternal - sessionKeyString=" + sessionKeyString);
         }
@@ -2277,41 +2333,50 @@ public abstract class SipServletMessageImpl implements MobicentsSipServletMessag
 				throw new IllegalArgumentException("SIP Sesion Key " + sessionKeyString + " previously serialized could not be reparsed", e);
 			}
 		}
-		int attributesSize = in.readInt();
-		if(attributesSize > 0) {
-			Object[][] attributesArray = (Object[][] )in.readObject();
-			attributes = new ConcurrentHashMap<String, Object>();
-			for (int i = 0; i < attributesSize; i++) {
-				String key = (String) attributesArray[0][i];
-				Object value = attributesArray[1][i];
-				attributes.put(key, value);
+		if(legacy) {
+			int attributesSize = in.readInt();
+			if(attributesSize > 0) {
+				Object[][] attributesArray = (Object[][] )in.readObject();
+				attributes = new ConcurrentHashMap<String, Object>();
+				for (int i = 0; i < attributesSize; i++) {
+					String key = (String) attributesArray[0][i];
+					Object value = attributesArray[1][i];
+					attributes.put(key, value);
+				}
 			}
+		} else {
+			attributes = MessageExternalizer.readAttributes(in);
 		}
 		if(in.readBoolean()) {
 			transactionApplicationData = (TransactionApplicationData) in.readObject();
 		}
-		headerForm = HeaderForm.valueOf(in.readUTF());
+		if(legacy) {
+			headerForm = HeaderForm.valueOf(in.readUTF());
+		} else {
+			headerForm = MessageExternalizer.readHeaderForm(in);
+		}
 		currentApplicationName = in.readUTF();
 		if(currentApplicationName.equals("")) {
 			currentApplicationName = null;
+		} else {
+			currentApplicationName = currentApplicationName.intern();
 		}
 		isMessageSent = in.readBoolean();
 		if(ReplicationStrategy.EarlyDialog == StaticServiceHolder.sipStandardService.getReplicationStrategy()) {
-			transactionId = in.readUTF();
-			if (logger.isDebugEnabled()) {
-				logger.debug("readExternal transactionId = " + transactionId);
+			final MessageExternalizer.TransactionReference transactionReference = MessageExternalizer.readTransactionReference(in);
+			if(transactionReference != null) {
+				transactionId = transactionReference.getBranchId();
+				transactionType = transactionReference.isServer();
 			}
-			if(transactionId != null) {
-				if(transactionId.equals("")) {
-					transactionId = null;
-				} else {
-					transactionType = in.readBoolean();
-					if (logger.isDebugEnabled()) {
-						logger.debug("readExternal transactionType = " + transactionType);
-					}
-				}
+			if (logger.isDebugEnabled()) {
+				logger.debug("readExternal transactionId = " + transactionId + " transactionType = " + transactionType);
 			}
 		}
+		if(legacy) {
+			message = MessageExternalizer.readLegacyMessage(in);
+		} else {
+			message = MessageExternalizer.readMessage(in);
+		}
 	}
 
 	/*
@@ -2324,6 +2389,8 @@ public abstract class SipServletMessageImpl implements MobicentsSipServletMessag
         }
 
 		out.writeObject(sipFactoryImpl);
+		out.writeUTF(MessageExternalizer.FORMAT_MARKER);
+		out.writeByte(MessageExternalizer.FORMAT_VERSION);
 		if(sessionKey != null) {
 			out.writeUTF(sessionKey.toString());
 		} else {
@@ -2333,26 +2400,14 @@ public abstract class SipServletMessageImpl implements MobicentsSipServletMessag
 				out.writeUTF(sipSession.getId());
 			}
 		}
-		if(attributes != null && attributes.size() > 0) {
-			out.writeInt(attributes.size());
-			Object[][] attributesArray = new Object[2][attributes.size()];
-			int i = 0;
-			for (Entry<String, Object> entry : attributes.entrySet()) {
-				attributesArray [0][i] = entry.getKey();
-				attributesArray [1][i] = entry.getValue();
-				i++;
-			}
-			out.writeObject(attributesArray);
-		} else {
-			out.writeInt(0);
-		}
+		MessageExternalizer.writeAttributes(out, attributes);
 		if(transactionApplicationData != null) {
 			out.writeBoolean(true);
 			out.writeObject(transactionApplicationData);
 		} else {
 			out.writeBoolean(false);
 		}
-		out.writeUTF(headerForm.toString());
+		MessageExternalizer.writeHeaderForm(out, headerForm);
 		if(currentApplicationName != null) {
 			out.writeUTF(currentApplicationName);
 		} else {
@@ -2363,17 +2418,9 @@ public abstract class SipServletMessageImpl implements MobicentsSipServletMessag
 			if (logger.isDebugEnabled()) {
 				logger.debug("writeExternal transaction = " + transaction);
 			}
-			if(transaction == null) {
-				out.writeUTF("");
-			} else {
-				if (logger.isDebugEnabled()) {
-					logger.debug("writeExternal transactionId = " + transaction.getBranchId() + " transactionType " + (transaction instanceof ServerTransaction));
-				}
-				out.writeUTF(transaction.getBranchId());
-				out.writeBoolean(transaction instanceof ServerTransaction);
-			}
+			MessageExternalizer.writeTransactionReference(out, transaction);
 		}
-		out.writeUTF(message.toString());
+		MessageExternalizer.writeMessage(out, message);
 	}
 
 	/* (non-Javadoc)
@@ -44,7 +44,6 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.Locale;
 import java.util.Queue;
-import java.util.Random;
 import java.util.Set;
 import java.util.Vector;
 
@@ -112,6 +111,7 @@ import org.mobicents.servlet.sip.core.MobicentsSipServlet;
 import org.mobicents.servlet.sip.core.RoutingState;
 import org.mobicents.servlet.sip.core.SipApplicationDispatcher;
 import org.mobicents.servlet.sip.core.SipNetworkInterfaceManager;
+import org.mobicents.servlet.sip.core.ThrottledRequestException;
 import org.mobicents.servlet.sip.core.b2bua.MobicentsB2BUAHelper;
 import org.mobicents.servlet.sip.core.dispatchers.MessageDispatcher;
 import org.mobicents.servlet.sip.core.message.MobicentsSipServletRequest;
@@ -126,6 +126,7 @@ import org.mobicents.servlet.sip.proxy.ProxyImpl;
 import org.mobicents.servlet.sip.security.AuthInfoEntry;
 import org.mobicents.servlet.sip.security.AuthInfoImpl;
 import org.mobicents.servlet.sip.startup.StaticServiceHolder;
+import org.mobicents.servlet.sip.utils.IdGenerators;
 
 public abstract class SipServletRequestImpl extends SipServletMessageImpl implements
 		MobicentsSipServletRequest {
@@ -217,7 +218,8 @@ public abstract class SipServletRequestImpl extends SipServletMessageImpl implem
                     return overriden;
                 }
 
-		String hName = getFullHeaderName(headerName);
+		final HeaderDescriptor descriptor = HeaderRegistry.lookup(headerName);
+		String hName = descriptor != null ? descriptor.getName() : headerName;
 
 		/*
 		 * Contact is a system header field in messages other than REGISTER
@@ -225,7 +227,7 @@ public abstract class SipServletRequestImpl extends SipServletMessageImpl implem
 		 * responses so it is not contained in system headers and as such
 		 * as a special treatment
 		 */
-		boolean isSystemHeader = JainSipUtils.SYSTEM_HEADERS.contains(hName);
+		boolean isSystemHeader = descriptor != null && descriptor.isSystem();
 
 		if (isSystemHeader) {
 			return ModifiableRule.NotModifiable;
@@ -383,7 +385,7 @@ public abstract class SipServletRequestImpl extends SipServletMessageImpl implem
 						}
 					} else {
 						//if the sessions are null, it means it is a cancel response
-						toHeader.setTag(Integer.toString(new Random().nextInt(10000000)));
+						toHeader.setTag(IdGenerators.getIdGenerator().generateId(8));
 					}
 				}
 				// Following restrictions in JSR 289 Section 4.1.3 Contact Header Field
@@ -967,6 +969,17 @@ public abstract class SipServletRequestImpl extends SipServletMessageImpl implem
 	 */
 	@Override
 	public void send() throws IOException {
+		final long sendStart = System.nanoTime();
+		try {
+			flushContent();
+			sendInternal();
+			freezeContent();
+		} finally {
+			updateSendLatency(sendStart);
+		}
+	}
+
+	private void sendInternal() throws IOException {
 		if(logger.isDebugEnabled()) {
 			logger.debug("send - method=" + this.getMethod());
 		}
@@ -1079,6 +1092,7 @@ public abstract class SipServletRequestImpl extends SipServletMessageImpl implem
 		if(logger.isDebugEnabled()) {
 			logger.debug("send - hop=" + hop + ", method=" + this.getMethod());
 		}
+		flushContent();
 
 		final Request request = (Request) super.message;
 		final String requestMethod = getMethod();
@@ -1261,6 +1275,13 @@ public abstract class SipServletRequestImpl extends SipServletMessageImpl implem
 						sipConnector.isUseStaticAddress()) {
 					JainSipUtils.optimizeRouteHeaderAddressForInternalRoutingrequest(sipConnector, request, session, sipFactoryImpl, transport);
 				}
+				// RFC 7339 advertise our support and honor the reduction asked by the downstream server for new requests
+				final SipApplicationDispatcher sipApplicationDispatcher = sipFactoryImpl.getSipApplicationDispatcher();
+				sipApplicationDispatcher.addOverloadControlSupport(request);
+				if(isInitial() && !MessageDispatcher.isCongestionControlGoodMethod(requestMethod) && 
+						sipApplicationDispatcher.isOverloadControlThrottled(request)) {
+					throw new ThrottledRequestException("the downstream server is overloaded, not sending " + requestMethod);
+				}
 				if(logger.isDebugEnabled()) {
 					logger.debug("Getting new Client Tx for request " + request);
 				}
@@ -1425,6 +1446,7 @@ public abstract class SipServletRequestImpl extends SipServletMessageImpl implem
 					logger.debug("send - message is sent - calling updateRequestsStatistics");
 				}
 				sipFactoryImpl.getSipApplicationDispatcher().updateRequestsStatistics(request, false);
+				sipFactoryImpl.getSipApplicationDispatcher().updateApplicationRequestsStatistics(session.getKey().getApplicationName(), method, false);
 				isMessageSent = true;
 
 				if(method.equals(Request.INVITE)) {
@@ -1433,6 +1455,20 @@ public abstract class SipServletRequestImpl extends SipServletMessageImpl implem
 			} finally {
 				Thread.currentThread().setContextClassLoader(oldClassLoader);
 			}
+		} catch (ThrottledRequestException ex) {
+			if(logger.isDebugEnabled()) {
+				logger.debug("send - request not sent because of overload control", ex);
+			}
+			// overload control chose to drop the request : no transaction was created 
+			// and the request must not be failed over to the next hop, it is only cleaned up to be resent later
+			if(transactionApplicationData.getHops() != null && transactionApplicationData.getHops().size() > 0) {
+				request.removeFirst(RouteHeader.NAME);
+			}
+			message = (Request) request.clone();
+			message.removeFirst(ViaHeader.NAME);
+			message.removeFirst(ContactHeader.NAME);
+			setTransaction(null);
+			throw ex;
 		} catch (Exception ex) {
 			if(logger.isDebugEnabled()) {
 				logger.debug("send - exception while trying to send the request", ex);
@@ -1915,11 +1951,11 @@ public abstract class SipServletRequestImpl extends SipServletMessageImpl implem
 	 * @throws SipException
 	 * @throws NullPointerException
 	 */
-	private void addInfoForRoutingBackToContainer(SipApplicationRouterInfo routerInfo, String applicationSessionId, String applicationName) throws ParseException, SipException {
+	private void addInfoForRoutingBackToContainer(SipApplicationRouterInfo routerInfo, String applicationSessionId, String applicationName) throws ParseException, SipException, InvalidArgumentException {
 		final Request request = (Request) super.message;
-		final javax.sip.address.SipURI sipURI = JainSipUtils.createRecordRouteURI(
-				sipFactoryImpl.getSipNetworkInterfaceManager(),
-				request);
+		final javax.sip.address.SipURI sipURI = createRouteBackToContainerURI(
+				sipFactoryImpl.getSipNetworkInterfaceManager(), request,
+				sipFactoryImpl.getSipApplicationDispatcher().isLocalApplicationComposition(), applicationSessionId);
 		sipURI.setLrParam();
 		sipURI.setParameter(MessageDispatcher.ROUTE_PARAM_DIRECTIVE,
 				routingDirective.toString());
@@ -1944,6 +1980,42 @@ public abstract class SipServletRequestImpl extends SipServletMessageImpl implem
 		session.setNextSipApplicationRouterInfo(routerInfo);
 	}
 
+	/**
+	 * Creates the URI of the Route header sending the request back to the container.
+	 * With local application composition, the request is addressed to one of our own listening points, rather than 
+	 * to the static or public address which can go through a load balancer or a NAT, so that the stack delivers it in the JVM.
+	 * The top Via is then addressed to it as well so that the responses of the next application come back the same way.
+	 * @param applicationSessionId the id of the application session sending the request
+	 * @return the URI of the Route header, without its parameters
+	 */
+	static javax.sip.address.SipURI createRouteBackToContainerURI(SipNetworkInterfaceManager sipNetworkInterfaceManager, Request request, 
+			boolean localApplicationComposition, String applicationSessionId) throws ParseException, InvalidArgumentException {
+		if(!localApplicationComposition) {
+			return JainSipUtils.createRecordRouteURI(sipNetworkInterfaceManager, request);
+		}
+		final javax.sip.address.SipURI sipURI = JainSipUtils.createLocalRecordRouteURI(sipNetworkInterfaceManager, request);
+		final ViaHeader viaHeader = (ViaHeader) request.getHeader(ViaHeader.NAME);
+		if(isContainerVia(viaHeader, applicationSessionId)) {
+			viaHeader.setHost(sipURI.getHost());
+			viaHeader.setPort(sipURI.getPort());
+		} else if(logger.isDebugEnabled()) {
+			logger.debug("top Via " + viaHeader + " not added by the container, the responses of the next application will follow it");
+		}
+		return sipURI;
+	}
+
+	/**
+	 * The Via headers added by the container have a branch made of the magic cookie and of the id of the application session,
+	 * see {@link JainSipUtils#createBranch(String, String)}, while the top Via can also be the one of the upstream element
+	 */
+	static boolean isContainerVia(ViaHeader viaHeader, String applicationSessionId) {
+		if(viaHeader == null || applicationSessionId == null) {
+			return false;
+		}
+		final String branch = viaHeader.getBranch();
+		return branch != null && branch.startsWith(MessageDispatcher.BRANCH_MAGIC_COOKIE + applicationSessionId + "_");
+	}
+
 	public void setLinkedRequest(SipServletRequestImpl linkedRequest) {
 		this.linkedRequest = linkedRequest;
 
@@ -2608,12 +2680,6 @@ public abstract class SipServletRequestImpl extends SipServletMessageImpl implem
         }
 
 		super.readExternal(in);
-		String messageString = in.readUTF();
-		try {
-			message = SipFactoryImpl.messageFactory.createRequest(messageString);
-		} catch (ParseException e) {
-			throw new IllegalArgumentException("Message " + messageString + " previously serialized could not be reparsed", e);
-		}
 		boolean isLinkedRequestSerialized = in.readBoolean();
 		if (isLinkedRequestSerialized) {
 			linkedRequest = (SipServletRequestImpl) in.readObject();
@@ -144,7 +144,8 @@ public abstract class SipServletResponseImpl extends SipServletMessageImpl imple
                     return overriden;
                 }
                 
-		String hName = getFullHeaderName(headerName);
+		final HeaderDescriptor descriptor = HeaderRegistry.lookup(headerName);
+		String hName = descriptor != null ? descriptor.getName() : headerName;
 
 		/*
 		 * Contact is a system header field in messages other than REGISTER
@@ -153,7 +154,7 @@ public abstract class SipServletResponseImpl extends SipServletMessageImpl imple
 		 */
 
 		// This doesnt contain contact!!!!
-		boolean isSystemHeader = JainSipUtils.SYSTEM_HEADERS.contains(hName);
+		boolean isSystemHeader = descriptor != null && descriptor.isSystem();
 
 		if (isSystemHeader) {
 			return ModifiableRule.NotModifiable;
@@ -474,6 +475,17 @@ public abstract class SipServletResponseImpl extends SipServletMessageImpl imple
 	}
 
 	public void send(boolean sendReliably) throws IOException {
+		final long sendStart = System.nanoTime();
+		try {
+			flushContent();
+			sendInternal(sendReliably);
+			freezeContent();
+		} finally {
+			updateSendLatency(sendStart);
+		}
+	}
+
+	private void sendInternal(boolean sendReliably) throws IOException {
 		if(isMessageSent) {
 			throw new IllegalStateException("message already sent");
 		}
@@ -533,6 +545,8 @@ public abstract class SipServletResponseImpl extends SipServletMessageImpl imple
 				final Header rseqHeader = SipFactoryImpl.headerFactory.createRSeqHeader(getTransactionApplicationData().getRseqNumber().getAndIncrement());
 				response.addHeader(rseqHeader);
 			}
+			// RFC 7339 let the upstream client know how much it should reduce its traffic
+			sipFactoryImpl.getSipApplicationDispatcher().addOverloadControlFeedback(response);
 			if(logger.isDebugEnabled()) {
 				logger.debug("sending response "+ this.message);
 			}
@@ -652,6 +666,7 @@ public abstract class SipServletResponseImpl extends SipServletMessageImpl imple
 					}
 					transaction.sendResponse( (Response)this.message );
 					sipFactoryImpl.getSipApplicationDispatcher().updateResponseStatistics((Response)this.message, false);
+					sipFactoryImpl.getSipApplicationDispatcher().updateApplicationResponseStatistics(session.getKey().getApplicationName(), statusCode, false);
 					if(dialog != null) {
 						// we need to set the dialog again because it's possible that when the dialog
 						// was created it was in null state thus no dialog id so we need to reset it to trigger
@@ -827,12 +842,6 @@ public abstract class SipServletResponseImpl extends SipServletMessageImpl imple
 	public void readExternal(ObjectInput in) throws IOException,
 			ClassNotFoundException {
 		super.readExternal(in);
-		String messageString = in.readUTF();
-		try {
-			message = SipFactoryImpl.messageFactory.createResponse(messageString);
-		} catch (ParseException e) {
-			throw new IllegalArgumentException("Message " + messageString + " previously serialized could not be reparsed", e);
-		}
 		boolean isOriginalRequestSerialized = in.readBoolean();
 		if (isOriginalRequestSerialized) {
 			originalRequest = (SipServletRequestImpl) in.readObject();
@@ -0,0 +1,189 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.message;
+
+import java.io.InputStream;
+
+import javax.activation.DataHandler;
+import javax.activation.DataSource;
+import javax.mail.BodyPart;
+import javax.mail.IllegalWriteException;
+import javax.mail.MessagingException;
+import javax.mail.internet.InternetHeaders;
+import javax.mail.internet.MimeBodyPart;
+import javax.mail.internet.MimeMultipart;
+
+/**
+ * Multipart body handed out to the application by getParsedContent. It remembers whether the application changed it
+ * since it was parsed or last written back to the message, so that a body that wasn't changed is never encoded again.
+ * Changes are tracked on the multipart and on the body parts it was parsed with, not on the parts added 
+ * by the application afterwards nor on nested multiparts.</br>
+ * Once the message is committed the multipart is frozen, changing it throws an {@link IllegalWriteException}.
+ */
+final class TrackedMultipart extends MimeMultipart {
+
+	private volatile boolean modified;
+	private volatile boolean frozen;
+	// guarded by this, as parse and addBodyPart are
+	private boolean parsing;
+
+	TrackedMultipart(DataSource dataSource) throws MessagingException {
+		super(dataSource);
+	}
+
+	/**
+	 * @return true if the multipart was changed since it was parsed or since the last call to {@link #clearModified()}
+	 */
+	boolean isModified() {
+		return modified;
+	}
+
+	void clearModified() {
+		modified = false;
+	}
+
+	/**
+	 * Prevents any further change to the multipart
+	 */
+	void freeze() {
+		frozen = true;
+	}
+
+	boolean isFrozen() {
+		return frozen;
+	}
+
+	void modify() throws IllegalWriteException {
+		if(frozen) {
+			throw new IllegalWriteException("the message has been committed, its content can't be modified anymore");
+		}
+		modified = true;
+	}
+
+	@Override
+	protected synchronized void parse() throws MessagingException {
+		// the body parts are added while parsing, which is not a change
+		parsing = true;
+		try {
+			super.parse();
+		} finally {
+			parsing = false;
+		}
+	}
+
+	@Override
+	public synchronized void addBodyPart(BodyPart part) throws MessagingException {
+		if(!parsing) {
+			modify();
+		}
+		super.addBodyPart(part);
+	}
+
+	@Override
+	public synchronized void addBodyPart(BodyPart part, int index) throws MessagingException {
+		if(!parsing) {
+			modify();
+		}
+		super.addBodyPart(part, index);
+	}
+
+	@Override
+	public boolean removeBodyPart(BodyPart part) throws MessagingException {
+		modify();
+		return super.removeBodyPart(part);
+	}
+
+	@Override
+	public void removeBodyPart(int index) throws MessagingException {
+		modify();
+		super.removeBodyPart(index);
+	}
+
+	@Override
+	public synchronized void setSubType(String subtype) throws MessagingException {
+		modify();
+		super.setSubType(subtype);
+	}
+
+	@Override
+	public synchronized void setPreamble(String preamble) throws MessagingException {
+		modify();
+		super.setPreamble(preamble);
+	}
+
+	@Override
+	protected MimeBodyPart createMimeBodyPart(InternetHeaders headers, byte[] content) throws MessagingException {
+		return new TrackedBodyPart(this, headers, content);
+	}
+
+	@Override
+	protected MimeBodyPart createMimeBodyPart(InputStream is) throws MessagingException {
+		return new TrackedBodyPart(this, is);
+	}
+
+	/**
+	 * Body part reporting its changes to the multipart it was parsed with. All the setters of MimeBodyPart 
+	 * go through the content or the headers of the part.
+	 */
+	private static final class TrackedBodyPart extends MimeBodyPart {
+		private final TrackedMultipart multipart;
+
+		TrackedBodyPart(TrackedMultipart multipart, InternetHeaders headers, byte[] content) throws MessagingException {
+			super(headers, content);
+			this.multipart = multipart;
+		}
+
+		TrackedBodyPart(TrackedMultipart multipart, InputStream is) throws MessagingException {
+			super(is);
+			this.multipart = multipart;
+		}
+
+		@Override
+		public void setDataHandler(DataHandler dh) throws MessagingException {
+			multipart.modify();
+			super.setDataHandler(dh);
+		}
+
+		@Override
+		public void setHeader(String name, String value) throws MessagingException {
+			multipart.modify();
+			super.setHeader(name, value);
+		}
+
+		@Override
+		public void addHeader(String name, String value) throws MessagingException {
+			multipart.modify();
+			super.addHeader(name, value);
+		}
+
+		@Override
+		public void addHeaderLine(String line) throws MessagingException {
+			multipart.modify();
+			super.addHeaderLine(line);
+		}
+
+		@Override
+		public void removeHeader(String name) throws MessagingException {
+			multipart.modify();
+			super.removeHeader(name);
+		}
+	}
+}
@@ -64,6 +64,7 @@ import org.mobicents.servlet.sip.core.DispatcherException;
 import org.mobicents.servlet.sip.core.RoutingState;
 import org.mobicents.servlet.sip.core.SipApplicationDispatcher;
 import org.mobicents.servlet.sip.core.SipNetworkInterfaceManager;
+import org.mobicents.servlet.sip.core.ThrottledRequestException;
 import org.mobicents.servlet.sip.core.message.MobicentsSipServletRequest;
 import org.mobicents.servlet.sip.core.message.MobicentsSipServletResponse;
 import org.mobicents.servlet.sip.core.proxy.MobicentsProxyBranch;
@@ -109,6 +110,8 @@ public class ProxyBranchImpl implements MobicentsProxyBranch, Externalizable {
 	private transient SipURI pathURI;
 	private boolean started;
 	private boolean timedOut;
+	// RFC 7339 the request of the branch was not sent since the downstream server asked to reduce the traffic
+	private boolean throttled;
 	private int proxyBranchTimeout;
 	private int proxyBranch1xxTimeout;
 	private transient ProxyBranchTimerTask proxyTimeoutTask;
@@ -181,6 +184,7 @@ public class ProxyBranchImpl implements MobicentsProxyBranch, Externalizable {
 		// custom headers and push routes here. Later when we actually proxy the request we
 		// will clone this request (with it's custome headers and routes), but we will override
 		// the modified RR and Path parameters (as defined in the spec).
+		originalRequest.flushContent();
 		Request cloned = (Request)originalRequest.getMessage().clone();
 		((MessageExt)cloned).setApplicationData(null);
 		this.outgoingRequest = (SipServletRequestImpl) proxy.getSipFactoryImpl().getMobicentsSipServletMessageFactory().createSipServletRequest(
@@ -602,6 +606,20 @@ public class ProxyBranchImpl implements MobicentsProxyBranch, Externalizable {
 				logger.debug("forwardRequest - sending the cloned request=" + clonedRequest);
 			}
 			clonedRequest.send();			
+		} catch (ThrottledRequestException e) {
+			// RFC 7339 the downstream server asked to reduce the traffic, only this branch fails,
+			// the proxy answers 503 upstream only if no other branch gets a better response
+			logger.warn(e.getMessage());
+			cancel1xxTimer();
+			cancelTimer();
+			throttled = true;
+			onBranchTerminated();
+			try {
+				proxy.onBranchThrottled(this);
+			} catch (DispatcherException e1) {
+				logger.error("A problem occured while failing the throttled proxy branch", e1);
+			}
+			return;
 		} catch (IOException e) {
 			throw new IllegalStateException(e);
 		}
@@ -752,6 +770,15 @@ public class ProxyBranchImpl implements MobicentsProxyBranch, Externalizable {
 	public boolean isTimedOut() {
 		return timedOut;
 	}
+
+	/**
+	 * Was the request of the branch dropped by RFC 7339 overload control?
+	 * 
+	 * @return
+	 */
+	public boolean isThrottled() {
+		return throttled;
+	}
 	
 	// https://code.google.com/p/sipservlets/issues/detail?id=238
 	public void addTransaction(SipServletRequestImpl request) {
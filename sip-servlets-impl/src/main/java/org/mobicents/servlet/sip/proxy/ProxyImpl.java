@@ -536,7 +536,7 @@ public class ProxyImpl implements MobicentsProxy, Externalizable {
 		
 		proxyTimeout = seconds;
 		for(ProxyBranchImpl proxyBranch : proxyBranches.values()) {	
-			final boolean inactive = proxyBranch.isCanceled() || proxyBranch.isTimedOut();
+			final boolean inactive = proxyBranch.isCanceled() || proxyBranch.isTimedOut() || proxyBranch.isThrottled();
 			
 			if(!inactive) {
 				proxyBranch.setProxyBranchTimeout(seconds);
@@ -786,6 +786,23 @@ public class ProxyImpl implements MobicentsProxy, Externalizable {
 		}
 	}
 	
+	/**
+	 * Called when the request of a branch was not sent because of RFC 7339 overload control,
+	 * the branch is failed as if it had timed out but the other branches go on
+	 */
+	public void onBranchThrottled(ProxyBranchImpl branch) throws DispatcherException
+	{
+		if(this.bestBranch == null) this.bestBranch = branch;
+		if(allResponsesHaveArrived())
+		{
+			sendFinalResponse(bestResponse, bestBranch);
+		}
+		else if(!parallel)
+		{
+			startNextUntriedBranch();
+		}
+	}
+	
 	// In sequential proxying get some untried branch and start it, then wait for response and repeat
 	public void startNextUntriedBranch()
 	{
@@ -816,7 +833,7 @@ public class ProxyImpl implements MobicentsProxy, Externalizable {
 				return false;
 			}
 			
-			if(pbi.isStarted() && !pbi.isTimedOut()
+			if(pbi.isStarted() && !pbi.isTimedOut() && !isThrottled(pbi)
 					// Issue http://code.google.com/p/mobicents/issues/detail?id=2461 adding !isCancelled
 					// Issue https://code.google.com/p/sipservlets/issues/detail?id=283 fixing !isCancelled for parallel branches, 
 					// we should wait for best reponse from all branches
@@ -831,13 +848,18 @@ public class ProxyImpl implements MobicentsProxy, Externalizable {
 		return true;
 	}
 	
+	private static boolean isThrottled(MobicentsProxyBranch proxyBranch) {
+		return proxyBranch instanceof ProxyBranchImpl && ((ProxyBranchImpl) proxyBranch).isThrottled();
+	}
+	
 	public void sendFinalResponse(MobicentsSipServletResponse response,
 			ProxyBranchImpl proxyBranch) throws DispatcherException {		
 		
-		// If we didn't get any response and only a timeout just return a timeout
-		if(proxyBranch.isTimedOut()) {
+		// If we didn't get any response and only a timeout or a throttled branch just return a timeout or a 503
+		if(proxyBranch.isTimedOut() || proxyBranch.isThrottled()) {
+			final int status = proxyBranch.isTimedOut() ? Response.REQUEST_TIMEOUT : Response.SERVICE_UNAVAILABLE;
 			try {
-				MobicentsSipServletResponse timeoutResponse = (MobicentsSipServletResponse) originalRequest.createResponse(Response.REQUEST_TIMEOUT);
+				MobicentsSipServletResponse timeoutResponse = (MobicentsSipServletResponse) originalRequest.createResponse(status);
 				// https://code.google.com/p/sipservlets/issues/detail?id=263
 				timeoutResponse.setProxyBranch(proxyBranch);
 				if(logger.isDebugEnabled())
@@ -855,7 +877,7 @@ public class ProxyImpl implements MobicentsProxy, Externalizable {
 					throw new DispatcherException("Unexpected exception while processing response : " + response, e);
 				}
 				timeoutResponse.send();
-				bestResponseSent = Response.REQUEST_TIMEOUT;
+				bestResponseSent = status;
 				return;
 			} catch (IOException e) {
 				throw new IllegalStateException("Failed to send a timeout response", e);
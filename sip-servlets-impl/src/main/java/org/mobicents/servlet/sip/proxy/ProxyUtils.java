@@ -67,6 +67,7 @@ public class ProxyUtils {
 	public static Request createProxiedRequest(SipServletRequestImpl originalRequest, ProxyBranchImpl proxyBranch, URI destination, SipURI outboundInterface, SipURI routeRecord, SipURI path)
 	{
 		try {
+			originalRequest.flushContent();
 			final Request clonedRequest = (Request) originalRequest.getMessage().clone();
 			final String method = clonedRequest.getMethod();
 			final ProxyImpl proxy = (ProxyImpl) proxyBranch.getProxy(); 
@@ -419,6 +420,9 @@ public class ProxyUtils {
 		if(logger.isDebugEnabled()) {
 			logger.debug("createProxiedResponse - proxyBranch=" + proxyBranch);
 		}
+		if(sipServetResponse instanceof SipServletResponseImpl) {
+			((SipServletResponseImpl) sipServetResponse).flushContent();
+		}
 		final Response response = (Response)sipServetResponse.getMessage();
 		final Response clonedResponse = (Response)  response.clone();
 		((MessageExt)clonedResponse).setApplicationData(null);
@@ -0,0 +1,44 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.utils;
+
+/**
+ * Generates the random identifiers used by the container : via branches, tags,
+ * sip application session ids and servlet timer ids.
+ * Implementations are called concurrently on every message so they must be thread safe and non blocking.
+ * The generated identifiers may only contain letters and digits, they end up in SIP tokens
+ * and in identifiers using '_', ';' or ':' as separators.
+ *
+ * @see IdGenerators
+ */
+public interface IdGenerator {
+
+	/**
+	 * @return a new identifier with at least 128 bits of randomness
+	 */
+	String generateId();
+
+	/**
+	 * @param length the number of characters of the identifier
+	 * @return a new random identifier of the given length
+	 */
+	String generateId(int length);
+}
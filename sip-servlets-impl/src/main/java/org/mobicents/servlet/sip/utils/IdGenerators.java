@@ -0,0 +1,66 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.utils;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Holds the {@link IdGenerator} used by the container. The implementation can be replaced by setting
+ * the org.mobicents.servlet.sip.IdGenerator system property to the name of a class implementing
+ * {@link IdGenerator} with a public no-arg constructor, {@link ThreadLocalIdGenerator} is used otherwise.
+ */
+public final class IdGenerators {
+
+	private static final Logger logger = Logger.getLogger(IdGenerators.class);
+
+	public static final String ID_GENERATOR_PROPERTY = "org.mobicents.servlet.sip.IdGenerator";
+
+	private static volatile IdGenerator idGenerator = loadIdGenerator();
+
+	private IdGenerators() {}
+
+	private static IdGenerator loadIdGenerator() {
+		final String idGeneratorClassName = System.getProperty(ID_GENERATOR_PROPERTY);
+		if(idGeneratorClassName != null && idGeneratorClassName.length() > 0) {
+			try {
+				final IdGenerator generator = (IdGenerator) Class.forName(idGeneratorClassName).newInstance();
+				if(logger.isInfoEnabled()) {
+					logger.info("Using " + idGeneratorClassName + " to generate branches, tags and session ids");
+				}
+				return generator;
+			} catch (Exception e) {
+				logger.error("Impossible to load the id generator " + idGeneratorClassName + ", using the default one", e);
+			}
+		}
+		return new ThreadLocalIdGenerator();
+	}
+
+	public static IdGenerator getIdGenerator() {
+		return idGenerator;
+	}
+
+	public static void setIdGenerator(IdGenerator idGenerator) {
+		if(idGenerator == null) {
+			throw new IllegalArgumentException("the id generator can't be null");
+		}
+		IdGenerators.idGenerator = idGenerator;
+	}
+}
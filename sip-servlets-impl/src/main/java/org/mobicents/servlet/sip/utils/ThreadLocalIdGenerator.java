@@ -0,0 +1,94 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.utils;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * Default {@link IdGenerator}, each thread has its own SecureRandom seeded once from the shared one,
+ * so threads never contend on the shared SecureRandom used by UUID.randomUUID() and identifiers stay
+ * cryptographically random as RFC 3261 Section 19.3 requires for tags.
+ * Identifiers are encoded in base 62 (letters and digits) which packs almost 6 bits per character,
+ * a 128 bits identifier takes 22 characters instead of the 36 of a UUID.
+ */
+public class ThreadLocalIdGenerator implements IdGenerator {
+
+	static final char[] ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+	// 22 characters of base 62 give 130 bits
+	public static final int DEFAULT_ID_LENGTH = 22;
+
+	private static final SecureRandom SEEDER = new SecureRandom();
+
+	private static final ThreadLocal<SecureRandom> RANDOM = new ThreadLocal<SecureRandom>() {
+		@Override
+		protected SecureRandom initialValue() {
+			byte[] seed = new byte[32];
+			SEEDER.nextBytes(seed);
+			SecureRandom random;
+			try {
+				random = SecureRandom.getInstance("SHA1PRNG");
+			} catch (NoSuchAlgorithmException e) {
+				random = new SecureRandom();
+			}
+			// seeding before the first use replaces the self seeding, which may block on some platforms
+			random.setSeed(seed);
+			return random;
+		}
+	};
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.utils.IdGenerator#generateId()
+	 */
+	public String generateId() {
+		return generateId(DEFAULT_ID_LENGTH);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.servlet.sip.utils.IdGenerator#generateId(int)
+	 */
+	public String generateId(int length) {
+		if(length <= 0) {
+			throw new IllegalArgumentException("the length of an identifier must be positive : " + length);
+		}
+		final SecureRandom random = RANDOM.get();
+		final char[] id = new char[length];
+		int i = 0;
+		long bits = 0;
+		int remainingBits = 0;
+		while(i < length) {
+			if(remainingBits < 6) {
+				bits = random.nextLong();
+				remainingBits = 64;
+			}
+			final int value = (int) (bits & 0x3F);
+			bits >>>= 6;
+			remainingBits -= 6;
+			// values 62 and 63 are dropped so that every character is equally likely
+			if(value < ALPHABET.length) {
+				id[i++] = ALPHABET[value];
+			}
+		}
+		return new String(id);
+	}
+}
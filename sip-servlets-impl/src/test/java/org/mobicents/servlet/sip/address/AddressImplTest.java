@@ -0,0 +1,97 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.address;
+
+import gov.nist.javax.sip.header.HeaderFactoryImpl;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import javax.sip.header.HeaderAddress;
+
+import junit.framework.TestCase;
+
+import org.mobicents.servlet.sip.address.AddressImpl.ModifiableRule;
+
+public class AddressImplTest extends TestCase {
+
+	private HeaderAddress header;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		header = (HeaderAddress) new HeaderFactoryImpl().createHeader("From", "<sip:alice@example.com>;tag=1234;lr;foo=b%61r");
+	}
+
+	public void testReadThroughHeaderMatchesCopy() throws Exception {
+		AddressImpl view = new AddressImpl(header, ModifiableRule.Modifiable);
+		AddressImpl copy = new AddressImpl(header, ModifiableRule.Modifiable);
+		copy.getInternalParameters();
+		assertTrue(view.isBackedByHeader());
+		assertFalse(copy.isBackedByHeader());
+
+		assertEquals(names(copy.getParameterNames()), names(view.getParameterNames()));
+		assertEquals(copy.getParameters(), view.getParameters());
+		assertEquals("bar", view.getParameter("foo"));
+		assertEquals("", view.getParameter("lr"));
+		// same parameters, possibly not in the same order
+		assertEquals(new HashSet<String>(Arrays.asList(copy.toString().split(";"))), new HashSet<String>(Arrays.asList(view.toString().split(";"))));
+		assertEquals(copy.hashCode(), view.hashCode());
+		assertTrue(view.equals(copy));
+		assertTrue(copy.equals(view));
+		// reading never copies the parameters out of the header
+		assertTrue(view.isBackedByHeader());
+	}
+
+	public void testParameterNamesReadOnly() throws Exception {
+		AddressImpl view = new AddressImpl(header, ModifiableRule.Modifiable);
+		Iterator<String> names = view.getParameterNames();
+		names.next();
+		try {
+			names.remove();
+			fail("the parameters can only be removed through removeParameter");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		view.removeParameter("foo");
+		assertNull(view.getParameter("foo"));
+		assertNull(((javax.sip.header.Parameters) header).getParameter("foo"));
+		assertFalse(names(view.getParameterNames()).contains("foo"));
+	}
+
+	public void testCloneCopiesParameters() throws Exception {
+		AddressImpl view = new AddressImpl(header, ModifiableRule.Modifiable);
+		AddressImpl clone = (AddressImpl) view.clone();
+		assertEquals(view.getParameters(), clone.getParameters());
+		clone.setParameter("foo", "baz");
+		assertEquals("bar", view.getParameter("foo"));
+	}
+
+	private static Set<String> names(Iterator<String> iterator) {
+		Set<String> names = new HashSet<String>();
+		while (iterator.hasNext()) {
+			names.add(iterator.next());
+		}
+		return names;
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package org.mobicents.servlet.sip.core;
+
+import junit.framework.TestCase;
+
+public class CollectionUsageMemoryMonitorTest extends TestCase {
+
+	private int started;
+	private int stopped;
+	private CollectionUsageMemoryMonitor memoryMonitor;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		started = 0;
+		stopped = 0;
+		memoryMonitor = new CollectionUsageMemoryMonitor(95, 90, new CollectionUsageMemoryMonitor.Listener() {
+			public void memoryCongestionStarted(String message) {
+				started++;
+			}
+			public void memoryCongestionStopped(String message) {
+				stopped++;
+			}
+		});
+	}
+
+	public void testHysteresis() {
+		memoryMonitor.update(50, 100);
+		assertFalse(memoryMonitor.isCongested());
+		memoryMonitor.update(96, 100);
+		assertTrue(memoryMonitor.isCongested());
+		assertEquals(1, started);
+		// between the two thresholds the state doesn't change
+		memoryMonitor.update(92, 100);
+		assertTrue(memoryMonitor.isCongested());
+		memoryMonitor.update(97, 100);
+		assertEquals(1, started);
+		memoryMonitor.update(80, 100);
+		assertFalse(memoryMonitor.isCongested());
+		assertEquals(1, stopped);
+		assertEquals(80d, memoryMonitor.getPercentageOfMemoryUsed());
+	}
+
+	public void testThresholdsUpdate() {
+		memoryMonitor.setMemoryThreshold(70);
+		memoryMonitor.setBackToNormalMemoryThreshold(60);
+		memoryMonitor.update(75, 100);
+		assertTrue(memoryMonitor.isCongested());
+		memoryMonitor.update(65, 100);
+		assertTrue(memoryMonitor.isCongested());
+		memoryMonitor.update(55, 100);
+		assertFalse(memoryMonitor.isCongested());
+	}
+
+	public void testStartAndStop() {
+		if(CollectionUsageMemoryMonitor.findTenuredPool() == null) {
+			assertFalse(memoryMonitor.start());
+			return;
+		}
+		assertTrue(memoryMonitor.start());
+		assertTrue(memoryMonitor.isStarted());
+		System.gc();
+		memoryMonitor.stop();
+		assertFalse(memoryMonitor.isStarted());
+		assertFalse(memoryMonitor.isCongested());
+	}
+}
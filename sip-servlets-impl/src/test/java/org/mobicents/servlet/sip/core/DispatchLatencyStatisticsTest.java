@@ -0,0 +1,56 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.core;
+
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import com.codahale.metrics.MetricRegistry;
+
+public class DispatchLatencyStatisticsTest extends TestCase {
+
+	private static final String[] METHODS = {"INVITE", "BYE"};
+
+	public void testMadeUpMethodsShareOneTimer() {
+		MetricRegistry metrics = new MetricRegistry();
+		DispatchLatencyStatistics statistics = new DispatchLatencyStatistics(metrics, METHODS);
+		statistics.update(DispatchStage.Servlet, "INVITE", null, 1000000L);
+		for (int i = 0; i < 1000; i++) {
+			statistics.update(DispatchStage.Servlet, "X" + i, null, 1000000L);
+		}
+		assertEquals(2, metrics.getTimers().size());
+		Map<String, Map<String, Double>> latencies = statistics.getLatencies();
+		assertEquals(Double.valueOf(1), latencies.get("Servlet.method.INVITE").get("count"));
+		assertEquals(Double.valueOf(1000), latencies.get("Servlet.method." + MessageStatistics.OTHER_METHODS).get("count"));
+		assertNull(latencies.get("Servlet.method.X1"));
+	}
+
+	public void testReset() {
+		MetricRegistry metrics = new MetricRegistry();
+		DispatchLatencyStatistics statistics = new DispatchLatencyStatistics(metrics, METHODS);
+		statistics.update(DispatchStage.Send, "PUBLISH", "app", 1000000L);
+		assertEquals(2, metrics.getTimers().size());
+		statistics.reset();
+		assertTrue(metrics.getTimers().isEmpty());
+		assertTrue(statistics.getLatencies().isEmpty());
+	}
+}
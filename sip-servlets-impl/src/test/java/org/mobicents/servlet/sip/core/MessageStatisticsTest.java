@@ -0,0 +1,130 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.core;
+
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class MessageStatisticsTest extends TestCase {
+
+	private static final String[] METHODS = {"INVITE", "BYE"};
+
+	public void testMethods() {
+		MessageStatistics statistics = new MessageStatistics(METHODS);
+		statistics.updateRequest("INVITE", true);
+		statistics.updateRequest("INVITE", true);
+		statistics.updateRequest("BYE", false);
+		statistics.updateRequest("PUBLISH", true);
+		assertEquals(3, statistics.getRequestsProcessed());
+		assertEquals(1, statistics.getRequestsSent());
+		assertEquals(2, statistics.getRequestsProcessedByMethod("INVITE"));
+		assertEquals(0, statistics.getRequestsSentByMethod("INVITE"));
+		assertEquals(1, statistics.getRequestsSentByMethod("BYE"));
+		// methods not known in advance are only counted together
+		assertEquals(1, statistics.getRequestsProcessedByMethod(MessageStatistics.OTHER_METHODS));
+		assertEquals(0, statistics.getRequestsProcessedByMethod("PUBLISH"));
+		assertEquals(0, statistics.getRequestsProcessedByMethod("MESSAGE"));
+		Map<String, Long> counts = statistics.getCounts();
+		assertEquals(Long.valueOf(2), counts.get("requestsProcessed.INVITE"));
+		assertEquals(Long.valueOf(1), counts.get("requestsProcessed.OTHER"));
+		assertNull(counts.get("requestsProcessed.PUBLISH"));
+		assertEquals(Long.valueOf(1), counts.get("requestsSent.BYE"));
+	}
+
+	public void testMadeUpMethodsShareOneCounter() {
+		MessageStatistics statistics = new MessageStatistics(METHODS);
+		for (int i = 0; i < 1000; i++) {
+			statistics.updateRequest("X" + i, true);
+		}
+		assertEquals(1000, statistics.getRequestsProcessedByMethod(MessageStatistics.OTHER_METHODS));
+		assertEquals(METHODS.length + 1, statistics.getRequestsProcessedByMethod().size());
+	}
+
+	public void testStatusClasses() {
+		MessageStatistics statistics = new MessageStatistics(METHODS);
+		statistics.updateResponse(180, true);
+		statistics.updateResponse(200, true);
+		statistics.updateResponse(486, false);
+		// out of range status codes are only counted in the totals
+		statistics.updateResponse(99, false);
+		assertEquals(2, statistics.getResponsesProcessed());
+		assertEquals(2, statistics.getResponsesSent());
+		assertEquals(1, statistics.getResponsesProcessedByStatusClass("1XX"));
+		assertEquals(1, statistics.getResponsesProcessedByStatusClass("2XX"));
+		assertEquals(1, statistics.getResponsesSentByStatusClass("4XX"));
+		assertEquals(0, statistics.getResponsesSentByStatusClass("1XX"));
+		assertEquals(MessageStatistics.STATUS_CLASSES.length, statistics.getResponsesSentByStatusClass().size());
+	}
+
+	public void testTransports() {
+		// each transport has its own scope
+		MessageStatistics udp = new MessageStatistics(METHODS);
+		MessageStatistics tcp = new MessageStatistics(METHODS);
+		udp.updateRequest("INVITE", true);
+		tcp.updateResponse(200, false);
+		assertEquals(1, udp.getRequestsProcessed());
+		assertEquals(0, udp.getResponsesSent());
+		assertEquals(0, tcp.getRequestsProcessed());
+		assertEquals(1, tcp.getResponsesSentByStatusClass("2XX"));
+	}
+
+	public void testRates() {
+		MessageStatistics statistics = new MessageStatistics(METHODS);
+		statistics.sample();
+		for (int i = 0; i < 10; i++) {
+			statistics.updateRequest("INVITE", true);
+		}
+		statistics.sample();
+		assertEquals(10d, statistics.getRates().get("requestsProcessedPerSecond"));
+		// a reset doesn't make the rates negative
+		statistics.reset();
+		statistics.sample();
+		assertEquals(0d, statistics.getRates().get("requestsProcessedPerSecond"));
+	}
+
+	public void testReset() throws Exception {
+		final MessageStatistics statistics = new MessageStatistics(METHODS);
+		statistics.updateRequest("PUBLISH", true);
+		statistics.reset();
+		assertEquals(0, statistics.getRequestsProcessed());
+		assertEquals(0, statistics.getRequestsProcessedByMethod(MessageStatistics.OTHER_METHODS));
+
+		// updates concurrent with resets are counted either before or after them, never negative
+		final int updates = 100000;
+		Thread updater = new Thread() {
+			public void run() {
+				for (int i = 0; i < updates; i++) {
+					statistics.updateRequest("INVITE", true);
+				}
+			}
+		};
+		updater.start();
+		while (updater.isAlive()) {
+			statistics.reset();
+			assertTrue(statistics.getRequestsProcessed() >= 0);
+		}
+		updater.join();
+		assertTrue(statistics.getRequestsProcessed() >= 0);
+		assertTrue(statistics.getRequestsProcessed() <= updates);
+		assertEquals(statistics.getRequestsProcessed(), statistics.getRequestsProcessedByMethod("INVITE"));
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package org.mobicents.servlet.sip.core;
+
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class QueueDelayCongestionControlTest extends TestCase {
+
+	private int started;
+	private int stopped;
+	private QueueDelayCongestionControl congestionControl;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		started = 0;
+		stopped = 0;
+		// no interval so that the congestion starts on the second sample above target
+		congestionControl = new QueueDelayCongestionControl(50, 0, new QueueDelayCongestionControl.Listener() {
+			public void queueDelayCongestionStarted(String message) {
+				started++;
+			}
+			public void queueDelayCongestionStopped(String message) {
+				stopped++;
+			}
+		});
+	}
+
+	public void testBelowTarget() {
+		for (int i = 0; i < 10; i++) {
+			congestionControl.onDequeue(TimeUnit.MILLISECONDS.toNanos(10));
+		}
+		assertFalse(congestionControl.isCongested());
+		assertEquals(0, started);
+	}
+
+	public void testStartAndStop() {
+		congestionControl.onDequeue(TimeUnit.MILLISECONDS.toNanos(100));
+		assertFalse(congestionControl.isCongested());
+		congestionControl.onDequeue(TimeUnit.MILLISECONDS.toNanos(100));
+		assertTrue(congestionControl.isCongested());
+		congestionControl.onDequeue(TimeUnit.MILLISECONDS.toNanos(100));
+		assertEquals(1, started);
+		congestionControl.onDequeue(TimeUnit.MILLISECONDS.toNanos(10));
+		assertFalse(congestionControl.isCongested());
+		assertEquals(1, stopped);
+	}
+
+	public void testSampleBelowTargetRestartsInterval() {
+		congestionControl.onDequeue(TimeUnit.MILLISECONDS.toNanos(100));
+		congestionControl.onDequeue(TimeUnit.MILLISECONDS.toNanos(10));
+		congestionControl.onDequeue(TimeUnit.MILLISECONDS.toNanos(100));
+		assertFalse(congestionControl.isCongested());
+		assertEquals(0, stopped);
+	}
+
+	public void testCheckIdle() {
+		congestionControl.onDequeue(TimeUnit.MILLISECONDS.toNanos(100));
+		congestionControl.onDequeue(TimeUnit.MILLISECONDS.toNanos(100));
+		congestionControl.checkIdle(10);
+		assertTrue(congestionControl.isCongested());
+		congestionControl.checkIdle(0);
+		assertFalse(congestionControl.isCongested());
+		assertEquals(1, stopped);
+	}
+
+	public void testRetryAfterWithoutDrainRate() {
+		assertEquals(60, congestionControl.getRetryAfter(1000));
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.core;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import com.codahale.metrics.MetricRegistry;
+
+public class SessionLockStatisticsTest extends TestCase {
+
+	private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private MetricRegistry metrics;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		metrics = new MetricRegistry();
+	}
+
+	public void testMostContendedSessions() {
+		SessionLockStatistics statistics = new SessionLockStatistics(metrics, 100);
+		statistics.updateWait("app", "free", 0);
+		statistics.updateWait("app", "session1", 10 * MILLI);
+		statistics.updateWait("app", "session2", 30 * MILLI);
+		statistics.updateWait("other", "session3", 20 * MILLI);
+		statistics.updateWait("app", "session1", 15 * MILLI);
+		statistics.incForcedReleases("app", "session2");
+
+		Map<String, Map<String, Object>> mostContendedSessions = statistics.getMostContendedSessions(2);
+		assertEquals(2, mostContendedSessions.size());
+		Iterator<Map.Entry<String, Map<String, Object>>> it = mostContendedSessions.entrySet().iterator();
+		Map.Entry<String, Map<String, Object>> first = it.next();
+		assertEquals("session2", first.getKey());
+		assertEquals(30d, first.getValue().get("wait"));
+		assertEquals(1L, first.getValue().get("forcedReleases"));
+		Map.Entry<String, Map<String, Object>> second = it.next();
+		assertEquals("session1", second.getKey());
+		assertEquals("app", second.getValue().get("application"));
+		assertEquals(2L, second.getValue().get("contentions"));
+		assertEquals(25d, second.getValue().get("wait"));
+		assertEquals(15d, second.getValue().get("maxWait"));
+
+		// the sessions whose lock was free are not tracked
+		assertEquals(3, statistics.getMostContendedSessions(10).size());
+	}
+
+	public void testEviction() {
+		SessionLockStatistics statistics = new SessionLockStatistics(metrics, 100);
+		statistics.updateWait("app", "hot1", 1000 * MILLI);
+		statistics.updateWait("app", "hot2", 900 * MILLI);
+		for (int i = 0; i < 10000; i++) {
+			statistics.updateWait("app", "cold" + i, MILLI);
+		}
+		Map<String, Map<String, Object>> mostContendedSessions = statistics.getMostContendedSessions(1000);
+		assertEquals(100, mostContendedSessions.size());
+		Iterator<String> it = mostContendedSessions.keySet().iterator();
+		assertEquals("hot1", it.next());
+		assertEquals("hot2", it.next());
+		// the sessions evicted can be tracked again
+		statistics.updateWait("app", "cold0", 500 * MILLI);
+		it = statistics.getMostContendedSessions(3).keySet().iterator();
+		it.next();
+		it.next();
+		assertEquals("cold0", it.next());
+	}
+
+	public void testLatenciesAndReset() {
+		SessionLockStatistics statistics = new SessionLockStatistics(metrics, 100);
+		statistics.updateWait("app", "session1", 10 * MILLI);
+		statistics.updateHold("app", 5 * MILLI);
+		statistics.incForcedReleases("app", "session1");
+		Map<String, Map<String, Double>> latencies = statistics.getLatencies();
+		assertEquals(1d, latencies.get("wait.app").get("count"));
+		assertEquals(1d, latencies.get("wait.app").get("forcedReleases"));
+		assertEquals(5d, latencies.get("hold.app").get("max"));
+
+		statistics.reset();
+		assertTrue(statistics.getLatencies().isEmpty());
+		assertTrue(statistics.getMostContendedSessions(10).isEmpty());
+		statistics.updateWait("app", "session2", MILLI);
+		assertEquals(1, statistics.getMostContendedSessions(10).size());
+	}
+}
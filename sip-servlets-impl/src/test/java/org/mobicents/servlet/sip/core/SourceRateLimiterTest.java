@@ -0,0 +1,85 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package org.mobicents.servlet.sip.core;
+
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class SourceRateLimiterTest extends TestCase {
+
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	public void testBurstThenRate() {
+		// 10 requests per second with a burst of 5
+		SourceRateLimiter rateLimiter = new SourceRateLimiter(10, 5, 100);
+		long now = System.nanoTime();
+		for (int i = 0; i < 5; i++) {
+			assertTrue(rateLimiter.tryAcquire("10.0.0.1", 5060, now));
+		}
+		assertFalse(rateLimiter.tryAcquire("10.0.0.1", 5060, now));
+		assertEquals(1, rateLimiter.getRejectedRequests());
+		// one token every 100 ms
+		assertTrue(rateLimiter.tryAcquire("10.0.0.1", 5060, now + SECOND / 10));
+		assertFalse(rateLimiter.tryAcquire("10.0.0.1", 5060, now + SECOND / 10));
+		// other sources are not affected
+		assertTrue(rateLimiter.tryAcquire("10.0.0.2", 5060, now));
+		// the whole burst is back after being idle
+		for (int i = 0; i < 5; i++) {
+			assertTrue(rateLimiter.tryAcquire("10.0.0.1", 5060, now + 2 * SECOND));
+		}
+	}
+
+	public void testKeyByPort() {
+		SourceRateLimiter rateLimiter = new SourceRateLimiter(1, 1, 100);
+		long now = System.nanoTime();
+		assertTrue(rateLimiter.tryAcquire("10.0.0.1", 5060, now));
+		assertFalse(rateLimiter.tryAcquire("10.0.0.1", 5061, now));
+		rateLimiter.setKeyByPort(true);
+		assertTrue(rateLimiter.tryAcquire("10.0.0.1", 5060, now));
+		assertTrue(rateLimiter.tryAcquire("10.0.0.1", 5061, now));
+		assertFalse(rateLimiter.tryAcquire("10.0.0.1", 5061, now));
+	}
+
+	public void testAllowList() {
+		SourceRateLimiter rateLimiter = new SourceRateLimiter(1, 1, 100);
+		rateLimiter.setAllowList("10.0.0.1, 10.0.0.2:5080");
+		long now = System.nanoTime();
+		for (int i = 0; i < 10; i++) {
+			assertTrue(rateLimiter.tryAcquire("10.0.0.1", 5060, now));
+			assertTrue(rateLimiter.tryAcquire("10.0.0.2", 5080, now));
+		}
+		assertTrue(rateLimiter.tryAcquire("10.0.0.2", 5060, now));
+		assertFalse(rateLimiter.tryAcquire("10.0.0.2", 5060, now));
+	}
+
+	public void testMaxSources() {
+		SourceRateLimiter rateLimiter = new SourceRateLimiter(1, 2, 100);
+		long now = System.nanoTime();
+		// keep one source busy so that it is not evicted
+		assertTrue(rateLimiter.tryAcquire("10.0.0.1", 5060, now));
+		assertTrue(rateLimiter.tryAcquire("10.0.0.1", 5060, now));
+		for (int i = 0; i < 1000; i++) {
+			rateLimiter.tryAcquire("192.168." + (i / 256) + "." + (i % 256), 5060, now);
+			assertTrue(rateLimiter.getSources() <= 101);
+		}
+		assertFalse(rateLimiter.tryAcquire("10.0.0.1", 5060, now));
+	}
+}
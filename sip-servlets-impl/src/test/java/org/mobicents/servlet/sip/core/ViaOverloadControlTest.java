@@ -0,0 +1,164 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.core;
+
+import gov.nist.javax.sip.parser.StringMsgParser;
+
+import javax.sip.header.ViaHeader;
+import javax.sip.message.Message;
+import javax.sip.message.Request;
+
+import junit.framework.TestCase;
+
+public class ViaOverloadControlTest extends TestCase {
+
+	private int estimatedReduction;
+	private ViaOverloadControl overloadControl;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		estimatedReduction = 0;
+		overloadControl = new ViaOverloadControl(new ViaOverloadControl.LoadEstimator() {
+			public int getReduction() {
+				return estimatedReduction;
+			}
+		});
+	}
+
+	public void testFeedbackOnlyWhenSupported() throws Exception {
+		estimatedReduction = 30;
+		Message response = parse(response(""));
+		overloadControl.addFeedback(response);
+		ViaHeader viaHeader = (ViaHeader) response.getHeader(ViaHeader.NAME);
+		assertNull(viaHeader.getParameter(ViaOverloadControl.OC_PARAM));
+
+		response = parse(response(";oc"));
+		overloadControl.addFeedback(response);
+		viaHeader = (ViaHeader) response.getHeader(ViaHeader.NAME);
+		assertEquals("30", viaHeader.getParameter(ViaOverloadControl.OC_PARAM));
+		assertEquals(Long.toString(overloadControl.getValidity()), viaHeader.getParameter(ViaOverloadControl.OC_VALIDITY_PARAM));
+		assertNotNull(viaHeader.getParameter(ViaOverloadControl.OC_SEQ_PARAM));
+		assertEquals(ViaOverloadControl.LOSS_ALGORITHM, unquote(viaHeader.getParameter(ViaOverloadControl.OC_ALGO_PARAM)));
+	}
+
+	public void testReductionBoundsAndSequence() throws Exception {
+		estimatedReduction = 150;
+		assertEquals(100, overloadControl.getReduction());
+		Message response = parse(response(";oc"));
+		overloadControl.addFeedback(response);
+		double firstSequence = Double.parseDouble(((ViaHeader) response.getHeader(ViaHeader.NAME)).getParameter(ViaOverloadControl.OC_SEQ_PARAM));
+
+		// the estimator is only polled every 100 ms
+		estimatedReduction = 0;
+		assertEquals(100, overloadControl.getReduction());
+		Thread.sleep(150);
+		assertEquals(0, overloadControl.getReduction());
+
+		response = parse(response(";oc"));
+		overloadControl.addFeedback(response);
+		ViaHeader viaHeader = (ViaHeader) response.getHeader(ViaHeader.NAME);
+		assertEquals("0", viaHeader.getParameter(ViaOverloadControl.OC_PARAM));
+		assertEquals("0", viaHeader.getParameter(ViaOverloadControl.OC_VALIDITY_PARAM));
+		assertTrue(Double.parseDouble(viaHeader.getParameter(ViaOverloadControl.OC_SEQ_PARAM)) > firstSequence);
+	}
+
+	public void testAddSupport() throws Exception {
+		Request request = (Request) parse(request(null));
+		overloadControl.addSupport(request);
+		assertTrue(((ViaHeader) request.getHeader(ViaHeader.NAME)).toString().contains(";oc"));
+	}
+
+	public void testThrottling() throws Exception {
+		Request request = (Request) parse(request(null));
+		assertFalse(overloadControl.isThrottled(request));
+
+		overloadControl.onResponse(request, parse(response(";oc=100;oc-validity=10000;oc-seq=1.000;oc-algo=\"loss\"")));
+		assertEquals(Integer.valueOf(100), overloadControl.getServerReductions().get("192.168.0.2:5070"));
+		for (int i = 0; i < 10; i++) {
+			assertTrue(overloadControl.isThrottled(request));
+		}
+		assertEquals(10, overloadControl.getThrottledRequests());
+		// other downstream servers are not affected
+		assertFalse(overloadControl.isThrottled((Request) parse(request("sip:192.168.0.3:5080;lr"))));
+
+		// older feedback is ignored
+		overloadControl.onResponse(request, parse(response(";oc=0;oc-seq=0.500")));
+		assertTrue(overloadControl.isThrottled(request));
+		// a zero reduction clears the state
+		overloadControl.onResponse(request, parse(response(";oc=0;oc-seq=2.000")));
+		assertFalse(overloadControl.isThrottled(request));
+		assertTrue(overloadControl.getServerReductions().isEmpty());
+	}
+
+	public void testUnknownAlgorithmAndExpiration() throws Exception {
+		Request request = (Request) parse(request(null));
+		overloadControl.onResponse(request, parse(response(";oc=100;oc-validity=10000;oc-algo=\"rate\"")));
+		assertFalse(overloadControl.isThrottled(request));
+
+		overloadControl.onResponse(request, parse(response(";oc=100;oc-validity=50")));
+		assertTrue(overloadControl.isThrottled(request));
+		Thread.sleep(100);
+		assertFalse(overloadControl.isThrottled(request));
+		assertTrue(overloadControl.getServerReductions().isEmpty());
+	}
+
+	public void testServerFromTopRoute() throws Exception {
+		assertEquals("192.168.0.2:5070", ViaOverloadControl.getServer((Request) parse(request(null))));
+		assertEquals("192.168.0.3:5080", ViaOverloadControl.getServer((Request) parse(request("sip:192.168.0.3:5080;lr"))));
+	}
+
+	public void testFormatSequence() {
+		assertEquals("1.005", ViaOverloadControl.formatSequence(1005));
+		assertEquals("12.050", ViaOverloadControl.formatSequence(12050));
+		assertEquals("3.123", ViaOverloadControl.formatSequence(3123));
+	}
+
+	private static String request(String route) {
+		return "INVITE sip:bob@192.168.0.2:5070 SIP/2.0\r\n"
+				+ "Via: SIP/2.0/UDP 192.168.0.1:5060;branch=z9hG4bK776asdhds\r\n"
+				+ (route == null ? "" : "Route: <" + route + ">\r\n")
+				+ "Max-Forwards: 70\r\n"
+				+ "To: <sip:bob@example.com>\r\n"
+				+ "From: <sip:alice@example.com>;tag=1928301774\r\n"
+				+ "Call-ID: a84b4c76e66710@192.168.0.1\r\n"
+				+ "CSeq: 1 INVITE\r\n"
+				+ "Content-Length: 0\r\n\r\n";
+	}
+
+	private static String response(String viaParameters) {
+		return "SIP/2.0 200 OK\r\n"
+				+ "Via: SIP/2.0/UDP 192.168.0.1:5060;branch=z9hG4bK776asdhds" + viaParameters + "\r\n"
+				+ "To: <sip:bob@example.com>;tag=a6c85cf\r\n"
+				+ "From: <sip:alice@example.com>;tag=1928301774\r\n"
+				+ "Call-ID: a84b4c76e66710@192.168.0.1\r\n"
+				+ "CSeq: 1 INVITE\r\n"
+				+ "Content-Length: 0\r\n\r\n";
+	}
+
+	private static Message parse(String message) throws Exception {
+		return new StringMsgParser().parseSIPMessage(message.getBytes("UTF-8"), true, false, null);
+	}
+
+	private static String unquote(String value) {
+		return value.startsWith("\"") ? value.substring(1, value.length() - 1) : value;
+	}
+}
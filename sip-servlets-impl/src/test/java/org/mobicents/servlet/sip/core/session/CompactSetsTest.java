@@ -0,0 +1,59 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package org.mobicents.servlet.sip.core.session;
+
+import java.util.Collections;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+public class CompactSetsTest extends TestCase {
+
+	public void testSingleElementSetsDontAllocateBackingSets() {
+		Set<String> set = Collections.emptySet();
+		set = CompactSets.with(set, "tx1");
+		assertEquals(Collections.singleton("tx1").getClass(), set.getClass());
+		assertSame(set, CompactSets.with(set, "tx1"));
+		set = CompactSets.without(set, "tx1");
+		assertSame(Collections.emptySet(), set);
+		assertSame(set, CompactSets.without(set, "tx1"));
+	}
+
+	public void testSeveralElements() {
+		Set<String> set = Collections.emptySet();
+		set = CompactSets.with(set, "tx1");
+		set = CompactSets.with(set, "tx2");
+		set = CompactSets.with(set, "tx3");
+		assertEquals(3, set.size());
+		assertTrue(set.contains("tx2"));
+		// insertion order is kept as with the CopyOnWriteArraySet
+		assertEquals("tx1", set.iterator().next());
+		try {
+			set.add("tx4");
+			fail("the sets must be immutable since they are iterated without locking");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		set = CompactSets.without(set, "tx1");
+		set = CompactSets.without(set, "tx3");
+		assertEquals(Collections.singleton("tx2"), set);
+		assertEquals(Collections.singleton("tx2").getClass(), set.getClass());
+	}
+}
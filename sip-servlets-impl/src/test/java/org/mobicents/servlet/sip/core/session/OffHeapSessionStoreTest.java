@@ -0,0 +1,90 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package org.mobicents.servlet.sip.core.session;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class OffHeapSessionStoreTest extends TestCase {
+
+	public void testStoreAndLoad() throws Exception {
+		OffHeapSessionStore store = new OffHeapSessionStore("app", OffHeapSessionStore.SLAB_SIZE, 1000);
+		Map<String, Object> attributes = new HashMap<String, Object>();
+		attributes.put("contact", "sip:alice@127.0.0.1:5070");
+		attributes.put("expires", Integer.valueOf(3600));
+		List<String> routes = new ArrayList<String>();
+		routes.add("sip:proxy.example.com;lr");
+		attributes.put("routes", routes);
+
+		OffHeapSessionStore.StoredAttributes storedAttributes = store.store(attributes);
+		assertNotNull(storedAttributes);
+		assertEquals(1, store.getStoredEntries());
+		assertTrue(store.getUsedBytes() > 0);
+		assertEquals(OffHeapSessionStore.SLAB_SIZE, store.getAllocatedBytes());
+
+		Map<String, Object> loaded = storedAttributes.load(getClass().getClassLoader());
+		assertEquals(attributes, loaded);
+		assertEquals(0, store.getStoredEntries());
+		assertEquals(0, store.getUsedBytes());
+		assertEquals(1, store.getPassivations());
+		assertEquals(1, store.getActivations());
+	}
+
+	public void testFreedBlocksAreReused() throws Exception {
+		OffHeapSessionStore store = new OffHeapSessionStore("app", OffHeapSessionStore.SLAB_SIZE, 1000);
+		Map<String, Object> attributes = new HashMap<String, Object>();
+		attributes.put("name", "value");
+		// far more entries than a single slab could hold if the blocks were not reused
+		for (int i = 0; i < 100000; i++) {
+			OffHeapSessionStore.StoredAttributes storedAttributes = store.store(attributes);
+			assertNotNull(storedAttributes);
+			if(i % 2 == 0) {
+				storedAttributes.free();
+			} else {
+				assertEquals(attributes, storedAttributes.load(null));
+			}
+		}
+		assertEquals(0, store.getStoredEntries());
+		assertEquals(OffHeapSessionStore.SLAB_SIZE, store.getAllocatedBytes());
+	}
+
+	public void testFullStoreKeepsAttributesOnHeap() {
+		OffHeapSessionStore store = new OffHeapSessionStore("app", OffHeapSessionStore.SLAB_SIZE, 1000);
+		Map<String, Object> attributes = new HashMap<String, Object>();
+		attributes.put("name", new byte[OffHeapSessionStore.SLAB_SIZE / 2]);
+		assertNotNull(store.store(attributes));
+		// the second one doesn't fit in the remaining of the only slab allowed
+		assertNull(store.store(attributes));
+		assertEquals(1, store.getStoredEntries());
+	}
+
+	public void testNotSerializableAttributesStayOnHeap() {
+		OffHeapSessionStore store = new OffHeapSessionStore("app", OffHeapSessionStore.SLAB_SIZE, 1000);
+		Map<String, Object> attributes = new HashMap<String, Object>();
+		attributes.put("name", new Object());
+		assertNull(store.store(attributes));
+		assertEquals(0, store.getStoredEntries());
+		assertEquals(0, store.getAllocatedBytes());
+	}
+}
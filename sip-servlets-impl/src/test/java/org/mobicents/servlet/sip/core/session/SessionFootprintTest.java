@@ -0,0 +1,73 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.core.session;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javax.servlet.sip.SipSession.State;
+import javax.sip.Transaction;
+
+import junit.framework.TestCase;
+
+import org.openjdk.jol.info.GraphLayout;
+
+public class SessionFootprintTest extends TestCase {
+
+	// retained size in bytes of a sip session, its sip application session and their keys with compressed oops,
+	// raise it only if a new field is really needed, an eagerly created map or set doesn't fit in it
+	private static final long MAX_RETAINED_SIZE = 512;
+
+	private static class TransactionHandler implements InvocationHandler {
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if("equals".equals(method.getName())) {
+				return proxy == args[0];
+			}
+			if("hashCode".equals(method.getName())) {
+				return System.identityHashCode(proxy);
+			}
+			if("toString".equals(method.getName())) {
+				return "transaction";
+			}
+			return null;
+		}
+	}
+
+	public void testDialogRetainedSize() {
+		SipApplicationSessionKey applicationSessionKey = new SipApplicationSessionKey("appSessionId", "footprint-app", null);
+		SipApplicationSessionImpl sipApplicationSession = new SipApplicationSessionImpl(applicationSessionKey, null);
+		SipSessionKey sessionKey = new SipSessionKey("fromTag", null, "callId", applicationSessionKey.getId(), "footprint-app");
+		SipSessionImpl sipSession = new SipSessionImpl(sessionKey, null, sipApplicationSession);
+		Transaction transaction = (Transaction) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class[] {Transaction.class}, new TransactionHandler());
+		sipSession.addOngoingTransaction(transaction);
+
+		long retainedSize = GraphLayout.parseInstance(sipSession, sipApplicationSession).totalSize();
+		// the identifiers, the transaction and the shared state constant don't depend on the session implementation
+		retainedSize -= GraphLayout.parseInstance(transaction, State.INITIAL,
+				sessionKey.getFromTag(), sessionKey.getCallId(), sessionKey.getApplicationSessionId(),
+				sessionKey.getApplicationName(), sessionKey.toString(),
+				applicationSessionKey.getId(), applicationSessionKey.toString()).totalSize();
+		assertTrue("a dialog retains " + retainedSize + " bytes, more than the " + MAX_RETAINED_SIZE + " bytes budget",
+				retainedSize <= MAX_RETAINED_SIZE);
+	}
+}
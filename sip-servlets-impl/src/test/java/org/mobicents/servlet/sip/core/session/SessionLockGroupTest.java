@@ -0,0 +1,141 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.core.session;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class SessionLockGroupTest extends TestCase {
+
+	private final List<Semaphore> locked = new ArrayList<Semaphore>();
+
+	private final SessionLockGroup.Locker locker = new SessionLockGroup.Locker() {
+		public boolean lock(Semaphore semaphore) {
+			boolean contended = !semaphore.tryAcquire();
+			if(contended) {
+				semaphore.acquireUninterruptibly();
+			}
+			synchronized (locked) {
+				locked.add(semaphore);
+			}
+			return contended;
+		}
+
+		public void unlock(Semaphore semaphore) {
+			semaphore.release();
+		}
+	};
+
+	public void testGlobalOrder() {
+		Semaphore a = new Semaphore(1);
+		Semaphore b = new Semaphore(1);
+		// whatever the leg, the semaphore of the lowest session id is taken first
+		SessionLockGroup group = SessionLockGroup.of(b, "b", a, "a");
+		assertFalse(group.acquire(locker));
+		group.release(locker);
+		group = SessionLockGroup.of(a, "a", b, "b");
+		assertFalse(group.acquire(locker));
+		group.release(locker);
+		assertSame(a, locked.get(0));
+		assertSame(b, locked.get(1));
+		assertSame(a, locked.get(2));
+		assertSame(b, locked.get(3));
+	}
+
+	public void testAcquireAndReleaseFromDifferentThreads() throws Exception {
+		final Semaphore a = new Semaphore(1);
+		final Semaphore b = new Semaphore(1);
+		final SessionLockGroup[] acquired = new SessionLockGroup[1];
+		// the stack thread acquires
+		Thread stackThread = new Thread() {
+			public void run() {
+				acquired[0] = SessionLockGroup.of(a, "a", b, "b");
+				acquired[0].acquire(locker);
+			}
+		};
+		stackThread.start();
+		stackThread.join();
+		assertEquals(0, a.availablePermits());
+		assertEquals(0, b.availablePermits());
+
+		// a message on the other leg waits for the whole group
+		final CountDownLatch otherLegAcquired = new CountDownLatch(1);
+		final boolean[] contended = new boolean[1];
+		Thread otherLeg = new Thread() {
+			public void run() {
+				SessionLockGroup group = SessionLockGroup.of(b, "b", a, "a");
+				contended[0] = group.acquire(locker);
+				otherLegAcquired.countDown();
+				group.release(locker);
+			}
+		};
+		otherLeg.start();
+		assertFalse(otherLegAcquired.await(100, TimeUnit.MILLISECONDS));
+
+		// the executor thread releases the group acquired by the stack thread
+		Thread executorThread = new Thread() {
+			public void run() {
+				acquired[0].release(locker);
+			}
+		};
+		executorThread.start();
+		executorThread.join();
+		assertTrue(otherLegAcquired.await(5, TimeUnit.SECONDS));
+		otherLeg.join();
+		assertTrue(contended[0]);
+		assertEquals(1, a.availablePermits());
+		assertEquals(1, b.availablePermits());
+
+		// the stack thread is not left with any lock and can take the group again right away
+		final boolean[] contendedAgain = new boolean[] {true};
+		stackThread = new Thread() {
+			public void run() {
+				SessionLockGroup group = SessionLockGroup.of(a, "a", b, "b");
+				contendedAgain[0] = group.acquire(locker);
+				group.release(locker);
+			}
+		};
+		stackThread.start();
+		stackThread.join();
+		assertFalse(contendedAgain[0]);
+	}
+
+	public void testNotLinked() {
+		Semaphore a = new Semaphore(1);
+		SessionLockGroup group = SessionLockGroup.of(a, "a", null, null);
+		group.acquire(locker);
+		assertEquals(1, locked.size());
+		assertEquals(0, a.availablePermits());
+		group.release(locker);
+		assertEquals(1, a.availablePermits());
+		// a session linked to itself
+		group = SessionLockGroup.of(a, "a", a, "a");
+		group.acquire(locker);
+		assertEquals(2, locked.size());
+		group.release(locker);
+		assertEquals(1, a.availablePermits());
+	}
+}
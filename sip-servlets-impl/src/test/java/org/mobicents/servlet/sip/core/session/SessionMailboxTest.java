@@ -0,0 +1,142 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.core.session;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class SessionMailboxTest extends TestCase {
+
+	private final List<Integer> runs = Collections.synchronizedList(new ArrayList<Integer>());
+
+	private Runnable task(final int i) {
+		return new Runnable() {
+			public void run() {
+				runs.add(i);
+			}
+		};
+	}
+
+	public void testOrderingAcrossThreads() throws Exception {
+		final SessionMailbox mailbox = new SessionMailbox();
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			for (int i = 0; i < 1000; i++) {
+				mailbox.execute(task(i), executor);
+			}
+			executor.shutdown();
+			assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(1000, runs.size());
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(Integer.valueOf(i), runs.get(i));
+		}
+		assertEquals(0, mailbox.getPendingTasks());
+	}
+
+	public void testNoConcurrentRuns() throws Exception {
+		final SessionMailbox mailbox = new SessionMailbox();
+		final int[] running = new int[1];
+		final boolean[] overlap = new boolean[1];
+		final Runnable task = new Runnable() {
+			public void run() {
+				// only the mailbox serializes this, no lock on purpose
+				if(++running[0] > 1) {
+					overlap[0] = true;
+				}
+				Thread.yield();
+				running[0]--;
+			}
+		};
+		final CountDownLatch done = new CountDownLatch(4);
+		for (int t = 0; t < 4; t++) {
+			new Thread() {
+				public void run() {
+					for (int i = 0; i < 1000; i++) {
+						mailbox.execute(task);
+					}
+					done.countDown();
+				}
+			}.start();
+		}
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertFalse(overlap[0]);
+	}
+
+	public void testReentrancy() {
+		final SessionMailbox mailbox = new SessionMailbox();
+		mailbox.execute(new Runnable() {
+			public void run() {
+				runs.add(0);
+				// run after the current task by the same thread instead of dead locking
+				mailbox.execute(task(2));
+				runs.add(1);
+			}
+		});
+		assertEquals(3, runs.size());
+		assertEquals(Integer.valueOf(0), runs.get(0));
+		assertEquals(Integer.valueOf(1), runs.get(1));
+		assertEquals(Integer.valueOf(2), runs.get(2));
+		assertEquals(0, mailbox.getPendingTasks());
+	}
+
+	public void testRejection() {
+		final SessionMailbox mailbox = new SessionMailbox();
+		final Runnable rejected = task(0);
+		final Runnable[] firstTask = new Runnable[1];
+		Executor rejectingExecutor = new Executor() {
+			public void execute(Runnable r) {
+				// the rejection policy sees the task that made the mailbox busy
+				assertTrue(r instanceof SessionMailbox.DrainTask);
+				firstTask[0] = ((SessionMailbox.DrainTask) r).getFirstTask();
+				throw new RejectedExecutionException();
+			}
+		};
+		try {
+			mailbox.execute(rejected, rejectingExecutor);
+			fail("the draining should have been rejected");
+		} catch (RejectedExecutionException e) {
+			// expected
+		}
+		assertSame(rejected, firstTask[0]);
+		assertTrue(runs.isEmpty());
+		assertEquals(0, mailbox.getPendingTasks());
+
+		// the mailbox is still usable after a rejection
+		mailbox.execute(task(1), new Executor() {
+			public void execute(Runnable r) {
+				r.run();
+			}
+		});
+		assertEquals(Collections.singletonList(1), runs);
+	}
+}
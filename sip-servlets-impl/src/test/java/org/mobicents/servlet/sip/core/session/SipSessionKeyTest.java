@@ -0,0 +1,102 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.core.session;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import junit.framework.TestCase;
+
+public class SipSessionKeyTest extends TestCase {
+
+	public void testSipSessionKeySerialization() throws Exception {
+		SipSessionKey key = new SipSessionKey("fromTag", "toTag", "callId", "appSessionId", "app");
+		SipSessionKey copy = (SipSessionKey) serializeAndDeserialize(key);
+		assertEquals(key, copy);
+		assertEquals(key.hashCode(), copy.hashCode());
+		assertEquals(key.getHash(), copy.getHash());
+		assertEquals("app", copy.getApplicationName());
+		assertEquals(key.toString(), copy.toString());
+	}
+
+	public void testSipApplicationSessionKeySerialization() throws Exception {
+		SipApplicationSessionKey key = new SipApplicationSessionKey("id", "app", null);
+		SipApplicationSessionKey copy = (SipApplicationSessionKey) serializeAndDeserialize(key);
+		assertEquals(key, copy);
+		assertEquals(key.hashCode(), copy.hashCode());
+		assertEquals("app", copy.getApplicationName());
+		assertEquals(key.toString(), copy.toString());
+	}
+
+	public void testRegisteredApplicationNameShared() {
+		ApplicationNameRegistry.register(new String("deployed-app"));
+		try {
+			SipSessionKey key = new SipSessionKey("fromTag", null, "callId", "appSessionId", new String("deployed-app"));
+			SipApplicationSessionKey applicationSessionKey = new SipApplicationSessionKey("id", new String("deployed-app"), null);
+			assertSame(ApplicationNameRegistry.canonicalName("deployed-app"), key.getApplicationName());
+			assertSame(key.getApplicationName(), applicationSessionKey.getApplicationName());
+		} finally {
+			ApplicationNameRegistry.unregister("deployed-app");
+		}
+	}
+
+	public void testUnknownApplicationNameNotRegistered() {
+		// names coming from the network are kept as they are by the key, never registered
+		String unknown = new String("unknown-app");
+		SipSessionKey key = new SipSessionKey("fromTag", null, "callId", "appSessionId", unknown);
+		assertSame(unknown, key.getApplicationName());
+		String other = new String("unknown-app");
+		assertSame(other, ApplicationNameRegistry.canonicalName(other));
+		assertEquals(key, new SipSessionKey("fromTag", null, "callId", "appSessionId", other));
+	}
+
+	public void testHashIndependentOfRegistration() {
+		long hash = new SipSessionKey("fromTag", null, "callId", "appSessionId", "late-app").getHash();
+		assertEquals(SipSessionKey.hash("late-app", "appSessionId", "callId", "fromTag"), hash);
+		long applicationSessionHash = SipSessionKey.hash("late-app", "id");
+		assertEquals((int) (applicationSessionHash ^ (applicationSessionHash >>> 32)), 
+				new SipApplicationSessionKey("id", "late-app", null).hashCode());
+	}
+
+	public void testEqualsAndHash() {
+		SipSessionKey key = new SipSessionKey("fromTag", null, "callId", "appSessionId", "app");
+		// the to tag is not compared
+		SipSessionKey withToTag = new SipSessionKey("fromTag", "toTag", "callId", "appSessionId", "app");
+		assertEquals(key, withToTag);
+		assertEquals(key.getHash(), withToTag.getHash());
+		assertFalse(key.equals(new SipSessionKey("fromTag", null, "callId", "appSessionId", "app2")));
+		assertFalse(key.equals(new SipSessionKey("fromTag", null, "callId", "appSessionId2", "app")));
+		assertFalse(key.equals(new SipSessionKey(null, null, "callId", "appSessionId", "app")));
+		// the same characters split differently among the components
+		assertTrue(SipSessionKey.hash("ab", "c") != SipSessionKey.hash("a", "bc"));
+		assertTrue(SipSessionKey.hash(null, "a") != SipSessionKey.hash("", "a"));
+	}
+
+	private static Object serializeAndDeserialize(Object object) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(object);
+		out.close();
+		return new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+	}
+}
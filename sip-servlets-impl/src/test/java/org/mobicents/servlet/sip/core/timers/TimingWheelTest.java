@@ -0,0 +1,122 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.core.timers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import junit.framework.TestCase;
+
+public class TimingWheelTest extends TestCase {
+
+	private static final long START = 1000000L;
+
+	private static class RecordingEntry extends TimingWheel.Entry {
+		private final String name;
+		private final List<String> fired;
+
+		RecordingEntry(String name, List<String> fired) {
+			this.name = name;
+			this.fired = fired;
+		}
+
+		public void run() {
+			fired.add(name);
+		}
+	}
+
+	public void testExpireAndCancel() {
+		// 8 ticks of 100 ms
+		TimingWheel wheel = new TimingWheel(100, 8, START);
+		List<String> fired = new ArrayList<String>();
+		RecordingEntry a = new RecordingEntry("a", fired);
+		RecordingEntry b = new RecordingEntry("b", fired);
+		RecordingEntry c = new RecordingEntry("c", fired);
+		wheel.schedule(a, 250, START);
+		wheel.schedule(b, 250, START);
+		// goes around the wheel twice
+		wheel.schedule(c, 2000, START);
+		assertEquals(3, wheel.size());
+		assertTrue(wheel.cancel(b));
+		assertFalse(wheel.cancel(b));
+		assertEquals(0, wheel.expire(START + 200));
+		assertEquals(1, wheel.expire(START + 300));
+		assertEquals("a", fired.get(0));
+		assertFalse(wheel.isScheduled(a));
+		assertEquals(0, wheel.expire(START + 1999));
+		assertEquals(1, wheel.expire(START + 2000));
+		assertEquals(2, fired.size());
+		assertEquals(0, wheel.size());
+	}
+
+	public void testReschedule() {
+		TimingWheel wheel = new TimingWheel(100, 8, START);
+		final List<String> fired = new ArrayList<String>();
+		final TimingWheel theWheel = wheel;
+		// reschedules itself once like a session accessed since its timer was scheduled
+		TimingWheel.Entry entry = new TimingWheel.Entry() {
+			public void run() {
+				fired.add("run");
+				if(fired.size() == 1) {
+					theWheel.schedule(this, 500, START + 100);
+				}
+			}
+		};
+		wheel.schedule(entry, 100, START);
+		assertEquals(1, wheel.expire(START + 100));
+		assertTrue(wheel.isScheduled(entry));
+		// pushing the deadline back moves the entry to another bucket
+		wheel.schedule(entry, 1000, START + 100);
+		assertEquals(0, wheel.expire(START + 1000));
+		assertEquals(1, wheel.expire(START + 1100));
+		assertEquals(2, fired.size());
+		// scheduling in the past fires on the next tick
+		wheel.schedule(entry, -50, START + 1100);
+		assertEquals(1, wheel.expire(START + 1200));
+	}
+
+	public void testHandOffToExecutor() {
+		TimingWheel wheel = new TimingWheel(100, 8, START);
+		List<String> fired = new ArrayList<String>();
+		RecordingEntry a = new RecordingEntry("a", fired);
+		RecordingEntry b = new RecordingEntry("b", fired);
+		wheel.schedule(a, 100, START);
+		wheel.schedule(b, 100, START);
+		final List<Runnable> handedOff = new ArrayList<Runnable>();
+		Executor executor = new Executor() {
+			public void execute(Runnable command) {
+				handedOff.add(command);
+			}
+		};
+		// the thread moving the wheel doesn't run the entries
+		assertEquals(2, wheel.expire(START + 100, executor));
+		assertTrue(fired.isEmpty());
+		assertEquals(0, wheel.size());
+		// an entry cancelled before the executor runs it is skipped
+		assertTrue(wheel.cancel(b));
+		for (Runnable runnable : handedOff) {
+			runnable.run();
+		}
+		assertEquals(1, fired.size());
+		assertEquals("a", fired.get(0));
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.message;
+
+import gov.nist.javax.sip.header.HeaderFactoryImpl;
+import gov.nist.javax.sip.parser.StringMsgParser;
+
+import javax.sip.header.FromHeader;
+import javax.sip.header.HeaderAddress;
+import javax.sip.message.Request;
+
+import junit.framework.TestCase;
+
+import org.mobicents.servlet.sip.address.AddressImpl;
+import org.mobicents.servlet.sip.address.AddressImpl.ModifiableRule;
+
+public class AddressViewsTest extends TestCase {
+
+	private Request request;
+	private AddressViews views;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		String message = "MESSAGE sip:bob@example.com SIP/2.0\r\n" +
+				"Via: SIP/2.0/UDP 192.0.2.1:5070;branch=z9hG4bK-views\r\n" +
+				"From: <sip:alice@example.com>;tag=1234;foo=bar\r\n" +
+				"To: <sip:bob@example.com>\r\n" +
+				"Call-ID: views@192.0.2.1\r\n" +
+				"CSeq: 1 MESSAGE\r\n" +
+				"Max-Forwards: 70\r\n" +
+				"P-Asserted-Identity: <sip:alice@example.com>\r\n" +
+				"Content-Length: 0\r\n\r\n";
+		request = (Request) new StringMsgParser().parseSIPMessage(message.getBytes("UTF-8"), true, false, null);
+		views = new AddressViews();
+	}
+
+	public void testReusedForSameHeader() throws Exception {
+		HeaderAddress from = (HeaderAddress) request.getHeader(FromHeader.NAME);
+		AddressImpl address = views.get(from, ModifiableRule.From);
+		assertSame(address, views.get(from, ModifiableRule.From));
+		assertEquals("bar", address.getParameter("foo"));
+		assertTrue(address.isBackedByHeader());
+
+		HeaderAddress identity = (HeaderAddress) request.getHeader("P-Asserted-Identity");
+		assertNotSame(address, views.get(identity, ModifiableRule.Modifiable));
+		assertSame(address, views.get(from, ModifiableRule.From));
+	}
+
+	public void testNewViewForReplacedHeader() throws Exception {
+		HeaderAddress identity = (HeaderAddress) request.getHeader("P-Asserted-Identity");
+		AddressImpl address = views.get(identity, ModifiableRule.Modifiable);
+		// what setAddressHeader and removeHeader end up doing
+		request.setHeader(new HeaderFactoryImpl().createHeader("P-Asserted-Identity", "<sip:carol@example.com>"));
+		HeaderAddress replaced = (HeaderAddress) request.getHeader("P-Asserted-Identity");
+		AddressImpl replacedAddress = views.get(replaced, ModifiableRule.Modifiable);
+		assertNotSame(address, replacedAddress);
+		assertEquals("sip:carol@example.com", replacedAddress.getURI().toString());
+	}
+
+	public void testNewViewAfterParameterWrite() throws Exception {
+		HeaderAddress identity = (HeaderAddress) request.getHeader("P-Asserted-Identity");
+		AddressImpl address = views.get(identity, ModifiableRule.Modifiable);
+		address.setParameter("x", "y");
+		assertFalse(address.isBackedByHeader());
+		AddressImpl other = views.get(identity, ModifiableRule.Modifiable);
+		assertNotSame(address, other);
+		// the write went through to the header
+		assertEquals("y", other.getParameter("x"));
+		assertSame(other, views.get(identity, ModifiableRule.Modifiable));
+	}
+
+	public void testNewViewOnceCommitted() throws Exception {
+		HeaderAddress identity = (HeaderAddress) request.getHeader("P-Asserted-Identity");
+		AddressImpl address = views.get(identity, ModifiableRule.Modifiable);
+		AddressImpl committed = views.get(identity, ModifiableRule.NotModifiable);
+		assertNotSame(address, committed);
+		assertSame(committed, views.get(identity, ModifiableRule.NotModifiable));
+		try {
+			committed.setParameter("x", "y");
+			fail("a committed message can't be modified");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.message;
+
+import junit.framework.TestCase;
+
+public class AsciiCharSequenceTest extends TestCase {
+
+	private static final String SDP = "v=0\r\no=- 1 1 IN IP4 127.0.0.1\r\ns=-\r\nc=IN IP4 127.0.0.1\r\nt=0 0\r\nm=audio 6000 RTP/AVP 0\r\n";
+
+	public void testViewsTheBytes() throws Exception {
+		byte[] bytes = SDP.getBytes("US-ASCII");
+		assertTrue(AsciiCharSequence.isAscii(bytes));
+		AsciiCharSequence chars = new AsciiCharSequence(bytes);
+		assertEquals(SDP.length(), chars.length());
+		assertEquals('v', chars.charAt(0));
+		assertEquals(SDP, chars.toString());
+		assertSame(chars.toString(), chars.toString());
+	}
+
+	public void testSubSequence() throws Exception {
+		AsciiCharSequence chars = new AsciiCharSequence(SDP.getBytes("US-ASCII"));
+		int start = SDP.indexOf("m=");
+		CharSequence media = chars.subSequence(start, SDP.length() - 2);
+		assertEquals("m=audio 6000 RTP/AVP 0", media.toString());
+		assertEquals("audio", media.subSequence(2, 7).toString());
+	}
+
+	public void testOutOfBounds() throws Exception {
+		AsciiCharSequence chars = new AsciiCharSequence("abc".getBytes("US-ASCII"));
+		try {
+			chars.charAt(3);
+			fail("index past the end");
+		} catch (IndexOutOfBoundsException e) {
+			// expected
+		}
+		try {
+			chars.subSequence(2, 1);
+			fail("start after end");
+		} catch (IndexOutOfBoundsException e) {
+			// expected
+		}
+	}
+
+	public void testNonAscii() throws Exception {
+		assertFalse(AsciiCharSequence.isAscii("s=caf\u00e9".getBytes("UTF-8")));
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.message;
+
+import junit.framework.TestCase;
+
+import org.mobicents.servlet.sip.address.AddressImpl.ModifiableRule;
+
+public class HeaderRegistryTest extends TestCase {
+
+	public void testFullAndCompactNames() {
+		HeaderDescriptor contact = HeaderRegistry.lookup("Contact");
+		assertNotNull(contact);
+		assertEquals("Contact", contact.getName());
+		assertEquals("m", contact.getCompactName());
+		assertTrue(contact.isAddress());
+		assertTrue(contact.isParameterable());
+		assertSame(contact, HeaderRegistry.lookup("m"));
+		assertSame(contact, HeaderRegistry.lookup("M"));
+
+		HeaderDescriptor maxForwards = HeaderRegistry.lookup("Max-Forwards");
+		assertNotNull(maxForwards);
+		assertNull(maxForwards.getCompactName());
+		assertTrue(maxForwards.isSingleton());
+	}
+
+	public void testMixedCaseLookupReturnsCanonicalName() {
+		HeaderDescriptor callId = HeaderRegistry.lookup("Call-ID");
+		assertNotNull(callId);
+		assertSame(callId, HeaderRegistry.lookup("call-id"));
+		assertSame(callId, HeaderRegistry.lookup("CALL-ID"));
+		assertSame(callId, HeaderRegistry.lookup("cAlL-iD"));
+		assertSame(callId, HeaderRegistry.lookup("I"));
+		assertEquals("Call-ID", HeaderRegistry.lookup("call-id").getName());
+		assertEquals("i", callId.getCompactName());
+		assertEquals("Via", HeaderRegistry.lookup("V").getName());
+	}
+
+	public void testUnknownHeaders() {
+		assertNull(HeaderRegistry.lookup(null));
+		assertNull(HeaderRegistry.lookup(""));
+		assertNull(HeaderRegistry.lookup("X-Unknown-Header"));
+		// a compact form that isn't assigned
+		assertNull(HeaderRegistry.lookup("z"));
+		// prefix of a known header
+		assertNull(HeaderRegistry.lookup("Call"));
+	}
+
+	public void testSystemHeadersNotModifiable() {
+		HeaderDescriptor callId = HeaderRegistry.lookup("call-id");
+		assertTrue(callId.isSystem());
+		assertEquals(ModifiableRule.NotModifiable, callId.getModifiableRule());
+		HeaderDescriptor via = HeaderRegistry.lookup("v");
+		assertTrue(via.isSystem());
+		assertTrue(via.isParameterable());
+		assertEquals(ModifiableRule.NotModifiable, via.getModifiableRule());
+		HeaderDescriptor subject = HeaderRegistry.lookup("s");
+		assertFalse(subject.isSystem());
+		assertEquals(ModifiableRule.Modifiable, subject.getModifiableRule());
+	}
+
+	public void testAddParameterableHeaderRebuildsTable() {
+		HeaderDescriptor contact = HeaderRegistry.lookup("Contact");
+		assertNull(HeaderRegistry.lookup("X-Registry-Test"));
+		HeaderRegistry.addParameterableHeader("X-Registry-Test");
+		HeaderDescriptor extension = HeaderRegistry.lookup("x-registry-test");
+		assertNotNull(extension);
+		assertEquals("X-Registry-Test", extension.getName());
+		assertTrue(extension.isParameterable());
+		assertFalse(extension.isSystem());
+		assertNull(extension.getCompactName());
+		// the known headers are still there, with the same canonical names
+		assertEquals(contact.getName(), HeaderRegistry.lookup("m").getName());
+		// configuring it again with another case doesn't change its canonical name
+		HeaderRegistry.addParameterableHeader("x-registry-test");
+		assertEquals("X-Registry-Test", HeaderRegistry.lookup("X-REGISTRY-TEST").getName());
+	}
+}
@@ -0,0 +1,293 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.message;
+
+import gov.nist.javax.sip.header.HeaderFactoryImpl;
+import gov.nist.javax.sip.message.SIPMessage;
+import gov.nist.javax.sip.parser.StringMsgParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.ListIterator;
+import java.util.Map;
+
+import javax.servlet.sip.SipServletMessage.HeaderForm;
+import javax.sip.ClientTransaction;
+import javax.sip.ServerTransaction;
+import javax.sip.Transaction;
+import javax.sip.header.Header;
+import javax.sip.message.Request;
+import javax.sip.message.Response;
+
+import junit.framework.TestCase;
+
+public class MessageExternalizerTest extends TestCase {
+
+	private static final String REQUEST =
+		"INVITE sip:bob@example.com SIP/2.0\r\n" +
+		"Via: SIP/2.0/UDP 10.0.0.1:5060;branch=z9hG4bK-1\r\n" +
+		"Via: SIP/2.0/TCP 10.0.0.2:5070;branch=z9hG4bK-2;received=10.0.0.3\r\n" +
+		"Max-Forwards: 70\r\n" +
+		"From: \"Alice\" <sip:alice@example.com>;tag=1234\r\n" +
+		"To: <sip:bob@example.com>\r\n" +
+		"Call-ID: call-1@10.0.0.1\r\n" +
+		"CSeq: 1 INVITE\r\n" +
+		"Contact: <sip:alice@10.0.0.1:5060>\r\n" +
+		"X-Custom-Header: some value; with=params\r\n" +
+		"Content-Length: 0\r\n" +
+		"\r\n";
+
+	private static final String RESPONSE =
+		"SIP/2.0 180 Ringing\r\n" +
+		"Via: SIP/2.0/UDP 10.0.0.1:5060;branch=z9hG4bK-1\r\n" +
+		"From: \"Alice\" <sip:alice@example.com>;tag=1234\r\n" +
+		"To: <sip:bob@example.com>;tag=5678\r\n" +
+		"Call-ID: call-1@10.0.0.1\r\n" +
+		"CSeq: 1 INVITE\r\n" +
+		"Content-Length: 0\r\n" +
+		"\r\n";
+
+	public void testRequestWithoutBody() throws Exception {
+		SIPMessage request = parse(REQUEST);
+		SIPMessage restored = roundTrip(request);
+		assertTrue(restored instanceof Request);
+		assertSameMessage(request, restored);
+		assertNull(restored.getRawContent());
+	}
+
+	public void testRequestWithBody() throws Exception {
+		SIPMessage request = parse(REQUEST);
+		request.setContent("v=0\r\no=- 1 1 IN IP4 10.0.0.1\r\n",
+				new HeaderFactoryImpl().createContentTypeHeader("application", "sdp"));
+		SIPMessage restored = roundTrip(request);
+		assertSameMessage(request, restored);
+		assertTrue(Arrays.equals(request.getRawContent(), restored.getRawContent()));
+		assertEquals(request.getRawContent().length, restored.getContentLength().getContentLength());
+	}
+
+	public void testResponseWithoutBody() throws Exception {
+		SIPMessage response = parse(RESPONSE);
+		SIPMessage restored = roundTrip(response);
+		assertTrue(restored instanceof Response);
+		assertEquals(180, ((Response) restored).getStatusCode());
+		assertEquals("Ringing", ((Response) restored).getReasonPhrase());
+		assertSameMessage(response, restored);
+	}
+
+	public void testResponseWithBody() throws Exception {
+		SIPMessage response = parse(RESPONSE);
+		response.setMessageContent(new byte[] {0, 1, 2, (byte) 0xFF});
+		SIPMessage restored = roundTrip(response);
+		assertSameMessage(response, restored);
+		assertTrue(Arrays.equals(response.getRawContent(), restored.getRawContent()));
+	}
+
+	public void testBodyOverWriteUTFLimit() throws Exception {
+		SIPMessage request = parse(REQUEST);
+		byte[] body = new byte[70 * 1024];
+		for (int i = 0; i < body.length; i++) {
+			body[i] = (byte) ('a' + i % 26);
+		}
+		request.setMessageContent(body);
+		SIPMessage restored = roundTrip(request);
+		assertTrue(Arrays.equals(body, restored.getRawContent()));
+		assertEquals(body.length, restored.getContentLength().getContentLength());
+	}
+
+	public void testHeadersKeepTheirOrder() throws Exception {
+		SIPMessage restored = roundTrip(parse(REQUEST));
+		ListIterator<Header> vias = restored.getHeaders("Via");
+		assertTrue(vias.next().toString().contains("branch=z9hG4bK-1"));
+		assertTrue(vias.next().toString().contains("received=10.0.0.3"));
+		assertFalse(vias.hasNext());
+		assertEquals("call-1@10.0.0.1", restored.getCallId().getCallId());
+		Header custom = restored.getHeader("X-Custom-Header");
+		assertNotNull(custom);
+		assertTrue(custom.toString().contains("some value; with=params"));
+	}
+
+	public void testAttributes() throws Exception {
+		Map<String, Object> attributes = new HashMap<String, Object>();
+		attributes.put(new String("org.example.attribute"), "value");
+		attributes.put("org.example.number", Integer.valueOf(42));
+		ObjectInputStream in = read(write(attributes, HeaderForm.DEFAULT, null, parse(REQUEST)));
+		Map<String, Object> restored = MessageExternalizer.readAttributes(in);
+		assertEquals(attributes, restored);
+		for (String name : restored.keySet()) {
+			assertSame(name.intern(), name);
+		}
+	}
+
+	public void testNoAttributes() throws Exception {
+		ObjectInputStream in = read(write(new HashMap<String, Object>(), HeaderForm.DEFAULT, null, parse(REQUEST)));
+		assertNull(MessageExternalizer.readAttributes(in));
+		in = read(write(null, HeaderForm.DEFAULT, null, parse(REQUEST)));
+		assertNull(MessageExternalizer.readAttributes(in));
+	}
+
+	public void testEachHeaderForm() throws Exception {
+		for (HeaderForm headerForm : HeaderForm.values()) {
+			ObjectInputStream in = read(write(null, headerForm, null, parse(RESPONSE)));
+			assertNull(MessageExternalizer.readAttributes(in));
+			assertSame(headerForm, MessageExternalizer.readHeaderForm(in));
+		}
+	}
+
+	public void testUnknownHeaderForm() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeByte(HeaderForm.values().length);
+		out.close();
+		try {
+			MessageExternalizer.readHeaderForm(read(bytes.toByteArray()));
+			fail();
+		} catch (InvalidObjectException e) {
+			// expected
+		}
+	}
+
+	public void testEarlyDialogTransactionReference() throws Exception {
+		SIPMessage request = parse(REQUEST);
+		// EarlyDialog on with a server transaction
+		ObjectInputStream in = readUpToTransaction(write(null, HeaderForm.DEFAULT, transaction(ServerTransaction.class, "z9hG4bK-1"), request));
+		MessageExternalizer.TransactionReference reference = MessageExternalizer.readTransactionReference(in);
+		assertEquals("z9hG4bK-1", reference.getBranchId());
+		assertTrue(reference.isServer());
+		assertSameMessage(request, MessageExternalizer.readMessage(in));
+		// EarlyDialog on with a client transaction
+		in = readUpToTransaction(write(null, HeaderForm.DEFAULT, transaction(ClientTransaction.class, "z9hG4bK-2"), request));
+		reference = MessageExternalizer.readTransactionReference(in);
+		assertEquals("z9hG4bK-2", reference.getBranchId());
+		assertFalse(reference.isServer());
+		assertSameMessage(request, MessageExternalizer.readMessage(in));
+		// EarlyDialog on without any transaction
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		MessageExternalizer.writeTransactionReference(out, null);
+		MessageExternalizer.writeMessage(out, request);
+		out.close();
+		in = read(bytes.toByteArray());
+		assertNull(MessageExternalizer.readTransactionReference(in));
+		assertSameMessage(request, MessageExternalizer.readMessage(in));
+	}
+
+	public void testEarlyDialogOff() throws Exception {
+		SIPMessage request = parse(REQUEST);
+		ObjectInputStream in = readUpToTransaction(write(null, HeaderForm.DEFAULT, null, request));
+		// nothing is written about the transaction, the message comes right away
+		assertSameMessage(request, MessageExternalizer.readMessage(in));
+	}
+
+	public void testLegacyMessage() throws Exception {
+		SIPMessage request = parse(REQUEST);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeUTF("session-key-of-the-previous-layout");
+		out.writeUTF(request.toString());
+		out.close();
+		ObjectInputStream in = read(bytes.toByteArray());
+		assertFalse(MessageExternalizer.isFormatMarker(in.readUTF()));
+		assertSameMessage(request, MessageExternalizer.readLegacyMessage(in));
+	}
+
+	public void testUnparseableStartLine() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeUTF("not a start line");
+		out.writeInt(0);
+		out.writeInt(-1);
+		out.close();
+		try {
+			MessageExternalizer.readMessage(read(bytes.toByteArray()));
+			fail();
+		} catch (InvalidObjectException e) {
+			assertNotNull(e.getCause());
+		}
+	}
+
+	private static SIPMessage parse(String message) throws Exception {
+		return new StringMsgParser().parseSIPMessage(message.getBytes("UTF-8"), true, false, null);
+	}
+
+	private static SIPMessage roundTrip(SIPMessage message) throws Exception {
+		ObjectInputStream in = readUpToTransaction(write(null, HeaderForm.DEFAULT, null, message));
+		return MessageExternalizer.readMessage(in);
+	}
+
+	/**
+	 * Writes the fields the way SipServletMessageImpl.writeExternal does, the transaction
+	 * reference only being there with ReplicationStrategy.EarlyDialog
+	 */
+	private static byte[] write(Map<String, Object> attributes, HeaderForm headerForm, Transaction transaction, SIPMessage message) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeUTF(MessageExternalizer.FORMAT_MARKER);
+		out.writeByte(MessageExternalizer.FORMAT_VERSION);
+		out.writeUTF("session-key");
+		MessageExternalizer.writeAttributes(out, attributes);
+		MessageExternalizer.writeHeaderForm(out, headerForm);
+		if(transaction != null) {
+			MessageExternalizer.writeTransactionReference(out, transaction);
+		}
+		MessageExternalizer.writeMessage(out, message);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	private static ObjectInputStream read(byte[] bytes) throws IOException {
+		return new ObjectInputStream(new ByteArrayInputStream(bytes));
+	}
+
+	private static ObjectInputStream readUpToTransaction(byte[] bytes) throws Exception {
+		ObjectInputStream in = read(bytes);
+		assertTrue(MessageExternalizer.isFormatMarker(in.readUTF()));
+		assertEquals(MessageExternalizer.FORMAT_VERSION, in.readByte());
+		assertEquals("session-key", in.readUTF());
+		MessageExternalizer.readAttributes(in);
+		MessageExternalizer.readHeaderForm(in);
+		return in;
+	}
+
+	private static void assertSameMessage(SIPMessage expected, SIPMessage actual) {
+		assertEquals(expected.getFirstLine(), actual.getFirstLine());
+		assertEquals(expected.toString(), actual.toString());
+	}
+
+	private static Transaction transaction(Class<? extends Transaction> type, final String branchId) {
+		return (Transaction) Proxy.newProxyInstance(MessageExternalizerTest.class.getClassLoader(), new Class<?>[] {type}, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if("getBranchId".equals(method.getName())) {
+					return branchId;
+				}
+				return null;
+			}
+		});
+	}
+}
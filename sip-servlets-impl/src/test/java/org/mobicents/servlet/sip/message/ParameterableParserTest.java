@@ -0,0 +1,111 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.message;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.sip.ServletParseException;
+
+import junit.framework.TestCase;
+
+public class ParameterableParserTest extends TestCase {
+
+	private Map<String, String> parameters;
+
+	@Override
+	protected void setUp() throws Exception {
+		parameters = new HashMap<String, String>();
+	}
+
+	private String parse(String header) throws ServletParseException {
+		return ParameterableParser.parse(header, header.indexOf(':') + 1, parameters);
+	}
+
+	public void testRemotePartyId() throws ServletParseException {
+		assertEquals("\"Alice Smith\"<sip:alice@example.com>",
+				parse("Remote-Party-ID: \"Alice Smith\" <sip:alice@example.com>;party=calling;screen=yes;privacy=off\r\n"));
+		assertEquals(3, parameters.size());
+		assertEquals("calling", parameters.get("party"));
+		assertEquals("off", parameters.get("privacy"));
+	}
+
+	public void testDisplayNameWithEscapedQuoteAndSeparators() throws ServletParseException {
+		assertEquals("\"Bob \\\"the; <builder>\\\"\"<sip:bob@example.com;transport=tcp>",
+				parse("P-Asserted-Identity: \"Bob \\\"the; <builder>\\\"\"<sip:bob@example.com;transport=tcp>\r\n"));
+		// the uri parameters are part of the value
+		assertTrue(parameters.isEmpty());
+	}
+
+	public void testSipInstanceAndGruu() throws ServletParseException {
+		// http://code.google.com/p/sipservlets/issues/detail?id=105
+		assertEquals("<sip:1.2.3.4:5061>",
+				parse("Contact: <sip:1.2.3.4:5061>;expires=500;+sip.instance=\"<urn:uuid:00000000-0000-0000-0000-000000000000>\";gruu=\"sip:100@ocs14.com;opaque=user:epid:xxxxxxxx;gruu\"\r\n"));
+		assertEquals("500", parameters.get("expires"));
+		assertEquals("\"<urn:uuid:00000000-0000-0000-0000-000000000000>\"", parameters.get("+sip.instance"));
+		assertEquals("\"sip:100@ocs14.com;opaque=user:epid:xxxxxxxx;gruu\"", parameters.get("gruu"));
+		assertEquals(3, parameters.size());
+	}
+
+	public void testFlagParameters() throws ServletParseException {
+		// Issue 1010 : flag parameters
+		assertEquals("<sip:proxy.example.com>", parse("Path: <sip:proxy.example.com> ; lr ;ob\r\n"));
+		assertEquals("", parameters.get("lr"));
+		assertEquals("", parameters.get("ob"));
+	}
+
+	public void testWithoutAngleBrackets() throws ServletParseException {
+		assertEquals("application/sdp", parse("Content-Type: application/sdp;charset=\"utf;8\";level=1\r\n"));
+		assertEquals("\"utf;8\"", parameters.get("charset"));
+		assertEquals("1", parameters.get("level"));
+		parameters.clear();
+		assertEquals("3600", parse("Session-Expires: 3600\r\n"));
+		assertTrue(parameters.isEmpty());
+	}
+
+	public void testCommaSeparatedParameters() throws ServletParseException {
+		// https://code.google.com/p/sipservlets/issues/detail?id=239
+		assertEquals("Digest realm=\"a,b\", nonce=\"123\"", parse("X-Auth: Digest realm=\"a,b\", nonce=\"123\"\r\n"));
+		assertEquals("a,b", parameters.get("Digest realm"));
+		assertEquals("123", parameters.get("nonce"));
+	}
+
+	public void testMalformed() {
+		try {
+			parse("Contact: <sip:alice@example.com;expires=5\r\n");
+			fail("missing '>'");
+		} catch (ServletParseException e) {
+			// expected
+		}
+		try {
+			parse("Contact: <sip:alice@example.com>;+sip.instance=\"<urn:uuid:1234>\r\n");
+			fail("unclosed quote");
+		} catch (ServletParseException e) {
+			// expected
+		}
+		try {
+			parse("P-Asserted-Identity: \"Alice <sip:alice@example.com>\r\n");
+			fail("unclosed display name");
+		} catch (ServletParseException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.message;
+
+import gov.nist.javax.sip.address.AddressFactoryImpl;
+import gov.nist.javax.sip.parser.StringMsgParser;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javax.sip.address.SipURI;
+import javax.sip.header.ViaHeader;
+import javax.sip.message.Request;
+
+import junit.framework.TestCase;
+
+import org.mobicents.servlet.sip.core.MobicentsExtendedListeningPoint;
+import org.mobicents.servlet.sip.core.SipNetworkInterfaceManager;
+import org.mobicents.servlet.sip.core.dispatchers.MessageDispatcher;
+
+public class RouteBackToContainerTest extends TestCase {
+
+	private static final String APP_SESSION_ID = "4f2c1b9e-app";
+
+	private SipURI localURI;
+	private SipURI publicURI;
+	private SipNetworkInterfaceManager sipNetworkInterfaceManager;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		AddressFactoryImpl addressFactory = new AddressFactoryImpl();
+		localURI = addressFactory.createSipURI(null, "127.0.0.1");
+		localURI.setPort(5080);
+		publicURI = addressFactory.createSipURI(null, "203.0.113.10");
+		publicURI.setPort(5060);
+		final MobicentsExtendedListeningPoint listeningPoint = stub(MobicentsExtendedListeningPoint.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if("createRecordRouteURI".equals(method.getName())) {
+					return ((Boolean) args[0]) ? publicURI.clone() : localURI.clone();
+				}
+				if("isUseStaticAddress".equals(method.getName())) {
+					return Boolean.TRUE;
+				}
+				return defaultValue(method);
+			}
+		});
+		sipNetworkInterfaceManager = stub(SipNetworkInterfaceManager.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if("findMatchingListeningPoint".equals(method.getName())) {
+					return listeningPoint;
+				}
+				return defaultValue(method);
+			}
+		});
+	}
+
+	public void testRouteAddressedToPublicAddressWithoutLocalComposition() throws Exception {
+		Request request = parse(containerBranch());
+		SipURI sipURI = SipServletRequestImpl.createRouteBackToContainerURI(sipNetworkInterfaceManager, request, false, APP_SESSION_ID);
+		assertEquals("203.0.113.10", sipURI.getHost());
+		assertEquals(5060, sipURI.getPort());
+		ViaHeader viaHeader = (ViaHeader) request.getHeader(ViaHeader.NAME);
+		assertEquals("192.0.2.1", viaHeader.getHost());
+		assertEquals(5070, viaHeader.getPort());
+	}
+
+	public void testContainerViaAddressedToLocalListeningPoint() throws Exception {
+		Request request = parse(containerBranch());
+		SipURI sipURI = SipServletRequestImpl.createRouteBackToContainerURI(sipNetworkInterfaceManager, request, true, APP_SESSION_ID);
+		assertEquals("127.0.0.1", sipURI.getHost());
+		assertEquals(5080, sipURI.getPort());
+		ViaHeader viaHeader = (ViaHeader) request.getHeader(ViaHeader.NAME);
+		assertEquals("127.0.0.1", viaHeader.getHost());
+		assertEquals(5080, viaHeader.getPort());
+	}
+
+	public void testUpstreamViaLeftUntouched() throws Exception {
+		Request request = parse(MessageDispatcher.BRANCH_MAGIC_COOKIE + "upstream");
+		SipURI sipURI = SipServletRequestImpl.createRouteBackToContainerURI(sipNetworkInterfaceManager, request, true, APP_SESSION_ID);
+		assertEquals("127.0.0.1", sipURI.getHost());
+		ViaHeader viaHeader = (ViaHeader) request.getHeader(ViaHeader.NAME);
+		assertEquals("192.0.2.1", viaHeader.getHost());
+		assertEquals(5070, viaHeader.getPort());
+		// another application session of the container is not ours either
+		request = parse(MessageDispatcher.BRANCH_MAGIC_COOKIE + APP_SESSION_ID + "x_app_1");
+		SipServletRequestImpl.createRouteBackToContainerURI(sipNetworkInterfaceManager, request, true, APP_SESSION_ID);
+		assertEquals("192.0.2.1", ((ViaHeader) request.getHeader(ViaHeader.NAME)).getHost());
+	}
+
+	public void testNoVia() throws Exception {
+		Request request = parse(containerBranch());
+		request.removeHeader(ViaHeader.NAME);
+		SipURI sipURI = SipServletRequestImpl.createRouteBackToContainerURI(sipNetworkInterfaceManager, request, true, APP_SESSION_ID);
+		assertEquals("127.0.0.1", sipURI.getHost());
+		assertNull(request.getHeader(ViaHeader.NAME));
+		assertFalse(SipServletRequestImpl.isContainerVia(null, APP_SESSION_ID));
+	}
+
+	private static String containerBranch() {
+		return MessageDispatcher.BRANCH_MAGIC_COOKIE + APP_SESSION_ID + "_app_1";
+	}
+
+	private static Request parse(String branch) throws Exception {
+		String request = "INVITE sip:bob@example.com SIP/2.0\r\n" +
+				"Via: SIP/2.0/UDP 192.0.2.1:5070;branch=" + branch + "\r\n" +
+				"From: <sip:alice@example.com>;tag=1234\r\n" +
+				"To: <sip:bob@example.com>\r\n" +
+				"Call-ID: route-back@192.0.2.1\r\n" +
+				"CSeq: 1 INVITE\r\n" +
+				"Max-Forwards: 70\r\n" +
+				"Content-Length: 0\r\n\r\n";
+		return (Request) new StringMsgParser().parseSIPMessage(request.getBytes("UTF-8"), true, false, null);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T stub(Class<T> type, InvocationHandler handler) {
+		return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class[] {type}, handler);
+	}
+
+	private static Object defaultValue(Method method) {
+		Class<?> returnType = method.getReturnType();
+		if(returnType == boolean.class) {
+			return Boolean.FALSE;
+		}
+		if(returnType == int.class) {
+			return 0;
+		}
+		if(returnType == long.class) {
+			return 0L;
+		}
+		return null;
+	}
+}
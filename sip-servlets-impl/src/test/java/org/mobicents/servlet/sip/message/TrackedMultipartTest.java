@@ -0,0 +1,100 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.message;
+
+import java.io.ByteArrayOutputStream;
+
+import javax.mail.IllegalWriteException;
+import javax.mail.internet.MimeBodyPart;
+import javax.mail.util.ByteArrayDataSource;
+
+import junit.framework.TestCase;
+
+public class TrackedMultipartTest extends TestCase {
+
+	private static final String CONTENT_TYPE = "multipart/mixed;boundary=unique-boundary-1";
+	private static final String BODY =
+		"--unique-boundary-1\r\n" +
+		"Content-Type: application/sdp\r\n" +
+		"\r\n" +
+		"v=0\r\n" +
+		"--unique-boundary-1\r\n" +
+		"Content-Type: text/plain\r\n" +
+		"\r\n" +
+		"hello\r\n" +
+		"--unique-boundary-1--\r\n";
+
+	public void testReadingIsNotAChange() throws Exception {
+		TrackedMultipart multipart = parse();
+		assertEquals(2, multipart.getCount());
+		multipart.getBodyPart(0).getContentType();
+		multipart.getBodyPart(1).getContent();
+		multipart.writeTo(new ByteArrayOutputStream());
+		assertFalse(multipart.isModified());
+	}
+
+	public void testChangingAPart() throws Exception {
+		TrackedMultipart multipart = parse();
+		multipart.getBodyPart(1).setText("bye");
+		assertTrue(multipart.isModified());
+		multipart.clearModified();
+		assertFalse(multipart.isModified());
+		multipart.getBodyPart(0).setHeader("Content-Disposition", "session");
+		assertTrue(multipart.isModified());
+	}
+
+	public void testChangingTheParts() throws Exception {
+		TrackedMultipart multipart = parse();
+		MimeBodyPart part = new MimeBodyPart();
+		part.setText("added");
+		multipart.addBodyPart(part);
+		assertTrue(multipart.isModified());
+		multipart.clearModified();
+		multipart.removeBodyPart(0);
+		assertTrue(multipart.isModified());
+		assertEquals(2, multipart.getCount());
+	}
+
+	public void testFrozen() throws Exception {
+		TrackedMultipart multipart = parse();
+		assertEquals(2, multipart.getCount());
+		multipart.freeze();
+		assertTrue(multipart.isFrozen());
+		try {
+			multipart.getBodyPart(1).setText("bye");
+			fail();
+		} catch (IllegalWriteException e) {
+			// expected
+		}
+		try {
+			multipart.removeBodyPart(0);
+			fail();
+		} catch (IllegalWriteException e) {
+			// expected
+		}
+		assertEquals(2, multipart.getCount());
+		assertFalse(multipart.isModified());
+	}
+
+	private static TrackedMultipart parse() throws Exception {
+		return new TrackedMultipart(new ByteArrayDataSource(BODY.getBytes("US-ASCII"), CONTENT_TYPE));
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package org.mobicents.servlet.sip.utils;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import junit.framework.TestCase;
+
+public class ThreadLocalIdGeneratorTest extends TestCase {
+
+	public void testAlphabetAndLength() {
+		IdGenerator idGenerator = new ThreadLocalIdGenerator();
+		assertEquals(ThreadLocalIdGenerator.DEFAULT_ID_LENGTH, idGenerator.generateId().length());
+		Set<Character> characters = new HashSet<Character>();
+		for (int i = 0; i < 1000; i++) {
+			String id = idGenerator.generateId(8);
+			assertEquals(8, id.length());
+			for (char c : id.toCharArray()) {
+				assertTrue(id, Character.isLetterOrDigit(c) && c < 128);
+				characters.add(c);
+			}
+		}
+		// 8000 characters drawn, all of the 62 should show up
+		assertEquals(ThreadLocalIdGenerator.ALPHABET.length, characters.size());
+		try {
+			idGenerator.generateId(0);
+			fail("a zero length id should be refused");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testNoCollisionAcrossThreads() throws InterruptedException {
+		final IdGenerator idGenerator = new ThreadLocalIdGenerator();
+		final Set<String> ids = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		final int idsPerThread = 50000;
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < idsPerThread; j++) {
+						// 71 bits, a collision among these ids would point at correlated generators
+						ids.add(idGenerator.generateId(12));
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(threads.length * idsPerThread, ids.size());
+	}
+}